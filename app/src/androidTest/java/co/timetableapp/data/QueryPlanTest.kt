@@ -0,0 +1,179 @@
+/*
+ * Copyright 2017 Farbod Salamat-Zadeh
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package co.timetableapp.data
+
+import android.support.test.InstrumentationRegistry
+import android.support.test.runner.AndroidJUnit4
+import co.timetableapp.data.schema.AssignmentsSchema
+import co.timetableapp.data.schema.ClassDetailsSchema
+import co.timetableapp.data.schema.ClassOccurrencesSchema
+import co.timetableapp.data.schema.ClassScheduleSchema
+import co.timetableapp.data.schema.ClassTimesSchema
+import co.timetableapp.data.schema.ClassesSchema
+import co.timetableapp.data.schema.EventsSchema
+import co.timetableapp.data.schema.ExamsSchema
+import co.timetableapp.data.schema.SubjectsSchema
+import co.timetableapp.data.schema.TermsSchema
+import org.junit.Assert.assertFalse
+import org.junit.Assert.assertTrue
+import org.junit.Test
+import org.junit.runner.RunWith
+
+/**
+ * Checks with `EXPLAIN QUERY PLAN` that the queries run most often, such as those for lists, the
+ * agenda and the schedule, and those looking up the rows referencing an item, use the indexes
+ * created by [TimetableDbHelper] instead of scanning whole tables.
+ *
+ * The plans are read from the app's own database, so that its indexes are the ones checked.
+ */
+@RunWith(AndroidJUnit4::class)
+class QueryPlanTest {
+
+    /**
+     * @property sql                the query, with its arguments as `?`
+     * @property indexName          the index the query should use
+     * @property isSortedByIndex    whether the rows should be read in the order of the index, so
+     *                              that they don't need to be sorted afterwards
+     */
+    private class HotQuery(
+            val sql: String,
+            val indexName: String,
+            val isSortedByIndex: Boolean = false
+    )
+
+    private val hotQueries = listOf(
+            // Items of the current timetable
+            HotQuery("SELECT * FROM ${SubjectsSchema.TABLE_NAME} " +
+                    "WHERE ${SubjectsSchema.COL_TIMETABLE_ID}=?",
+                    "subjects_timetable_id_idx"),
+            HotQuery("SELECT * FROM ${ClassesSchema.TABLE_NAME} " +
+                    "WHERE ${ClassesSchema.COL_TIMETABLE_ID}=?",
+                    "classes_timetable_id_idx"),
+            HotQuery("SELECT * FROM ${TermsSchema.TABLE_NAME} " +
+                    "WHERE ${TermsSchema.COL_TIMETABLE_ID}=?",
+                    "terms_timetable_id_idx"),
+
+            // Pages of the agenda
+            HotQuery("SELECT * FROM ${AssignmentsSchema.TABLE_NAME} " +
+                    "WHERE ${AssignmentsSchema.COL_TIMETABLE_ID}=? " +
+                    "AND ${AssignmentsSchema.COL_DUE_DATE}>? " +
+                    "ORDER BY ${AssignmentsSchema.COL_DUE_DATE}, ${AssignmentsSchema._ID} LIMIT 20",
+                    "assignments_timetable_due_date_idx", true),
+            HotQuery("SELECT * FROM ${ExamsSchema.TABLE_NAME} " +
+                    "WHERE ${ExamsSchema.COL_TIMETABLE_ID}=? AND ${ExamsSchema.COL_DATE}>? " +
+                    "ORDER BY ${ExamsSchema.COL_DATE}, ${ExamsSchema._ID} LIMIT 20",
+                    "exams_timetable_date_idx", true),
+            HotQuery("SELECT * FROM ${EventsSchema.TABLE_NAME} " +
+                    "WHERE ${EventsSchema.COL_TIMETABLE_ID}=? " +
+                    "AND ${EventsSchema.COL_START_DATE}>? " +
+                    "ORDER BY ${EventsSchema.COL_START_DATE}, ${EventsSchema._ID} LIMIT 20",
+                    "events_timetable_start_date_idx", true),
+
+            // The schedule of a day, and the class occurrences of a range of dates
+            HotQuery("SELECT * FROM ${ClassScheduleSchema.TABLE_NAME} " +
+                    "WHERE ${ClassScheduleSchema.COL_TIMETABLE_ID}=? " +
+                    "AND ${ClassScheduleSchema.COL_DAY}=? " +
+                    "AND ${ClassScheduleSchema.COL_WEEK_NUMBER}=? " +
+                    "ORDER BY ${ClassScheduleSchema.COL_START_TIME}",
+                    "class_schedule_timetable_day_week_idx", true),
+            HotQuery("SELECT * FROM ${ClassTimesSchema.TABLE_NAME} " +
+                    "WHERE ${ClassTimesSchema.COL_TIMETABLE_ID}=? " +
+                    "AND ${ClassTimesSchema.COL_DAY}=? " +
+                    "AND ${ClassTimesSchema.COL_WEEK_NUMBER}=?",
+                    "class_times_timetable_day_week_idx"),
+            HotQuery("SELECT * FROM ${ClassOccurrencesSchema.TABLE_NAME} " +
+                    "WHERE ${ClassOccurrencesSchema.COL_TIMETABLE_ID}=? " +
+                    "AND ${ClassOccurrencesSchema.COL_DATE}>=? " +
+                    "AND ${ClassOccurrencesSchema.COL_DATE}<=? " +
+                    "ORDER BY ${ClassOccurrencesSchema.COL_DATE}, " +
+                    ClassOccurrencesSchema.COL_START_TIME,
+                    "class_occurrences_timetable_date_idx", true),
+            HotQuery("SELECT * FROM ${ClassOccurrencesSchema.TABLE_NAME} " +
+                    "WHERE ${ClassOccurrencesSchema.COL_CLASS_TIME_ID}=? " +
+                    "AND ${ClassOccurrencesSchema.COL_DATE}>=? " +
+                    "ORDER BY ${ClassOccurrencesSchema.COL_DATE} LIMIT 1",
+                    "class_occurrences_class_time_date_idx", true),
+
+            // Rows referencing an item, read when showing or deleting it
+            HotQuery("SELECT * FROM ${ClassesSchema.TABLE_NAME} " +
+                    "WHERE ${ClassesSchema.COL_SUBJECT_ID}=?",
+                    "classes_subject_id_idx"),
+            HotQuery("SELECT * FROM ${ClassDetailsSchema.TABLE_NAME} " +
+                    "WHERE ${ClassDetailsSchema.COL_CLASS_ID}=?",
+                    "class_details_class_id_idx"),
+            HotQuery("SELECT * FROM ${ClassTimesSchema.TABLE_NAME} " +
+                    "WHERE ${ClassTimesSchema.COL_CLASS_DETAIL_ID}=?",
+                    "class_times_class_detail_id_idx"),
+            HotQuery("SELECT * FROM ${AssignmentsSchema.TABLE_NAME} " +
+                    "WHERE ${AssignmentsSchema.COL_CLASS_ID}=?",
+                    "assignments_class_id_idx"),
+            HotQuery("SELECT * FROM ${ExamsSchema.TABLE_NAME} " +
+                    "WHERE ${ExamsSchema.COL_SUBJECT_ID}=?",
+                    "exams_subject_id_idx"),
+            HotQuery("SELECT * FROM ${ClassScheduleSchema.TABLE_NAME} " +
+                    "WHERE ${ClassScheduleSchema.COL_CLASS_DETAIL_ID}=?",
+                    "class_schedule_class_detail_id_idx"),
+            HotQuery("SELECT * FROM ${ClassScheduleSchema.TABLE_NAME} " +
+                    "WHERE ${ClassScheduleSchema.COL_CLASS_ID}=?",
+                    "class_schedule_class_id_idx"),
+            HotQuery("SELECT * FROM ${ClassScheduleSchema.TABLE_NAME} " +
+                    "WHERE ${ClassScheduleSchema.COL_SUBJECT_ID}=?",
+                    "class_schedule_subject_id_idx")
+    )
+
+    @Test
+    fun hotQueriesUseIndexes() {
+        hotQueries.forEach {
+            val plan = explain(it.sql)
+
+            assertTrue("${it.sql} should use ${it.indexName}, but was planned as $plan",
+                    plan.any { step -> step.contains(" INDEX ${it.indexName}") })
+
+            // Older versions of SQLite write 'SCAN TABLE', newer ones only 'SCAN'
+            assertFalse("${it.sql} scans a table: $plan",
+                    plan.any { step -> step.startsWith("SCAN") && !step.contains("USING") })
+
+            if (it.isSortedByIndex) {
+                assertFalse("${it.sql} sorts its rows: $plan",
+                        plan.any { step -> step.contains("TEMP B-TREE") })
+            }
+        }
+    }
+
+    /**
+     * @return the details of each step of the query plan of the [sql]
+     */
+    private fun explain(sql: String): List<String> {
+        val argCount = sql.count { it == '?' }
+        val args = Array(argCount) { "1" }
+
+        val db = TimetableDbHelper.getInstance(InstrumentationRegistry.getTargetContext())
+                .readableDatabase
+        val cursor = db.rawQuery("EXPLAIN QUERY PLAN $sql", args)
+        try {
+            val detailIndex = cursor.getColumnIndexOrThrow("detail")
+            val steps = ArrayList<String>(cursor.count)
+            while (cursor.moveToNext()) {
+                steps.add(cursor.getString(detailIndex))
+            }
+            return steps
+        } finally {
+            cursor.close()
+        }
+    }
+
+}
@@ -0,0 +1,141 @@
+/*
+ * Copyright 2017 Farbod Salamat-Zadeh
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package co.timetableapp.data.handler
+
+import android.content.ContentValues
+import android.content.Context
+import android.database.DatabaseUtils
+import android.database.sqlite.SQLiteDatabase
+import android.support.test.InstrumentationRegistry
+import android.support.test.runner.AndroidJUnit4
+import android.util.Log
+import co.timetableapp.data.TimetableDbHelper
+import co.timetableapp.data.schema.COMMA_SEP
+import co.timetableapp.data.schema.SubjectsSchema
+import co.timetableapp.model.Subject
+import org.junit.After
+import org.junit.Assert.assertEquals
+import org.junit.Before
+import org.junit.Test
+import org.junit.runner.RunWith
+
+/**
+ * Compares the time taken to insert rows one at a time, as [DataHandler.addItem] does, against
+ * inserting them in one transaction with one compiled statement, as [DataHandler.addItems] does.
+ *
+ * The rows are written to a database file created for the benchmark and deleted afterwards, so the
+ * app's own data is left untouched.
+ *
+ * Timings vary too much between devices and runs to pass or fail on, so they are only written to
+ * the log under [LOG_TAG]. Run on a device with `./gradlew connectedDebugAndroidTest`.
+ */
+@RunWith(AndroidJUnit4::class)
+class BulkWriteBenchmark {
+
+    companion object {
+        private const val LOG_TAG = "BulkWriteBenchmark"
+
+        private const val DATABASE_NAME = "BulkWriteBenchmark.db"
+
+        private const val ROW_COUNT = 200
+    }
+
+    private val context = InstrumentationRegistry.getTargetContext()
+
+    private val subjectHandler = SubjectHandler(context)
+
+    private lateinit var db: SQLiteDatabase
+
+    @Before
+    fun createDatabase() {
+        context.deleteDatabase(DATABASE_NAME)
+        db = context.openOrCreateDatabase(DATABASE_NAME, Context.MODE_PRIVATE, null)
+
+        // Create the subjects table as it is in the app's database, which is only read from
+        val appDb = TimetableDbHelper.getInstance(context).readableDatabase
+        db.execSQL(DatabaseUtils.stringForQuery(appDb,
+                "SELECT sql FROM sqlite_master WHERE type='table' AND name=?",
+                arrayOf(SubjectsSchema.TABLE_NAME)))
+    }
+
+    @After
+    fun deleteDatabase() {
+        db.close()
+        context.deleteDatabase(DATABASE_NAME)
+    }
+
+    @Test
+    fun compareSingleAndBulkWrites() {
+        // The bulk writes go first so that they don't benefit from a warmed up database
+        val bulkNanos = timeWrites { insertInTransaction(it) }
+        val perRowNanos = timeWrites { rows ->
+            rows.forEach { db.insert(SubjectsSchema.TABLE_NAME, null, it) }
+        }
+
+        Log.i(LOG_TAG, "Wrote $ROW_COUNT rows: " +
+                "one at a time took ${perRowNanos / ROW_COUNT / 1000} µs/row, " +
+                "in one transaction took ${bulkNanos / ROW_COUNT / 1000} µs/row")
+    }
+
+    /**
+     * Inserts the [rows] in one transaction, binding each to the same compiled statement.
+     */
+    private fun insertInTransaction(rows: List<ContentValues>) {
+        val columns = rows[0].keySet().toList()
+        val statement = db.compileStatement("INSERT INTO ${SubjectsSchema.TABLE_NAME} " +
+                "(${columns.joinToString(COMMA_SEP)}) " +
+                "VALUES (${columns.joinToString(COMMA_SEP) { "?" }})")
+
+        db.beginTransaction()
+        try {
+            rows.forEach { values ->
+                statement.clearBindings()
+                columns.forEachIndexed { i, column ->
+                    DatabaseUtils.bindObjectToProgram(statement, i + 1, values.get(column))
+                }
+                statement.executeInsert()
+            }
+            db.setTransactionSuccessful()
+        } finally {
+            db.endTransaction()
+            statement.close()
+        }
+    }
+
+    /**
+     * Writes [ROW_COUNT] subjects with the [write], checks that they have all been written, then
+     * deletes them again.
+     *
+     * @return the time taken by the [write], in nanoseconds
+     */
+    private fun timeWrites(write: (List<ContentValues>) -> Unit): Long {
+        val rows = (1..ROW_COUNT).map {
+            subjectHandler.propertiesAsContentValues(Subject(it, 1, "Subject $it", "S$it", 1))
+        }
+
+        val startTime = System.nanoTime()
+        write(rows)
+        val elapsedNanos = System.nanoTime() - startTime
+
+        assertEquals(ROW_COUNT.toLong(),
+                DatabaseUtils.queryNumEntries(db, SubjectsSchema.TABLE_NAME))
+
+        db.delete(SubjectsSchema.TABLE_NAME, null, null)
+        return elapsedNanos
+    }
+
+}
@@ -0,0 +1,291 @@
+/*
+ * Copyright 2017 Farbod Salamat-Zadeh
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package co.timetableapp.data.migration
+
+import android.database.Cursor
+import android.database.sqlite.SQLiteDatabase
+import android.support.test.runner.AndroidJUnit4
+import co.timetableapp.model.Class
+import org.junit.After
+import org.junit.Assert.assertEquals
+import org.junit.Before
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.threeten.bp.LocalDate
+
+/**
+ * Creates databases as they were at each old version, with a row in each table, and checks the
+ * rows after upgrading them to the current version with [Migrations].
+ *
+ * The old tables are created with literal SQL, rather than the schema constants, so that they
+ * don't change when the current schema does.
+ */
+@RunWith(AndroidJUnit4::class)
+class MigrationsTest {
+
+    companion object {
+
+        private val CURRENT_VERSION = Migrations.ALL.last().toVersion
+
+        private val TIMETABLE_START = LocalDate.of(2017, 9, 4)
+        private val TIMETABLE_END = LocalDate.of(2018, 7, 20)
+        private val TERM_END = LocalDate.of(2017, 12, 15)
+        private val DUE_DATE = LocalDate.of(2017, 9, 15)
+        private val EXAM_DATE = LocalDate.of(2018, 5, 14)
+        private val EVENT_DATE = LocalDate.of(2017, 10, 2)
+    }
+
+    private lateinit var db: SQLiteDatabase
+
+    @Before
+    fun openDatabase() {
+        db = SQLiteDatabase.create(null)
+    }
+
+    @After
+    fun closeDatabase() {
+        db.close()
+    }
+
+    @Test fun migrateFromVersion1() = checkMigrationFrom(1)
+
+    @Test fun migrateFromVersion2() = checkMigrationFrom(2)
+
+    @Test fun migrateFromVersion3() = checkMigrationFrom(3)
+
+    @Test fun migrateFromVersion4() = checkMigrationFrom(4)
+
+    @Test fun migrateFromVersion5() = checkMigrationFrom(5)
+
+    @Test fun migrateFromVersion6() = checkMigrationFrom(6)
+
+    @Test fun migrateFromVersion7() = checkMigrationFrom(7)
+
+    private fun checkMigrationFrom(version: Int) {
+        createTables(version)
+        insertRows(version)
+
+        // Migrations run in the upgrade transaction, before foreign keys are enabled
+        db.beginTransaction()
+        try {
+            Migrations.between(version, CURRENT_VERSION).forEach { it.migrate(db) }
+            db.setTransactionSuccessful()
+        } finally {
+            db.endTransaction()
+        }
+
+        db.execSQL("PRAGMA foreign_keys=ON")
+        assertEquals("foreign key violations", 0, count("PRAGMA foreign_key_check"))
+
+        checkRows(version)
+    }
+
+    /**
+     * Creates the tables as they were when a database was first created at the [version].
+     */
+    private fun createTables(version: Int) {
+        db.execSQL("CREATE TABLE timetables( _id INTEGER PRIMARY KEY AUTOINCREMENT, name TEXT, " +
+                "start_date_day_of_month INTEGER, start_date_month INTEGER, " +
+                "start_date_year INTEGER, end_date_day_of_month INTEGER, " +
+                "end_date_month INTEGER, end_date_year INTEGER, week_rotations INTEGER )")
+
+        // Abbreviations were added after the color ids in databases upgraded from version 1
+        db.execSQL("CREATE TABLE subjects( _id INTEGER PRIMARY KEY AUTOINCREMENT, " +
+                "timetable_id INTEGER, name TEXT, " +
+                (if (version >= 2) "abbreviation TEXT, " else "") +
+                "color_id INTEGER )")
+
+        // The classes table could contain duplicate ids before version 4
+        db.execSQL("CREATE TABLE classes( " +
+                (if (version >= 4) "_id INTEGER PRIMARY KEY AUTOINCREMENT, " else "_id INTEGER, ") +
+                "timetable_id INTEGER, subject_id INTEGER, module_name TEXT" +
+                (if (version >= 3) ", start_date_day_of_month INTEGER, start_date_month INTEGER, " +
+                        "start_date_year INTEGER, end_date_day_of_month INTEGER, " +
+                        "end_date_month INTEGER, end_date_year INTEGER" else "") +
+                " )")
+
+        db.execSQL("CREATE TABLE class_details( _id INTEGER PRIMARY KEY AUTOINCREMENT, " +
+                "class_id INTEGER, room TEXT, building TEXT, teacher TEXT )")
+
+        db.execSQL("CREATE TABLE class_times( _id INTEGER PRIMARY KEY AUTOINCREMENT, " +
+                "timetable_id INTEGER, class_detail_id INTEGER, day INTEGER, " +
+                "week_number INTEGER, start_time_hrs INTEGER, start_time_mins INTEGER, " +
+                "end_time_hrs INTEGER, end_time_mins INTEGER )")
+
+        db.execSQL("CREATE TABLE assignments( _id INTEGER PRIMARY KEY AUTOINCREMENT, " +
+                "timetable_id INTEGER, class_id INTEGER, title TEXT, detail TEXT, " +
+                "due_date_day_of_month INTEGER, due_date_month INTEGER, due_date_year INTEGER, " +
+                "completion_progress INTEGER )")
+
+        db.execSQL("CREATE TABLE exams( _id INTEGER PRIMARY KEY AUTOINCREMENT, " +
+                "timetable_id INTEGER, subject_id INTEGER, module TEXT, " +
+                "date_day_of_month INTEGER, date_month INTEGER, date_year INTEGER, " +
+                "start_time_hrs INTEGER, start_time_mins INTEGER, duration INTEGER, seat TEXT, " +
+                "room TEXT, is_resit INTEGER" +
+                (if (version >= 6) ", notes TEXT" else "") +
+                " )")
+
+        db.execSQL("CREATE TABLE terms( _id INTEGER PRIMARY KEY AUTOINCREMENT, " +
+                "timetable_id INTEGER, name TEXT, start_date_day_of_month INTEGER, " +
+                "start_date_month INTEGER, start_date_year INTEGER, " +
+                "end_date_day_of_month INTEGER, end_date_month INTEGER, end_date_year INTEGER )")
+
+        if (version >= 5) {
+            db.execSQL("CREATE TABLE events( _id INTEGER PRIMARY KEY AUTOINCREMENT, " +
+                    "timetable_id INTEGER, title TEXT, detail TEXT, " +
+                    "start_date_day_of_month INTEGER, start_date_month INTEGER, " +
+                    "start_date_year INTEGER, start_time_hrs INTEGER, start_time_mins INTEGER, " +
+                    "end_date_day_of_month INTEGER, end_date_month INTEGER, " +
+                    "end_date_year INTEGER, end_time_hrs INTEGER, end_time_mins INTEGER" +
+                    (if (version >= 7) ", location TEXT, related_subject_id TEXT" else "") +
+                    " )")
+        }
+    }
+
+    /**
+     * Inserts a row into each table of a database at the [version], along with a duplicate class
+     * and an assignment belonging to a class which doesn't exist.
+     */
+    private fun insertRows(version: Int) {
+        db.execSQL("INSERT INTO timetables VALUES (1, 'Year 1', 4, 9, 2017, 20, 7, 2018, 2)")
+
+        if (version >= 2) {
+            db.execSQL("INSERT INTO subjects( _id, timetable_id, name, abbreviation, color_id )" +
+                    " VALUES (1, 1, 'Maths', 'Ma', 3)")
+        } else {
+            db.execSQL("INSERT INTO subjects( _id, timetable_id, name, color_id )" +
+                    " VALUES (1, 1, 'Maths', 3)")
+        }
+
+        if (version >= 3) {
+            db.execSQL("INSERT INTO classes VALUES (1, 1, 1, 'Algebra', 4, 9, 2017, 20, 7, 2018)")
+        } else {
+            db.execSQL("INSERT INTO classes VALUES (1, 1, 1, 'Algebra')")
+        }
+        if (version < 4) {
+            db.execSQL("INSERT INTO classes( _id, timetable_id, subject_id, module_name )" +
+                    " VALUES (1, 1, 1, 'Duplicate')")
+        }
+
+        db.execSQL("INSERT INTO class_details VALUES (1, 1, 'R1', 'Main', 'Mr Smith')")
+        db.execSQL("INSERT INTO class_times VALUES (1, 1, 1, 1, 2, 9, 30, 10, 30)")
+
+        db.execSQL("INSERT INTO assignments VALUES (1, 1, 1, 'Homework', 'Notes', 15, 9, 2017, 50)")
+        db.execSQL("INSERT INTO assignments VALUES (2, 1, 99, 'Orphan', '', 15, 9, 2017, 0)")
+
+        db.execSQL("INSERT INTO exams( _id, timetable_id, subject_id, module, " +
+                "date_day_of_month, date_month, date_year, start_time_hrs, start_time_mins, " +
+                "duration, seat, room, is_resit ) " +
+                "VALUES (1, 1, 1, 'Paper 1', 14, 5, 2018, 9, 0, 90, 'A1', 'Hall', 0)")
+        if (version >= 6) {
+            db.execSQL("UPDATE exams SET notes = 'Calculator'")
+        }
+
+        db.execSQL("INSERT INTO terms VALUES (1, 1, 'Autumn', 4, 9, 2017, 15, 12, 2017)")
+
+        if (version >= 5) {
+            db.execSQL("INSERT INTO events( _id, timetable_id, title, detail, " +
+                    "start_date_day_of_month, start_date_month, start_date_year, " +
+                    "start_time_hrs, start_time_mins, end_date_day_of_month, end_date_month, " +
+                    "end_date_year, end_time_hrs, end_time_mins ) " +
+                    "VALUES (1, 1, 'Trip', '', 2, 10, 2017, 9, 0, 2, 10, 2017, 15, 30)")
+        }
+        if (version >= 7) {
+            db.execSQL("UPDATE events SET location = 'Museum', related_subject_id = 1")
+        }
+    }
+
+    /**
+     * Checks the rows written by [insertRows] after upgrading from the [version].
+     */
+    private fun checkRows(version: Int) {
+        assertRow("SELECT name, start_date, end_date, week_rotations FROM timetables",
+                "Year 1", TIMETABLE_START.toEpochDay(), TIMETABLE_END.toEpochDay(), 2L)
+
+        assertRow("SELECT name, abbreviation, color_id FROM subjects",
+                "Maths", if (version >= 2) "Ma" else "", 3L)
+
+        val classDates = if (version >= 3) {
+            listOf(TIMETABLE_START.toEpochDay(), TIMETABLE_END.toEpochDay())
+        } else {
+            listOf(Class.NO_DATE.toEpochDay(), Class.NO_DATE.toEpochDay())
+        }
+        assertRow("SELECT _id, module_name, start_date, end_date FROM classes",
+                1L, "Algebra", classDates[0], classDates[1])
+
+        assertRow("SELECT class_id, room, building, teacher FROM class_details",
+                1L, "R1", "Main", "Mr Smith")
+
+        assertRow("SELECT class_detail_id, day, week_number, start_time, end_time " +
+                "FROM class_times", 1L, 1L, 2L, 570L, 630L)
+
+        assertRow("SELECT _id, title, due_date, completion_progress FROM assignments",
+                1L, "Homework", DUE_DATE.toEpochDay(), 50L)
+
+        assertRow("SELECT module, date, start_time, duration, notes FROM exams",
+                "Paper 1", EXAM_DATE.toEpochDay(), 540L, 90L,
+                if (version >= 6) "Calculator" else "")
+
+        assertRow("SELECT name, start_date, end_date FROM terms",
+                "Autumn", TIMETABLE_START.toEpochDay(), TERM_END.toEpochDay())
+
+        if (version >= 5) {
+            assertRow("SELECT title, start_date, start_time, end_date, end_time, location " +
+                    "FROM events", "Trip", EVENT_DATE.toEpochDay(), 540L,
+                    EVENT_DATE.toEpochDay(), 930L, if (version >= 7) "Museum" else "")
+        } else {
+            assertEquals(0, count("SELECT * FROM events"))
+        }
+
+        // Tables added by later migrations are filled from the existing rows
+        assertRow("SELECT _id, class_id, subject_id, start_time, module_name, subject_name " +
+                "FROM class_schedule", 1L, 1L, 1L, 570L, "Algebra", "Maths")
+        assertRow("SELECT timetable_id, class_time_id FROM class_occurrence_updates", 1L, -1L)
+    }
+
+    /**
+     * Checks that the [sql] selects a single row with the [expected] values.
+     */
+    private fun assertRow(sql: String, vararg expected: Any) {
+        val cursor = db.rawQuery(sql, null)
+        try {
+            assertEquals(sql, 1, cursor.count)
+            cursor.moveToFirst()
+
+            expected.forEachIndexed { i, value ->
+                val actual: Any? = when (cursor.getType(i)) {
+                    Cursor.FIELD_TYPE_INTEGER -> cursor.getLong(i)
+                    Cursor.FIELD_TYPE_NULL -> null
+                    else -> cursor.getString(i)
+                }
+                assertEquals("${cursor.getColumnName(i)} from $sql", value, actual)
+            }
+        } finally {
+            cursor.close()
+        }
+    }
+
+    private fun count(sql: String): Int {
+        val cursor = db.rawQuery(sql, null)
+        try {
+            return cursor.count
+        } finally {
+            cursor.close()
+        }
+    }
+
+}
@@ -28,9 +28,28 @@ class TimetableApplication : Application() {
 
     private val LOG_TAG = "TimetableApplication"
 
+    /**
+     * Whether the [currentTimetable] has been read from the database.
+     */
+    private var isTimetableLoaded = false
+
+    /**
+     * The timetable currently being used. This is read from the database when it is first needed,
+     * so that the database isn't opened before it can be upgraded in the background.
+     *
+     * @see co.timetableapp.data.DatabaseUpgrader
+     */
     var currentTimetable: Timetable? = null
-        private set(value) {
+        @Synchronized get() {
+            if (!isTimetableLoaded) {
+                field = PrefUtils.getCurrentTimetable(this)
+                isTimetableLoaded = true
+            }
+            return field
+        }
+        @Synchronized private set(value) {
             field = value
+            isTimetableLoaded = true
             value?.let {
                 PrefUtils.setCurrentTimetable(this, it)
                 Log.i(LOG_TAG, "Switched current timetable to that with id ${it.id}")
@@ -41,8 +60,6 @@ class TimetableApplication : Application() {
         super.onCreate()
 
         AndroidThreeTen.init(this)
-
-        currentTimetable = PrefUtils.getCurrentTimetable(this)
     }
 
     fun setCurrentTimetable(context: Context, timetable: Timetable) {
@@ -25,6 +25,12 @@ import android.os.Environment
 import android.support.v4.app.ActivityCompat
 import android.util.Log
 import co.timetableapp.BuildConfig
+import co.timetableapp.data.handler.ClassOccurrences
+import co.timetableapp.data.handler.IdAllocator
+import co.timetableapp.data.handler.ItemCache
+import co.timetableapp.data.handler.OccurrenceEngine
+import co.timetableapp.data.handler.QueryCache
+import co.timetableapp.data.handler.ScheduleIndex
 import co.timetableapp.data.schema.TimetablesSchema
 import org.threeten.bp.LocalDateTime
 import java.io.File
@@ -39,6 +45,8 @@ object DataPorting {
     private const val DB_PATH = "data/data/" + BuildConfig.APPLICATION_ID + "/databases/" +
             TimetableDbHelper.DATABASE_NAME
 
+    private val WAL_FILE_SUFFIXES = arrayOf("-wal", "-shm")
+
     @JvmStatic private val DEFAULT_EXPORT_DIRECTORY =
             Environment.getExternalStoragePublicDirectory(Environment.DIRECTORY_DOWNLOADS)
 
@@ -58,6 +66,12 @@ object DataPorting {
 
         checkStoragePermissions(activity)
 
+        // Move changes from the write-ahead log into the database file so they are exported too
+        val cursor = TimetableDbHelper.getInstance(activity).writableDatabase
+                .rawQuery("PRAGMA wal_checkpoint", null)
+        cursor.moveToFirst()
+        cursor.close()
+
         copyFile(FileInputStream(localDatabase), FileOutputStream(exportedFile))
 
         Log.i(LOG_TAG, "Successfully exported database to: " + exportedFile.path)
@@ -84,14 +98,26 @@ object DataPorting {
             Log.d(LOG_TAG, "Deleting local database before import")
             TimetableDbHelper.getInstance(activity).close()
             localDatabase.delete()
+
+            // The write-ahead log of the old database mustn't be applied to the imported one
+            WAL_FILE_SUFFIXES.forEach { File(DB_PATH + it).delete() }
         }
 
         checkStoragePermissions(activity)
 
         copyFile(FileInputStream(newDatabase), FileOutputStream(localDatabase))
-
-        // Access the imported database so that it will be cached and marked as created
-        TimetableDbHelper.getInstance(activity).writableDatabase.close()
+        IdAllocator.clear()
+        ItemCache.clear()
+        QueryCache.clear()
+        ScheduleIndex.clear()
+        OccurrenceEngine.clear()
+        ClassOccurrences.clear()
+
+        // Access the imported database so that it will be cached and marked as created, removing
+        // any inconsistent rows it contains
+        val db = TimetableDbHelper.getInstance(activity).writableDatabase
+        IntegrityScanner.scanAndRepair(db)
+        db.close()
 
         Log.i(LOG_TAG, "Successfully imported database")
         return true
@@ -0,0 +1,69 @@
+/*
+ * Copyright 2017 Farbod Salamat-Zadeh
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package co.timetableapp.data
+
+import android.content.Context
+import android.os.Handler
+import android.os.Looper
+import co.timetableapp.data.handler.DataTasks
+
+/**
+ * Upgrades the database in the background, so that migrations don't run on the main thread when
+ * the database is first used.
+ *
+ * @see TimetableDbHelper
+ * @see co.timetableapp.data.migration.Migrations
+ */
+object DatabaseUpgrader {
+
+    /**
+     * @return whether the database needs to be upgraded before it can be used
+     */
+    @JvmStatic
+    fun isUpgradeNeeded(context: Context) = TimetableDbHelper.isUpgradeNeeded(context)
+
+    /**
+     * Opens the database on the writer thread of [DataTasks], running any migrations needed to
+     * upgrade it.
+     *
+     * @param onProgress    invoked on the main thread with the number of migrations that have run
+     *                      and the total number of migrations
+     * @param onComplete    invoked on the main thread once the database has been upgraded, unless
+     *                      the returned task has been cancelled
+     */
+    @JvmStatic
+    fun upgrade(context: Context,
+                onProgress: (completed: Int, total: Int) -> Unit,
+                onComplete: () -> Unit): DataTasks.Task {
+        val dbHelper = TimetableDbHelper.getInstance(context)
+        val mainHandler = Handler(Looper.getMainLooper())
+
+        return DataTasks.write({
+            dbHelper.setMigrationListener { completed, total ->
+                mainHandler.post { onProgress(completed, total) }
+            }
+
+            try {
+                dbHelper.writableDatabase
+            } finally {
+                dbHelper.setMigrationListener(null)
+            }
+            Unit
+        }, { onComplete() })
+    }
+
+}
@@ -0,0 +1,200 @@
+/*
+ * Copyright 2017 Farbod Salamat-Zadeh
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package co.timetableapp.data
+
+import android.database.sqlite.SQLiteDatabase
+import android.provider.BaseColumns
+import android.util.Log
+import co.timetableapp.data.handler.ClassOccurrences
+import co.timetableapp.data.handler.ItemCache
+import co.timetableapp.data.handler.OccurrenceEngine
+import co.timetableapp.data.handler.QueryCache
+import co.timetableapp.data.handler.ScheduleIndex
+import co.timetableapp.data.handler.TableChange
+import co.timetableapp.data.handler.TableChangeNotifier
+import co.timetableapp.data.schema.*
+
+/**
+ * Finds and repairs rows which are inconsistent with the rest of the database, such as class times
+ * whose class detail has been deleted.
+ *
+ * Each check finds its rows with a single anti-join query over the whole table, instead of looking
+ * up the rows each one references. Orphaned rows are deleted, and rows missing from the class
+ * schedule table are written again.
+ *
+ * This is run whenever the database is upgraded or imported, and can also be run from the
+ * settings.
+ */
+object IntegrityScanner {
+
+    private const val LOG_TAG = "IntegrityScanner"
+
+    /**
+     * A kind of inconsistency, found by selecting the ids of the rows of [tableName] it affects.
+     *
+     * @property description    a short description used when logging
+     * @property tableName      the name of the table containing the rows which are inconsistent
+     */
+    private class Check(
+            val description: String,
+            val tableName: String,
+            private val sqlSelectIds: String,
+            private val sqlRepair: String
+    ) {
+
+        /**
+         * @return the ids of the rows with this inconsistency
+         */
+        fun findIds(db: SQLiteDatabase): Set<Int> {
+            val ids = HashSet<Int>()
+            val cursor = db.rawQuery(sqlSelectIds, null)
+            while (cursor.moveToNext()) {
+                ids.add(cursor.getInt(0))
+            }
+            cursor.close()
+            return ids
+        }
+
+        /**
+         * Repairs all rows with this inconsistency.
+         */
+        fun repair(db: SQLiteDatabase) = db.execSQL(sqlRepair)
+    }
+
+    /**
+     * The results of a scan.
+     *
+     * @property counts the number of rows which have been repaired for each description of a check
+     */
+    class Report(val counts: Map<String, Int>) {
+
+        /**
+         * The total number of rows which have been repaired.
+         */
+        val total: Int
+            get() = counts.values.sum()
+
+        override fun toString() = "Report(total=$total, counts=$counts)"
+    }
+
+    /**
+     * @return a check for rows of the [tableName] whose [column] references a row which doesn't
+     *         exist in the [parentTableName]
+     */
+    private fun orphans(tableName: String, column: String, parentTableName: String): Check {
+        val sqlSelectIds = "SELECT t.${BaseColumns._ID} FROM $tableName t" +
+                " LEFT JOIN $parentTableName p ON p.${BaseColumns._ID} = t.$column" +
+                " WHERE p.${BaseColumns._ID} IS NULL"
+
+        return Check("$tableName.$column -> $parentTableName",
+                tableName,
+                sqlSelectIds,
+                "DELETE FROM $tableName WHERE ${BaseColumns._ID} IN ($sqlSelectIds)")
+    }
+
+    /**
+     * The checks which are run, in order. Parent tables are checked before the tables referencing
+     * them, so that rows referencing a deleted orphan are found by a later check even when foreign
+     * keys are disabled (such as while the database is being upgraded).
+     */
+    private val CHECKS = listOf(
+            orphans(SubjectsSchema.TABLE_NAME,
+                    SubjectsSchema.COL_TIMETABLE_ID, TimetablesSchema.TABLE_NAME),
+            orphans(TermsSchema.TABLE_NAME,
+                    TermsSchema.COL_TIMETABLE_ID, TimetablesSchema.TABLE_NAME),
+            orphans(ClassesSchema.TABLE_NAME,
+                    ClassesSchema.COL_TIMETABLE_ID, TimetablesSchema.TABLE_NAME),
+            orphans(ClassesSchema.TABLE_NAME,
+                    ClassesSchema.COL_SUBJECT_ID, SubjectsSchema.TABLE_NAME),
+            orphans(ClassDetailsSchema.TABLE_NAME,
+                    ClassDetailsSchema.COL_CLASS_ID, ClassesSchema.TABLE_NAME),
+            orphans(ClassTimesSchema.TABLE_NAME,
+                    ClassTimesSchema.COL_TIMETABLE_ID, TimetablesSchema.TABLE_NAME),
+            orphans(ClassTimesSchema.TABLE_NAME,
+                    ClassTimesSchema.COL_CLASS_DETAIL_ID, ClassDetailsSchema.TABLE_NAME),
+            orphans(AssignmentsSchema.TABLE_NAME,
+                    AssignmentsSchema.COL_TIMETABLE_ID, TimetablesSchema.TABLE_NAME),
+            orphans(AssignmentsSchema.TABLE_NAME,
+                    AssignmentsSchema.COL_CLASS_ID, ClassesSchema.TABLE_NAME),
+            orphans(ExamsSchema.TABLE_NAME,
+                    ExamsSchema.COL_TIMETABLE_ID, TimetablesSchema.TABLE_NAME),
+            orphans(ExamsSchema.TABLE_NAME,
+                    ExamsSchema.COL_SUBJECT_ID, SubjectsSchema.TABLE_NAME),
+            orphans(EventsSchema.TABLE_NAME,
+                    EventsSchema.COL_TIMETABLE_ID, TimetablesSchema.TABLE_NAME),
+            orphans(ClassScheduleSchema.TABLE_NAME,
+                    ClassScheduleSchema._ID, ClassTimesSchema.TABLE_NAME),
+            Check("missing ${ClassScheduleSchema.TABLE_NAME} rows",
+                    ClassScheduleSchema.TABLE_NAME,
+                    ClassScheduleSchema.SQL_SELECT_MISSING_IDS,
+                    ClassScheduleSchema.SQL_INSERT_MISSING))
+
+    /**
+     * Finds and repairs inconsistent rows in a single transaction.
+     *
+     * This should be run in the background, for example with
+     * [co.timetableapp.data.handler.DataTasks.write].
+     *
+     * @param db    the database to scan. When invoked while the database is being upgraded, this
+     *              is the database being upgraded.
+     * @return a report of the rows which have been repaired
+     */
+    @JvmStatic
+    fun scanAndRepair(db: SQLiteDatabase): Report {
+        val counts = LinkedHashMap<String, Int>()
+
+        db.beginTransaction()
+        try {
+            for (check in CHECKS) {
+                val ids = check.findIds(db)
+                if (ids.isEmpty()) continue
+
+                check.repair(db)
+                counts[check.description] = ids.size
+            }
+            db.setTransactionSuccessful()
+        } finally {
+            db.endTransaction()
+        }
+
+        val report = Report(counts)
+        Log.i(LOG_TAG, "Scanned the database: $report")
+
+        if (report.total > 0) {
+            publishRepairs()
+        }
+        return report
+    }
+
+    /**
+     * Discards cached data and notifies observers of all tables which are checked.
+     *
+     * Since deleting a row can also delete the rows referencing it, every table is treated as
+     * changed, without the ids of the changed rows.
+     */
+    private fun publishRepairs() {
+        ItemCache.clear()
+        QueryCache.clear()
+        ScheduleIndex.clear()
+        OccurrenceEngine.clear()
+        ClassOccurrences.clear()
+        CHECKS.map { it.tableName }.distinct().forEach {
+            TableChangeNotifier.notifyChange(TableChange(it, TableChange.Operation.DELETE, null))
+        }
+    }
+
+}
@@ -16,38 +16,58 @@
 
 package co.timetableapp.data;
 
-import android.content.ContentValues;
 import android.content.Context;
-import android.database.Cursor;
 import android.database.sqlite.SQLiteDatabase;
 import android.database.sqlite.SQLiteOpenHelper;
+import android.os.Build;
 import android.util.Log;
 
-import org.threeten.bp.LocalDate;
-
-import java.util.ArrayList;
+import java.io.File;
+import java.util.List;
 
+import co.timetableapp.data.migration.Migration;
+import co.timetableapp.data.migration.Migrations;
 import co.timetableapp.data.schema.AssignmentsSchema;
 import co.timetableapp.data.schema.ClassDetailsSchema;
+import co.timetableapp.data.schema.ClassOccurrencesSchema;
+import co.timetableapp.data.schema.ClassScheduleSchema;
 import co.timetableapp.data.schema.ClassTimesSchema;
 import co.timetableapp.data.schema.ClassesSchema;
 import co.timetableapp.data.schema.EventsSchema;
 import co.timetableapp.data.schema.ExamsSchema;
-import co.timetableapp.data.schema.SqlHelperKt;
+import co.timetableapp.data.schema.SearchSchema;
 import co.timetableapp.data.schema.SubjectsSchema;
 import co.timetableapp.data.schema.TermsSchema;
 import co.timetableapp.data.schema.TimetablesSchema;
-import co.timetableapp.model.Class;
 
 public final class TimetableDbHelper extends SQLiteOpenHelper {
 
     private static TimetableDbHelper sInstance;
 
-    private static final int DATABASE_VERSION = 7;
+    private static final int DATABASE_VERSION = 13;
     static final String DATABASE_NAME = "Timetable.db";
 
     private static final String LOG_TAG = "TimetableDbHelper";
 
+    /**
+     * Receives the progress of upgrading the database.
+     *
+     * @see #setMigrationListener(MigrationListener)
+     */
+    public interface MigrationListener {
+
+        /**
+         * Invoked on the thread upgrading the database, before the first migration and after each
+         * migration has run.
+         *
+         * @param completed the number of migrations that have run
+         * @param total     the number of migrations needed to upgrade the database
+         */
+        void onProgress(int completed, int total);
+    }
+
+    private volatile MigrationListener mMigrationListener;
+
     public static synchronized TimetableDbHelper getInstance(Context context) {
         if (sInstance == null) {
             sInstance = new TimetableDbHelper(context.getApplicationContext());
@@ -57,6 +77,12 @@ public final class TimetableDbHelper extends SQLiteOpenHelper {
 
     private TimetableDbHelper(Context context) {
         super(context, DATABASE_NAME, null, DATABASE_VERSION);
+
+        // Write-ahead logging lets reads run in the background while another thread is writing
+        // (see DataTasks). Older versions enable it when the database is opened instead.
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN) {
+            setWriteAheadLoggingEnabled(true);
+        }
     }
 
     @Override
@@ -72,6 +98,28 @@ public final class TimetableDbHelper extends SQLiteOpenHelper {
         db.execSQL(SubjectsSchema.SQL_CREATE);
         db.execSQL(TermsSchema.SQL_CREATE);
         db.execSQL(TimetablesSchema.SQL_CREATE);
+        db.execSQL(ClassScheduleSchema.SQL_CREATE);
+        db.execSQL(SearchSchema.SQL_CREATE);
+        db.execSQL(ClassOccurrencesSchema.SQL_CREATE);
+        db.execSQL(ClassOccurrencesSchema.SQL_CREATE_UPDATES);
+
+        createIndexes(db);
+        createTriggers(db);
+    }
+
+    @Override
+    public void onOpen(SQLiteDatabase db) {
+        super.onOpen(db);
+
+        if (!db.isReadOnly()) {
+            // Foreign key constraints are disabled by default and must be enabled for each
+            // connection, so that rows are deleted with the rows they reference
+            db.execSQL("PRAGMA foreign_keys=ON");
+
+            if (Build.VERSION.SDK_INT < Build.VERSION_CODES.JELLY_BEAN) {
+                db.enableWriteAheadLogging();
+            }
+        }
     }
 
     @Override
@@ -79,115 +127,113 @@ public final class TimetableDbHelper extends SQLiteOpenHelper {
         Log.i(LOG_TAG, "onUpgrade() called with oldVersion " + oldVersion +
                 " and newVersion " + newVersion);
 
-        /*
-         * Note that there are no breaks in the switch statement below (except for the last case).
-         *
-         * This means, for example, if installed version is 2 onUpgrade will get called with
-         * oldVersion as 2. The switch case will execute cases 2, 3, 4, etc as the break
-         * statements are missing in all the older cases.
-         */
+        List<Migration> migrations = Migrations.between(oldVersion, newVersion);
+        MigrationListener listener = mMigrationListener;
 
-        switch (oldVersion) {
-            case 1:
-                // Add subject abbreviations
-                db.execSQL("ALTER TABLE " + SubjectsSchema.TABLE_NAME + " ADD COLUMN " +
-                        SubjectsSchema.COL_ABBREVIATION + SqlHelperKt.TEXT_TYPE + " DEFAULT ''");
-
-            case 2:
-                // Add start/end dates for classes
-                LocalDate defaultDate = Class.NO_DATE;
-
-                db.execSQL("ALTER TABLE " + ClassesSchema.TABLE_NAME + " ADD COLUMN " +
-                        ClassesSchema.COL_START_DATE_DAY_OF_MONTH + SqlHelperKt.INTEGER_TYPE +
-                        " DEFAULT " + defaultDate.getDayOfMonth());
-                db.execSQL("ALTER TABLE " + ClassesSchema.TABLE_NAME + " ADD COLUMN " +
-                        ClassesSchema.COL_START_DATE_MONTH + SqlHelperKt.INTEGER_TYPE +
-                        " DEFAULT " + defaultDate.getMonthValue());
-                db.execSQL("ALTER TABLE " + ClassesSchema.TABLE_NAME + " ADD COLUMN " +
-                        ClassesSchema.COL_START_DATE_YEAR + SqlHelperKt.INTEGER_TYPE +
-                        " DEFAULT " + defaultDate.getYear());
-
-                db.execSQL("ALTER TABLE " + ClassesSchema.TABLE_NAME + " ADD COLUMN " +
-                        ClassesSchema.COL_END_DATE_DAY_OF_MONTH + SqlHelperKt.INTEGER_TYPE +
-                        " DEFAULT " + defaultDate.getDayOfMonth());
-                db.execSQL("ALTER TABLE " + ClassesSchema.TABLE_NAME + " ADD COLUMN " +
-                        ClassesSchema.COL_END_DATE_MONTH + SqlHelperKt.INTEGER_TYPE +
-                        " DEFAULT " + defaultDate.getMonthValue());
-                db.execSQL("ALTER TABLE " + ClassesSchema.TABLE_NAME + " ADD COLUMN " +
-                        ClassesSchema.COL_END_DATE_YEAR + SqlHelperKt.INTEGER_TYPE +
-                        " DEFAULT " + defaultDate.getYear());
-
-            case 3:
-                // Rename the corrupt database
-                String oldTableName = "classes_old";
-                db.execSQL("ALTER TABLE " + ClassesSchema.TABLE_NAME + " RENAME TO " + oldTableName);
-
-                // Go through the corrupt classes table and store rows into an ArrayList but
-                // ignoring rows with duplicate id values.
-                ArrayList<Integer> ids = new ArrayList<>();
-                ArrayList<Class> classes = new ArrayList<>();
-
-                Cursor cursor = db.query(oldTableName, null, null, null, null, null, null);
-                cursor.moveToFirst();
-                while (!cursor.isAfterLast()) {
-                    Class cls = Class.from(cursor);
-                    if (!ids.contains(cls.getId())) {
-                        ids.add(cls.getId());
-                        classes.add(cls);
-                    }
-                    cursor.moveToNext();
-                }
-                Log.d(LOG_TAG, "Keeping " + ids.size() + " out of " + cursor.getCount() + " rows");
-                cursor.close();
-
-                // Create the new table and insert the stored rows
-                db.execSQL(ClassesSchema.SQL_CREATE);
-                Log.d(LOG_TAG, "Created a new classes table: " + ClassesSchema.TABLE_NAME);
-
-                for (Class item : classes) {
-                    ContentValues values = new ContentValues();
-                    values.put(ClassesSchema._ID, item.getId());
-                    values.put(ClassesSchema.COL_TIMETABLE_ID, item.getTimetableId());
-                    values.put(ClassesSchema.COL_SUBJECT_ID, item.getSubjectId());
-                    values.put(ClassesSchema.COL_MODULE_NAME, item.getModuleName());
-                    values.put(ClassesSchema.COL_START_DATE_DAY_OF_MONTH,
-                            item.getStartDate().getDayOfMonth());
-                    values.put(ClassesSchema.COL_START_DATE_MONTH,
-                            item.getStartDate().getMonthValue());
-                    values.put(ClassesSchema.COL_START_DATE_YEAR, item.getStartDate().getYear());
-                    values.put(ClassesSchema.COL_END_DATE_DAY_OF_MONTH,
-                            item.getEndDate().getDayOfMonth());
-                    values.put(ClassesSchema.COL_END_DATE_MONTH, item.getEndDate().getMonthValue());
-                    values.put(ClassesSchema.COL_END_DATE_YEAR, item.getEndDate().getYear());
-
-                    db.insert(ClassesSchema.TABLE_NAME, null, values);
-                    Log.d(LOG_TAG, "Inserted class of id " + item.getId() + " to the new table");
-                }
-
-                db.execSQL("DROP TABLE " + oldTableName);
-                Log.d(LOG_TAG, "Deleted the corrupt classes table: " + oldTableName);
-
-            case 4:
-                // Create the events table
-                db.execSQL(EventsSchema.SQL_CREATE);
-
-            case 5:
-                // Add exam notes
-                db.execSQL("ALTER TABLE " + ExamsSchema.TABLE_NAME + " ADD COLUMN " +
-                        ExamsSchema.COL_NOTES + SqlHelperKt.TEXT_TYPE + " DEFAULT ''");
-
-            case 6:
-                // Add locations and relatedSubjectIds for events
-                db.execSQL("ALTER TABLE " + EventsSchema.TABLE_NAME + " ADD COLUMN " +
-                        EventsSchema.COL_LOCATION + SqlHelperKt.TEXT_TYPE + " DEFAULT ''");
-                db.execSQL("ALTER TABLE " + EventsSchema.TABLE_NAME + " ADD COLUMN " +
-                        EventsSchema.COL_RELATED_SUBJECT_ID + SqlHelperKt.TEXT_TYPE + " DEFAULT 0");
-                break;
-
-            default:
-                throw new IllegalArgumentException("onUpgrade() called with unknown oldVersion "
-                        + oldVersion);
+        if (listener != null) listener.onProgress(0, migrations.size());
+
+        for (int i = 0; i < migrations.size(); i++) {
+            Migration migration = migrations.get(i);
+            migration.migrate(db);
+            Log.d(LOG_TAG, "Ran " + migration);
+
+            if (listener != null) listener.onProgress(i + 1, migrations.size());
+        }
+
+        // Create any indexes and triggers missing from new or rebuilt tables
+        createIndexes(db);
+        createTriggers(db);
+
+        IntegrityScanner.scanAndRepair(db);
+    }
+
+    /**
+     * Sets a listener to receive the progress of upgrading the database, the next time it is
+     * opened. This can be null to remove the listener.
+     *
+     * @see DatabaseUpgrader
+     */
+    void setMigrationListener(MigrationListener listener) {
+        mMigrationListener = listener;
+    }
+
+    /**
+     * @return whether the database file exists but needs to be upgraded before it can be used
+     * @see DatabaseUpgrader
+     */
+    static boolean isUpgradeNeeded(Context context) {
+        File databaseFile = context.getDatabasePath(DATABASE_NAME);
+        if (!databaseFile.exists()) {
+            return false;
         }
+
+        SQLiteDatabase db = SQLiteDatabase.openDatabase(
+                databaseFile.getPath(), null, SQLiteDatabase.OPEN_READONLY);
+        try {
+            return db.getVersion() < DATABASE_VERSION;
+        } finally {
+            db.close();
+        }
+    }
+
+    /**
+     * Creates indexes on the columns used to look up rows, such as the timetable id of each item
+     * and the foreign keys used when deleting items with their references.
+     */
+    private static void createIndexes(SQLiteDatabase db) {
+        db.execSQL(AssignmentsSchema.SQL_CREATE_INDEX_TIMETABLE_DUE_DATE);
+        db.execSQL(AssignmentsSchema.SQL_CREATE_INDEX_CLASS_ID);
+        db.execSQL(ClassDetailsSchema.SQL_CREATE_INDEX_CLASS_ID);
+        db.execSQL(ClassOccurrencesSchema.SQL_CREATE_INDEX_TIMETABLE_DATE);
+        db.execSQL(ClassOccurrencesSchema.SQL_CREATE_INDEX_CLASS_TIME_DATE);
+        db.execSQL(ClassScheduleSchema.SQL_CREATE_INDEX_TIMETABLE_DAY_WEEK);
+        db.execSQL(ClassScheduleSchema.SQL_CREATE_INDEX_CLASS_DETAIL_ID);
+        db.execSQL(ClassScheduleSchema.SQL_CREATE_INDEX_CLASS_ID);
+        db.execSQL(ClassScheduleSchema.SQL_CREATE_INDEX_SUBJECT_ID);
+        db.execSQL(ClassesSchema.SQL_CREATE_INDEX_TIMETABLE_ID);
+        db.execSQL(ClassesSchema.SQL_CREATE_INDEX_SUBJECT_ID);
+        db.execSQL(ClassTimesSchema.SQL_CREATE_INDEX_TIMETABLE_DAY_WEEK);
+        db.execSQL(ClassTimesSchema.SQL_CREATE_INDEX_CLASS_DETAIL_ID);
+        db.execSQL(EventsSchema.SQL_CREATE_INDEX_TIMETABLE_START_DATE);
+        db.execSQL(ExamsSchema.SQL_CREATE_INDEX_TIMETABLE_DATE);
+        db.execSQL(ExamsSchema.SQL_CREATE_INDEX_SUBJECT_ID);
+        db.execSQL(SubjectsSchema.SQL_CREATE_INDEX_TIMETABLE_ID);
+        db.execSQL(TermsSchema.SQL_CREATE_INDEX_TIMETABLE_ID);
+    }
+
+    /**
+     * Creates triggers for deleting rows which reference deleted rows but can't be declared with
+     * foreign keys, and for keeping the class schedule, search and class occurrences tables up to
+     * date.
+     */
+    private static void createTriggers(SQLiteDatabase db) {
+        db.execSQL(ClassDetailsSchema.SQL_CREATE_TRIGGER_DELETE_CLASS_TIMES);
+        db.execSQL(TimetablesSchema.SQL_CREATE_TRIGGER_DELETE_TERMS);
+
+        db.execSQL(ClassScheduleSchema.SQL_CREATE_TRIGGER_INSERT_CLASS_TIME);
+        db.execSQL(ClassScheduleSchema.SQL_CREATE_TRIGGER_UPDATE_CLASS_TIME);
+        db.execSQL(ClassScheduleSchema.SQL_CREATE_TRIGGER_DELETE_CLASS_TIME);
+        db.execSQL(ClassScheduleSchema.SQL_CREATE_TRIGGER_INSERT_CLASS_DETAIL);
+        db.execSQL(ClassScheduleSchema.SQL_CREATE_TRIGGER_UPDATE_CLASS_DETAIL);
+        db.execSQL(ClassScheduleSchema.SQL_CREATE_TRIGGER_DELETE_CLASS_DETAIL);
+        db.execSQL(ClassScheduleSchema.SQL_CREATE_TRIGGER_INSERT_CLASS);
+        db.execSQL(ClassScheduleSchema.SQL_CREATE_TRIGGER_UPDATE_CLASS);
+        db.execSQL(ClassScheduleSchema.SQL_CREATE_TRIGGER_DELETE_CLASS);
+        db.execSQL(ClassScheduleSchema.SQL_CREATE_TRIGGER_INSERT_SUBJECT);
+        db.execSQL(ClassScheduleSchema.SQL_CREATE_TRIGGER_UPDATE_SUBJECT);
+        db.execSQL(ClassScheduleSchema.SQL_CREATE_TRIGGER_DELETE_SUBJECT);
+
+        for (String sqlCreateTrigger : SearchSchema.SQL_CREATE_TRIGGERS) {
+            db.execSQL(sqlCreateTrigger);
+        }
+
+        db.execSQL(ClassOccurrencesSchema.SQL_CREATE_TRIGGER_INSERT_SCHEDULE);
+        db.execSQL(ClassOccurrencesSchema.SQL_CREATE_TRIGGER_DELETE_SCHEDULE);
+        db.execSQL(ClassOccurrencesSchema.SQL_CREATE_TRIGGER_INSERT_TERM);
+        db.execSQL(ClassOccurrencesSchema.SQL_CREATE_TRIGGER_UPDATE_TERM);
+        db.execSQL(ClassOccurrencesSchema.SQL_CREATE_TRIGGER_DELETE_TERM);
+        db.execSQL(ClassOccurrencesSchema.SQL_CREATE_TRIGGER_UPDATE_TIMETABLE);
+        db.execSQL(ClassOccurrencesSchema.SQL_CREATE_TRIGGER_DELETE_TIMETABLE);
     }
 
 }
@@ -0,0 +1,189 @@
+/*
+ * Copyright 2017 Farbod Salamat-Zadeh
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package co.timetableapp.data.handler
+
+import android.app.Application
+import android.content.Context
+import android.provider.BaseColumns
+import co.timetableapp.TimetableApplication
+import co.timetableapp.data.TimetableDbHelper
+import co.timetableapp.data.query.Filter
+import co.timetableapp.data.query.Filters
+import co.timetableapp.data.query.Page
+import co.timetableapp.data.query.PageKey
+import co.timetableapp.data.schema.AssignmentsSchema
+import co.timetableapp.data.schema.EventsSchema
+import co.timetableapp.data.schema.ExamsSchema
+import co.timetableapp.model.agenda.AgendaItem
+import co.timetableapp.model.agenda.AgendaType
+import java.util.*
+
+/**
+ * Selects the items shown on the agenda with a single query, combining the assignments, exams and
+ * events tables with `UNION ALL` into rows of their type, id and date-time.
+ *
+ * The rows are filtered, ordered and limited in SQL, so only the items in each page are read.
+ *
+ * @see AgendaItem
+ */
+class AgendaTimeline(private val context: Context) {
+
+    companion object {
+
+        private const val COL_TYPE = "type"
+        private const val COL_ID = "_id"
+
+        /**
+         * The column used to order rows. This is the date and time of the item as minutes since
+         * the epoch, multiplied by the number of agenda types and plus the ordinal of the type, so
+         * that items at the same time are ordered by their type and then by id.
+         */
+        private const val COL_SORT_VALUE = "sort_value"
+
+        private const val MINUTES_PER_DAY = 1440
+    }
+
+    /**
+     * Selects a page of agenda items belonging to the current timetable, ordered by their date and
+     * time, starting after the item identified by the [after] key.
+     *
+     * @param filters       the types of items to select, and the condition for selecting items of
+     *                      each type (such as whether completed assignments are shown)
+     * @param pageSize      the maximum number of items in the page
+     * @param after         the key of the item before the page, or null to fetch the first page
+     * @param ascending     whether items should be ordered in ascending or descending order
+     *
+     * @see Page.nextKey
+     */
+    fun getPage(application: Application,
+                filters: Map<AgendaType, Filter>,
+                pageSize: Int,
+                after: PageKey?,
+                ascending: Boolean): Page<AgendaItem> {
+        if (filters.isEmpty()) {
+            return Page(emptyList(), null)
+        }
+
+        val timetableId = (application as TimetableApplication).currentTimetable!!.id.toString()
+
+        val args = ArrayList<String>()
+        val selects = filters.map { (type, filter) ->
+            val timetableFilter = Filters.and(
+                    Filters.equal(timetableIdColumnOf(type), timetableId),
+                    filter)
+            args.addAll(timetableFilter.args)
+
+            "SELECT ${type.ordinal} AS $COL_TYPE, ${BaseColumns._ID} AS $COL_ID, " +
+                    "(${dateTimeSqlOf(type)}) * ${AgendaType.values().size} + ${type.ordinal}" +
+                    " AS $COL_SORT_VALUE" +
+                    " FROM ${tableNameOf(type)} WHERE ${timetableFilter.sqlStatement}"
+        }
+
+        val sql = StringBuilder("SELECT * FROM (")
+                .append(selects.joinToString(" UNION ALL "))
+                .append(")")
+
+        // The key is written into the statement since the sort value, being calculated, has no
+        // type affinity and wouldn't be compared numerically with a bound string argument
+        after?.let { sql.append(" WHERE ").append(keySql(it, ascending)) }
+
+        val order = if (ascending) "ASC" else "DESC"
+        sql.append(" ORDER BY $COL_SORT_VALUE $order, $COL_ID $order LIMIT $pageSize")
+
+        val db = TimetableDbHelper.getInstance(context).readableDatabase
+        val cursor = db.rawQuery(sql.toString(), args.toTypedArray())
+
+        val typeIndex = cursor.getColumnIndexOrThrow(COL_TYPE)
+        val idIndex = cursor.getColumnIndexOrThrow(COL_ID)
+        val sortValueIndex = cursor.getColumnIndexOrThrow(COL_SORT_VALUE)
+
+        val rows = ArrayList<Pair<AgendaType, Int>>(cursor.count)
+        var lastKey: PageKey? = null
+        while (cursor.moveToNext()) {
+            val id = cursor.getInt(idIndex)
+            rows.add(AgendaType.values()[cursor.getInt(typeIndex)] to id)
+            lastKey = PageKey(cursor.getLong(sortValueIndex), id)
+        }
+        cursor.close()
+
+        val nextKey = if (rows.size < pageSize) null else lastKey
+        return Page(readItems(application, rows), nextKey)
+    }
+
+    /**
+     * Reads the items for the [rows] of the timeline, with one query for each type.
+     *
+     * @return the items in the same order as the [rows]. Items deleted since the timeline was
+     *         queried are left out.
+     */
+    private fun readItems(application: Application,
+                          rows: List<Pair<AgendaType, Int>>): List<AgendaItem> {
+        val itemsByType = EnumMap<AgendaType, Map<Int, AgendaItem>>(AgendaType::class.java)
+
+        for ((type, typeRows) in rows.groupBy { it.first }) {
+            val idFilter = Filters.inList(BaseColumns._ID, typeRows.map { it.second.toString() })
+            val items: List<AgendaItem> = when (type) {
+                AgendaType.ASSIGNMENT -> AssignmentHandler(context)
+                        .getItemSummaries(application, idFilter)
+                AgendaType.EXAM -> ExamHandler(context).getItemSummaries(application, idFilter)
+                AgendaType.EVENT -> EventHandler(context).getItemSummaries(application, idFilter)
+            }
+            itemsByType.put(type, items.associateBy { it.id })
+        }
+
+        return rows.mapNotNull { (type, id) -> itemsByType[type]?.get(id) }
+    }
+
+    /**
+     * @return a condition for rows after the [key], in [ascending] or descending order
+     */
+    private fun keySql(key: PageKey, ascending: Boolean): String {
+        val sortValue = key.sortValue
+        return if (ascending) {
+            "$COL_SORT_VALUE >= $sortValue AND " +
+                    "($COL_SORT_VALUE > $sortValue OR $COL_ID > ${key.id})"
+        } else {
+            "$COL_SORT_VALUE <= $sortValue AND " +
+                    "($COL_SORT_VALUE < $sortValue OR $COL_ID < ${key.id})"
+        }
+    }
+
+    private fun tableNameOf(type: AgendaType) = when (type) {
+        AgendaType.ASSIGNMENT -> AssignmentsSchema.TABLE_NAME
+        AgendaType.EXAM -> ExamsSchema.TABLE_NAME
+        AgendaType.EVENT -> EventsSchema.TABLE_NAME
+    }
+
+    private fun timetableIdColumnOf(type: AgendaType) = when (type) {
+        AgendaType.ASSIGNMENT -> AssignmentsSchema.COL_TIMETABLE_ID
+        AgendaType.EXAM -> ExamsSchema.COL_TIMETABLE_ID
+        AgendaType.EVENT -> EventsSchema.COL_TIMETABLE_ID
+    }
+
+    /**
+     * @return  an SQL expression for the date and time of items of the [type], as minutes since
+     *          the epoch. Assignments have no time, so are placed at the start of their due date.
+     */
+    private fun dateTimeSqlOf(type: AgendaType) = when (type) {
+        AgendaType.ASSIGNMENT -> "${AssignmentsSchema.COL_DUE_DATE} * $MINUTES_PER_DAY"
+        AgendaType.EXAM ->
+            "${ExamsSchema.COL_DATE} * $MINUTES_PER_DAY + ${ExamsSchema.COL_START_TIME}"
+        AgendaType.EVENT ->
+            "${EventsSchema.COL_START_DATE} * $MINUTES_PER_DAY + ${EventsSchema.COL_START_TIME}"
+    }
+
+}
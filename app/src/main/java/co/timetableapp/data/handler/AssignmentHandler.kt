@@ -16,11 +16,15 @@
 
 package co.timetableapp.data.handler
 
+import android.app.Application
 import android.content.ContentValues
 import android.content.Context
 import android.database.Cursor
+import co.timetableapp.data.TimetableDbHelper
+import co.timetableapp.data.query.Filters
 import co.timetableapp.data.schema.AssignmentsSchema
 import co.timetableapp.model.Assignment
+import org.threeten.bp.LocalDate
 
 class AssignmentHandler(context: Context) : TimetableItemHandler<Assignment>(context) {
 
@@ -30,10 +34,20 @@ class AssignmentHandler(context: Context) : TimetableItemHandler<Assignment>(con
 
     override val timetableIdCol = AssignmentsSchema.COL_TIMETABLE_ID
 
-    override fun createFromCursor(cursor: Cursor) = Assignment.from(cursor)
+    override val summaryColumns = arrayOf(
+            AssignmentsSchema._ID,
+            AssignmentsSchema.COL_TIMETABLE_ID,
+            AssignmentsSchema.COL_CLASS_ID,
+            AssignmentsSchema.COL_TITLE,
+            AssignmentsSchema.COL_DUE_DATE,
+            AssignmentsSchema.COL_COMPLETION_PROGRESS)
+
+    override fun createRowMapper(cursor: Cursor) = Assignment.rowMapper(cursor)
 
     override fun createFromId(id: Int) = Assignment.create(context, id)
 
+    override fun withId(item: Assignment, id: Int) = item.copy(id = id)
+
     override fun propertiesAsContentValues(item: Assignment): ContentValues {
         val values = ContentValues()
         with(values) {
@@ -42,12 +56,45 @@ class AssignmentHandler(context: Context) : TimetableItemHandler<Assignment>(con
             put(AssignmentsSchema.COL_CLASS_ID, item.classId)
             put(AssignmentsSchema.COL_TITLE, item.title)
             put(AssignmentsSchema.COL_DETAIL, item.detail)
-            put(AssignmentsSchema.COL_DUE_DATE_DAY_OF_MONTH, item.dueDate.dayOfMonth)
-            put(AssignmentsSchema.COL_DUE_DATE_MONTH, item.dueDate.monthValue)
-            put(AssignmentsSchema.COL_DUE_DATE_YEAR, item.dueDate.year)
+            put(AssignmentsSchema.COL_DUE_DATE, item.dueDate.toEpochDay())
             put(AssignmentsSchema.COL_COMPLETION_PROGRESS, item.completionProgress)
         }
         return values
     }
 
+    /**
+     * @return the number of incomplete assignments in the current timetable due before today
+     */
+    fun countOverdue(application: Application): Int {
+        val today = LocalDate.now().toEpochDay().toString()
+        return countItems(application,
+                Filters.lessThan(AssignmentsSchema.COL_DUE_DATE, today),
+                incompleteFilter())
+    }
+
+    /**
+     * @return the number of incomplete assignments in the current timetable due on the [date]
+     */
+    fun countIncompleteDueOn(application: Application, date: LocalDate) = countItems(application,
+            Filters.equal(AssignmentsSchema.COL_DUE_DATE, date.toEpochDay().toString()),
+            incompleteFilter())
+
+    private fun incompleteFilter() =
+            Filters.lessThan(AssignmentsSchema.COL_COMPLETION_PROGRESS, "100")
+
+    /**
+     * Updates only the completion progress of an assignment, leaving its other columns unchanged.
+     *
+     * This should be used instead of [replaceItem] when the assignment was loaded with
+     * [getItemSummaries], since its detail would otherwise be lost.
+     */
+    fun updateCompletionProgress(assignmentId: Int, completionProgress: Int) {
+        val values = ContentValues()
+        values.put(AssignmentsSchema.COL_COMPLETION_PROGRESS, completionProgress)
+
+        val db = TimetableDbHelper.getInstance(context).writableDatabase
+        db.update(tableName, values, "$itemIdCol=?", arrayOf(assignmentId.toString()))
+        notifyChange(TableChange.Operation.UPDATE, setOf(assignmentId))
+    }
+
 }
@@ -0,0 +1,96 @@
+/*
+ * Copyright 2017 Farbod Salamat-Zadeh
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package co.timetableapp.data.handler
+
+import android.content.Context
+import android.util.Log
+import co.timetableapp.data.TimetableDbHelper
+import co.timetableapp.data.schema.ClassTimesSchema
+import co.timetableapp.data.schema.EventsSchema
+import co.timetableapp.data.schema.ExamsSchema
+import co.timetableapp.receiver.AlarmReceiver
+import java.util.*
+
+/**
+ * The alarms of items (class times, exams and events) which the database deletes along with an
+ * item they reference. These are found before the item is deleted, so that the alarms can be
+ * cancelled afterwards.
+ *
+ * @see DataHandler.deleteItemWithReferences
+ */
+internal class CascadedAlarms private constructor(private val alarms: List<Pair<Int, Int>>) {
+
+    companion object {
+
+        private const val LOG_TAG = "CascadedAlarms"
+
+        /**
+         * Finds the alarms using a single query.
+         *
+         * @param selections    SQL queries selecting the alarm type and item id of each item that
+         *                      will be deleted, which are combined into one query
+         * @param args          the values to bind to the parameters of the [selections], in order
+         *
+         * @see selectClassTimes
+         * @see selectExams
+         * @see selectEvents
+         */
+        fun query(context: Context, selections: List<String>, args: List<String>): CascadedAlarms {
+            val db = TimetableDbHelper.getInstance(context).readableDatabase
+            val cursor = db.rawQuery(selections.joinToString(" UNION ALL "), args.toTypedArray())
+
+            val alarms = ArrayList<Pair<Int, Int>>(cursor.count)
+            cursor.moveToFirst()
+            while (!cursor.isAfterLast) {
+                alarms.add(Pair(cursor.getInt(0), cursor.getInt(1)))
+                cursor.moveToNext()
+            }
+            cursor.close()
+
+            return CascadedAlarms(alarms)
+        }
+
+        /**
+         * @return an SQL query selecting the alarms of class times matching the [whereClause]
+         */
+        fun selectClassTimes(whereClause: String) = "SELECT ${AlarmReceiver.Type.CLASS}, " +
+                "${ClassTimesSchema._ID} FROM ${ClassTimesSchema.TABLE_NAME} WHERE $whereClause"
+
+        /**
+         * @return an SQL query selecting the alarms of exams matching the [whereClause]
+         */
+        fun selectExams(whereClause: String) = "SELECT ${AlarmReceiver.Type.EXAM}, " +
+                "${ExamsSchema._ID} FROM ${ExamsSchema.TABLE_NAME} WHERE $whereClause"
+
+        /**
+         * @return an SQL query selecting the alarms of events matching the [whereClause]
+         */
+        fun selectEvents(whereClause: String) = "SELECT ${AlarmReceiver.Type.EVENT}, " +
+                "${EventsSchema._ID} FROM ${EventsSchema.TABLE_NAME} WHERE $whereClause"
+    }
+
+    /**
+     * Cancels the alarms. This should be invoked after the items have been deleted.
+     */
+    fun cancel(context: Context) {
+        val alarmReceiver = AlarmReceiver()
+        alarms.forEach { (type, itemId) -> alarmReceiver.cancelAlarm(context, type, itemId) }
+
+        Log.i(LOG_TAG, "Cancelled ${alarms.size} alarms of deleted items")
+    }
+
+}
@@ -22,6 +22,7 @@ import android.database.Cursor
 import co.timetableapp.data.query.Filters
 import co.timetableapp.data.query.Query
 import co.timetableapp.data.schema.ClassDetailsSchema
+import co.timetableapp.data.schema.ClassTimesSchema
 import co.timetableapp.model.ClassDetail
 import java.util.*
 
@@ -31,10 +32,14 @@ class ClassDetailHandler(context: Context) : DataHandler<ClassDetail>(context) {
 
     override val itemIdCol = ClassDetailsSchema._ID
 
-    override fun createFromCursor(cursor: Cursor) = ClassDetail.from(cursor)
+    override val dependentTables = arrayOf(ClassTimesSchema.TABLE_NAME)
+
+    override fun createRowMapper(cursor: Cursor) = ClassDetail.rowMapper(cursor)
 
     override fun createFromId(id: Int) = ClassDetail.create(context, id)
 
+    override fun withId(item: ClassDetail, id: Int) = item.copy(id = id)
+
     override fun propertiesAsContentValues(item: ClassDetail): ContentValues {
         val values = ContentValues()
         with(values) {
@@ -48,11 +53,16 @@ class ClassDetailHandler(context: Context) : DataHandler<ClassDetail>(context) {
     }
 
     override fun deleteItemWithReferences(itemId: Int) {
-        super.deleteItemWithReferences(itemId)
-
-        ClassTimeHandler.getClassTimesForDetail(context, itemId).forEach {
-            ClassTimeHandler(context).deleteItemWithReferences(it.id)
+        // The class times are deleted by a trigger in the database
+        val alarms = runInTransaction {
+            val cascadedAlarms = CascadedAlarms.query(context,
+                    listOf(CascadedAlarms.selectClassTimes(
+                            "${ClassTimesSchema.COL_CLASS_DETAIL_ID}=?")),
+                    listOf(itemId.toString()))
+            deleteItem(itemId)
+            cascadedAlarms
         }
+        alarms.cancel(context)
     }
 
     companion object {
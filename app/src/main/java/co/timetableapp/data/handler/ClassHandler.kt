@@ -20,9 +20,9 @@ import android.app.Application
 import android.content.ContentValues
 import android.content.Context
 import android.database.Cursor
-import co.timetableapp.data.query.Filters
-import co.timetableapp.data.query.Query
 import co.timetableapp.data.schema.AssignmentsSchema
+import co.timetableapp.data.schema.ClassDetailsSchema
+import co.timetableapp.data.schema.ClassTimesSchema
 import co.timetableapp.data.schema.ClassesSchema
 import co.timetableapp.model.Class
 
@@ -34,10 +34,17 @@ class ClassHandler(context: Context) : TimetableItemHandler<Class>(context) {
 
     override val timetableIdCol = ClassesSchema.COL_TIMETABLE_ID
 
-    override fun createFromCursor(cursor: Cursor) = Class.from(cursor)
+    override val dependentTables = arrayOf(
+            ClassDetailsSchema.TABLE_NAME,
+            ClassTimesSchema.TABLE_NAME,
+            AssignmentsSchema.TABLE_NAME)
+
+    override fun createRowMapper(cursor: Cursor) = Class.rowMapper(cursor)
 
     override fun createFromId(id: Int) = Class.create(context, id)
 
+    override fun withId(item: Class, id: Int) = item.copy(id = id)
+
     override fun propertiesAsContentValues(item: Class): ContentValues {
         val values = ContentValues()
         with(values) {
@@ -45,31 +52,28 @@ class ClassHandler(context: Context) : TimetableItemHandler<Class>(context) {
             put(ClassesSchema.COL_TIMETABLE_ID, item.timetableId)
             put(ClassesSchema.COL_SUBJECT_ID, item.subjectId)
             put(ClassesSchema.COL_MODULE_NAME, item.moduleName)
-            put(ClassesSchema.COL_START_DATE_DAY_OF_MONTH, item.startDate.dayOfMonth)
-            put(ClassesSchema.COL_START_DATE_MONTH, item.startDate.monthValue)
-            put(ClassesSchema.COL_START_DATE_YEAR, item.startDate.year)
-            put(ClassesSchema.COL_END_DATE_DAY_OF_MONTH, item.endDate.dayOfMonth)
-            put(ClassesSchema.COL_END_DATE_MONTH, item.endDate.monthValue)
-            put(ClassesSchema.COL_END_DATE_YEAR, item.endDate.year)
+            put(ClassesSchema.COL_START_DATE, item.startDate.toEpochDay())
+            put(ClassesSchema.COL_END_DATE, item.endDate.toEpochDay())
         }
         return values
     }
 
     override fun deleteItemWithReferences(itemId: Int) {
-        super.deleteItemWithReferences(itemId)
-
-        val assignmentsQuery = Query.Builder()
-                .addFilter(Filters.equal(AssignmentsSchema.COL_CLASS_ID, itemId.toString()))
-                .build()
-
-        val assignmentUtils = AssignmentHandler(context)
-        assignmentUtils.getAllItems(assignmentsQuery).forEach {
-            assignmentUtils.deleteItem(it.id)
-        }
-
-        ClassDetailHandler.getClassDetailsForClass(context, itemId).forEach {
-            ClassDetailHandler(context).deleteItemWithReferences(it.id)
+        // Assignments, class details, and their class times are deleted by the database since they
+        // reference the class
+        val classDetailIds = "SELECT ${ClassDetailsSchema._ID} " +
+                "FROM ${ClassDetailsSchema.TABLE_NAME} " +
+                "WHERE ${ClassDetailsSchema.COL_CLASS_ID}=?"
+
+        val alarms = runInTransaction {
+            val cascadedAlarms = CascadedAlarms.query(context,
+                    listOf(CascadedAlarms.selectClassTimes(
+                            "${ClassTimesSchema.COL_CLASS_DETAIL_ID} IN ($classDetailIds)")),
+                    listOf(itemId.toString()))
+            deleteItem(itemId)
+            cascadedAlarms
         }
+        alarms.cancel(context)
     }
 
     /**
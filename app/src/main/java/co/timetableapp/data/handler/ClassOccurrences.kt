@@ -0,0 +1,408 @@
+/*
+ * Copyright 2017 Farbod Salamat-Zadeh
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package co.timetableapp.data.handler
+
+import android.content.Context
+import android.database.sqlite.SQLiteDatabase
+import android.util.Log
+import co.timetableapp.data.TimetableDbHelper
+import co.timetableapp.data.query.Filter
+import co.timetableapp.data.query.Filters
+import co.timetableapp.data.query.Query
+import co.timetableapp.data.schema.ClassDetailsSchema
+import co.timetableapp.data.schema.ClassOccurrencesSchema
+import co.timetableapp.data.schema.ClassScheduleSchema
+import co.timetableapp.data.schema.ClassTimesSchema
+import co.timetableapp.data.schema.ClassesSchema
+import co.timetableapp.data.schema.SubjectsSchema
+import co.timetableapp.data.schema.TermsSchema
+import co.timetableapp.data.schema.TimetablesSchema
+import co.timetableapp.model.Class
+import co.timetableapp.model.Timetable
+import co.timetableapp.util.DateUtils
+import co.timetableapp.util.RotationCalendar
+import co.timetableapp.util.TermCalendar
+import org.threeten.bp.DayOfWeek
+import org.threeten.bp.LocalDate
+import org.threeten.bp.LocalTime
+import java.util.*
+
+/**
+ * Reads and maintains the class occurrences table, which has a row for each date that a class
+ * time takes place on.
+ *
+ * The table is updated on the writer thread of [DataTasks] after changes which could affect it, for
+ * only the class times and timetables recorded in the updates table by triggers. The rows they
+ * should have are worked out from the class schedule, week rotation and terms, and compared with
+ * the rows they have, so that only the rows which have changed are written.
+ *
+ * @see ClassOccurrencesSchema
+ * @see co.timetableapp.util.ScheduleUtils.getScheduleByDate
+ */
+object ClassOccurrences {
+
+    private const val LOG_TAG = "ClassOccurrences"
+
+    /**
+     * The number of class times of a timetable above which all of its rows are compared, instead
+     * of selecting the rows of each class time by id.
+     */
+    private const val MAX_SELECTED_CLASS_TIMES = 500
+
+    /**
+     * Whether the updates table may have rows. This is true when the app starts, since updates
+     * could have been recorded without the table being read since.
+     */
+    @Volatile private var hasPendingUpdates = true
+
+    /**
+     * Whether an [update] has been submitted to the writer thread but hasn't started yet.
+     */
+    private var isUpdateScheduled = false
+
+    /**
+     * A date that a class time takes place on.
+     */
+    data class Occurrence(
+            val classTimeId: Int,
+            val date: LocalDate,
+            val startTime: LocalTime,
+            val endTime: LocalTime
+    )
+
+    /**
+     * A row of the class occurrences table, used when comparing its rows to the rows it should
+     * have.
+     */
+    private class Row(val rowId: Long, val startMinute: Int, val endMinute: Int)
+
+    /**
+     * If there are updates which haven't been written yet, this waits for them to be written on
+     * the writer thread, so it must not be invoked on the main thread.
+     *
+     * @return  the occurrences of class times in the [timetable] from the [startDate] to the
+     *          [endDate] (inclusive), ordered by their dates and then start times
+     */
+    @JvmStatic
+    fun getBetween(context: Context,
+                   timetable: Timetable,
+                   startDate: LocalDate,
+                   endDate: LocalDate): List<Occurrence> {
+        if (hasPendingUpdates) {
+            DataTasks.writeAndWait { update(context) }
+        }
+
+        val db = TimetableDbHelper.getInstance(context).readableDatabase
+        val cursor = db.query(
+                ClassOccurrencesSchema.TABLE_NAME,
+                arrayOf(ClassOccurrencesSchema.COL_CLASS_TIME_ID,
+                        ClassOccurrencesSchema.COL_DATE,
+                        ClassOccurrencesSchema.COL_START_TIME,
+                        ClassOccurrencesSchema.COL_END_TIME),
+                "${ClassOccurrencesSchema.COL_TIMETABLE_ID}=? AND " +
+                        "${ClassOccurrencesSchema.COL_DATE}>=? AND " +
+                        "${ClassOccurrencesSchema.COL_DATE}<=?",
+                arrayOf(timetable.id.toString(),
+                        startDate.toEpochDay().toString(),
+                        endDate.toEpochDay().toString()),
+                null, null,
+                "${ClassOccurrencesSchema.COL_DATE}, ${ClassOccurrencesSchema.COL_START_TIME}")
+
+        val occurrences = ArrayList<Occurrence>(cursor.count)
+        while (cursor.moveToNext()) {
+            occurrences.add(Occurrence(
+                    cursor.getInt(0),
+                    LocalDate.ofEpochDay(cursor.getLong(1)),
+                    DateUtils.timeFromMinuteOfDay(cursor.getInt(2)),
+                    DateUtils.timeFromMinuteOfDay(cursor.getInt(3))))
+        }
+        cursor.close()
+
+        return occurrences
+    }
+
+    /**
+     * Writes the rows of the class times and timetables recorded in the updates table, in a single
+     * transaction. This does nothing if there are no updates.
+     *
+     * This must be invoked on the writer thread of [DataTasks].
+     */
+    @Synchronized
+    private fun update(context: Context) {
+        isUpdateScheduled = false
+        if (!hasPendingUpdates) {
+            return
+        }
+
+        val db = TimetableDbHelper.getInstance(context).writableDatabase
+        db.beginTransaction()
+        try {
+            // The class times to update for each timetable, or null for all of them
+            val updates = HashMap<Int, HashSet<Int>?>()
+            var lastUpdateId = -1L
+
+            val cursor = db.query(
+                    ClassOccurrencesSchema.UPDATES_TABLE_NAME,
+                    arrayOf(ClassOccurrencesSchema._ID,
+                            ClassOccurrencesSchema.COL_UPDATE_TIMETABLE_ID,
+                            ClassOccurrencesSchema.COL_UPDATE_CLASS_TIME_ID),
+                    null, null, null, null, null)
+            while (cursor.moveToNext()) {
+                lastUpdateId = Math.max(lastUpdateId, cursor.getLong(0))
+
+                val timetableId = cursor.getInt(1)
+                val classTimeId = cursor.getInt(2)
+
+                if (classTimeId == ClassOccurrencesSchema.ALL_CLASS_TIMES) {
+                    updates.put(timetableId, null)
+                } else if (!updates.containsKey(timetableId)) {
+                    updates.put(timetableId, hashSetOf(classTimeId))
+                } else {
+                    updates[timetableId]?.add(classTimeId)
+                }
+            }
+            cursor.close()
+
+            for ((timetableId, classTimeIds) in updates) {
+                updateTimetable(context, db, timetableId, classTimeIds)
+            }
+
+            db.delete(ClassOccurrencesSchema.UPDATES_TABLE_NAME,
+                    "${ClassOccurrencesSchema._ID}<=?",
+                    arrayOf(lastUpdateId.toString()))
+
+            db.setTransactionSuccessful()
+            hasPendingUpdates = false
+        } finally {
+            db.endTransaction()
+        }
+    }
+
+    /**
+     * Records that rows of the [tableName] table have been written to, and if this could have
+     * recorded updates, submits an [update] to the writer thread so that the updates are written
+     * after the changes.
+     *
+     * @see DataHandler.notifyChange
+     */
+    @JvmStatic
+    @Synchronized
+    fun invalidate(context: Context, tableName: String) {
+        when (tableName) {
+            ClassTimesSchema.TABLE_NAME,
+            ClassDetailsSchema.TABLE_NAME,
+            ClassesSchema.TABLE_NAME,
+            SubjectsSchema.TABLE_NAME,
+            TermsSchema.TABLE_NAME,
+            TimetablesSchema.TABLE_NAME -> {
+                hasPendingUpdates = true
+
+                if (!isUpdateScheduled) {
+                    isUpdateScheduled = true
+                    val applicationContext = context.applicationContext
+                    DataTasks.write({ update(applicationContext) })
+                }
+            }
+        }
+    }
+
+    /**
+     * Records that the updates table must be read again. This must be invoked when the database
+     * is replaced.
+     */
+    @JvmStatic
+    @Synchronized
+    fun clear() {
+        hasPendingUpdates = true
+    }
+
+    /**
+     * Writes the rows for the [classTimeIds] of the timetable, or for all of its class times if
+     * this is null.
+     */
+    private fun updateTimetable(context: Context,
+                                db: SQLiteDatabase,
+                                timetableId: Int,
+                                classTimeIds: Set<Int>?) {
+        val timetable = try {
+            Timetable.create(context, timetableId)
+        } catch (e: DataNotFoundException) {
+            null
+        }
+
+        if (timetable == null) {
+            db.delete(ClassOccurrencesSchema.TABLE_NAME,
+                    "${ClassOccurrencesSchema.COL_TIMETABLE_ID}=?",
+                    arrayOf(timetableId.toString()))
+            return
+        }
+
+        val selectsAll = classTimeIds == null || classTimeIds.size > MAX_SELECTED_CLASS_TIMES
+        val ids = if (selectsAll) emptyList() else classTimeIds!!.map { it.toString() }
+
+        val existingRows = readRows(db, makeFilter(
+                ClassOccurrencesSchema.COL_TIMETABLE_ID, ClassOccurrencesSchema.COL_CLASS_TIME_ID,
+                timetableId, ids))
+
+        val insertStatement = db.compileStatement("INSERT INTO " +
+                "${ClassOccurrencesSchema.TABLE_NAME} (" +
+                "${ClassOccurrencesSchema.COL_TIMETABLE_ID}, " +
+                "${ClassOccurrencesSchema.COL_CLASS_TIME_ID}, " +
+                "${ClassOccurrencesSchema.COL_DATE}, " +
+                "${ClassOccurrencesSchema.COL_START_TIME}, " +
+                "${ClassOccurrencesSchema.COL_END_TIME}) VALUES (?, ?, ?, ?, ?)")
+        val updateStatement = db.compileStatement("UPDATE ${ClassOccurrencesSchema.TABLE_NAME} " +
+                "SET ${ClassOccurrencesSchema.COL_START_TIME}=?, " +
+                "${ClassOccurrencesSchema.COL_END_TIME}=? " +
+                "WHERE ${ClassOccurrencesSchema._ID}=?")
+        var insertCount = 0
+        var updateCount = 0
+
+        val rotation = RotationCalendar.of(timetable)
+        val termDays = readTermDays(context, timetable)
+        val noDate = Class.NO_DATE.toEpochDay()
+
+        val scheduleFilter = makeFilter(
+                ClassScheduleSchema.COL_TIMETABLE_ID, ClassScheduleSchema._ID, timetableId, ids)
+        val cursor = db.query(
+                ClassScheduleSchema.TABLE_NAME,
+                arrayOf(ClassScheduleSchema._ID,
+                        ClassScheduleSchema.COL_DAY,
+                        ClassScheduleSchema.COL_WEEK_NUMBER,
+                        ClassScheduleSchema.COL_START_TIME,
+                        ClassScheduleSchema.COL_END_TIME,
+                        ClassScheduleSchema.COL_CLASS_START_DATE,
+                        ClassScheduleSchema.COL_CLASS_END_DATE),
+                scheduleFilter.sqlStatement,
+                scheduleFilter.args.toTypedArray(),
+                null, null, null)
+
+        while (cursor.moveToNext()) {
+            val weekNumber = cursor.getInt(2)
+            if (weekNumber < 1 || weekNumber > timetable.weekRotations) {
+                // The class time doesn't take place until its week is part of the rotation again
+                continue
+            }
+
+            val classTimeId = cursor.getInt(0)
+            val dayOfWeek = DayOfWeek.of(cursor.getInt(1))
+            val startMinute = cursor.getInt(3)
+            val endMinute = cursor.getInt(4)
+
+            val classStartDay = cursor.getLong(5)
+            val classEndDay = cursor.getLong(6)
+            val hasClassDates = classStartDay != noDate && classEndDay != noDate
+
+            termDays.forEachRange { rangeStart, rangeEnd ->
+                // Only the dates of the class within the range are needed
+                val firstDay =
+                        if (hasClassDates) Math.max(rangeStart, classStartDay) else rangeStart
+                val lastDay = if (hasClassDates) Math.min(rangeEnd, classEndDay) else rangeEnd
+
+                rotation.forEachBetween(firstDay, lastDay, weekNumber, dayOfWeek) { epochDay ->
+                    val row = existingRows.remove(keyOf(classTimeId, epochDay))
+                    if (row == null) {
+                        insertStatement.bindLong(1, timetableId.toLong())
+                        insertStatement.bindLong(2, classTimeId.toLong())
+                        insertStatement.bindLong(3, epochDay)
+                        insertStatement.bindLong(4, startMinute.toLong())
+                        insertStatement.bindLong(5, endMinute.toLong())
+                        insertStatement.executeInsert()
+                        insertCount++
+
+                    } else if (row.startMinute != startMinute || row.endMinute != endMinute) {
+                        updateStatement.bindLong(1, startMinute.toLong())
+                        updateStatement.bindLong(2, endMinute.toLong())
+                        updateStatement.bindLong(3, row.rowId)
+                        updateStatement.executeUpdateDelete()
+                        updateCount++
+                    }
+                }
+            }
+        }
+        cursor.close()
+        insertStatement.close()
+        updateStatement.close()
+
+        // Rows which weren't found are for dates the class times no longer take place on
+        val deleteStatement = db.compileStatement("DELETE FROM " +
+                "${ClassOccurrencesSchema.TABLE_NAME} WHERE ${ClassOccurrencesSchema._ID}=?")
+        existingRows.values.forEach {
+            deleteStatement.bindLong(1, it.rowId)
+            deleteStatement.executeUpdateDelete()
+        }
+        deleteStatement.close()
+
+        Log.i(LOG_TAG, "Updated occurrences of timetable $timetableId: $insertCount inserted, " +
+                "$updateCount updated, ${existingRows.size} deleted")
+    }
+
+    /**
+     * @return  a filter for the rows of a timetable, and of the class times with the
+     *          [classTimeIds] if the list isn't empty
+     */
+    private fun makeFilter(timetableIdCol: String,
+                           classTimeIdCol: String,
+                           timetableId: Int,
+                           classTimeIds: List<String>): Filter {
+        val timetableFilter = Filters.equal(timetableIdCol, timetableId.toString())
+        return if (classTimeIds.isEmpty()) {
+            timetableFilter
+        } else {
+            Filters.and(timetableFilter, Filters.inList(classTimeIdCol, classTimeIds))
+        }
+    }
+
+    /**
+     * @return the rows of the class occurrences table selected by the [filter], by [keyOf]
+     */
+    private fun readRows(db: SQLiteDatabase, filter: Filter): HashMap<Long, Row> {
+        val cursor = db.query(
+                ClassOccurrencesSchema.TABLE_NAME,
+                arrayOf(ClassOccurrencesSchema._ID,
+                        ClassOccurrencesSchema.COL_CLASS_TIME_ID,
+                        ClassOccurrencesSchema.COL_DATE,
+                        ClassOccurrencesSchema.COL_START_TIME,
+                        ClassOccurrencesSchema.COL_END_TIME),
+                filter.sqlStatement,
+                filter.args.toTypedArray(),
+                null, null, null)
+
+        val rows = HashMap<Long, Row>(cursor.count)
+        while (cursor.moveToNext()) {
+            rows.put(keyOf(cursor.getInt(1), cursor.getLong(2)),
+                    Row(cursor.getLong(0), cursor.getInt(3), cursor.getInt(4)))
+        }
+        cursor.close()
+
+        return rows
+    }
+
+    private fun readTermDays(context: Context, timetable: Timetable): TermCalendar {
+        val query = Query.Builder()
+                .addFilter(Filters.equal(TermsSchema.COL_TIMETABLE_ID, timetable.id.toString()))
+                .build()
+        return TermCalendar.of(timetable, TermHandler(context).getAllItems(query))
+    }
+
+    /**
+     * @return a key for the row of the class time with the [classTimeId] on the [epochDay]
+     */
+    private fun keyOf(classTimeId: Int, epochDay: Long) =
+            (classTimeId.toLong() shl 32) or (epochDay and 0xFFFFFFFFL)
+
+}
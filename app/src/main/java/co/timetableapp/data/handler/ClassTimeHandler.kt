@@ -32,7 +32,6 @@ import co.timetableapp.util.PrefUtils
 import org.threeten.bp.LocalDate
 import org.threeten.bp.LocalDateTime
 import org.threeten.bp.LocalTime
-import org.threeten.bp.temporal.TemporalAdjusters
 import java.util.*
 
 class ClassTimeHandler(context: Context) : TimetableItemHandler<ClassTime>(context) {
@@ -43,10 +42,12 @@ class ClassTimeHandler(context: Context) : TimetableItemHandler<ClassTime>(conte
 
     override val timetableIdCol = ClassTimesSchema.COL_TIMETABLE_ID
 
-    override fun createFromCursor(cursor: Cursor) = ClassTime.from(cursor)
+    override fun createRowMapper(cursor: Cursor) = ClassTime.rowMapper(cursor)
 
     override fun createFromId(id: Int) = ClassTime.create(context, id)
 
+    override fun withId(item: ClassTime, id: Int) = item.copy(id = id)
+
     override fun propertiesAsContentValues(item: ClassTime): ContentValues {
         val values = ContentValues()
         with(values) {
@@ -55,20 +56,27 @@ class ClassTimeHandler(context: Context) : TimetableItemHandler<ClassTime>(conte
             put(ClassTimesSchema.COL_CLASS_DETAIL_ID, item.classDetailId)
             put(ClassTimesSchema.COL_DAY, item.day.value)
             put(ClassTimesSchema.COL_WEEK_NUMBER, item.weekNumber)
-            put(ClassTimesSchema.COL_START_TIME_HRS, item.startTime.hour)
-            put(ClassTimesSchema.COL_START_TIME_MINS, item.startTime.minute)
-            put(ClassTimesSchema.COL_END_TIME_HRS, item.endTime.hour)
-            put(ClassTimesSchema.COL_END_TIME_MINS, item.endTime.minute)
+            put(ClassTimesSchema.COL_START_TIME, DateUtils.asMinuteOfDay(item.startTime))
+            put(ClassTimesSchema.COL_END_TIME, DateUtils.asMinuteOfDay(item.endTime))
         }
         return values
     }
 
-    override fun deleteItem(itemId: Int) {
-        super.deleteItem(itemId)
-
+    override fun onItemDeleted(itemId: Int) {
         AlarmReceiver().cancelAlarm(context, AlarmReceiver.Type.CLASS, itemId)
     }
 
+    override fun onItemReplaced(oldItemId: Int, newItem: ClassTime, changedColumns: Set<String>) {
+        // Only reschedule the alarms if the times they should go off at have changed
+        if (changedColumns.contains(ClassTimesSchema._ID)
+                || changedColumns.contains(ClassTimesSchema.COL_DAY)
+                || changedColumns.contains(ClassTimesSchema.COL_WEEK_NUMBER)
+                || changedColumns.contains(ClassTimesSchema.COL_START_TIME)) {
+            onItemDeleted(oldItemId)
+            addAlarmsForClassTime(context, context.applicationContext as Application, newItem)
+        }
+    }
+
     companion object {
 
         private const val WEEK_AS_MILLISECONDS = 604800000L
@@ -85,33 +93,30 @@ class ClassTimeHandler(context: Context) : TimetableItemHandler<ClassTime>(conte
                 return
             }
 
-            // First, try to find a suitable start date for the alarms
-
-            var possibleDate = if (classTime.day != LocalDate.now().dayOfWeek ||
-                    classTime.startTime.minusMinutes(5).isBefore(LocalTime.now())) {
-                // Class is on a different day of the week OR the 5 minute start notice has passed
-
-                val adjuster = TemporalAdjusters.next(classTime.day)
-                LocalDate.now().with(adjuster)
+            val timetable = (application as TimetableApplication).currentTimetable!!
+            if (classTime.weekNumber > timetable.weekRotations) {
+                // The class time isn't part of the rotation, so it never takes place
+                return
+            }
 
+            // Find the first date with the class that hasn't had its 5 minute start notice, within
+            // a term so that reminders don't start during holidays
+            val today = LocalDate.now()
+            val fromDate = if (classTime.startTime.minusMinutes(5).isBefore(LocalTime.now())) {
+                today.plusDays(1)
             } else {
-                // Class is on the same day of the week (AND it has not yet begun)
-                LocalDate.now()
+                today
             }
 
-            while (DateUtils.findWeekNumber(application, possibleDate)
-                    != classTime.weekNumber) {
-                // Find a week with the correct week number
-                possibleDate = possibleDate.plusWeeks(1)
-            }
+            val startDate = OccurrenceEngine.get(context, timetable).findTermDayOnOrAfter(
+                    fromDate, classTime.weekNumber, classTime.day) ?: return
 
             // Make a LocalDateTime using the calculated start date and ClassTime
             val minsBefore = PrefUtils.getClassNotificationTime(context).toLong()
-            val startDateTime = LocalDateTime.of(possibleDate,
+            val startDateTime = LocalDateTime.of(startDate,
                     classTime.startTime.minusMinutes(minsBefore)) // remind X mins before start
 
             // Find the repeat interval in milliseconds (for the alarm to repeat)
-            val timetable = (application as TimetableApplication).currentTimetable!!
             val repeatInterval = timetable.weekRotations * WEEK_AS_MILLISECONDS
 
             // Set repeating alarm
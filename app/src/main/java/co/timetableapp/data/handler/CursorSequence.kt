@@ -0,0 +1,76 @@
+/*
+ * Copyright 2017 Farbod Salamat-Zadeh
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package co.timetableapp.data.handler
+
+import android.database.Cursor
+import java.io.Closeable
+
+/**
+ * A sequence of items which are constructed lazily from the rows of a [cursor], one row at a time,
+ * so that the whole result set does not need to be held in memory.
+ *
+ * The sequence can only be iterated once. The cursor is closed when the last row has been read,
+ * but the sequence should also be closed if it is not read to the end - for example, with [use].
+ *
+ * @see DataHandler.getItemSequence
+ */
+class CursorSequence<out T>(
+        private val cursor: Cursor,
+        private val rowMapper: RowMapper<T>
+) : Sequence<T>, Closeable {
+
+    private var iterated = false
+
+    override fun iterator(): Iterator<T> {
+        if (iterated) {
+            throw IllegalStateException("a cursor sequence can only be iterated once")
+        }
+        iterated = true
+
+        cursor.moveToFirst()
+
+        return object : Iterator<T> {
+
+            override fun hasNext(): Boolean {
+                if (cursor.isClosed) {
+                    return false
+                }
+                if (cursor.isAfterLast) {
+                    close()
+                    return false
+                }
+                return true
+            }
+
+            override fun next(): T {
+                if (!hasNext()) {
+                    throw NoSuchElementException()
+                }
+                val item = rowMapper.mapRow()
+                cursor.moveToNext()
+                return item
+            }
+        }
+    }
+
+    override fun close() {
+        if (!cursor.isClosed) {
+            cursor.close()
+        }
+    }
+
+}
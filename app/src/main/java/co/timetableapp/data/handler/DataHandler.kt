@@ -19,9 +19,17 @@ package co.timetableapp.data.handler
 import android.content.ContentValues
 import android.content.Context
 import android.database.Cursor
+import android.database.DatabaseUtils
+import android.database.sqlite.SQLiteDatabase
+import android.database.sqlite.SQLiteStatement
 import android.util.Log
 import co.timetableapp.data.TimetableDbHelper
+import co.timetableapp.data.query.Filter
+import co.timetableapp.data.query.Filters
+import co.timetableapp.data.query.Page
+import co.timetableapp.data.query.PageKey
 import co.timetableapp.data.query.Query
+import co.timetableapp.data.schema.COMMA_SEP
 import co.timetableapp.data.schema.SqliteSeqSchema
 import co.timetableapp.model.BaseItem
 import java.util.*
@@ -42,6 +50,31 @@ abstract class DataHandler<T : BaseItem>(val context: Context) {
 
     companion object {
         private const val LOG_TAG = "DataHandler"
+
+        /**
+         * The placeholder id for new items which haven't been added to the database yet.
+         *
+         * @see insertItem
+         */
+        const val NO_ID = 0
+
+        /**
+         * Changes made by the current thread in a transaction which hasn't ended yet.
+         *
+         * @see notifyChange
+         */
+        private val pendingChanges = object : ThreadLocal<ArrayList<TableChange>>() {
+            override fun initialValue() = ArrayList<TableChange>()
+        }
+
+        private fun publishChanges(context: Context, changes: List<TableChange>) = changes.forEach {
+            ItemCache.invalidate(it.tableName, it.itemIds)
+            QueryCache.invalidate(it.tableName)
+            ScheduleIndex.invalidate(it.tableName, it.itemIds)
+            OccurrenceEngine.invalidate(it.tableName)
+            ClassOccurrences.invalidate(context, it.tableName)
+            TableChangeNotifier.notifyChange(it)
+        }
     }
 
     /**
@@ -56,23 +89,50 @@ abstract class DataHandler<T : BaseItem>(val context: Context) {
     abstract val itemIdCol: String
 
     /**
-     * Constructs the data model type using column values from the cursor provided.
+     * The columns needed to show items of type [T] in lists. Columns storing long text, such as
+     * notes, are left out so that they aren't read for every row of a list query.
      *
-     * @see addItem
+     * If this is null, all columns are needed and list queries will read every column.
+     *
+     * @see TimetableItemHandler.getItemSummaries
+     */
+    open val summaryColumns: Array<String>? = null
+
+    /**
+     * The tables whose rows are deleted by the database, through foreign keys or triggers, when
+     * items of type [T] are deleted. Changes to these tables are published when items are deleted
+     * so that observers of them know to reload their data.
+     *
+     * @see TableChangeNotifier
+     */
+    protected open val dependentTables: Array<String> = emptyArray()
+
+    /**
+     * Creates a [RowMapper] for constructing the data model type using column values from rows of
+     * the cursor provided.
+     *
+     * @see getAllItems
      * @see createFromId
      */
-    abstract fun createFromCursor(cursor: Cursor): T
+    abstract fun createRowMapper(cursor: Cursor): RowMapper<T>
 
     /**
      * Constructs the data model type using its integer identifier.
      *
      * @throws DataNotFoundException    if the item cannot be found in the database
      *
-     * @see createFromCursor
+     * @see createRowMapper
      */
     @Throws(DataNotFoundException::class)
     abstract fun createFromId(id: Int): T
 
+    /**
+     * Returns a copy of the [item] with the integer identifier specified.
+     *
+     * @see insertItem
+     */
+    abstract fun withId(item: T, id: Int): T
+
     /**
      * Puts properties of the data model type into [ContentValues] and returns this.
      *
@@ -81,35 +141,180 @@ abstract class DataHandler<T : BaseItem>(val context: Context) {
     abstract fun propertiesAsContentValues(item: T): ContentValues
 
     /**
-     * @param query the condition for selecting data items from the table. If this is null, all
-     *          data items will be selected.
+     * @param query the condition for selecting data items from the table, and how they should be
+     *          ordered and limited. If this is null, all data items will be selected.
+     * @param projection the columns to read from the table. If this is null, all columns will be
+     *          read. Text properties whose columns are left out will be empty.
      * @return a list of the selected data items of type [T]
      */
     @JvmOverloads
-    fun getAllItems(query: Query? = null): ArrayList<T> {
-        val items = ArrayList<T>()
+    fun getAllItems(query: Query? = null, projection: Array<String>? = null): ArrayList<T> {
+        val cursor = queryTable(query, projection)
 
-        val dbHelper = TimetableDbHelper.getInstance(context)
-        val cursor = dbHelper.readableDatabase.query(
+        val items = ArrayList<T>(cursor.count)
+        val rowMapper = createRowMapper(cursor)
+
+        cursor.moveToFirst()
+        while (!cursor.isAfterLast) {
+            items.add(rowMapper.mapRow())
+            cursor.moveToNext()
+        }
+        cursor.close()
+
+        return items
+    }
+
+    /**
+     * Like [getAllItems], but the results are cached until the table is next written to, so that
+     * running the same query again returns the same list without reading the table.
+     *
+     * The list returned is shared with other callers, so it can't be modified, and its items must
+     * not be modified either.
+     *
+     * @see QueryCache
+     */
+    @JvmOverloads
+    fun getCachedItems(query: Query? = null, projection: Array<String>? = null): List<T> =
+            QueryCache.get(tableName, query, projection) { getAllItems(query, projection) }
+
+    /**
+     * Like [getAllItems], but the items are constructed lazily as the sequence is iterated, so
+     * that callers can process large numbers of rows without holding them all in memory.
+     *
+     * The sequence returned must be closed if it is not iterated to the end.
+     *
+     * @see CursorSequence
+     */
+    @JvmOverloads
+    fun getItemSequence(query: Query? = null,
+                        projection: Array<String>? = null): CursorSequence<T> {
+        val cursor = queryTable(query, projection)
+        return CursorSequence(cursor, createRowMapper(cursor))
+    }
+
+    /**
+     * Selects a page of items ordered by the [sortColumn] and then by id, starting after the row
+     * identified by the [after] key.
+     *
+     * Since this uses the key of the last row instead of an offset, fetching later pages is no
+     * slower than fetching the first.
+     *
+     * @param filter        the condition for selecting rows, or null to select from all rows
+     * @param sortColumn    the column to order rows by. This must be an integer column.
+     * @param pageSize      the maximum number of items in the page
+     * @param after         the key of the row before the page, or null to fetch the first page
+     * @param ascending     whether rows should be ordered in ascending or descending order
+     * @param projection    the columns to read, which must include the [sortColumn] and id column.
+     *                      If this is null, all columns will be read.
+     *
+     * @see Page.nextKey
+     */
+    @JvmOverloads
+    fun getPage(filter: Filter?,
+                sortColumn: String,
+                pageSize: Int,
+                after: PageKey? = null,
+                ascending: Boolean = true,
+                projection: Array<String>? = null): Page<T> {
+        val builder = Query.Builder()
+        filter?.let { builder.addFilter(it) }
+        after?.let {
+            builder.addFilter(if (ascending) {
+                Filters.afterKey(sortColumn, itemIdCol, it)
+            } else {
+                Filters.beforeKey(sortColumn, itemIdCol, it)
+            })
+        }
+        builder.orderBy(sortColumn, ascending)
+                .orderBy(itemIdCol, ascending)
+                .limit(pageSize)
+
+        val cursor = queryTable(builder.build(), projection)
+
+        val items = ArrayList<T>(cursor.count)
+        val rowMapper = createRowMapper(cursor)
+
+        cursor.moveToFirst()
+        while (!cursor.isAfterLast) {
+            items.add(rowMapper.mapRow())
+            cursor.moveToNext()
+        }
+
+        val nextKey = if (items.size < pageSize) {
+            null // there are no more rows after this page
+        } else {
+            cursor.moveToLast()
+            PageKey(cursor.getLong(cursor.getColumnIndexOrThrow(sortColumn)),
+                    cursor.getInt(cursor.getColumnIndexOrThrow(itemIdCol)))
+        }
+        cursor.close()
+
+        return Page(items, nextKey)
+    }
+
+    /**
+     * Counts rows using SQL, so that the items don't have to be read to find how many there are.
+     *
+     * @param filter the condition for selecting rows, or null to count all rows in the table
+     * @return the number of rows satisfying the [filter]
+     */
+    @JvmOverloads
+    fun countItems(filter: Filter? = null): Int {
+        val db = TimetableDbHelper.getInstance(context).readableDatabase
+        return DatabaseUtils.queryNumEntries(
+                db, tableName, filter?.sqlStatement, filter?.args?.toTypedArray()).toInt()
+    }
+
+    /**
+     * Counts rows for each value of the [groupColumn], such as a date or the id of a related item.
+     *
+     * @param groupColumn   the column to group rows by. This must be an integer column.
+     * @param filter        the condition for selecting rows, or null to count all rows
+     * @return  a map of each value in the [groupColumn] to the number of rows with that value.
+     *          Values which no rows (satisfying the [filter]) have are not included.
+     * @see countItems
+     */
+    @JvmOverloads
+    fun countItemsGrouped(groupColumn: String, filter: Filter? = null): Map<Long, Int> {
+        val db = TimetableDbHelper.getInstance(context).readableDatabase
+        val cursor = db.query(
                 tableName,
+                arrayOf(groupColumn, "COUNT(*)"),
+                filter?.sqlStatement,
+                filter?.args?.toTypedArray(),
+                groupColumn,
                 null,
-                query?.filter?.sqlStatement,
-                null, null, null, null)
+                null)
+
+        val counts = HashMap<Long, Int>(cursor.count)
         cursor.moveToFirst()
         while (!cursor.isAfterLast) {
-            items.add(createFromCursor(cursor))
+            counts.put(cursor.getLong(0), cursor.getInt(1))
             cursor.moveToNext()
         }
         cursor.close()
 
-        return items
+        return counts
+    }
+
+    private fun queryTable(query: Query?, projection: Array<String>?): Cursor {
+        val dbHelper = TimetableDbHelper.getInstance(context)
+        return dbHelper.readableDatabase.query(
+                tableName,
+                projection,
+                query?.selection,
+                query?.selectionArgs,
+                null,
+                null,
+                query?.orderBy,
+                query?.limitClause)
     }
 
     /**
-     * @return the id of the most recently added item (will have the highest id). This is typically
-     *          used as a way of determining the id of a new item to be added.
+     * @return the highest id that has been given to an item in the table, including items which
+     *          have since been deleted
      */
-    fun getHighestItemId(): Int {
+    private fun getHighestItemId(): Int {
         val db = TimetableDbHelper.getInstance(context).readableDatabase
         val cursor = db.query(
                 SqliteSeqSchema.TABLE_NAME,
@@ -119,7 +324,7 @@ abstract class DataHandler<T : BaseItem>(val context: Context) {
                 null, null, null)
 
         val highestId = if (cursor.count == 0) {
-          0
+            0
         } else {
             cursor.moveToFirst()
             cursor.getInt(cursor.getColumnIndex(SqliteSeqSchema.COL_SEQ))
@@ -131,9 +336,48 @@ abstract class DataHandler<T : BaseItem>(val context: Context) {
     }
 
     /**
-     * Adds an item's data to the database table.
+     * Reserves an integer identifier for a new item. This should only be used when the id must be
+     * known before the item is added - for example, when other items referring to it are written
+     * first. Otherwise, [insertItem] should be used.
+     *
+     * The database is only queried the first time an id is reserved for this table, after which
+     * ids are handed out from memory. Reserved ids which don't end up being used are skipped.
+     *
+     * @see IdAllocator
+     */
+    fun reserveItemId() = IdAllocator.forTable(tableName) { getHighestItemId() }.allocate()
+
+    /**
+     * Adds a new item to the database table, letting the database assign its integer identifier.
+     * The id of the [item] provided is ignored, so [NO_ID] can be used as a placeholder.
+     *
+     * If ids have been reserved for this table, the id is taken from the same [IdAllocator] so
+     * that it can't clash with an id that has been reserved but not used yet.
+     *
+     * @return the item that was added, with its new id
+     * @see addItem
+     * @see reserveItemId
+     */
+    fun insertItem(item: T): T {
+        val values = propertiesAsContentValues(item)
+        values.remove(itemIdCol)
+        IdAllocator.forTableIfCreated(tableName)?.let { values.put(itemIdCol, it.allocate()) }
+
+        val db = TimetableDbHelper.getInstance(context).writableDatabase
+        val newItem = withId(item, db.insertOrThrow(tableName, null, values).toInt())
+
+        Log.i(LOG_TAG, "Inserted item with id ${newItem.id} to $tableName")
+        notifyChange(TableChange.Operation.INSERT, setOf(newItem.id))
+        onItemAdded(newItem)
+        return newItem
+    }
+
+    /**
+     * Adds an item's data to the database table, using the id of the [item].
      *
      * @param item the data model class reference for the item to be added
+     * @see insertItem
+     * @see addItems
      * @see deleteItem
      * @see replaceItem
      */
@@ -141,15 +385,19 @@ abstract class DataHandler<T : BaseItem>(val context: Context) {
         val values = propertiesAsContentValues(item)
 
         val db = TimetableDbHelper.getInstance(context).writableDatabase
-        db.insert(tableName, null, values)
+        db.insertOrThrow(tableName, null, values)
+        IdAllocator.forTableIfCreated(tableName)?.onIdUsed(item.id)
 
         Log.i(LOG_TAG, "Added item with id ${item.id} to $tableName")
+        notifyChange(TableChange.Operation.INSERT, setOf(item.id))
+        onItemAdded(item)
     }
 
     /**
      * Removes an item of type [T], with the specified integer identifier, to the database table.
      *
      * @see addItem
+     * @see deleteItems
      * @see replaceItem
      * @see deleteItemWithReferences
      */
@@ -158,31 +406,317 @@ abstract class DataHandler<T : BaseItem>(val context: Context) {
         db.delete(tableName,
                 "$itemIdCol=?",
                 arrayOf(itemId.toString()))
+
         Log.i(LOG_TAG, "Deleted item with id $itemId from $tableName")
+        notifyChange(TableChange.Operation.DELETE, setOf(itemId))
+        onItemDeleted(itemId)
     }
 
     /**
      * Replaces an item of type [T] using its old integer identifier and a reference to the new data
      * model class.
-     * By default, it merely deletes the old item using the id, and adds it again using values from
-     * the new data model class.
+     *
+     * The row of the old item is updated in place, writing only the columns whose values have
+     * changed. If the old item cannot be found, the new item is added instead.
      *
      * @see addItem
-     * @see deleteItem
+     * @see onItemReplaced
+     * @see replaceItems
      */
     open fun replaceItem(oldItemId: Int, newItem: T) {
-        Log.i(LOG_TAG, "Replacing item...")
-        deleteItem(oldItemId)
-        addItem(newItem)
+        val oldValues = try {
+            propertiesAsContentValues(createFromId(oldItemId))
+        } catch (e: DataNotFoundException) {
+            Log.w(LOG_TAG, "Item with id $oldItemId not found in $tableName - adding it instead")
+            addItem(newItem)
+            return
+        }
+
+        // Remove the values that haven't changed so that only the changed columns are written
+        val changedValues = propertiesAsContentValues(newItem)
+        changedValues.keySet().toList().forEach {
+            if (changedValues.get(it) == oldValues.get(it)) {
+                changedValues.remove(it)
+            }
+        }
+
+        if (changedValues.size() == 0) {
+            Log.v(LOG_TAG, "Item with id $oldItemId in $tableName has not changed")
+            return
+        }
+        val changedColumns = changedValues.keySet().toSet()
+
+        val db = TimetableDbHelper.getInstance(context).writableDatabase
+        db.update(tableName, changedValues, "$itemIdCol=?", arrayOf(oldItemId.toString()))
+
+        Log.i(LOG_TAG, "Updated $changedColumns of item with id $oldItemId in $tableName")
+        notifyChange(TableChange.Operation.UPDATE, setOf(oldItemId, newItem.id))
+        onItemReplaced(oldItemId, newItem, changedColumns)
+    }
+
+    /**
+     * Adds multiple items to the database table in a single transaction.
+     *
+     * This should be used instead of invoking [addItem] for each item, since the insert statement
+     * is only compiled once and the changes are only written to storage once.
+     *
+     * @see addItem
+     */
+    fun addItems(items: Collection<T>) {
+        if (items.isEmpty()) {
+            return
+        }
+
+        val db = TimetableDbHelper.getInstance(context).writableDatabase
+        runInTransaction {
+            val insertStatement = compileInsertStatement(db)
+            items.forEach { insertStatement.bind(it).executeInsert() }
+            insertStatement.close()
+        }
+        IdAllocator.forTableIfCreated(tableName)?.let { allocator ->
+            items.forEach { allocator.onIdUsed(it.id) }
+        }
+
+        Log.i(LOG_TAG, "Added ${items.size} items to $tableName")
+        notifyChange(TableChange.Operation.INSERT, items.map { it.id }.toSet())
+        items.forEach { onItemAdded(it) }
+    }
+
+    /**
+     * Removes multiple items of type [T], with the specified integer identifiers, from the database
+     * table in a single transaction.
+     *
+     * @see deleteItem
+     */
+    fun deleteItems(itemIds: Collection<Int>) {
+        if (itemIds.isEmpty()) {
+            return
+        }
+
+        val db = TimetableDbHelper.getInstance(context).writableDatabase
+        runInTransaction {
+            val deleteStatement = compileDeleteStatement(db)
+            itemIds.forEach {
+                deleteStatement.bindLong(1, it.toLong())
+                deleteStatement.executeUpdateDelete()
+            }
+            deleteStatement.close()
+        }
+
+        Log.i(LOG_TAG, "Deleted ${itemIds.size} items from $tableName")
+        notifyChange(TableChange.Operation.DELETE, itemIds.toSet())
+        itemIds.forEach { onItemDeleted(it) }
+    }
+
+    /**
+     * Replaces multiple items of type [T] in a single transaction. Each item updates the row with
+     * the same integer identifier, or is added if there is no such row.
+     *
+     * Unlike [replaceItem], the old values are not read to find which columns have changed, so all
+     * columns are written and are passed to [onItemReplaced] as changed. Overrides of
+     * [replaceItem] are not invoked by this function.
+     *
+     * @see replaceItem
+     */
+    fun replaceItems(newItems: Collection<T>) {
+        if (newItems.isEmpty()) {
+            return
+        }
+
+        val updatedItems = ArrayList<T>()
+        val addedItems = ArrayList<T>()
+
+        val db = TimetableDbHelper.getInstance(context).writableDatabase
+        var columns: Set<String> = emptySet()
+        runInTransaction {
+            val updateStatement = compileUpdateStatement(db)
+            val insertStatement = compileInsertStatement(db)
+            newItems.forEach {
+                if (updateStatement.bind(it, it.id).executeUpdateDelete() > 0) {
+                    updatedItems.add(it)
+                } else {
+                    insertStatement.bind(it).executeInsert()
+                    addedItems.add(it)
+                }
+            }
+            columns = updateStatement.columns.toSet()
+            updateStatement.close()
+            insertStatement.close()
+        }
+        IdAllocator.forTableIfCreated(tableName)?.let { allocator ->
+            addedItems.forEach { allocator.onIdUsed(it.id) }
+        }
+
+        Log.i(LOG_TAG, "Replaced ${newItems.size} items in $tableName")
+        if (updatedItems.isNotEmpty()) {
+            notifyChange(TableChange.Operation.UPDATE, updatedItems.map { it.id }.toSet())
+        }
+        if (addedItems.isNotEmpty()) {
+            notifyChange(TableChange.Operation.INSERT, addedItems.map { it.id }.toSet())
+        }
+        updatedItems.forEach { onItemReplaced(it.id, it, columns) }
+        addedItems.forEach { onItemAdded(it) }
+    }
+
+    /**
+     * Callback for when an item has been added to the database table, either by [addItem] or
+     * [addItems]. Subclasses can override this to perform additional tasks, such as setting alarms.
+     *
+     * @see onItemDeleted
+     */
+    protected open fun onItemAdded(item: T) {}
+
+    /**
+     * Callback for when an item has been removed from the database table, either by [deleteItem]
+     * or [deleteItems]. Subclasses can override this to perform additional tasks, such as
+     * cancelling alarms.
+     *
+     * @see onItemAdded
+     */
+    protected open fun onItemDeleted(itemId: Int) {}
+
+    /**
+     * Callback for when an item has been updated in the database table, either by [replaceItem] or
+     * [replaceItems]. Subclasses can override this to perform additional tasks only when columns
+     * relevant to them have changed.
+     *
+     * By default, this invokes [onItemDeleted] and [onItemAdded] so that tasks for the old item
+     * are undone and done again for the new item.
+     *
+     * @param changedColumns the columns whose values have changed
+     */
+    protected open fun onItemReplaced(oldItemId: Int, newItem: T, changedColumns: Set<String>) {
+        onItemDeleted(oldItemId)
+        onItemAdded(newItem)
+    }
+
+    /**
+     * Removes items with the [itemIds] from the [ItemCache], invalidates cached query results for
+     * this table, and publishes a [TableChange] for it, after the items have been written.
+     *
+     * If items have been deleted, the same is done for the [dependentTables], since rows in them
+     * may have been deleted by the database.
+     *
+     * If this is invoked in a transaction, this is done once the outermost transaction has ended.
+     * Otherwise, a read on another thread could load and cache the rows from before the changes
+     * were committed.
+     *
+     * @see TableChangeNotifier
+     */
+    protected fun notifyChange(operation: TableChange.Operation, itemIds: Set<Int>) {
+        val changes = ArrayList<TableChange>()
+        changes.add(TableChange(tableName, operation, itemIds))
+        if (operation == TableChange.Operation.DELETE) {
+            dependentTables.mapTo(changes) { TableChange(it, operation, null) }
+        }
+
+        val db = TimetableDbHelper.getInstance(context).writableDatabase
+        if (db.inTransaction()) {
+            pendingChanges.get().addAll(changes)
+        } else {
+            publishChanges(context, changes)
+        }
+    }
+
+    /**
+     * Runs the [block] in a database transaction, so that its changes are only written if the
+     * block completes without throwing an exception.
+     *
+     * Transactions can be nested, in which case the changes are written when the outermost
+     * transaction completes. Writes to several tables, for example from an editor saving an item
+     * and the items referencing it, should be run in one transaction so that they're committed
+     * together.
+     */
+    fun <R> runInTransaction(block: () -> R): R {
+        val db = TimetableDbHelper.getInstance(context).writableDatabase
+        db.beginTransaction()
+        try {
+            val result = block()
+            db.setTransactionSuccessful()
+            return result
+        } finally {
+            db.endTransaction()
+
+            if (!db.inTransaction()) {
+                val changes = ArrayList(pendingChanges.get())
+                pendingChanges.get().clear()
+                publishChanges(context, changes)
+            }
+        }
+    }
+
+    private fun compileDeleteStatement(db: SQLiteDatabase) =
+            db.compileStatement("DELETE FROM $tableName WHERE $itemIdCol=?")
+
+    private fun compileInsertStatement(db: SQLiteDatabase) = ItemStatement(db) { columns ->
+        val placeholders = columns.joinToString(COMMA_SEP) { "?" }
+        "INSERT INTO $tableName (${columns.joinToString(COMMA_SEP)}) VALUES ($placeholders)"
+    }
+
+    private fun compileUpdateStatement(db: SQLiteDatabase) = ItemStatement(db) { columns ->
+        "UPDATE $tableName SET ${columns.joinToString(COMMA_SEP) { "$it=?" }} WHERE $itemIdCol=?"
+    }
+
+    /**
+     * A compiled statement for writing items to the table, which is reused for each item.
+     *
+     * The statement is compiled using the columns of the first item's values, since every item has
+     * values for the same columns.
+     *
+     * @param makeSql creates the SQL for the statement, with a parameter for each of the columns
+     *          in order, followed by any extra parameters
+     */
+    private inner class ItemStatement(
+            private val db: SQLiteDatabase,
+            private val makeSql: (List<String>) -> String
+    ) {
+
+        var columns: List<String> = emptyList()
+            private set
+
+        private var statement: SQLiteStatement? = null
+
+        /**
+         * Binds the values of the [item], followed by the [extraArgs], to the statement.
+         *
+         * @return the statement, ready to be executed
+         */
+        fun bind(item: T, vararg extraArgs: Any?): SQLiteStatement {
+            val values = propertiesAsContentValues(item)
+
+            val itemStatement = statement ?: compile(values)
+            itemStatement.clearBindings()
+            columns.forEachIndexed { i, column ->
+                DatabaseUtils.bindObjectToProgram(itemStatement, i + 1, values.get(column))
+            }
+            extraArgs.forEachIndexed { i, arg ->
+                DatabaseUtils.bindObjectToProgram(itemStatement, columns.size + i + 1, arg)
+            }
+            return itemStatement
+        }
+
+        private fun compile(values: ContentValues): SQLiteStatement {
+            columns = values.keySet().toList()
+
+            val compiled = db.compileStatement(makeSql(columns))
+            statement = compiled
+            return compiled
+        }
+
+        fun close() {
+            statement?.close()
+        }
     }
 
     /**
-     * Deletes the item from the table and deletes all references to it (which would otherwise be
-     * redundant data in the table).
-     * By default, this function only deletes the item (assumes there are no references). Subclasses
-     * should override to specify their own additional behaviour.
+     * Deletes the item from the table along with the rows referencing it.
+     *
+     * Referencing rows are deleted by the database through foreign keys and triggers, so by
+     * default this only deletes the item. Subclasses should override this to also cancel the
+     * alarms of the referencing items deleted with it.
      *
      * @see deleteItem
+     * @see CascadedAlarms
      */
     open fun deleteItemWithReferences(itemId: Int) {
         deleteItem(itemId)
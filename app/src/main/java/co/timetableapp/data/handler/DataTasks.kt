@@ -0,0 +1,166 @@
+/*
+ * Copyright 2017 Farbod Salamat-Zadeh
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package co.timetableapp.data.handler
+
+import android.os.Handler
+import android.os.Looper
+import android.os.Process
+import java.util.concurrent.Callable
+import java.util.concurrent.ExecutionException
+import java.util.concurrent.ExecutorService
+import java.util.concurrent.Executors
+import java.util.concurrent.Future
+import java.util.concurrent.ThreadFactory
+import java.util.concurrent.atomic.AtomicInteger
+
+/**
+ * Runs database reads and writes in the background, delivering their results to the main thread.
+ *
+ * Writes are run one at a time, in the order they were submitted, on a single writer thread, so
+ * that they never wait for each other's locks. Reads run concurrently on a small pool of threads.
+ * Since write-ahead logging is enabled for the database, reads don't block the writer or get
+ * blocked by it.
+ *
+ * An exception thrown by a task is rethrown on the main thread, so that it isn't lost.
+ */
+object DataTasks {
+
+    private const val READER_THREADS = 3
+
+    /**
+     * A task which has been submitted to run in the background.
+     */
+    class Task internal constructor(private val isWrite: Boolean) {
+
+        internal var future: Future<*>? = null
+
+        /**
+         * Whether the result of the task will no longer be delivered.
+         */
+        @Volatile var isCancelled = false
+            private set
+
+        /**
+         * Stops the result of the task from being delivered. This must be invoked on the main
+         * thread, for example when the UI that would display the result is destroyed.
+         *
+         * A read which hasn't started yet won't be run at all, but a write will still be run so
+         * that changes the user has made aren't lost.
+         */
+        fun cancel() {
+            isCancelled = true
+            if (!isWrite) {
+                future?.cancel(false)
+            }
+        }
+    }
+
+    private val mainHandler by lazy { Handler(Looper.getMainLooper()) }
+
+    private val writer: ExecutorService =
+            Executors.newSingleThreadExecutor(BackgroundThreadFactory("DataTasks-writer"))
+
+    private val readers: ExecutorService = Executors.newFixedThreadPool(
+            READER_THREADS, BackgroundThreadFactory("DataTasks-reader"))
+
+    /**
+     * Whether the current thread is the writer thread.
+     */
+    private val isWriterThread = object : ThreadLocal<Boolean>() {
+        override fun initialValue() = false
+    }
+
+    /**
+     * Runs the [read] on one of the reader threads.
+     *
+     * @param onResult  invoked on the main thread with the result of the [read], unless the task
+     *                  has been cancelled
+     */
+    @JvmStatic
+    fun <R> read(read: () -> R, onResult: (R) -> Unit) = submit(readers, false, read, onResult)
+
+    /**
+     * Runs the [write] on the writer thread, after any writes that were submitted before it.
+     *
+     * @param onResult  invoked on the main thread with the result of the [write], unless the task
+     *                  has been cancelled
+     */
+    @JvmStatic
+    @JvmOverloads
+    fun <R> write(write: () -> R, onResult: (R) -> Unit = {}) =
+            submit(writer, true, write, onResult)
+
+    /**
+     * Runs the [write] on the writer thread, after any writes that were submitted before it, and
+     * waits for its result. If this is invoked on the writer thread, the [write] is run straight
+     * away instead.
+     *
+     * This is used when a read on another thread needs something to be written first. It must not
+     * be invoked on the main thread.
+     */
+    @JvmStatic
+    fun <R> writeAndWait(write: () -> R): R {
+        if (isWriterThread.get()) {
+            return write()
+        }
+
+        try {
+            return writer.submit(Callable {
+                isWriterThread.set(true)
+                write()
+            }).get()
+        } catch (e: ExecutionException) {
+            throw e.cause ?: e
+        }
+    }
+
+    private fun <R> submit(executor: ExecutorService,
+                           isWrite: Boolean,
+                           work: () -> R,
+                           onResult: (R) -> Unit): Task {
+        val task = Task(isWrite)
+        task.future = executor.submit(Runnable {
+            if (task.isCancelled && !isWrite) {
+                return@Runnable
+            }
+            if (isWrite) {
+                isWriterThread.set(true)
+            }
+
+            try {
+                val result = work()
+                mainHandler.post {
+                    if (!task.isCancelled) onResult(result)
+                }
+            } catch (e: Throwable) {
+                mainHandler.post { throw e }
+            }
+        })
+        return task
+    }
+
+    private class BackgroundThreadFactory(private val name: String) : ThreadFactory {
+
+        private val threadCount = AtomicInteger()
+
+        override fun newThread(runnable: Runnable) = Thread({
+            Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND)
+            runnable.run()
+        }, "$name-${threadCount.incrementAndGet()}")
+    }
+
+}
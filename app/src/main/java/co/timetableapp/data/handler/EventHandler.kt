@@ -33,10 +33,23 @@ class EventHandler(context: Context) : TimetableItemHandler<Event>(context) {
 
     override val timetableIdCol = EventsSchema.COL_TIMETABLE_ID
 
-    override fun createFromCursor(cursor: Cursor) = Event.from(cursor)
+    override val summaryColumns = arrayOf(
+            EventsSchema._ID,
+            EventsSchema.COL_TIMETABLE_ID,
+            EventsSchema.COL_TITLE,
+            EventsSchema.COL_START_DATE,
+            EventsSchema.COL_START_TIME,
+            EventsSchema.COL_END_DATE,
+            EventsSchema.COL_END_TIME,
+            EventsSchema.COL_LOCATION,
+            EventsSchema.COL_RELATED_SUBJECT_ID)
+
+    override fun createRowMapper(cursor: Cursor) = Event.rowMapper(cursor)
 
     override fun createFromId(id: Int) = Event.create(context, id)
 
+    override fun withId(item: Event, id: Int) = item.copy(id = id)
+
     override fun propertiesAsContentValues(item: Event): ContentValues {
         val values = ContentValues()
         with(values) {
@@ -44,32 +57,34 @@ class EventHandler(context: Context) : TimetableItemHandler<Event>(context) {
             put(EventsSchema.COL_TIMETABLE_ID, item.timetableId)
             put(EventsSchema.COL_TITLE, item.title)
             put(EventsSchema.COL_DETAIL, item.notes)
-            put(EventsSchema.COL_START_DATE_DAY_OF_MONTH, item.startDateTime.dayOfMonth)
-            put(EventsSchema.COL_START_DATE_MONTH, item.startDateTime.monthValue)
-            put(EventsSchema.COL_START_DATE_YEAR, item.startDateTime.year)
-            put(EventsSchema.COL_START_TIME_HRS, item.startDateTime.hour)
-            put(EventsSchema.COL_START_TIME_MINS, item.startDateTime.minute)
-            put(EventsSchema.COL_END_DATE_DAY_OF_MONTH, item.endDateTime.dayOfMonth)
-            put(EventsSchema.COL_END_DATE_MONTH, item.endDateTime.monthValue)
-            put(EventsSchema.COL_END_DATE_YEAR, item.endDateTime.year)
-            put(EventsSchema.COL_END_TIME_HRS, item.endDateTime.hour)
-            put(EventsSchema.COL_END_TIME_MINS, item.endDateTime.minute)
+            put(EventsSchema.COL_START_DATE, item.startDateTime.toLocalDate().toEpochDay())
+            put(EventsSchema.COL_START_TIME,
+                    DateUtils.asMinuteOfDay(item.startDateTime.toLocalTime()))
+            put(EventsSchema.COL_END_DATE, item.endDateTime.toLocalDate().toEpochDay())
+            put(EventsSchema.COL_END_TIME, DateUtils.asMinuteOfDay(item.endDateTime.toLocalTime()))
             put(EventsSchema.COL_LOCATION, item.location)
             put(EventsSchema.COL_RELATED_SUBJECT_ID, item.relatedSubjectId)
         }
         return values
     }
 
-    override fun addItem(item: Event) {
-        super.addItem(item)
+    override fun onItemAdded(item: Event) {
         addAlarmForEvent(context, item)
     }
 
-    override fun deleteItem(itemId: Int) {
-        super.deleteItem(itemId)
+    override fun onItemDeleted(itemId: Int) {
         AlarmReceiver().cancelAlarm(context, AlarmReceiver.Type.EVENT, itemId)
     }
 
+    override fun onItemReplaced(oldItemId: Int, newItem: Event, changedColumns: Set<String>) {
+        // Only reschedule the alarm if the time it should go off at has changed
+        if (changedColumns.contains(EventsSchema._ID)
+                || changedColumns.contains(EventsSchema.COL_START_DATE)
+                || changedColumns.contains(EventsSchema.COL_START_TIME)) {
+            super.onItemReplaced(oldItemId, newItem, changedColumns)
+        }
+    }
+
     companion object {
         @JvmStatic
         fun addAlarmForEvent(context: Context, event: Event) {
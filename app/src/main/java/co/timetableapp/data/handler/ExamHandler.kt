@@ -33,10 +33,24 @@ class ExamHandler(context: Context) : TimetableItemHandler<Exam>(context) {
 
     override val timetableIdCol = ExamsSchema.COL_TIMETABLE_ID
 
-    override fun createFromCursor(cursor: Cursor) = Exam.from(cursor)
+    override val summaryColumns = arrayOf(
+            ExamsSchema._ID,
+            ExamsSchema.COL_TIMETABLE_ID,
+            ExamsSchema.COL_SUBJECT_ID,
+            ExamsSchema.COL_MODULE,
+            ExamsSchema.COL_DATE,
+            ExamsSchema.COL_START_TIME,
+            ExamsSchema.COL_DURATION,
+            ExamsSchema.COL_SEAT,
+            ExamsSchema.COL_ROOM,
+            ExamsSchema.COL_IS_RESIT)
+
+    override fun createRowMapper(cursor: Cursor) = Exam.rowMapper(cursor)
 
     override fun createFromId(id: Int) = Exam.create(context, id)
 
+    override fun withId(item: Exam, id: Int) = item.copy(id = id)
+
     override fun propertiesAsContentValues(item: Exam): ContentValues {
         val values = ContentValues()
         with(values) {
@@ -44,11 +58,8 @@ class ExamHandler(context: Context) : TimetableItemHandler<Exam>(context) {
             put(ExamsSchema.COL_TIMETABLE_ID, item.timetableId)
             put(ExamsSchema.COL_SUBJECT_ID, item.subjectId)
             put(ExamsSchema.COL_MODULE, item.moduleName)
-            put(ExamsSchema.COL_DATE_DAY_OF_MONTH, item.date.dayOfMonth)
-            put(ExamsSchema.COL_DATE_MONTH, item.date.monthValue)
-            put(ExamsSchema.COL_DATE_YEAR, item.date.year)
-            put(ExamsSchema.COL_START_TIME_HRS, item.startTime.hour)
-            put(ExamsSchema.COL_START_TIME_MINS, item.startTime.minute)
+            put(ExamsSchema.COL_DATE, item.date.toEpochDay())
+            put(ExamsSchema.COL_START_TIME, DateUtils.asMinuteOfDay(item.startTime))
             put(ExamsSchema.COL_DURATION, item.duration)
             put(ExamsSchema.COL_SEAT, item.seat)
             put(ExamsSchema.COL_ROOM, item.room)
@@ -58,20 +69,25 @@ class ExamHandler(context: Context) : TimetableItemHandler<Exam>(context) {
         return values
     }
 
-    override fun addItem(item: Exam) {
-        super.addItem(item)
-
+    override fun onItemAdded(item: Exam) {
         if (item.isUpcoming()) {
             addAlarmForExam(context, item)
         }
     }
 
-    override fun deleteItem(itemId: Int) {
-        super.deleteItem(itemId)
-
+    override fun onItemDeleted(itemId: Int) {
         AlarmReceiver().cancelAlarm(context, AlarmReceiver.Type.EXAM, itemId)
     }
 
+    override fun onItemReplaced(oldItemId: Int, newItem: Exam, changedColumns: Set<String>) {
+        // Only reschedule the alarm if the time it should go off at has changed
+        if (changedColumns.contains(ExamsSchema._ID)
+                || changedColumns.contains(ExamsSchema.COL_DATE)
+                || changedColumns.contains(ExamsSchema.COL_START_TIME)) {
+            super.onItemReplaced(oldItemId, newItem, changedColumns)
+        }
+    }
+
     companion object {
         @JvmStatic
         fun addAlarmForExam(context: Context, exam: Exam) {
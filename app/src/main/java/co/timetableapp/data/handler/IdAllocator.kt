@@ -0,0 +1,76 @@
+/*
+ * Copyright 2017 Farbod Salamat-Zadeh
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package co.timetableapp.data.handler
+
+/**
+ * Hands out integer identifiers for new items of a database table from memory, so that the
+ * database only needs to be queried for the highest id once.
+ *
+ * There is a single allocator for each table, shared by all [DataHandler]s for that table. Once
+ * it has been created, ids for every new item of the table should come from it so that an id
+ * which has been reserved but not yet used can't be given to another item.
+ *
+ * @see DataHandler.reserveItemId
+ * @see DataHandler.insertItem
+ */
+internal class IdAllocator private constructor(private var highestId: Int) {
+
+    companion object {
+
+        private val allocators = HashMap<String, IdAllocator>()
+
+        /**
+         * @param findHighestId finds the highest id that has been given to an item of the table.
+         *          This is only invoked if the allocator hasn't been created yet.
+         * @return the allocator for the table, creating it if necessary
+         */
+        @Synchronized
+        fun forTable(tableName: String, findHighestId: () -> Int) =
+                allocators.getOrPut(tableName) { IdAllocator(findHighestId()) }
+
+        /**
+         * @return the allocator for the table, or null if no ids have been reserved for it
+         */
+        @Synchronized
+        fun forTableIfCreated(tableName: String) = allocators[tableName]
+
+        /**
+         * Discards the allocators for all tables. This must be invoked when the database is
+         * replaced, since the ids they hand out would be based on the old database.
+         */
+        @Synchronized
+        fun clear() = allocators.clear()
+    }
+
+    /**
+     * @return a new id, higher than any id that has been given out or used before
+     */
+    @Synchronized
+    fun allocate() = ++highestId
+
+    /**
+     * Records that an item has been added with the [id] specified, so that the id won't be given
+     * out again.
+     */
+    @Synchronized
+    fun onIdUsed(id: Int) {
+        if (id > highestId) {
+            highestId = id
+        }
+    }
+
+}
@@ -0,0 +1,135 @@
+/*
+ * Copyright 2017 Farbod Salamat-Zadeh
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package co.timetableapp.data.handler
+
+import android.util.LruCache
+import co.timetableapp.model.BaseItem
+import java.util.*
+
+/**
+ * A cache of items looked up by their ids, so that reading the same item repeatedly - for example,
+ * when binding list items or comparing items while sorting - doesn't query the database each time.
+ *
+ * There is a separate LRU cache for each table, holding up to [MAX_ITEMS_PER_TABLE] items. Items
+ * are removed from the cache as soon as a [DataHandler] writes to them, so cached items are the
+ * same as those in the database as long as it is only written to through data handlers.
+ *
+ * Cached items are shared between callers, so they must not be modified.
+ *
+ * @see DataHandler.notifyChange
+ */
+object ItemCache {
+
+    private const val MAX_ITEMS_PER_TABLE = 128
+
+    private val tableCaches = HashMap<String, TableCache>()
+
+    /**
+     * @param load  reads the item from the database if it isn't cached. If this throws an
+     *              exception (e.g. [DataNotFoundException]), nothing is cached.
+     * @return the item from the [tableName] table with the [id] specified
+     */
+    @JvmStatic
+    fun <T : BaseItem> get(tableName: String, id: Int, load: () -> T): T {
+        val tableCache = cacheFor(tableName)
+
+        // Items loaded while the table is being written to may be out of date, so only cache the
+        // item if the table hasn't been invalidated since we started loading it
+        val generation = tableCache.generation
+
+        @Suppress("UNCHECKED_CAST")
+        (tableCache.items.get(id) as T?)?.let { return it }
+
+        val item = load()
+        synchronized(tableCache) {
+            if (tableCache.generation == generation) {
+                tableCache.items.put(id, item)
+            }
+        }
+        return item
+    }
+
+    /**
+     * Removes items from the cache after they have been written to.
+     *
+     * @param itemIds   the ids of the items that were written, or null if they aren't known, in
+     *                  which case all items from the table are removed
+     */
+    @JvmStatic
+    fun invalidate(tableName: String, itemIds: Collection<Int>?) {
+        val tableCache = synchronized(this) { tableCaches[tableName] } ?: return
+
+        synchronized(tableCache) {
+            tableCache.generation++
+            if (itemIds == null) {
+                tableCache.items.evictAll()
+            } else {
+                itemIds.forEach { tableCache.items.remove(it) }
+            }
+        }
+    }
+
+    /**
+     * Removes all items from the cache. This must be invoked when the database is replaced.
+     */
+    @JvmStatic
+    @Synchronized
+    fun clear() = tableCaches.keys.forEach { invalidate(it, null) }
+
+    /**
+     * @return statistics for the cache of the [tableName] table
+     */
+    @JvmStatic
+    fun getStats(tableName: String): Stats {
+        val items = cacheFor(tableName).items
+        return Stats(items.hitCount(), items.missCount(), items.evictionCount(), items.size())
+    }
+
+    @Synchronized
+    private fun cacheFor(tableName: String) = tableCaches.getOrPut(tableName) { TableCache() }
+
+    private class TableCache {
+
+        val items = LruCache<Int, BaseItem>(MAX_ITEMS_PER_TABLE)
+
+        /**
+         * Incremented each time items in the table are written to.
+         */
+        @Volatile var generation = 0
+    }
+
+    /**
+     * Statistics for the cache of a table, since it was created.
+     *
+     * @property hitCount       the number of lookups of items that were in the cache
+     * @property missCount      the number of lookups of items that had to be read from the database
+     * @property evictionCount  the number of items removed to make space for other items
+     * @property size           the number of items in the cache
+     */
+    data class Stats(val hitCount: Int, val missCount: Int, val evictionCount: Int, val size: Int) {
+
+        /**
+         * The proportion of lookups of items that were in the cache, from 0 to 1.
+         */
+        val hitRate: Float
+            get() {
+                val lookupCount = hitCount + missCount
+                return if (lookupCount == 0) 0f else hitCount / lookupCount.toFloat()
+            }
+    }
+
+}
@@ -0,0 +1,199 @@
+/*
+ * Copyright 2017 Farbod Salamat-Zadeh
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package co.timetableapp.data.handler
+
+import android.content.Context
+import co.timetableapp.data.query.Filters
+import co.timetableapp.data.query.Query
+import co.timetableapp.data.schema.TermsSchema
+import co.timetableapp.data.schema.TimetablesSchema
+import co.timetableapp.model.Timetable
+import co.timetableapp.util.DateUtils
+import co.timetableapp.util.RotationCalendar
+import co.timetableapp.util.TermCalendar
+import org.threeten.bp.DayOfWeek
+import org.threeten.bp.LocalDate
+import org.threeten.bp.LocalDateTime
+
+/**
+ * Finds when the class times of a timetable take place, taking into account its week rotation,
+ * the dates of its classes, and its terms. Classes only take place on days within a term, so
+ * not during holidays between terms.
+ *
+ * This combines the [ScheduleIndex] of the timetable with a [RotationCalendar] and a
+ * [TermCalendar], so lookups are logarithmic and don't query the database once these have been
+ * read. The term days of the current timetable are kept by [get] until terms or timetables are
+ * written.
+ *
+ * @see co.timetableapp.util.ScheduleUtils
+ */
+class OccurrenceEngine private constructor(
+        private val context: Context,
+        val timetable: Timetable,
+        private val termDays: TermCalendar
+) {
+
+    companion object {
+
+        private var cachedTimetable: Timetable? = null
+        private var cachedTermDays: TermCalendar? = null
+
+        /**
+         * @return  the engine for the [timetable]. This reads the terms of the timetable if they
+         *          haven't been read since they were last written.
+         */
+        @JvmStatic
+        @Synchronized
+        fun get(context: Context, timetable: Timetable): OccurrenceEngine {
+            var termDays = cachedTermDays
+            if (termDays == null || cachedTimetable != timetable) {
+                termDays = readTermDays(context, timetable)
+                cachedTimetable = timetable
+                cachedTermDays = termDays
+            }
+            return OccurrenceEngine(context.applicationContext, timetable, termDays)
+        }
+
+        /**
+         * Records that rows of the [tableName] table have been written to, so that the terms are
+         * read again if they could have changed.
+         *
+         * @see DataHandler.notifyChange
+         */
+        @JvmStatic
+        @Synchronized
+        fun invalidate(tableName: String) {
+            if (tableName == TermsSchema.TABLE_NAME || tableName == TimetablesSchema.TABLE_NAME) {
+                clear()
+            }
+        }
+
+        /**
+         * Removes the terms that have been read. This must be invoked when the database is
+         * replaced.
+         */
+        @JvmStatic
+        @Synchronized
+        fun clear() {
+            cachedTimetable = null
+            cachedTermDays = null
+        }
+
+        private fun readTermDays(context: Context, timetable: Timetable): TermCalendar {
+            val query = Query.Builder()
+                    .addFilter(Filters.equal(
+                            TermsSchema.COL_TIMETABLE_ID, timetable.id.toString()))
+                    .build()
+            return TermCalendar.of(timetable, TermHandler(context).getAllItems(query))
+        }
+    }
+
+    private val rotation = RotationCalendar.of(timetable)
+
+    private val index by lazy { ScheduleIndex.get(context, timetable) }
+
+    /**
+     * @return whether the [date] is within a term of the timetable, so classes can take place
+     */
+    fun isTermDay(date: LocalDate) = termDays.contains(date.toEpochDay())
+
+    /**
+     * @return the number of class times taking place on the [date]
+     */
+    fun countOn(date: LocalDate): Int {
+        val epochDay = date.toEpochDay()
+        if (!termDays.contains(epochDay)) {
+            return 0
+        }
+        return index.countOn(rotation.weekNumberOf(epochDay), date.dayOfWeek, epochDay)
+    }
+
+    /**
+     * @return whether the class time with the [classTimeId] takes place on the [date]
+     */
+    fun occursOn(classTimeId: Int, date: LocalDate): Boolean {
+        val epochDay = date.toEpochDay()
+        return termDays.contains(epochDay) && index.occursOn(
+                classTimeId, rotation.weekNumberOf(epochDay), date.dayOfWeek, epochDay)
+    }
+
+    /**
+     * @return  the id of the class time taking place at the [dateTime], or
+     *          [ScheduleIndex.NO_CLASS_TIME] if there isn't one
+     * @see ScheduleIndex.findCurrent
+     */
+    fun findCurrent(dateTime: LocalDateTime): Int {
+        val epochDay = dateTime.toLocalDate().toEpochDay()
+        if (!termDays.contains(epochDay)) {
+            return ScheduleIndex.NO_CLASS_TIME
+        }
+        return index.findCurrent(
+                rotation.weekNumberOf(epochDay),
+                dateTime.dayOfWeek,
+                epochDay,
+                DateUtils.asMinuteOfDay(dateTime.toLocalTime()))
+    }
+
+    /**
+     * @return  the id of the next class time starting at or after the [dateTime] on the same day,
+     *          or [ScheduleIndex.NO_CLASS_TIME] if there isn't one
+     * @see ScheduleIndex.findNext
+     */
+    fun findNext(dateTime: LocalDateTime): Int {
+        val epochDay = dateTime.toLocalDate().toEpochDay()
+        if (!termDays.contains(epochDay)) {
+            return ScheduleIndex.NO_CLASS_TIME
+        }
+        return index.findNext(
+                rotation.weekNumberOf(epochDay),
+                dateTime.dayOfWeek,
+                epochDay,
+                DateUtils.asMinuteOfDay(dateTime.toLocalTime()))
+    }
+
+    /**
+     * @return  the date of the next time the class time with the [classTimeId] starts, at or after
+     *          the [dateTime], or null if it doesn't take place again
+     */
+    fun findNextOccurrence(classTimeId: Int, dateTime: LocalDateTime): LocalDate? {
+        val epochDay = index.findOccurrenceOnOrAfter(
+                classTimeId,
+                dateTime.toLocalDate().toEpochDay(),
+                DateUtils.asMinuteOfDay(dateTime.toLocalTime()),
+                rotation,
+                termDays)
+        return if (epochDay == TermCalendar.NO_DAY) null else LocalDate.ofEpochDay(epochDay)
+    }
+
+    /**
+     * @return  the first date on or after the [date] within a term which falls on the [dayOfWeek]
+     *          of a week with the [weekNumber], or null if there isn't one
+     */
+    fun findTermDayOnOrAfter(date: LocalDate, weekNumber: Int, dayOfWeek: DayOfWeek): LocalDate? {
+        // Skip to the next term whenever the day of the rotation falls outside one
+        var epochDay = termDays.firstOnOrAfter(date.toEpochDay())
+        while (epochDay != TermCalendar.NO_DAY) {
+            val rotationDay = rotation.firstOnOrAfter(epochDay, weekNumber, dayOfWeek)
+            if (termDays.contains(rotationDay)) {
+                return LocalDate.ofEpochDay(rotationDay)
+            }
+            epochDay = termDays.firstOnOrAfter(rotationDay)
+        }
+        return null
+    }
+
+}
@@ -0,0 +1,104 @@
+/*
+ * Copyright 2017 Farbod Salamat-Zadeh
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package co.timetableapp.data.handler
+
+import android.util.LruCache
+import co.timetableapp.data.query.Query
+import co.timetableapp.model.BaseItem
+import java.util.*
+
+/**
+ * A cache of the results of queries, so that running the same query several times while a screen
+ * is being built doesn't read the table each time.
+ *
+ * Each table has a generation counter, which is incremented when a [DataHandler] writes to the
+ * table. Results are cached along with the generation of their table when they were read, and are
+ * only returned while that is still the current generation.
+ *
+ * Cached results are shared between callers, so they can't be modified.
+ *
+ * @see DataHandler.getCachedItems
+ * @see ItemCache
+ */
+object QueryCache {
+
+    private const val MAX_RESULTS = 32
+
+    private val generations = HashMap<String, Int>()
+
+    private val results = LruCache<Key, CachedResult>(MAX_RESULTS)
+
+    private data class Key(val tableName: String, val query: Query?, val projection: List<String>?)
+
+    private class CachedResult(val generation: Int, val items: List<BaseItem>)
+
+    /**
+     * @param load  reads the results from the database if they aren't cached
+     * @return  the results of the [query] on the [tableName] table, reading the [projection]
+     *          columns. This is an unmodifiable list.
+     */
+    @JvmStatic
+    fun <T : BaseItem> get(tableName: String,
+                           query: Query?,
+                           projection: Array<String>?,
+                           load: () -> List<T>): List<T> {
+        val key = Key(tableName, query, projection?.toList())
+        val generation = generationOf(tableName)
+
+        val cachedResult = results.get(key)
+        if (cachedResult != null) {
+            if (cachedResult.generation == generation) {
+                @Suppress("UNCHECKED_CAST")
+                return cachedResult.items as List<T>
+            }
+            results.remove(key)
+        }
+
+        val items = Collections.unmodifiableList(load())
+        synchronized(this) {
+            // The results may be out of date if the table was written to while they were read
+            if (generationOf(tableName) == generation) {
+                results.put(key, CachedResult(generation, items))
+            }
+        }
+        return items
+    }
+
+    /**
+     * Starts a new generation for the [tableName] table after it has been written to, so that
+     * results read from it before are no longer returned.
+     */
+    @JvmStatic
+    @Synchronized
+    fun invalidate(tableName: String) {
+        generations.put(tableName, generationOf(tableName) + 1)
+    }
+
+    /**
+     * Removes all results from the cache. This must be invoked when the database is replaced.
+     */
+    @JvmStatic
+    @Synchronized
+    fun clear() {
+        generations.keys.toList().forEach { invalidate(it) }
+        results.evictAll()
+    }
+
+    @Synchronized
+    private fun generationOf(tableName: String) = generations[tableName] ?: 0
+
+}
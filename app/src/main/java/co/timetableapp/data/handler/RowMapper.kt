@@ -0,0 +1,57 @@
+/*
+ * Copyright 2017 Farbod Salamat-Zadeh
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package co.timetableapp.data.handler
+
+import android.database.Cursor
+
+/**
+ * Constructs data model items of type [T] from the rows of a [cursor].
+ *
+ * Subclasses should find the indices of the columns they read when they are created, so that this
+ * is only done once per cursor instead of for every row.
+ *
+ * @see DataHandler.createRowMapper
+ */
+abstract class RowMapper<out T>(protected val cursor: Cursor) {
+
+    /**
+     * @return the item constructed from the current row of the [cursor]
+     */
+    abstract fun mapRow(): T
+
+    /**
+     * @return the index of the [column] in the [cursor]
+     * @throws IllegalArgumentException if the column does not exist in the cursor
+     */
+    protected fun indexOf(column: String) = cursor.getColumnIndexOrThrow(column)
+
+    /**
+     * @return  the index of the [column] in the [cursor], or -1 if the column was left out of the
+     *          query's projection
+     * @see getStringOrEmpty
+     */
+    protected fun optionalIndexOf(column: String) = cursor.getColumnIndex(column)
+
+    /**
+     * @return  the value of the column at [index] in the current row, or an empty string if the
+     *          index is -1
+     * @see optionalIndexOf
+     */
+    protected fun getStringOrEmpty(index: Int): String =
+            if (index == -1) "" else cursor.getString(index)
+
+}
@@ -0,0 +1,460 @@
+/*
+ * Copyright 2017 Farbod Salamat-Zadeh
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package co.timetableapp.data.handler
+
+import android.content.Context
+import co.timetableapp.data.TimetableDbHelper
+import co.timetableapp.data.query.Filter
+import co.timetableapp.data.query.Filters
+import co.timetableapp.data.schema.ClassDetailsSchema
+import co.timetableapp.data.schema.ClassScheduleSchema
+import co.timetableapp.data.schema.ClassTimesSchema
+import co.timetableapp.data.schema.ClassesSchema
+import co.timetableapp.model.Class
+import co.timetableapp.model.Timetable
+import co.timetableapp.util.RotationCalendar
+import co.timetableapp.util.TermCalendar
+import org.threeten.bp.DayOfWeek
+import java.util.*
+
+/**
+ * An in-memory index of when the class times of a timetable take place, so that questions such as
+ * which classes are on a date, or which class is next, can be answered without querying the
+ * database.
+ *
+ * Class times are grouped into a slot for each day of each week rotation, and sorted by their start
+ * times within each slot. Their properties are held in primitive arrays, so lookups are a binary
+ * search followed by a short scan, and don't allocate any objects.
+ *
+ * Indexes are immutable. The index for the current timetable is kept by [get] and updated after
+ * class times, class details or classes are written, re-reading only the rows that were written.
+ *
+ * @see co.timetableapp.util.ScheduleUtils
+ */
+class ScheduleIndex private constructor(
+        val timetableId: Int,
+        val weekRotations: Int,
+        private val rows: List<Row>
+) {
+
+    companion object {
+
+        /**
+         * Returned by lookups when no class time was found.
+         */
+        const val NO_CLASS_TIME = -1
+
+        private const val DAYS_PER_WEEK = 7
+
+        private val ROW_ORDER = compareBy<Row>({ it.slot }, { it.startMinute }, { it.endMinute },
+                { it.classTimeId })
+
+        private var cachedIndex: ScheduleIndex? = null
+
+        /**
+         * Whether the [cachedIndex] must be read from the database again, such as when rows were
+         * deleted by the database without their ids being known.
+         */
+        private var isStale = false
+
+        private val writtenClassTimeIds = HashSet<Int>()
+        private val writtenClassDetailIds = HashSet<Int>()
+        private val writtenClassIds = HashSet<Int>()
+
+        /**
+         * @return  the index for the [timetable]. This reads the class schedule table if there is
+         *          no index for the timetable yet, or the rows written since it was last used.
+         */
+        @JvmStatic
+        @Synchronized
+        fun get(context: Context, timetable: Timetable): ScheduleIndex {
+            val index = cachedIndex
+
+            val updatedIndex = if (index == null || isStale ||
+                    index.timetableId != timetable.id ||
+                    index.weekRotations != timetable.weekRotations) {
+                build(context, timetable)
+            } else if (writtenClassTimeIds.isNotEmpty() || writtenClassDetailIds.isNotEmpty() ||
+                    writtenClassIds.isNotEmpty()) {
+                index.withRowsReread(context)
+            } else {
+                index
+            }
+
+            cachedIndex = updatedIndex
+            isStale = false
+            writtenClassTimeIds.clear()
+            writtenClassDetailIds.clear()
+            writtenClassIds.clear()
+
+            return updatedIndex
+        }
+
+        /**
+         * Records that rows of the [tableName] table have been written to, so that they're read
+         * again the next time the index is used.
+         *
+         * @param itemIds   the ids of the rows that were written, or null if they aren't known, in
+         *                  which case the whole index is read again
+         * @see DataHandler.notifyChange
+         */
+        @JvmStatic
+        @Synchronized
+        fun invalidate(tableName: String, itemIds: Collection<Int>?) {
+            val writtenIds = when (tableName) {
+                ClassTimesSchema.TABLE_NAME -> writtenClassTimeIds
+                ClassDetailsSchema.TABLE_NAME -> writtenClassDetailIds
+                ClassesSchema.TABLE_NAME -> writtenClassIds
+                else -> return
+            }
+
+            if (itemIds == null) {
+                isStale = true
+            } else {
+                writtenIds.addAll(itemIds)
+            }
+        }
+
+        /**
+         * Removes the index. This must be invoked when the database is replaced.
+         */
+        @JvmStatic
+        @Synchronized
+        fun clear() {
+            cachedIndex = null
+            isStale = false
+            writtenClassTimeIds.clear()
+            writtenClassDetailIds.clear()
+            writtenClassIds.clear()
+        }
+
+        private fun build(context: Context, timetable: Timetable) = ScheduleIndex(
+                timetable.id,
+                timetable.weekRotations,
+                readRows(context, timetable.id, timetable.weekRotations))
+
+        /**
+         * @return  the rows of the class schedule table belonging to the timetable, selected by the
+         *          [filter] if it isn't null
+         */
+        private fun readRows(context: Context,
+                             timetableId: Int,
+                             weekRotations: Int,
+                             filter: Filter? = null): List<Row> {
+            val timetableFilter =
+                    Filters.equal(ClassScheduleSchema.COL_TIMETABLE_ID, timetableId.toString())
+            val selection =
+                    if (filter == null) timetableFilter else Filters.and(timetableFilter, filter)
+
+            val db = TimetableDbHelper.getInstance(context).readableDatabase
+            val cursor = db.query(
+                    ClassScheduleSchema.TABLE_NAME,
+                    arrayOf(ClassScheduleSchema._ID,
+                            ClassScheduleSchema.COL_CLASS_DETAIL_ID,
+                            ClassScheduleSchema.COL_CLASS_ID,
+                            ClassScheduleSchema.COL_DAY,
+                            ClassScheduleSchema.COL_WEEK_NUMBER,
+                            ClassScheduleSchema.COL_START_TIME,
+                            ClassScheduleSchema.COL_END_TIME,
+                            ClassScheduleSchema.COL_CLASS_START_DATE,
+                            ClassScheduleSchema.COL_CLASS_END_DATE),
+                    selection.sqlStatement,
+                    selection.args.toTypedArray(),
+                    null, null, null)
+
+            val rows = ArrayList<Row>(cursor.count)
+            while (cursor.moveToNext()) {
+                val weekNumber = cursor.getInt(4)
+                if (weekNumber < 1 || weekNumber > weekRotations) {
+                    // The class time isn't shown until its week is part of the rotation again
+                    continue
+                }
+
+                rows.add(Row(
+                        classTimeId = cursor.getInt(0),
+                        classDetailId = cursor.getInt(1),
+                        classId = cursor.getInt(2),
+                        slot = slotOf(weekNumber, cursor.getInt(3)),
+                        startMinute = cursor.getInt(5),
+                        endMinute = cursor.getInt(6),
+                        classStartDay = cursor.getLong(7),
+                        classEndDay = cursor.getLong(8)))
+            }
+            cursor.close()
+
+            return rows
+        }
+
+        private fun slotOf(weekNumber: Int, dayOfWeek: Int) =
+                (weekNumber - 1) * DAYS_PER_WEEK + (dayOfWeek - 1)
+    }
+
+    /**
+     * The values of a row of the class schedule table used by the index. These are only used to
+     * build the index, and to update it after rows have been written.
+     */
+    private class Row(
+            val classTimeId: Int,
+            val classDetailId: Int,
+            val classId: Int,
+            val slot: Int,
+            val startMinute: Int,
+            val endMinute: Int,
+            val classStartDay: Long,
+            val classEndDay: Long
+    )
+
+    private val sortedRows = rows.sortedWith(ROW_ORDER)
+
+    /**
+     * The position in the arrays of the first class time in each slot. The class times of a slot
+     * are from this position up to the position for the next slot.
+     */
+    private val slotStarts = IntArray(weekRotations * DAYS_PER_WEEK + 1)
+
+    private val classTimeIds = IntArray(sortedRows.size)
+    private val slots = IntArray(sortedRows.size)
+    private val startMinutes = IntArray(sortedRows.size)
+    private val endMinutes = IntArray(sortedRows.size)
+    private val classStartDays = LongArray(sortedRows.size)
+    private val classEndDays = LongArray(sortedRows.size)
+
+    private val noDate = Class.NO_DATE.toEpochDay()
+
+    init {
+        sortedRows.forEachIndexed { i, row ->
+            classTimeIds[i] = row.classTimeId
+            slots[i] = row.slot
+            startMinutes[i] = row.startMinute
+            endMinutes[i] = row.endMinute
+            classStartDays[i] = row.classStartDay
+            classEndDays[i] = row.classEndDay
+            slotStarts[row.slot + 1] = i + 1
+        }
+
+        // Slots without class times start where the previous slot ends
+        for (slot in 1 until slotStarts.size) {
+            if (slotStarts[slot] < slotStarts[slot - 1]) {
+                slotStarts[slot] = slotStarts[slot - 1]
+            }
+        }
+    }
+
+    /**
+     * The positions of the class times in the arrays, sorted by class time id. This is declared
+     * after the arrays are filled so that it can be initialized from them.
+     */
+    private val positionsById = classTimeIds.indices.sortedBy { classTimeIds[it] }.toIntArray()
+
+    /**
+     * @return  a copy of this index with the rows for the class times, class details and classes
+     *          written since it was built read again from the database
+     */
+    private fun withRowsReread(context: Context): ScheduleIndex {
+        val classTimeIds = writtenClassTimeIds.toSet()
+        val classDetailIds = writtenClassDetailIds.toSet()
+        val classIds = writtenClassIds.toSet()
+
+        val keptRows = sortedRows.filterNot {
+            classTimeIds.contains(it.classTimeId) ||
+                    classDetailIds.contains(it.classDetailId) ||
+                    classIds.contains(it.classId)
+        }
+
+        val filters = ArrayList<Filter>()
+        if (classTimeIds.isNotEmpty()) {
+            filters.add(Filters.inList(
+                    ClassScheduleSchema._ID, classTimeIds.map { it.toString() }))
+        }
+        if (classDetailIds.isNotEmpty()) {
+            filters.add(Filters.inList(
+                    ClassScheduleSchema.COL_CLASS_DETAIL_ID, classDetailIds.map { it.toString() }))
+        }
+        if (classIds.isNotEmpty()) {
+            filters.add(Filters.inList(
+                    ClassScheduleSchema.COL_CLASS_ID, classIds.map { it.toString() }))
+        }
+        val filter = if (filters.size == 1) {
+            filters[0]
+        } else {
+            Filters.or(filters[0], filters[1], *filters.drop(2).toTypedArray())
+        }
+
+        val rereadRows = readRows(context, timetableId, weekRotations, filter)
+        return ScheduleIndex(timetableId, weekRotations, keptRows + rereadRows)
+    }
+
+    /**
+     * @return the number of class times taking place on the [weekNumber] and [dayOfWeek] of a date
+     */
+    fun countOn(weekNumber: Int, dayOfWeek: DayOfWeek, epochDay: Long): Int {
+        val slot = slotOf(weekNumber, dayOfWeek.value)
+        var count = 0
+        for (i in slotStarts[slot] until slotStarts[slot + 1]) {
+            if (isClassCurrent(i, epochDay)) count++
+        }
+        return count
+    }
+
+    /**
+     * @return  whether the class time with the [classTimeId] takes place on the date with the
+     *          [weekNumber], [dayOfWeek] and [epochDay]
+     */
+    fun occursOn(classTimeId: Int, weekNumber: Int, dayOfWeek: DayOfWeek, epochDay: Long): Boolean {
+        val slot = slotOf(weekNumber, dayOfWeek.value)
+        for (i in slotStarts[slot] until slotStarts[slot + 1]) {
+            if (classTimeIds[i] == classTimeId) {
+                return isClassCurrent(i, epochDay)
+            }
+        }
+        return false
+    }
+
+    /**
+     * @return  the id of the class time taking place at the [minuteOfDay] on the date, or
+     *          [NO_CLASS_TIME] if there isn't one. If class times overlap, the one which started
+     *          last is returned.
+     */
+    fun findCurrent(weekNumber: Int, dayOfWeek: DayOfWeek, epochDay: Long, minuteOfDay: Int): Int {
+        val slot = slotOf(weekNumber, dayOfWeek.value)
+        val slotStart = slotStarts[slot]
+
+        // Class times from this position onwards start after the minute
+        var i = upperBound(slotStart, slotStarts[slot + 1], minuteOfDay) - 1
+        while (i >= slotStart) {
+            if (endMinutes[i] > minuteOfDay && isClassCurrent(i, epochDay)) {
+                return classTimeIds[i]
+            }
+            i--
+        }
+        return NO_CLASS_TIME
+    }
+
+    /**
+     * @return  the id of the first class time starting at or after the [minuteOfDay] on the date,
+     *          or [NO_CLASS_TIME] if there isn't one
+     */
+    fun findNext(weekNumber: Int, dayOfWeek: DayOfWeek, epochDay: Long, minuteOfDay: Int): Int {
+        val slot = slotOf(weekNumber, dayOfWeek.value)
+        val slotEnd = slotStarts[slot + 1]
+
+        for (i in upperBound(slotStarts[slot], slotEnd, minuteOfDay - 1) until slotEnd) {
+            if (isClassCurrent(i, epochDay)) {
+                return classTimeIds[i]
+            }
+        }
+        return NO_CLASS_TIME
+    }
+
+    /**
+     * Finds the first day that the class time with the [classTimeId] takes place on, from the
+     * [fromMinuteOfDay] of the [fromEpochDay] onwards.
+     *
+     * @param rotation      the week rotation of the timetable
+     * @param termDays      the days of the timetable within its terms, which are the only days the
+     *                      class time can take place on
+     * @return  the epoch day of the occurrence, or [TermCalendar.NO_DAY] if the class time doesn't
+     *          take place again
+     */
+    fun findOccurrenceOnOrAfter(classTimeId: Int,
+                                fromEpochDay: Long,
+                                fromMinuteOfDay: Int,
+                                rotation: RotationCalendar,
+                                termDays: TermCalendar): Long {
+        val position = positionOf(classTimeId)
+        if (position < 0) {
+            return TermCalendar.NO_DAY
+        }
+
+        val weekNumber = slots[position] / DAYS_PER_WEEK + 1
+        val dayOfWeek = DayOfWeek.of(slots[position] % DAYS_PER_WEEK + 1)
+
+        val classStartDay = classStartDays[position]
+        val classEndDay = classEndDays[position]
+        val hasClassDates = classStartDay != noDate && classEndDay != noDate
+
+        var epochDay = if (startMinutes[position] < fromMinuteOfDay) {
+            // The class time has already started on the first day
+            fromEpochDay + 1
+        } else {
+            fromEpochDay
+        }
+        if (hasClassDates && epochDay < classStartDay) {
+            epochDay = classStartDay
+        }
+
+        // Each time the day of the rotation isn't within a term, the search continues from the
+        // next term, so this only repeats once for each term at most
+        epochDay = termDays.firstOnOrAfter(epochDay)
+        while (epochDay != TermCalendar.NO_DAY) {
+            val rotationDay = rotation.firstOnOrAfter(epochDay, weekNumber, dayOfWeek)
+            if (hasClassDates && rotationDay > classEndDay) {
+                return TermCalendar.NO_DAY
+            }
+            if (termDays.contains(rotationDay)) {
+                return rotationDay
+            }
+            epochDay = termDays.firstOnOrAfter(rotationDay)
+        }
+        return TermCalendar.NO_DAY
+    }
+
+    /**
+     * @return  the position of the class time with the [classTimeId] in the arrays, or -1 if it
+     *          isn't in the index
+     */
+    private fun positionOf(classTimeId: Int): Int {
+        var low = 0
+        var high = positionsById.size - 1
+        while (low <= high) {
+            val mid = (low + high).ushr(1)
+            val midId = classTimeIds[positionsById[mid]]
+            when {
+                midId < classTimeId -> low = mid + 1
+                midId > classTimeId -> high = mid - 1
+                else -> return positionsById[mid]
+            }
+        }
+        return -1
+    }
+
+    /**
+     * @return  the position of the first class time from [from] (inclusive) to [to] (exclusive)
+     *          starting after the [minuteOfDay], or [to] if there isn't one
+     */
+    private fun upperBound(from: Int, to: Int, minuteOfDay: Int): Int {
+        var low = from
+        var high = to
+        while (low < high) {
+            val mid = (low + high).ushr(1)
+            if (startMinutes[mid] <= minuteOfDay) low = mid + 1 else high = mid
+        }
+        return low
+    }
+
+    /**
+     * @return  whether the class of the class time at [position] takes place on the [epochDay],
+     *          as in [Class.isCurrent]
+     */
+    private fun isClassCurrent(position: Int, epochDay: Long): Boolean {
+        val startDay = classStartDays[position]
+        val endDay = classEndDays[position]
+        return startDay == noDate || endDay == noDate ||
+                (startDay <= epochDay && endDay >= epochDay)
+    }
+
+}
@@ -0,0 +1,250 @@
+/*
+ * Copyright 2017 Farbod Salamat-Zadeh
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package co.timetableapp.data.handler
+
+import android.app.Application
+import android.content.Context
+import android.provider.BaseColumns
+import co.timetableapp.R
+import co.timetableapp.TimetableApplication
+import co.timetableapp.data.TimetableDbHelper
+import co.timetableapp.data.query.Filters
+import co.timetableapp.data.query.Query
+import co.timetableapp.data.schema.ClassDetailsSchema
+import co.timetableapp.data.schema.ClassesSchema
+import co.timetableapp.data.schema.SearchSchema
+import co.timetableapp.model.*
+import co.timetableapp.model.agenda.AgendaItem
+import java.nio.ByteBuffer
+import java.nio.ByteOrder
+import java.util.*
+
+/**
+ * Searches the text of assignments, exams, events, subjects and classes using the full-text search
+ * table, which is kept up to date by triggers in the database.
+ *
+ * Each word of the search text is matched as a prefix, so results can be shown while the user is
+ * typing. At most [MAX_MATCHES] matching rows are read from the table, which are then ranked using
+ * the number of matches in each column, and only the highest ranked items are read from their
+ * tables.
+ *
+ * @see SearchSchema
+ */
+class SearchIndex(private val context: Context) {
+
+    companion object {
+
+        /**
+         * How much more a match in the title of an item is worth than one in its other text.
+         */
+        private const val TITLE_WEIGHT = 4.0
+
+        private val COLUMN_WEIGHTS = doubleArrayOf(TITLE_WEIGHT, 1.0)
+
+        /**
+         * The maximum number of matching rows read and ranked for a search. This limits the work
+         * done for common words, whose matches are worth little when ranking anyway.
+         */
+        private const val MAX_MATCHES = 200
+
+        /**
+         * The minimum length of a word for it to be matched as a prefix. Shorter words would be the
+         * prefix of too many others, so they are only matched in full.
+         */
+        private const val MIN_PREFIX_LENGTH = 2
+
+        /**
+         * Separates the words of the search text, matching the characters that the full-text
+         * search tokenizer treats as separators (ASCII characters that aren't letters or digits).
+         */
+        private val WORD_SEPARATORS = Regex("[\\x00-\\x2F\\x3A-\\x40\\x5B-\\x60\\x7B-\\x7F]+")
+
+        /**
+         * Words which are operators in full-text queries when written in upper case.
+         */
+        private val QUERY_OPERATORS = setOf("AND", "OR", "NOT", "NEAR")
+    }
+
+    /**
+     * @param text      the text entered by the user
+     * @param limit     the maximum number of results
+     * @return  the items of the current timetable matching the [text], ordered from the best
+     *          match. This is empty if the [text] contains no words.
+     */
+    fun search(application: Application, text: String, limit: Int): List<SearchResult> {
+        val words = text.split(WORD_SEPARATORS).filter { it.isNotEmpty() }
+        if (words.isEmpty()) {
+            return emptyList()
+        }
+
+        val timetableId = (application as TimetableApplication).currentTimetable!!.id
+
+        // Every word must be found
+        val matchQuery = words.joinToString(" ") {
+            val word = if (QUERY_OPERATORS.contains(it)) it.toLowerCase() else it
+            if (word.length >= MIN_PREFIX_LENGTH) "$word*" else word
+        }
+
+        val docIds = findRankedDocIds(matchQuery, timetableId, limit)
+        return readResults(application, docIds)
+    }
+
+    /**
+     * @return  the docids of the rows of the timetable with the [timetableId] matching the
+     *          [matchQuery], ordered from the highest ranked, up to the [limit]
+     */
+    private fun findRankedDocIds(matchQuery: String, timetableId: Int, limit: Int): List<Long> {
+        val docIdSql = "${SearchSchema.TABLE_NAME}.${SearchSchema.COL_DOC_ID}"
+
+        val db = TimetableDbHelper.getInstance(context).readableDatabase
+        val cursor = db.rawQuery(
+                "SELECT $docIdSql, matchinfo(${SearchSchema.TABLE_NAME}, 'pcx') " +
+                        "FROM ${SearchSchema.TABLE_NAME} " +
+                        "WHERE ${SearchSchema.TABLE_NAME} MATCH ? " +
+                        "AND ${SearchSchema.sqlTimetableIdOf(docIdSql)} = $timetableId " +
+                        "LIMIT $MAX_MATCHES",
+                arrayOf(matchQuery))
+
+        val scores = HashMap<Long, Double>(cursor.count)
+        while (cursor.moveToNext()) {
+            scores.put(cursor.getLong(0), scoreOf(cursor.getBlob(1)))
+        }
+        cursor.close()
+
+        return scores.entries
+                .sortedWith(compareByDescending<Map.Entry<Long, Double>> { it.value }
+                        .thenByDescending { it.key })
+                .take(limit)
+                .map { it.key }
+    }
+
+    /**
+     * Calculates a score for a row from its match info, which contains the number of phrases and
+     * columns, followed by the number of times each phrase was found in each column of the row and
+     * of all rows.
+     *
+     * Each match adds the weight of its column, divided by the number of matches in that column
+     * across all rows so that matches of common words are worth less.
+     */
+    private fun scoreOf(matchInfo: ByteArray): Double {
+        val info = ByteBuffer.wrap(matchInfo).order(ByteOrder.nativeOrder()).asIntBuffer()
+        val phraseCount = info.get(0)
+        val columnCount = info.get(1)
+
+        var score = 0.0
+        for (phrase in 0 until phraseCount) {
+            for (column in 0 until columnCount) {
+                val index = 2 + 3 * (phrase * columnCount + column)
+                val hitsInRow = info.get(index)
+                if (hitsInRow > 0) {
+                    score += COLUMN_WEIGHTS[column] * hitsInRow / info.get(index + 1)
+                }
+            }
+        }
+        return score
+    }
+
+    /**
+     * Reads the items for the [docIds] with one query for each type of item.
+     *
+     * @return  the results in the same order as the [docIds]. A class is only included once, for
+     *          its first matching class detail.
+     */
+    private fun readResults(application: Application, docIds: List<Long>): List<SearchResult> {
+        val idsByType = docIds.groupBy({ SearchSchema.typeOf(it) }, { SearchSchema.itemIdOf(it) })
+        val resultsByDocId = HashMap<Long, SearchResult>()
+
+        for ((type, ids) in idsByType) {
+            if (type == SearchSchema.TYPE_CLASS_DETAIL) {
+                readClassesByDetail(application, ids).forEach { (classDetailId, cls) ->
+                    resultsByDocId.put(SearchSchema.docIdOf(type, classDetailId), makeResult(cls))
+                }
+                continue
+            }
+
+            val items: List<TimetableItem> = when (type) {
+                SearchSchema.TYPE_ASSIGNMENT ->
+                    AssignmentHandler(context).getItemSummaries(application, idFilterOf(ids))
+                SearchSchema.TYPE_EXAM ->
+                    ExamHandler(context).getItemSummaries(application, idFilterOf(ids))
+                SearchSchema.TYPE_EVENT ->
+                    EventHandler(context).getItemSummaries(application, idFilterOf(ids))
+                SearchSchema.TYPE_SUBJECT ->
+                    SubjectHandler(context).getItemSummaries(application, idFilterOf(ids))
+                else -> throw IllegalArgumentException("invalid search item type: $type")
+            }
+
+            items.forEach { resultsByDocId.put(SearchSchema.docIdOf(type, it.id), makeResult(it)) }
+        }
+
+        val classIds = HashSet<Int>()
+        return docIds.mapNotNull { resultsByDocId[it] }.filter {
+            it.item !is Class || classIds.add(it.item.id)
+        }
+    }
+
+    /**
+     * @return the classes of the current timetable for each of the [classDetailIds]
+     */
+    private fun readClassesByDetail(application: Application,
+                                    classDetailIds: List<Int>): Map<Int, Class> {
+        val query = Query.Builder()
+                .addFilter(Filters.inList(
+                        ClassDetailsSchema._ID, classDetailIds.map { it.toString() }))
+                .build()
+        val classDetails = ClassDetailHandler(context).getAllItems(query)
+
+        val classes = ClassHandler(context).getItemSummaries(
+                application,
+                Filters.inList(ClassesSchema._ID, classDetails.map { it.classId.toString() }))
+                .associateBy { it.id }
+
+        val classesByDetail = HashMap<Int, Class>()
+        classDetails.forEach { classDetail ->
+            classes[classDetail.classId]?.let { classesByDetail.put(classDetail.id, it) }
+        }
+        return classesByDetail
+    }
+
+    private fun idFilterOf(ids: List<Int>) =
+            Filters.inList(BaseColumns._ID, ids.map { it.toString() })
+
+    private fun makeResult(item: TimetableItem): SearchResult {
+        return when (item) {
+            is AgendaItem -> {
+                val subject = item.getRelatedSubject(context)
+                val title = if (item is Exam && subject != null) {
+                    item.makeName(subject)
+                } else {
+                    item.getDisplayedTitle()
+                }
+                val color = if (subject == null) Event.DEFAULT_COLOR else Color(subject.colorId)
+
+                SearchResult(item, title, item.getTypeNameRes(), color)
+            }
+            is Subject -> SearchResult(item, item.name, R.string.property_subject,
+                    Color(item.colorId))
+            is Class -> {
+                val subject = Subject.create(context, item.subjectId)
+                SearchResult(item, item.makeName(subject), R.string.property_class,
+                        Color(subject.colorId))
+            }
+            else -> throw IllegalArgumentException("invalid search item: $item")
+        }
+    }
+
+}
@@ -19,8 +19,9 @@ package co.timetableapp.data.handler
 import android.content.ContentValues
 import android.content.Context
 import android.database.Cursor
-import co.timetableapp.data.query.Filters
-import co.timetableapp.data.query.Query
+import co.timetableapp.data.schema.AssignmentsSchema
+import co.timetableapp.data.schema.ClassDetailsSchema
+import co.timetableapp.data.schema.ClassTimesSchema
 import co.timetableapp.data.schema.ClassesSchema
 import co.timetableapp.data.schema.ExamsSchema
 import co.timetableapp.data.schema.SubjectsSchema
@@ -34,10 +35,19 @@ class SubjectHandler(context: Context) : TimetableItemHandler<Subject>(context)
 
     override val timetableIdCol = SubjectsSchema.COL_TIMETABLE_ID
 
-    override fun createFromCursor(cursor: Cursor) = Subject.from(cursor)
+    override val dependentTables = arrayOf(
+            ClassesSchema.TABLE_NAME,
+            ClassDetailsSchema.TABLE_NAME,
+            ClassTimesSchema.TABLE_NAME,
+            AssignmentsSchema.TABLE_NAME,
+            ExamsSchema.TABLE_NAME)
+
+    override fun createRowMapper(cursor: Cursor) = Subject.rowMapper(cursor)
 
     override fun createFromId(id: Int) = Subject.create(context, id)
 
+    override fun withId(item: Subject, id: Int) = item.copy(id = id)
+
     override fun propertiesAsContentValues(item: Subject): ContentValues {
         val values = ContentValues()
         with(values) {
@@ -51,25 +61,25 @@ class SubjectHandler(context: Context) : TimetableItemHandler<Subject>(context)
     }
 
     override fun deleteItemWithReferences(itemId: Int) {
-        super.deleteItemWithReferences(itemId)
-
-        val classesQuery = Query.Builder()
-                .addFilter(Filters.equal(ClassesSchema.COL_SUBJECT_ID, itemId.toString()))
-                .build()
-
-        val classUtils = ClassHandler(context)
-        classUtils.getAllItems(classesQuery).forEach {
-            classUtils.deleteItemWithReferences(it.id)
-        }
-
-        val examsQuery = Query.Builder()
-                .addFilter(Filters.equal(ExamsSchema.COL_SUBJECT_ID, itemId.toString()))
-                .build()
+        // Classes, exams, and everything linked to them are deleted by the database since they
+        // reference the subject
+        val classDetailIds = "SELECT ${ClassDetailsSchema._ID} " +
+                "FROM ${ClassDetailsSchema.TABLE_NAME} " +
+                "WHERE ${ClassDetailsSchema.COL_CLASS_ID} IN (" +
+                "SELECT ${ClassesSchema._ID} FROM ${ClassesSchema.TABLE_NAME} " +
+                "WHERE ${ClassesSchema.COL_SUBJECT_ID}=?)"
 
-        val examUtils = ExamHandler(context)
-        examUtils.getAllItems(examsQuery).forEach {
-            examUtils.deleteItem(it.id)
+        val id = itemId.toString()
+        val alarms = runInTransaction {
+            val cascadedAlarms = CascadedAlarms.query(context,
+                    listOf(CascadedAlarms.selectClassTimes(
+                            "${ClassTimesSchema.COL_CLASS_DETAIL_ID} IN ($classDetailIds)"),
+                            CascadedAlarms.selectExams("${ExamsSchema.COL_SUBJECT_ID}=?")),
+                    listOf(id, id))
+            deleteItem(itemId)
+            cascadedAlarms
         }
+        alarms.cancel(context)
     }
 
 }
@@ -0,0 +1,40 @@
+/*
+ * Copyright 2017 Farbod Salamat-Zadeh
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package co.timetableapp.data.handler
+
+/**
+ * Describes a write to a database table. These are published by [DataHandler]s after each write.
+ *
+ * @property tableName  the name of the table that was written to
+ * @property operation  the type of write
+ * @property itemIds    the ids of the rows that were written, or null if they aren't known. This
+ *                      would be the case when rows are deleted by the database because they
+ *                      referenced a row that was deleted.
+ *
+ * @see TableChangeNotifier
+ */
+data class TableChange(
+        val tableName: String,
+        val operation: Operation,
+        val itemIds: Set<Int>?
+) {
+
+    enum class Operation {
+        INSERT, UPDATE, DELETE
+    }
+
+}
@@ -0,0 +1,82 @@
+/*
+ * Copyright 2017 Farbod Salamat-Zadeh
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package co.timetableapp.data.handler
+
+import android.os.Handler
+import android.os.Looper
+import java.util.*
+
+/**
+ * Publishes [TableChange]s to the listeners registered for the tables that have changed.
+ *
+ * Listeners are always invoked on the main thread. Changes published from the main thread are
+ * delivered immediately, and changes published from other threads are posted to the main thread.
+ *
+ * @see TableObserver
+ */
+object TableChangeNotifier {
+
+    /**
+     * Callback for when a table a listener has been registered for has changed.
+     */
+    interface OnTableChangeListener {
+        fun onTableChanged(change: TableChange)
+    }
+
+    private val listeners = HashMap<String, MutableSet<OnTableChangeListener>>()
+
+    private val mainHandler by lazy { Handler(Looper.getMainLooper()) }
+
+    /**
+     * Registers the [listener] to be invoked when any of the tables specified change.
+     *
+     * @see removeListener
+     */
+    @JvmStatic
+    @Synchronized
+    fun addListener(tableNames: Collection<String>, listener: OnTableChangeListener) {
+        tableNames.forEach { listeners.getOrPut(it) { LinkedHashSet() }.add(listener) }
+    }
+
+    /**
+     * Unregisters the [listener] from all tables it was registered for.
+     *
+     * @see addListener
+     */
+    @JvmStatic
+    @Synchronized
+    fun removeListener(listener: OnTableChangeListener) {
+        listeners.values.forEach { it.remove(listener) }
+    }
+
+    @JvmStatic
+    fun notifyChange(change: TableChange) {
+        if (Looper.myLooper() == Looper.getMainLooper()) {
+            dispatch(change)
+        } else {
+            mainHandler.post { dispatch(change) }
+        }
+    }
+
+    private fun dispatch(change: TableChange) {
+        // Copy the listeners since they may unregister themselves when invoked
+        val tableListeners =
+                synchronized(this) { listeners[change.tableName]?.toList() } ?: return
+        tableListeners.forEach { it.onTableChanged(change) }
+    }
+
+}
@@ -0,0 +1,79 @@
+/*
+ * Copyright 2017 Farbod Salamat-Zadeh
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package co.timetableapp.data.handler
+
+import android.os.Handler
+import android.os.Looper
+import java.util.*
+
+/**
+ * Observes changes to a set of database tables, handling them together once the current task on
+ * the main thread has finished.
+ *
+ * A single action such as saving an item from an editor can write to several tables, or write to a
+ * table several times, so this avoids reloading data for each of those writes. It also means that
+ * the changes are only handled once any transaction they were made in has ended.
+ *
+ * @param tableNames    the names of the tables to observe
+ * @param onChanges     invoked on the main thread with the changes published since it was last
+ *                      invoked
+ *
+ * @see TableChangeNotifier
+ */
+class TableObserver(
+        private val tableNames: Collection<String>,
+        private val onChanges: (List<TableChange>) -> Unit
+) {
+
+    private val handler = Handler(Looper.getMainLooper())
+
+    private val pendingChanges = ArrayList<TableChange>()
+
+    private val changeListener = object : TableChangeNotifier.OnTableChangeListener {
+        override fun onTableChanged(change: TableChange) {
+            pendingChanges.add(change)
+            if (pendingChanges.size == 1) {
+                handler.post(deliverChanges)
+            }
+        }
+    }
+
+    private val deliverChanges = Runnable {
+        val changes = ArrayList(pendingChanges)
+        pendingChanges.clear()
+        onChanges(changes)
+    }
+
+    /**
+     * Starts observing the tables.
+     *
+     * @see stop
+     */
+    fun start() = TableChangeNotifier.addListener(tableNames, changeListener)
+
+    /**
+     * Stops observing the tables, discarding any changes which haven't been handled yet.
+     *
+     * @see start
+     */
+    fun stop() {
+        TableChangeNotifier.removeListener(changeListener)
+        handler.removeCallbacks(deliverChanges)
+        pendingChanges.clear()
+    }
+
+}
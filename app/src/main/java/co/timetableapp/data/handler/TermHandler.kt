@@ -19,8 +19,10 @@ package co.timetableapp.data.handler
 import android.content.ContentValues
 import android.content.Context
 import android.database.Cursor
+import co.timetableapp.TimetableApplication
 import co.timetableapp.data.schema.TermsSchema
 import co.timetableapp.model.Term
+import co.timetableapp.util.NotificationUtils
 
 class TermHandler(context: Context) : TimetableItemHandler<Term>(context) {
 
@@ -30,24 +32,54 @@ class TermHandler(context: Context) : TimetableItemHandler<Term>(context) {
 
     override val timetableIdCol = TermsSchema.COL_TIMETABLE_ID
 
-    override fun createFromCursor(cursor: Cursor) = Term.from(cursor)
+    override fun createRowMapper(cursor: Cursor) = Term.rowMapper(cursor)
 
     override fun createFromId(id: Int) = Term.create(context, id)
 
+    override fun withId(item: Term, id: Int) = item.copy(id = id)
+
     override fun propertiesAsContentValues(item: Term): ContentValues {
         val values = ContentValues()
         with(values) {
             put(TermsSchema._ID, item.id)
             put(TermsSchema.COL_TIMETABLE_ID, item.timetableId)
             put(TermsSchema.COL_NAME, item.name)
-            put(TermsSchema.COL_START_DATE_DAY_OF_MONTH, item.startDate.dayOfMonth)
-            put(TermsSchema.COL_START_DATE_MONTH, item.startDate.monthValue)
-            put(TermsSchema.COL_START_DATE_YEAR, item.startDate.year)
-            put(TermsSchema.COL_END_DATE_DAY_OF_MONTH, item.endDate.dayOfMonth)
-            put(TermsSchema.COL_END_DATE_MONTH, item.endDate.monthValue)
-            put(TermsSchema.COL_END_DATE_YEAR, item.endDate.year)
+            put(TermsSchema.COL_START_DATE, item.startDate.toEpochDay())
+            put(TermsSchema.COL_END_DATE, item.endDate.toEpochDay())
         }
         return values
     }
 
+    override fun onItemAdded(item: Term) = refreshClassAlarms(item.timetableId)
+
+    override fun onItemDeleted(itemId: Int) {
+        // The term has already been deleted, so its timetable can't be checked
+        refreshClassAlarms(null)
+    }
+
+    override fun onItemReplaced(oldItemId: Int, newItem: Term, changedColumns: Set<String>) {
+        // Refresh alarms only if the dates (which decide the days classes take place) have changed
+        if (changedColumns.contains(TermsSchema.COL_START_DATE)
+                || changedColumns.contains(TermsSchema.COL_END_DATE)) {
+            refreshClassAlarms(newItem.timetableId)
+        }
+    }
+
+    /**
+     * Refreshes the class alarms of the current timetable, since classes only take place on days
+     * within its terms. Nothing is done if the [timetableId] of the changed term is known and isn't
+     * that of the current timetable.
+     */
+    private fun refreshClassAlarms(timetableId: Int?) {
+        val application = context.applicationContext as TimetableApplication
+        if (timetableId != null && timetableId != application.currentTimetable?.id) {
+            return
+        }
+
+        // The terms read for the alarms are only invalidated once a transaction has ended, but the
+        // term may have been written in one
+        OccurrenceEngine.invalidate(tableName)
+        NotificationUtils.refreshClassAlarms(context, application)
+    }
+
 }
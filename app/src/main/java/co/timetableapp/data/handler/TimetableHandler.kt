@@ -20,8 +20,12 @@ import android.content.ContentValues
 import android.content.Context
 import android.database.Cursor
 import co.timetableapp.TimetableApplication
-import co.timetableapp.data.query.Filters
-import co.timetableapp.data.query.Query
+import co.timetableapp.data.schema.AssignmentsSchema
+import co.timetableapp.data.schema.ClassDetailsSchema
+import co.timetableapp.data.schema.ClassTimesSchema
+import co.timetableapp.data.schema.ClassesSchema
+import co.timetableapp.data.schema.EventsSchema
+import co.timetableapp.data.schema.ExamsSchema
 import co.timetableapp.data.schema.SubjectsSchema
 import co.timetableapp.data.schema.TermsSchema
 import co.timetableapp.data.schema.TimetablesSchema
@@ -34,57 +38,61 @@ class TimetableHandler(context: Context) : DataHandler<Timetable>(context) {
 
     override val itemIdCol = TimetablesSchema._ID
 
-    override fun createFromCursor(cursor: Cursor) = Timetable.from(cursor)
+    override val dependentTables = arrayOf(
+            SubjectsSchema.TABLE_NAME,
+            TermsSchema.TABLE_NAME,
+            ClassesSchema.TABLE_NAME,
+            ClassDetailsSchema.TABLE_NAME,
+            ClassTimesSchema.TABLE_NAME,
+            AssignmentsSchema.TABLE_NAME,
+            ExamsSchema.TABLE_NAME,
+            EventsSchema.TABLE_NAME)
+
+    override fun createRowMapper(cursor: Cursor) = Timetable.rowMapper(cursor)
 
     override fun createFromId(id: Int) = Timetable.create(context, id)
 
+    override fun withId(item: Timetable, id: Int) = item.copy(id = id)
+
     override fun propertiesAsContentValues(item: Timetable): ContentValues {
         val values = ContentValues()
         with(values) {
             put(TimetablesSchema._ID, item.id)
             put(TimetablesSchema.COL_NAME, item.name)
-            put(TimetablesSchema.COL_START_DATE_DAY_OF_MONTH, item.startDate.dayOfMonth)
-            put(TimetablesSchema.COL_START_DATE_MONTH, item.startDate.monthValue)
-            put(TimetablesSchema.COL_START_DATE_YEAR, item.startDate.year)
-            put(TimetablesSchema.COL_END_DATE_DAY_OF_MONTH, item.endDate.dayOfMonth)
-            put(TimetablesSchema.COL_END_DATE_MONTH, item.endDate.monthValue)
-            put(TimetablesSchema.COL_END_DATE_YEAR, item.endDate.year)
+            put(TimetablesSchema.COL_START_DATE, item.startDate.toEpochDay())
+            put(TimetablesSchema.COL_END_DATE, item.endDate.toEpochDay())
             put(TimetablesSchema.COL_WEEK_ROTATIONS, item.weekRotations)
         }
         return values
     }
 
-    override fun replaceItem(oldItemId: Int, newItem: Timetable) {
-        super.replaceItem(oldItemId, newItem)
-
-        // Refresh alarms in case start/end dates have changed
-        val application = context.applicationContext as TimetableApplication
-        NotificationUtils.refreshAlarms(context, application)
+    override fun onItemReplaced(oldItemId: Int,
+                                newItem: Timetable,
+                                changedColumns: Set<String>) {
+        // Refresh alarms only if the dates or week rotations (used for week numbers) have changed
+        if (changedColumns.contains(TimetablesSchema.COL_START_DATE)
+                || changedColumns.contains(TimetablesSchema.COL_END_DATE)
+                || changedColumns.contains(TimetablesSchema.COL_WEEK_ROTATIONS)) {
+            val application = context.applicationContext as TimetableApplication
+            NotificationUtils.refreshAlarms(context, application)
+        }
     }
 
     override fun deleteItemWithReferences(itemId: Int) {
-        super.deleteItemWithReferences(itemId)
-
-        // Note that we only need to delete subjects, terms and their references since classes,
-        // assignments, exams, and everything else are linked to subjects.
-
-        val subjectsQuery = Query.Builder()
-                .addFilter(Filters.equal(SubjectsSchema.COL_TIMETABLE_ID, itemId.toString()))
-                .build()
-
-        val subjectUtils = SubjectHandler(context)
-        subjectUtils.getAllItems(subjectsQuery).forEach {
-            subjectUtils.deleteItemWithReferences(it.id)
-        }
-
-        val termsQuery = Query.Builder()
-                .addFilter(Filters.equal(TermsSchema.COL_TIMETABLE_ID, itemId.toString()))
-                .build()
-
-        val termUtils = TermHandler(context)
-        termUtils.getAllItems(termsQuery).forEach {
-            termUtils.deleteItem(it.id)
+        // Subjects, terms, events, and everything linked to them are deleted by the database since
+        // they reference the timetable
+        val id = itemId.toString()
+        val alarms = runInTransaction {
+            val cascadedAlarms = CascadedAlarms.query(context,
+                    listOf(CascadedAlarms.selectClassTimes(
+                            "${ClassTimesSchema.COL_TIMETABLE_ID}=?"),
+                            CascadedAlarms.selectExams("${ExamsSchema.COL_TIMETABLE_ID}=?"),
+                            CascadedAlarms.selectEvents("${EventsSchema.COL_TIMETABLE_ID}=?")),
+                    listOf(id, id, id))
+            deleteItem(itemId)
+            cascadedAlarms
         }
+        alarms.cancel(context)
     }
 
 }
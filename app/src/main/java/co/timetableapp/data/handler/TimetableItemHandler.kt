@@ -19,7 +19,11 @@ package co.timetableapp.data.handler
 import android.app.Application
 import android.content.Context
 import co.timetableapp.TimetableApplication
+import co.timetableapp.data.query.Filter
 import co.timetableapp.data.query.Filters
+import co.timetableapp.data.query.ObservableQuery
+import co.timetableapp.data.query.Page
+import co.timetableapp.data.query.PageKey
 import co.timetableapp.data.query.Query
 import co.timetableapp.model.TimetableItem
 import java.util.*
@@ -36,16 +40,96 @@ abstract class TimetableItemHandler<T : TimetableItem>(context: Context) : DataH
     abstract val timetableIdCol: String
 
     /**
-     * @return a list of all items of type [T] that belong to the current timetable.
+     * @return  a list of all items of type [T] that belong to the current timetable, and which
+     *          satisfy any additional [filters] given.
      */
-    fun getItems(application: Application): ArrayList<T> {
+    fun getItems(application: Application, vararg filters: Filter): ArrayList<T> =
+            getAllItems(buildTimetableQuery(application, filters))
+
+    /**
+     * Like [getItems], but only reads the [summaryColumns] of the table so that long text fields
+     * aren't loaded for items that are only shown in lists.
+     *
+     * Text properties whose columns are not part of the summary will be empty, so the items
+     * returned must not be passed to [replaceItem]. The full item can be loaded using
+     * [createFromId] when it is needed.
+     *
+     * The results are cached (see [getCachedItems]), so the list returned can't be modified.
+     */
+    fun getItemSummaries(application: Application, vararg filters: Filter): List<T> =
+            getCachedItems(buildTimetableQuery(application, filters), summaryColumns)
+
+    /**
+     * Like [getItems], but the items are constructed lazily as the sequence is iterated.
+     *
+     * @see getItemSequence
+     */
+    fun getItemSequence(application: Application, vararg filters: Filter): CursorSequence<T> =
+            getItemSequence(buildTimetableQuery(application, filters))
+
+    /**
+     * Like [getItemSummaries], but only selects a page of items, ordered by the [sortColumn] and
+     * then by id, after the row identified by the [after] key.
+     *
+     * @see getPage
+     */
+    fun getItemSummaryPage(application: Application,
+                           sortColumn: String,
+                           pageSize: Int,
+                           after: PageKey?,
+                           ascending: Boolean,
+                           vararg filters: Filter): Page<T> {
+        val filter = buildTimetableQuery(application, filters).filter
+        return getPage(filter, sortColumn, pageSize, after, ascending, summaryColumns)
+    }
+
+    /**
+     * @return  the number of items of type [T] that belong to the current timetable, and which
+     *          satisfy any additional [filters] given
+     * @see countItems
+     */
+    fun countItems(application: Application, vararg filters: Filter) =
+            countItems(buildTimetableQuery(application, filters).filter)
+
+    /**
+     * Like [countItems], but counts the items for each value of the [groupColumn].
+     *
+     * @see countItemsGrouped
+     */
+    fun countItemsGrouped(application: Application,
+                          groupColumn: String,
+                          vararg filters: Filter): Map<Long, Int> {
+        val filter = buildTimetableQuery(application, filters).filter
+        return countItemsGrouped(groupColumn, filter)
+    }
+
+    /**
+     * Like [getItems], but returns an [ObservableQuery] so that the items are reloaded when they
+     * are changed. Items that have been written are loaded by their ids.
+     *
+     * @param otherTables   other tables which the items displayed depend on
+     */
+    fun observeItems(application: Application,
+                     otherTables: Collection<String>,
+                     vararg filters: Filter): ObservableQuery<T> {
+        val loader = object : ObservableQuery.Loader<T>() {
+            override fun loadAll() = getItems(application, *filters)
+
+            override fun loadItems(ids: Set<Int>) = getItems(application,
+                    *filters,
+                    Filters.inList(itemIdCol, ids.map { it.toString() }))
+        }
+        return ObservableQuery(tableName, otherTables, loader)
+    }
+
+    private fun buildTimetableQuery(application: Application, filters: Array<out Filter>): Query {
         val timetable = (application as TimetableApplication).currentTimetable!!
 
-        val query = Query.Builder()
+        val builder = Query.Builder()
                 .addFilter(Filters.equal(timetableIdCol, timetable.id.toString()))
-                .build()
+        filters.forEach { builder.addFilter(it) }
 
-        return getAllItems(query)
+        return builder.build()
     }
 
 }
@@ -0,0 +1,97 @@
+/*
+ * Copyright 2017 Farbod Salamat-Zadeh
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package co.timetableapp.data.migration
+
+import android.database.sqlite.SQLiteDatabase
+import android.provider.BaseColumns
+import android.text.TextUtils
+import android.util.Log
+import co.timetableapp.data.schema.COMMA_SEP
+
+/**
+ * A step which upgrades the database from [fromVersion] to the next version.
+ *
+ * Migrations should change rows with statements operating on whole tables (such as
+ * `INSERT ... SELECT`) instead of reading and writing each row, since they can run on databases
+ * with many rows.
+ *
+ * @property fromVersion    the version of the database this migration upgrades from
+ * @property description    a short description of the changes, used when logging
+ *
+ * @see Migrations
+ */
+abstract class Migration(val fromVersion: Int, val description: String) {
+
+    companion object {
+        private const val LOG_TAG = "Migration"
+    }
+
+    /**
+     * The version of the database after this migration has run.
+     */
+    val toVersion: Int
+        get() = fromVersion + 1
+
+    /**
+     * Upgrades the [db] from [fromVersion] to [toVersion]. This is invoked within the transaction
+     * used for upgrading the database.
+     */
+    abstract fun migrate(db: SQLiteDatabase)
+
+    /**
+     * Replaces a table with a new one created from [sqlCreate], copying over the existing rows.
+     *
+     * @param selections    the expressions selecting each column of the new table from the old
+     *                      table, in the same order as the columns of the new table
+     */
+    protected fun rebuildTable(db: SQLiteDatabase,
+                               tableName: String,
+                               sqlCreate: String,
+                               vararg selections: String) {
+        val oldTableName = "${tableName}_old"
+        db.execSQL("ALTER TABLE $tableName RENAME TO $oldTableName")
+
+        db.execSQL(sqlCreate)
+        db.execSQL("INSERT INTO $tableName" +
+                " SELECT " + TextUtils.join(COMMA_SEP, selections) +
+                " FROM $oldTableName")
+
+        // Keep the autoincrement sequence of the old table so that the ids of deleted items are
+        // not reused
+        db.execSQL("DELETE FROM sqlite_sequence WHERE name = '$tableName'")
+        db.execSQL("UPDATE sqlite_sequence SET name = '$tableName'" +
+                " WHERE name = '$oldTableName'")
+
+        db.execSQL("DROP TABLE $oldTableName")
+        Log.d(LOG_TAG, "Rebuilt the table: $tableName")
+    }
+
+    /**
+     * Deletes rows of a table whose [column] references a row that doesn't exist in the parent
+     * table.
+     */
+    protected fun deleteOrphans(db: SQLiteDatabase,
+                                tableName: String,
+                                column: String,
+                                parentTableName: String) {
+        db.execSQL("DELETE FROM $tableName WHERE $column NOT IN (" +
+                "SELECT ${BaseColumns._ID} FROM $parentTableName)")
+    }
+
+    override fun toString() = "Migration($fromVersion to $toVersion: $description)"
+
+}
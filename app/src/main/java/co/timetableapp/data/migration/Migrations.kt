@@ -0,0 +1,601 @@
+/*
+ * Copyright 2017 Farbod Salamat-Zadeh
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package co.timetableapp.data.migration
+
+import android.database.sqlite.SQLiteDatabase
+import android.util.Log
+import co.timetableapp.data.schema.*
+import co.timetableapp.model.Class
+
+/**
+ * The migrations used to upgrade the database, one for each version.
+ *
+ * Each migration is independent of the others, so that it can be run on its own against a database
+ * of its [Migration.fromVersion].
+ *
+ * @see co.timetableapp.data.TimetableDbHelper
+ */
+object Migrations {
+
+    private const val LOG_TAG = "Migrations"
+
+    /**
+     * The statement used to create the classes table when upgrading from version 3.
+     */
+    private const val SQL_CREATE_CLASSES_V3 = "CREATE TABLE " + ClassesSchema.TABLE_NAME + "( " +
+            ClassesSchema._ID + INTEGER_TYPE + PRIMARY_KEY_AUTOINCREMENT + COMMA_SEP +
+            ClassesSchema.COL_TIMETABLE_ID + INTEGER_TYPE + COMMA_SEP +
+            ClassesSchema.COL_SUBJECT_ID + INTEGER_TYPE + COMMA_SEP +
+            ClassesSchema.COL_MODULE_NAME + TEXT_TYPE + COMMA_SEP +
+            ClassesSchema.COL_START_DATE_DAY_OF_MONTH + INTEGER_TYPE + COMMA_SEP +
+            ClassesSchema.COL_START_DATE_MONTH + INTEGER_TYPE + COMMA_SEP +
+            ClassesSchema.COL_START_DATE_YEAR + INTEGER_TYPE + COMMA_SEP +
+            ClassesSchema.COL_END_DATE_DAY_OF_MONTH + INTEGER_TYPE + COMMA_SEP +
+            ClassesSchema.COL_END_DATE_MONTH + INTEGER_TYPE + COMMA_SEP +
+            ClassesSchema.COL_END_DATE_YEAR + INTEGER_TYPE +
+            " )"
+
+    /**
+     * The statement used to create the events table when upgrading from version 4.
+     */
+    private const val SQL_CREATE_EVENTS_V4 = "CREATE TABLE " + EventsSchema.TABLE_NAME + "( " +
+            EventsSchema._ID + INTEGER_TYPE + PRIMARY_KEY_AUTOINCREMENT + COMMA_SEP +
+            EventsSchema.COL_TIMETABLE_ID + INTEGER_TYPE + COMMA_SEP +
+            EventsSchema.COL_TITLE + TEXT_TYPE + COMMA_SEP +
+            EventsSchema.COL_DETAIL + TEXT_TYPE + COMMA_SEP +
+            EventsSchema.COL_START_DATE_DAY_OF_MONTH + INTEGER_TYPE + COMMA_SEP +
+            EventsSchema.COL_START_DATE_MONTH + INTEGER_TYPE + COMMA_SEP +
+            EventsSchema.COL_START_DATE_YEAR + INTEGER_TYPE + COMMA_SEP +
+            EventsSchema.COL_START_TIME_HRS + INTEGER_TYPE + COMMA_SEP +
+            EventsSchema.COL_START_TIME_MINS + INTEGER_TYPE + COMMA_SEP +
+            EventsSchema.COL_END_DATE_DAY_OF_MONTH + INTEGER_TYPE + COMMA_SEP +
+            EventsSchema.COL_END_DATE_MONTH + INTEGER_TYPE + COMMA_SEP +
+            EventsSchema.COL_END_DATE_YEAR + INTEGER_TYPE + COMMA_SEP +
+            EventsSchema.COL_END_TIME_HRS + INTEGER_TYPE + COMMA_SEP +
+            EventsSchema.COL_END_TIME_MINS + INTEGER_TYPE +
+            " )"
+
+    /**
+     * The statement used to create the assignments table when upgrading from version 8.
+     */
+    private const val SQL_CREATE_ASSIGNMENTS_V8 = "CREATE TABLE " +
+            AssignmentsSchema.TABLE_NAME + "( " +
+            AssignmentsSchema._ID + INTEGER_TYPE + PRIMARY_KEY_AUTOINCREMENT + COMMA_SEP +
+            AssignmentsSchema.COL_TIMETABLE_ID + INTEGER_TYPE + COMMA_SEP +
+            AssignmentsSchema.COL_CLASS_ID + INTEGER_TYPE + COMMA_SEP +
+            AssignmentsSchema.COL_TITLE + TEXT_TYPE + COMMA_SEP +
+            AssignmentsSchema.COL_DETAIL + TEXT_TYPE + COMMA_SEP +
+            AssignmentsSchema.COL_DUE_DATE + INTEGER_TYPE + COMMA_SEP +
+            AssignmentsSchema.COL_COMPLETION_PROGRESS + INTEGER_TYPE +
+            " )"
+
+    /**
+     * The statement used to create the classes table when upgrading from version 8.
+     */
+    private const val SQL_CREATE_CLASSES_V8 = "CREATE TABLE " + ClassesSchema.TABLE_NAME + "( " +
+            ClassesSchema._ID + INTEGER_TYPE + PRIMARY_KEY_AUTOINCREMENT + COMMA_SEP +
+            ClassesSchema.COL_TIMETABLE_ID + INTEGER_TYPE + COMMA_SEP +
+            ClassesSchema.COL_SUBJECT_ID + INTEGER_TYPE + COMMA_SEP +
+            ClassesSchema.COL_MODULE_NAME + TEXT_TYPE + COMMA_SEP +
+            ClassesSchema.COL_START_DATE + INTEGER_TYPE + COMMA_SEP +
+            ClassesSchema.COL_END_DATE + INTEGER_TYPE +
+            " )"
+
+    /**
+     * The statement used to create the class_times table when upgrading from version 8.
+     */
+    private const val SQL_CREATE_CLASS_TIMES_V8 = "CREATE TABLE " +
+            ClassTimesSchema.TABLE_NAME + "( " +
+            ClassTimesSchema._ID + INTEGER_TYPE + PRIMARY_KEY_AUTOINCREMENT + COMMA_SEP +
+            ClassTimesSchema.COL_TIMETABLE_ID + INTEGER_TYPE + COMMA_SEP +
+            ClassTimesSchema.COL_CLASS_DETAIL_ID + INTEGER_TYPE + COMMA_SEP +
+            ClassTimesSchema.COL_DAY + INTEGER_TYPE + COMMA_SEP +
+            ClassTimesSchema.COL_WEEK_NUMBER + INTEGER_TYPE + COMMA_SEP +
+            ClassTimesSchema.COL_START_TIME + INTEGER_TYPE + COMMA_SEP +
+            ClassTimesSchema.COL_END_TIME + INTEGER_TYPE +
+            " )"
+
+    /**
+     * The statement used to create the events table when upgrading from version 8.
+     */
+    private const val SQL_CREATE_EVENTS_V8 = "CREATE TABLE " + EventsSchema.TABLE_NAME + "( " +
+            EventsSchema._ID + INTEGER_TYPE + PRIMARY_KEY_AUTOINCREMENT + COMMA_SEP +
+            EventsSchema.COL_TIMETABLE_ID + INTEGER_TYPE + COMMA_SEP +
+            EventsSchema.COL_TITLE + TEXT_TYPE + COMMA_SEP +
+            EventsSchema.COL_DETAIL + TEXT_TYPE + COMMA_SEP +
+            EventsSchema.COL_START_DATE + INTEGER_TYPE + COMMA_SEP +
+            EventsSchema.COL_START_TIME + INTEGER_TYPE + COMMA_SEP +
+            EventsSchema.COL_END_DATE + INTEGER_TYPE + COMMA_SEP +
+            EventsSchema.COL_END_TIME + INTEGER_TYPE + COMMA_SEP +
+            EventsSchema.COL_LOCATION + TEXT_TYPE + COMMA_SEP +
+            EventsSchema.COL_RELATED_SUBJECT_ID + INTEGER_TYPE +
+            " )"
+
+    /**
+     * The statement used to create the exams table when upgrading from version 8.
+     */
+    private const val SQL_CREATE_EXAMS_V8 = "CREATE TABLE " + ExamsSchema.TABLE_NAME + "( " +
+            ExamsSchema._ID + INTEGER_TYPE + PRIMARY_KEY_AUTOINCREMENT + COMMA_SEP +
+            ExamsSchema.COL_TIMETABLE_ID + INTEGER_TYPE + COMMA_SEP +
+            ExamsSchema.COL_SUBJECT_ID + INTEGER_TYPE + COMMA_SEP +
+            ExamsSchema.COL_MODULE + TEXT_TYPE + COMMA_SEP +
+            ExamsSchema.COL_DATE + INTEGER_TYPE + COMMA_SEP +
+            ExamsSchema.COL_START_TIME + INTEGER_TYPE + COMMA_SEP +
+            ExamsSchema.COL_DURATION + INTEGER_TYPE + COMMA_SEP +
+            ExamsSchema.COL_SEAT + TEXT_TYPE + COMMA_SEP +
+            ExamsSchema.COL_ROOM + TEXT_TYPE + COMMA_SEP +
+            ExamsSchema.COL_IS_RESIT + INTEGER_TYPE + COMMA_SEP +
+            ExamsSchema.COL_NOTES + TEXT_TYPE +
+            " )"
+
+    /**
+     * The statement used to create the terms table when upgrading from versions 8 and 9.
+     */
+    private const val SQL_CREATE_TERMS_V8 = "CREATE TABLE " + TermsSchema.TABLE_NAME + "( " +
+            TermsSchema._ID + INTEGER_TYPE + PRIMARY_KEY_AUTOINCREMENT + COMMA_SEP +
+            TermsSchema.COL_TIMETABLE_ID + INTEGER_TYPE + COMMA_SEP +
+            TermsSchema.COL_NAME + TEXT_TYPE + COMMA_SEP +
+            TermsSchema.COL_START_DATE + INTEGER_TYPE + COMMA_SEP +
+            TermsSchema.COL_END_DATE + INTEGER_TYPE +
+            " )"
+
+    /**
+     * The statement used to create the timetables table when upgrading from versions 8 and 9.
+     */
+    private const val SQL_CREATE_TIMETABLES_V8 = "CREATE TABLE " +
+            TimetablesSchema.TABLE_NAME + "( " +
+            TimetablesSchema._ID + INTEGER_TYPE + PRIMARY_KEY_AUTOINCREMENT + COMMA_SEP +
+            TimetablesSchema.COL_NAME + TEXT_TYPE + COMMA_SEP +
+            TimetablesSchema.COL_START_DATE + INTEGER_TYPE + COMMA_SEP +
+            TimetablesSchema.COL_END_DATE + INTEGER_TYPE + COMMA_SEP +
+            TimetablesSchema.COL_WEEK_ROTATIONS + INTEGER_TYPE +
+            " )"
+
+    /**
+     * The statement used to create the subjects table when upgrading from version 9.
+     */
+    private const val SQL_CREATE_SUBJECTS_V9 = "CREATE TABLE " + SubjectsSchema.TABLE_NAME + "( " +
+            SubjectsSchema._ID + INTEGER_TYPE + PRIMARY_KEY_AUTOINCREMENT + COMMA_SEP +
+            SubjectsSchema.COL_TIMETABLE_ID + INTEGER_TYPE +
+                    REFERENCES + TimetablesSchema.TABLE_NAME + ON_DELETE_CASCADE + COMMA_SEP +
+            SubjectsSchema.COL_NAME + TEXT_TYPE + COMMA_SEP +
+            SubjectsSchema.COL_ABBREVIATION + TEXT_TYPE + COMMA_SEP +
+            SubjectsSchema.COL_COLOR_ID + INTEGER_TYPE +
+            " )"
+
+    /**
+     * The statement used to create the classes table when upgrading from version 9.
+     */
+    private const val SQL_CREATE_CLASSES_V9 = "CREATE TABLE " + ClassesSchema.TABLE_NAME + "( " +
+            ClassesSchema._ID + INTEGER_TYPE + PRIMARY_KEY_AUTOINCREMENT + COMMA_SEP +
+            ClassesSchema.COL_TIMETABLE_ID + INTEGER_TYPE +
+                    REFERENCES + TimetablesSchema.TABLE_NAME + ON_DELETE_CASCADE + COMMA_SEP +
+            ClassesSchema.COL_SUBJECT_ID + INTEGER_TYPE +
+                    REFERENCES + SubjectsSchema.TABLE_NAME + ON_DELETE_CASCADE + COMMA_SEP +
+            ClassesSchema.COL_MODULE_NAME + TEXT_TYPE + COMMA_SEP +
+            ClassesSchema.COL_START_DATE + INTEGER_TYPE + COMMA_SEP +
+            ClassesSchema.COL_END_DATE + INTEGER_TYPE +
+            " )"
+
+    /**
+     * The statement used to create the class_details table when upgrading from version 9.
+     */
+    private const val SQL_CREATE_CLASS_DETAILS_V9 = "CREATE TABLE " +
+            ClassDetailsSchema.TABLE_NAME + "( " +
+            ClassDetailsSchema._ID + INTEGER_TYPE + PRIMARY_KEY_AUTOINCREMENT + COMMA_SEP +
+            ClassDetailsSchema.COL_CLASS_ID + INTEGER_TYPE +
+                    REFERENCES + ClassesSchema.TABLE_NAME + ON_DELETE_CASCADE + COMMA_SEP +
+            ClassDetailsSchema.COL_ROOM + TEXT_TYPE + COMMA_SEP +
+            ClassDetailsSchema.COL_BUILDING + TEXT_TYPE + COMMA_SEP +
+            ClassDetailsSchema.COL_TEACHER + TEXT_TYPE +
+            " )"
+
+    /**
+     * The statement used to create the class_times table when upgrading from version 9.
+     */
+    private const val SQL_CREATE_CLASS_TIMES_V9 = "CREATE TABLE " +
+            ClassTimesSchema.TABLE_NAME + "( " +
+            ClassTimesSchema._ID + INTEGER_TYPE + PRIMARY_KEY_AUTOINCREMENT + COMMA_SEP +
+            ClassTimesSchema.COL_TIMETABLE_ID + INTEGER_TYPE +
+                    REFERENCES + TimetablesSchema.TABLE_NAME + ON_DELETE_CASCADE + COMMA_SEP +
+            ClassTimesSchema.COL_CLASS_DETAIL_ID + INTEGER_TYPE + COMMA_SEP +
+            ClassTimesSchema.COL_DAY + INTEGER_TYPE + COMMA_SEP +
+            ClassTimesSchema.COL_WEEK_NUMBER + INTEGER_TYPE + COMMA_SEP +
+            ClassTimesSchema.COL_START_TIME + INTEGER_TYPE + COMMA_SEP +
+            ClassTimesSchema.COL_END_TIME + INTEGER_TYPE +
+            " )"
+
+    /**
+     * The statement used to create the assignments table when upgrading from version 9.
+     */
+    private const val SQL_CREATE_ASSIGNMENTS_V9 = "CREATE TABLE " +
+            AssignmentsSchema.TABLE_NAME + "( " +
+            AssignmentsSchema._ID + INTEGER_TYPE + PRIMARY_KEY_AUTOINCREMENT + COMMA_SEP +
+            AssignmentsSchema.COL_TIMETABLE_ID + INTEGER_TYPE +
+                    REFERENCES + TimetablesSchema.TABLE_NAME + ON_DELETE_CASCADE + COMMA_SEP +
+            AssignmentsSchema.COL_CLASS_ID + INTEGER_TYPE +
+                    REFERENCES + ClassesSchema.TABLE_NAME + ON_DELETE_CASCADE + COMMA_SEP +
+            AssignmentsSchema.COL_TITLE + TEXT_TYPE + COMMA_SEP +
+            AssignmentsSchema.COL_DETAIL + TEXT_TYPE + COMMA_SEP +
+            AssignmentsSchema.COL_DUE_DATE + INTEGER_TYPE + COMMA_SEP +
+            AssignmentsSchema.COL_COMPLETION_PROGRESS + INTEGER_TYPE +
+            " )"
+
+    /**
+     * The statement used to create the exams table when upgrading from version 9.
+     */
+    private const val SQL_CREATE_EXAMS_V9 = "CREATE TABLE " + ExamsSchema.TABLE_NAME + "( " +
+            ExamsSchema._ID + INTEGER_TYPE + PRIMARY_KEY_AUTOINCREMENT + COMMA_SEP +
+            ExamsSchema.COL_TIMETABLE_ID + INTEGER_TYPE +
+                    REFERENCES + TimetablesSchema.TABLE_NAME + ON_DELETE_CASCADE + COMMA_SEP +
+            ExamsSchema.COL_SUBJECT_ID + INTEGER_TYPE +
+                    REFERENCES + SubjectsSchema.TABLE_NAME + ON_DELETE_CASCADE + COMMA_SEP +
+            ExamsSchema.COL_MODULE + TEXT_TYPE + COMMA_SEP +
+            ExamsSchema.COL_DATE + INTEGER_TYPE + COMMA_SEP +
+            ExamsSchema.COL_START_TIME + INTEGER_TYPE + COMMA_SEP +
+            ExamsSchema.COL_DURATION + INTEGER_TYPE + COMMA_SEP +
+            ExamsSchema.COL_SEAT + TEXT_TYPE + COMMA_SEP +
+            ExamsSchema.COL_ROOM + TEXT_TYPE + COMMA_SEP +
+            ExamsSchema.COL_IS_RESIT + INTEGER_TYPE + COMMA_SEP +
+            ExamsSchema.COL_NOTES + TEXT_TYPE +
+            " )"
+
+    /**
+     * The statement used to create the events table when upgrading from version 9.
+     */
+    private const val SQL_CREATE_EVENTS_V9 = "CREATE TABLE " + EventsSchema.TABLE_NAME + "( " +
+            EventsSchema._ID + INTEGER_TYPE + PRIMARY_KEY_AUTOINCREMENT + COMMA_SEP +
+            EventsSchema.COL_TIMETABLE_ID + INTEGER_TYPE +
+                    REFERENCES + TimetablesSchema.TABLE_NAME + ON_DELETE_CASCADE + COMMA_SEP +
+            EventsSchema.COL_TITLE + TEXT_TYPE + COMMA_SEP +
+            EventsSchema.COL_DETAIL + TEXT_TYPE + COMMA_SEP +
+            EventsSchema.COL_START_DATE + INTEGER_TYPE + COMMA_SEP +
+            EventsSchema.COL_START_TIME + INTEGER_TYPE + COMMA_SEP +
+            EventsSchema.COL_END_DATE + INTEGER_TYPE + COMMA_SEP +
+            EventsSchema.COL_END_TIME + INTEGER_TYPE + COMMA_SEP +
+            EventsSchema.COL_LOCATION + TEXT_TYPE + COMMA_SEP +
+            EventsSchema.COL_RELATED_SUBJECT_ID + INTEGER_TYPE +
+            " )"
+
+    /**
+     * All migrations, in the order of the versions they upgrade from.
+     */
+    @JvmField val ALL: List<Migration> = listOf(
+            AddSubjectAbbreviations(),
+            AddClassDates(),
+            RemoveDuplicateClasses(),
+            AddEvents(),
+            AddExamNotes(),
+            AddEventLocations(),
+            AddIndexes(),
+            StoreEpochDaysAndMinutes(),
+            AddForeignKeys(),
+            AddClassSchedule(),
+            AddSearchIndex(),
+            AddClassOccurrences())
+
+    /**
+     * @return  the migrations which upgrade the database from [fromVersion] to [toVersion], in the
+     *          order they should be run
+     * @throws IllegalArgumentException if there isn't a migration for each of the versions
+     */
+    @JvmStatic
+    fun between(fromVersion: Int, toVersion: Int): List<Migration> {
+        val migrations = ALL.filter { it.fromVersion >= fromVersion && it.toVersion <= toVersion }
+
+        if (migrations.size != toVersion - fromVersion) {
+            throw IllegalArgumentException("no migrations from version $fromVersion to " +
+                    "$toVersion")
+        }
+        return migrations
+    }
+
+    private class AddSubjectAbbreviations : Migration(1, "Add subject abbreviations") {
+
+        override fun migrate(db: SQLiteDatabase) {
+            db.execSQL("ALTER TABLE " + SubjectsSchema.TABLE_NAME + " ADD COLUMN " +
+                    SubjectsSchema.COL_ABBREVIATION + TEXT_TYPE + " DEFAULT ''")
+        }
+    }
+
+    private class AddClassDates : Migration(2, "Add start/end dates for classes") {
+
+        override fun migrate(db: SQLiteDatabase) {
+            val defaultDate = Class.NO_DATE
+
+            addIntegerColumn(db, ClassesSchema.COL_START_DATE_DAY_OF_MONTH, defaultDate.dayOfMonth)
+            addIntegerColumn(db, ClassesSchema.COL_START_DATE_MONTH, defaultDate.monthValue)
+            addIntegerColumn(db, ClassesSchema.COL_START_DATE_YEAR, defaultDate.year)
+
+            addIntegerColumn(db, ClassesSchema.COL_END_DATE_DAY_OF_MONTH, defaultDate.dayOfMonth)
+            addIntegerColumn(db, ClassesSchema.COL_END_DATE_MONTH, defaultDate.monthValue)
+            addIntegerColumn(db, ClassesSchema.COL_END_DATE_YEAR, defaultDate.year)
+        }
+
+        private fun addIntegerColumn(db: SQLiteDatabase, column: String, defaultValue: Int) {
+            db.execSQL("ALTER TABLE " + ClassesSchema.TABLE_NAME + " ADD COLUMN " +
+                    column + INTEGER_TYPE + " DEFAULT " + defaultValue)
+        }
+    }
+
+    /**
+     * Replaces the classes table, which could contain rows with duplicate ids, keeping only the
+     * first row with each id.
+     */
+    private class RemoveDuplicateClasses : Migration(3, "Remove duplicate classes") {
+
+        override fun migrate(db: SQLiteDatabase) {
+            val oldTableName = "classes_old"
+            db.execSQL("ALTER TABLE " + ClassesSchema.TABLE_NAME + " RENAME TO " + oldTableName)
+
+            db.execSQL(SQL_CREATE_CLASSES_V3)
+            Log.d(LOG_TAG, "Created a new classes table: " + ClassesSchema.TABLE_NAME)
+
+            db.execSQL("INSERT INTO " + ClassesSchema.TABLE_NAME +
+                    " SELECT * FROM " + oldTableName + " WHERE rowid IN (" +
+                    "SELECT MIN(rowid) FROM " + oldTableName +
+                    " GROUP BY " + ClassesSchema._ID + ")")
+
+            db.execSQL("DROP TABLE " + oldTableName)
+            Log.d(LOG_TAG, "Deleted the corrupt classes table: " + oldTableName)
+        }
+    }
+
+    private class AddEvents : Migration(4, "Create the events table") {
+
+        override fun migrate(db: SQLiteDatabase) {
+            db.execSQL(SQL_CREATE_EVENTS_V4)
+        }
+    }
+
+    private class AddExamNotes : Migration(5, "Add exam notes") {
+
+        override fun migrate(db: SQLiteDatabase) {
+            db.execSQL("ALTER TABLE " + ExamsSchema.TABLE_NAME + " ADD COLUMN " +
+                    ExamsSchema.COL_NOTES + TEXT_TYPE + " DEFAULT ''")
+        }
+    }
+
+    private class AddEventLocations : Migration(6, "Add event locations and related subjects") {
+
+        override fun migrate(db: SQLiteDatabase) {
+            db.execSQL("ALTER TABLE " + EventsSchema.TABLE_NAME + " ADD COLUMN " +
+                    EventsSchema.COL_LOCATION + TEXT_TYPE + " DEFAULT ''")
+            db.execSQL("ALTER TABLE " + EventsSchema.TABLE_NAME + " ADD COLUMN " +
+                    EventsSchema.COL_RELATED_SUBJECT_ID + TEXT_TYPE + " DEFAULT 0")
+        }
+    }
+
+    /**
+     * Indexes for foreign key and lookup columns were added in this version. These are created
+     * after all migrations have run, once later migrations have rebuilt the tables.
+     */
+    private class AddIndexes : Migration(7, "Add indexes") {
+
+        override fun migrate(db: SQLiteDatabase) {}
+    }
+
+    private class StoreEpochDaysAndMinutes :
+            Migration(8, "Store dates as epoch days and times as minutes of the day") {
+
+        override fun migrate(db: SQLiteDatabase) {
+            rebuildTable(db, AssignmentsSchema.TABLE_NAME, SQL_CREATE_ASSIGNMENTS_V8,
+                    AssignmentsSchema._ID,
+                    AssignmentsSchema.COL_TIMETABLE_ID,
+                    AssignmentsSchema.COL_CLASS_ID,
+                    AssignmentsSchema.COL_TITLE,
+                    AssignmentsSchema.COL_DETAIL,
+                    epochDaySql(
+                            AssignmentsSchema.COL_DUE_DATE_YEAR,
+                            AssignmentsSchema.COL_DUE_DATE_MONTH,
+                            AssignmentsSchema.COL_DUE_DATE_DAY_OF_MONTH),
+                    AssignmentsSchema.COL_COMPLETION_PROGRESS)
+
+            rebuildTable(db, ClassesSchema.TABLE_NAME, SQL_CREATE_CLASSES_V8,
+                    ClassesSchema._ID,
+                    ClassesSchema.COL_TIMETABLE_ID,
+                    ClassesSchema.COL_SUBJECT_ID,
+                    ClassesSchema.COL_MODULE_NAME,
+                    epochDaySql(
+                            ClassesSchema.COL_START_DATE_YEAR,
+                            ClassesSchema.COL_START_DATE_MONTH,
+                            ClassesSchema.COL_START_DATE_DAY_OF_MONTH),
+                    epochDaySql(
+                            ClassesSchema.COL_END_DATE_YEAR,
+                            ClassesSchema.COL_END_DATE_MONTH,
+                            ClassesSchema.COL_END_DATE_DAY_OF_MONTH))
+
+            rebuildTable(db, ClassTimesSchema.TABLE_NAME, SQL_CREATE_CLASS_TIMES_V8,
+                    ClassTimesSchema._ID,
+                    ClassTimesSchema.COL_TIMETABLE_ID,
+                    ClassTimesSchema.COL_CLASS_DETAIL_ID,
+                    ClassTimesSchema.COL_DAY,
+                    ClassTimesSchema.COL_WEEK_NUMBER,
+                    minuteOfDaySql(
+                            ClassTimesSchema.COL_START_TIME_HRS,
+                            ClassTimesSchema.COL_START_TIME_MINS),
+                    minuteOfDaySql(
+                            ClassTimesSchema.COL_END_TIME_HRS,
+                            ClassTimesSchema.COL_END_TIME_MINS))
+
+            rebuildTable(db, EventsSchema.TABLE_NAME, SQL_CREATE_EVENTS_V8,
+                    EventsSchema._ID,
+                    EventsSchema.COL_TIMETABLE_ID,
+                    EventsSchema.COL_TITLE,
+                    EventsSchema.COL_DETAIL,
+                    epochDaySql(
+                            EventsSchema.COL_START_DATE_YEAR,
+                            EventsSchema.COL_START_DATE_MONTH,
+                            EventsSchema.COL_START_DATE_DAY_OF_MONTH),
+                    minuteOfDaySql(
+                            EventsSchema.COL_START_TIME_HRS,
+                            EventsSchema.COL_START_TIME_MINS),
+                    epochDaySql(
+                            EventsSchema.COL_END_DATE_YEAR,
+                            EventsSchema.COL_END_DATE_MONTH,
+                            EventsSchema.COL_END_DATE_DAY_OF_MONTH),
+                    minuteOfDaySql(
+                            EventsSchema.COL_END_TIME_HRS,
+                            EventsSchema.COL_END_TIME_MINS),
+                    EventsSchema.COL_LOCATION,
+                    EventsSchema.COL_RELATED_SUBJECT_ID)
+
+            rebuildTable(db, ExamsSchema.TABLE_NAME, SQL_CREATE_EXAMS_V8,
+                    ExamsSchema._ID,
+                    ExamsSchema.COL_TIMETABLE_ID,
+                    ExamsSchema.COL_SUBJECT_ID,
+                    ExamsSchema.COL_MODULE,
+                    epochDaySql(
+                            ExamsSchema.COL_DATE_YEAR,
+                            ExamsSchema.COL_DATE_MONTH,
+                            ExamsSchema.COL_DATE_DAY_OF_MONTH),
+                    minuteOfDaySql(
+                            ExamsSchema.COL_START_TIME_HRS,
+                            ExamsSchema.COL_START_TIME_MINS),
+                    ExamsSchema.COL_DURATION,
+                    ExamsSchema.COL_SEAT,
+                    ExamsSchema.COL_ROOM,
+                    ExamsSchema.COL_IS_RESIT,
+                    ExamsSchema.COL_NOTES)
+
+            rebuildTable(db, TermsSchema.TABLE_NAME, SQL_CREATE_TERMS_V8,
+                    TermsSchema._ID,
+                    TermsSchema.COL_TIMETABLE_ID,
+                    TermsSchema.COL_NAME,
+                    epochDaySql(
+                            TermsSchema.COL_START_DATE_YEAR,
+                            TermsSchema.COL_START_DATE_MONTH,
+                            TermsSchema.COL_START_DATE_DAY_OF_MONTH),
+                    epochDaySql(
+                            TermsSchema.COL_END_DATE_YEAR,
+                            TermsSchema.COL_END_DATE_MONTH,
+                            TermsSchema.COL_END_DATE_DAY_OF_MONTH))
+
+            rebuildTable(db, TimetablesSchema.TABLE_NAME, SQL_CREATE_TIMETABLES_V8,
+                    TimetablesSchema._ID,
+                    TimetablesSchema.COL_NAME,
+                    epochDaySql(
+                            TimetablesSchema.COL_START_DATE_YEAR,
+                            TimetablesSchema.COL_START_DATE_MONTH,
+                            TimetablesSchema.COL_START_DATE_DAY_OF_MONTH),
+                    epochDaySql(
+                            TimetablesSchema.COL_END_DATE_YEAR,
+                            TimetablesSchema.COL_END_DATE_MONTH,
+                            TimetablesSchema.COL_END_DATE_DAY_OF_MONTH),
+                    TimetablesSchema.COL_WEEK_ROTATIONS)
+        }
+    }
+
+    /**
+     * Declares foreign keys so that rows are deleted with the rows they reference.
+     */
+    private class AddForeignKeys : Migration(9, "Add foreign keys") {
+
+        override fun migrate(db: SQLiteDatabase) {
+            // Tables are rebuilt before the tables referencing them, since renaming a table can
+            // also rename references to it in newer versions of SQLite.
+            rebuildTable(db, TimetablesSchema.TABLE_NAME, SQL_CREATE_TIMETABLES_V8, "*")
+            rebuildTable(db, SubjectsSchema.TABLE_NAME, SQL_CREATE_SUBJECTS_V9,
+                    // Columns are listed since abbreviations were added after the color ids in
+                    // databases created before version 2
+                    SubjectsSchema._ID,
+                    SubjectsSchema.COL_TIMETABLE_ID,
+                    SubjectsSchema.COL_NAME,
+                    SubjectsSchema.COL_ABBREVIATION,
+                    SubjectsSchema.COL_COLOR_ID)
+            rebuildTable(db, TermsSchema.TABLE_NAME, SQL_CREATE_TERMS_V8, "*")
+            rebuildTable(db, ClassesSchema.TABLE_NAME, SQL_CREATE_CLASSES_V9, "*")
+            rebuildTable(db, ClassDetailsSchema.TABLE_NAME, SQL_CREATE_CLASS_DETAILS_V9, "*")
+            rebuildTable(db, ClassTimesSchema.TABLE_NAME, SQL_CREATE_CLASS_TIMES_V9, "*")
+            rebuildTable(db, AssignmentsSchema.TABLE_NAME, SQL_CREATE_ASSIGNMENTS_V9, "*")
+            rebuildTable(db, ExamsSchema.TABLE_NAME, SQL_CREATE_EXAMS_V9, "*")
+            rebuildTable(db, EventsSchema.TABLE_NAME, SQL_CREATE_EVENTS_V9, "*")
+
+            // Remove rows left behind by deletes which didn't remove all references, as they
+            // would now violate the foreign keys. Parents are checked before their children.
+            deleteOrphans(db, SubjectsSchema.TABLE_NAME,
+                    SubjectsSchema.COL_TIMETABLE_ID, TimetablesSchema.TABLE_NAME)
+            deleteOrphans(db, ClassesSchema.TABLE_NAME,
+                    ClassesSchema.COL_TIMETABLE_ID, TimetablesSchema.TABLE_NAME)
+            deleteOrphans(db, ClassesSchema.TABLE_NAME,
+                    ClassesSchema.COL_SUBJECT_ID, SubjectsSchema.TABLE_NAME)
+            deleteOrphans(db, ClassDetailsSchema.TABLE_NAME,
+                    ClassDetailsSchema.COL_CLASS_ID, ClassesSchema.TABLE_NAME)
+            deleteOrphans(db, ClassTimesSchema.TABLE_NAME,
+                    ClassTimesSchema.COL_TIMETABLE_ID, TimetablesSchema.TABLE_NAME)
+            deleteOrphans(db, AssignmentsSchema.TABLE_NAME,
+                    AssignmentsSchema.COL_TIMETABLE_ID, TimetablesSchema.TABLE_NAME)
+            deleteOrphans(db, AssignmentsSchema.TABLE_NAME,
+                    AssignmentsSchema.COL_CLASS_ID, ClassesSchema.TABLE_NAME)
+            deleteOrphans(db, ExamsSchema.TABLE_NAME,
+                    ExamsSchema.COL_TIMETABLE_ID, TimetablesSchema.TABLE_NAME)
+            deleteOrphans(db, ExamsSchema.TABLE_NAME,
+                    ExamsSchema.COL_SUBJECT_ID, SubjectsSchema.TABLE_NAME)
+            deleteOrphans(db, EventsSchema.TABLE_NAME,
+                    EventsSchema.COL_TIMETABLE_ID, TimetablesSchema.TABLE_NAME)
+        }
+    }
+
+    /**
+     * Adds the class schedule table, filled from the existing class times. It is kept up to date
+     * by triggers created after all migrations have run.
+     */
+    private class AddClassSchedule : Migration(10, "Add the class schedule table") {
+
+        override fun migrate(db: SQLiteDatabase) {
+            db.execSQL(ClassScheduleSchema.SQL_CREATE)
+            db.execSQL(ClassScheduleSchema.SQL_INSERT_ALL)
+        }
+    }
+
+    /**
+     * Adds the full-text search table, filled from the existing items. It is kept up to date by
+     * triggers created after all migrations have run.
+     */
+    private class AddSearchIndex : Migration(11, "Add the full-text search table") {
+
+        override fun migrate(db: SQLiteDatabase) {
+            db.execSQL(SearchSchema.SQL_CREATE)
+            SearchSchema.SQL_INSERT_ALL.forEach { db.execSQL(it) }
+        }
+    }
+
+    /**
+     * Adds the class occurrences table, recording that the rows of every timetable need to be
+     * written. These are written the first time the table is read.
+     *
+     * The triggers writing the class schedule rows of inserted items are dropped, so that they are
+     * created again to delete existing rows before writing them. Rows replaced by the old triggers
+     * wouldn't record updates for the timetables they were removed from.
+     */
+    private class AddClassOccurrences : Migration(12, "Add the class occurrences table") {
+
+        override fun migrate(db: SQLiteDatabase) {
+            listOf(ClassTimesSchema.TABLE_NAME,
+                    ClassDetailsSchema.TABLE_NAME,
+                    ClassesSchema.TABLE_NAME,
+                    SubjectsSchema.TABLE_NAME).forEach {
+                db.execSQL("DROP TRIGGER IF EXISTS ${it}_insert_schedule")
+            }
+
+            db.execSQL(ClassOccurrencesSchema.SQL_CREATE)
+            db.execSQL(ClassOccurrencesSchema.SQL_CREATE_UPDATES)
+            db.execSQL(ClassOccurrencesSchema.SQL_INSERT_ALL_UPDATES)
+        }
+    }
+
+}
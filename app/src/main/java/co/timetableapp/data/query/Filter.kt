@@ -19,10 +19,16 @@ package co.timetableapp.data.query
 /**
  * Can store part of a SQL selection statement, used to filter results in database queries.
  *
+ * Values are not written into the statement itself, but are bound to its '?' placeholders using
+ * [args], in order. This way, filters which only differ by their values have the same statement.
+ *
  * @see Filters
  * @see Query
  */
-data class Filter(var sqlStatement: String) {
+data class Filter @JvmOverloads constructor(
+        var sqlStatement: String,
+        val args: List<String> = emptyList()
+) {
 
     init {
         // Surround the SQL command in parenthesis to avoid mix ups when combined with other
@@ -16,6 +16,9 @@
 
 package co.timetableapp.data.query
 
+import co.timetableapp.data.schema.COMMA_SEP
+import java.util.*
+
 /**
  * A collection of static helper functions for creating or combining filters.
  *
@@ -25,7 +28,58 @@ package co.timetableapp.data.query
 object Filters {
 
     @JvmStatic
-    fun equal(property: String, value: String)= Filter("$property = $value")
+    fun equal(property: String, value: String) = Filter("$property = ?", listOf(value))
+
+    @JvmStatic
+    fun lessThan(property: String, value: String) = Filter("$property < ?", listOf(value))
+
+    @JvmStatic
+    fun greaterThan(property: String, value: String) = Filter("$property > ?", listOf(value))
+
+    /**
+     * @return a filter for values of the [property] between [lower] and [upper] (inclusive)
+     */
+    @JvmStatic
+    fun between(property: String, lower: String, upper: String) =
+            Filter("$property BETWEEN ? AND ?", listOf(lower, upper))
+
+    /**
+     * @return a filter for values of the [property] which are in the collection of [values]
+     */
+    @JvmStatic
+    fun inList(property: String, values: Collection<String>) =
+            Filter("$property IN (${values.joinToString(COMMA_SEP) { "?" }})", values.toList())
+
+    /**
+     * @return  a filter for values of the [property] matching the [pattern], which can use '%' and
+     *          '_' as wildcards
+     */
+    @JvmStatic
+    fun like(property: String, pattern: String) = Filter("$property LIKE ?", listOf(pattern))
+
+    /**
+     * @return  a filter for rows after the [key], when ordered by the [sortProperty] and then the
+     *          [idProperty] in ascending order
+     * @see PageKey
+     */
+    @JvmStatic
+    fun afterKey(sortProperty: String, idProperty: String, key: PageKey): Filter {
+        val sortValue = key.sortValue.toString()
+        return Filter("$sortProperty >= ? AND ($sortProperty > ? OR $idProperty > ?)",
+                listOf(sortValue, sortValue, key.id.toString()))
+    }
+
+    /**
+     * @return  a filter for rows after the [key], when ordered by the [sortProperty] and then the
+     *          [idProperty] in descending order
+     * @see PageKey
+     */
+    @JvmStatic
+    fun beforeKey(sortProperty: String, idProperty: String, key: PageKey): Filter {
+        val sortValue = key.sortValue.toString()
+        return Filter("$sortProperty <= ? AND ($sortProperty < ? OR $idProperty < ?)",
+                listOf(sortValue, sortValue, key.id.toString()))
+    }
 
     @JvmStatic
     fun and(filter1: Filter, filter2: Filter, vararg moreFilters: Filter) =
@@ -39,12 +93,14 @@ object Filters {
     private fun joinFilters(sqlKeyword: String, filter1: Filter, filter2: Filter,
                             vararg moreFilters: Filter): Filter {
         var sql: String = "${filter1.sqlStatement} $sqlKeyword ${filter2.sqlStatement}"
+        val args = ArrayList(filter1.args + filter2.args)
 
-        for ((sqlStatement) in moreFilters) {
+        for ((sqlStatement, filterArgs) in moreFilters) {
             sql = "$sql $sqlKeyword $sqlStatement"
+            args.addAll(filterArgs)
         }
 
-        return Filter(sql)
+        return Filter(sql, args)
     }
 
 }
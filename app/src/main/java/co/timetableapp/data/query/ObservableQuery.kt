@@ -0,0 +1,203 @@
+/*
+ * Copyright 2017 Farbod Salamat-Zadeh
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package co.timetableapp.data.query
+
+import co.timetableapp.data.handler.DataTasks
+import co.timetableapp.data.handler.TableChange
+import co.timetableapp.data.handler.TableObserver
+import co.timetableapp.model.BaseItem
+import java.util.*
+
+/**
+ * The results of a query, which are reloaded when a table the query reads from changes so that
+ * screens don't have to reload all of their data after each edit.
+ *
+ * Results are loaded in the background using [DataTasks], so the [Loader] must not access the UI.
+ *
+ * Changes to the tables are handled together after the current task on the main thread (see
+ * [TableObserver]). If they only affect items of the [itemTable] whose ids are known, deleted items
+ * are removed without querying the database, and only the inserted and updated items are loaded
+ * again if the [Loader] supports it. Otherwise, all results are loaded again.
+ *
+ * Observers are given the new results along with the [ResultChanges] from the previous results, so
+ * that they only need to update what has changed. They are invoked when the results have first been
+ * loaded, and after that only if something has changed.
+ *
+ * @param itemTable     the table which the items of type [T] are read from
+ * @param otherTables   other tables which the results depend on, such as the tables of related
+ *                      items whose properties are displayed with the results
+ * @param loader        used to load items of the results
+ */
+class ObservableQuery<T : BaseItem>(
+        private val itemTable: String,
+        otherTables: Collection<String>,
+        private val loader: Loader<T>
+) {
+
+    /**
+     * Loads the items in the results of the query.
+     */
+    abstract class Loader<out T : BaseItem> {
+
+        /**
+         * @return all items in the results
+         */
+        abstract fun loadAll(): List<T>
+
+        /**
+         * @return  the items in the results which have the [ids] specified, or null if items
+         *          can't be loaded by their ids. If null is returned, all items will be loaded
+         *          again with [loadAll] instead.
+         */
+        open fun loadItems(ids: Set<Int>): List<T>? = null
+    }
+
+    /**
+     * Callback for when the results of the query have changed.
+     */
+    interface Observer<in T : BaseItem> {
+        fun onResultsChanged(results: List<T>, changes: ResultChanges<T>)
+    }
+
+    private val tableObserver = TableObserver(otherTables + itemTable) { onTablesChanged(it) }
+
+    private var observer: Observer<T>? = null
+
+    /**
+     * The current results, mapped by their ids in the order they were loaded.
+     */
+    private var resultMap: Map<Int, T> = emptyMap()
+
+    /**
+     * The task loading results in the background, or null if results aren't being loaded.
+     */
+    private var loadTask: DataTasks.Task? = null
+
+    /**
+     * Whether the results have been loaded. Until they have, [results] will be empty.
+     */
+    var isLoaded = false
+        private set
+
+    /**
+     * The current results of the query.
+     */
+    val results: List<T>
+        get() = resultMap.values.toList()
+
+    /**
+     * Starts loading the results and observing the tables the query reads from. The [observer] is
+     * invoked once the results have been loaded.
+     *
+     * @see close
+     */
+    fun observe(observer: Observer<T>) {
+        this.observer = observer
+        tableObserver.start()
+        reload()
+    }
+
+    /**
+     * Loads all results again, for example when the [Loader] would now select different items.
+     * The observer is invoked if the results have changed.
+     */
+    fun reload() {
+        loadTask?.cancel()
+        loadTask = DataTasks.read({ mapById(loader.loadAll()) }) {
+            loadTask = null
+            updateResults(it)
+        }
+    }
+
+    /**
+     * Stops observing the tables and loading results. The observer will no longer be invoked.
+     */
+    fun close() {
+        tableObserver.stop()
+        loadTask?.cancel()
+        loadTask = null
+        observer = null
+    }
+
+    private fun onTablesChanged(changes: List<TableChange>) {
+        // Changes can't be applied to results that are still being loaded
+        val onlyKnownItems = isLoaded && loadTask == null &&
+                changes.all { it.tableName == itemTable && it.itemIds != null }
+        if (!onlyKnownItems) {
+            reload()
+            return
+        }
+
+        val changedIds = changes.flatMap { it.itemIds!! }.toSet()
+        val writtenIds = changes.filter { it.operation != TableChange.Operation.DELETE }
+                .flatMap { it.itemIds!! }
+                .toSet()
+        if (writtenIds.isEmpty()) {
+            applyItemChanges(changedIds, emptyMap())
+            return
+        }
+
+        loadTask = DataTasks.read({ loader.loadItems(writtenIds)?.let { mapById(it) } }) {
+            loadTask = null
+            if (it == null) reload() else applyItemChanges(changedIds, it)
+        }
+    }
+
+    /**
+     * Updates the results with the items that have changed.
+     *
+     * @param changedIds    the ids of items that have been inserted, updated or deleted
+     * @param loadedMap     the changed items which are still in the results, mapped by their ids
+     */
+    private fun applyItemChanges(changedIds: Set<Int>, loadedMap: Map<Int, T>) {
+        // Updated items keep their position in the results, and new items are added to the end
+        val newResults = LinkedHashMap<Int, T>(resultMap.size + loadedMap.size)
+        resultMap.forEach { (id, item) ->
+            if (id !in changedIds) {
+                newResults.put(id, item)
+            } else {
+                loadedMap[id]?.let { newResults.put(id, it) }
+            }
+        }
+        loadedMap.forEach { (id, item) ->
+            if (id !in newResults) {
+                newResults.put(id, item)
+            }
+        }
+
+        updateResults(newResults)
+    }
+
+    private fun updateResults(newResults: Map<Int, T>) {
+        val changes = ResultChanges.between(resultMap, newResults)
+        resultMap = newResults
+
+        val firstResults = !isLoaded
+        isLoaded = true
+
+        if (firstResults || !changes.isEmpty) {
+            observer?.onResultsChanged(results, changes)
+        }
+    }
+
+    private fun mapById(items: List<T>): Map<Int, T> {
+        val map = LinkedHashMap<Int, T>(items.size)
+        items.forEach { map.put(it.id, it) }
+        return map
+    }
+
+}
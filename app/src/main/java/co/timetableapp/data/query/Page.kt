@@ -0,0 +1,35 @@
+/*
+ * Copyright 2017 Farbod Salamat-Zadeh
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package co.timetableapp.data.query
+
+/**
+ * A page of items selected from a database table.
+ *
+ * @property items      the items in the page, in order
+ * @property nextKey    the key for fetching the next page, or null if this is the last page
+ *
+ * @see PageKey
+ */
+class Page<out T>(val items: List<T>, val nextKey: PageKey?) {
+
+    /**
+     * Whether there may be more items after this page.
+     */
+    val hasNext: Boolean
+        get() = nextKey != null
+
+}
@@ -0,0 +1,32 @@
+/*
+ * Copyright 2017 Farbod Salamat-Zadeh
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package co.timetableapp.data.query
+
+/**
+ * Identifies the position of a row when rows are ordered by a sort column and then by id. It is
+ * used to fetch the rows after this position in pages (keyset pagination), which unlike using an
+ * offset, does not need to step through all of the rows before the page.
+ *
+ * @property sortValue  the value of the sort column for the row (e.g. a date as an epoch day)
+ * @property id         the integer identifier of the row, which breaks ties between rows with the
+ *                      same [sortValue]
+ *
+ * @see Filters.afterKey
+ * @see Filters.beforeKey
+ * @see Page
+ */
+data class PageKey(val sortValue: Long, val id: Int)
@@ -17,14 +17,44 @@
 package co.timetableapp.data.query
 
 import android.util.Log
+import co.timetableapp.data.schema.COMMA_SEP
 import java.util.*
 
 /**
- * Used to filter results when performing SQL queries on the database
+ * Used to filter, order and limit results when performing SQL queries on the database
+ *
+ * @property filter     the condition for selecting rows, or null if all rows should be selected
+ * @property orderBy    the SQL ordering clause for the results (excluding 'ORDER BY'), or null if
+ *                      the results do not need to be ordered
+ * @property limit      the maximum number of rows to select, or null if there is no limit
+ * @property offset     the number of rows to skip before selecting rows, used with [limit]
  *
  * @see Filter
  */
-class Query(val filter: Filter) {
+data class Query(
+        val filter: Filter?,
+        val orderBy: String? = null,
+        val limit: Int? = null,
+        val offset: Int = 0
+) {
+
+    /**
+     * The selection statement of the [filter], as used in SQLiteDatabase queries.
+     */
+    val selection: String?
+        get() = filter?.sqlStatement
+
+    /**
+     * The values to bind to the [selection], as used in SQLiteDatabase queries.
+     */
+    val selectionArgs: Array<String>?
+        get() = filter?.args?.toTypedArray()
+
+    /**
+     * The [limit] and [offset] in the format used in SQLiteDatabase queries.
+     */
+    val limitClause: String?
+        get() = limit?.let { "$offset$COMMA_SEP$it" }
 
     class Builder {
 
@@ -34,16 +64,43 @@ class Query(val filter: Filter) {
 
         private val filters: ArrayList<Filter> = ArrayList()
 
+        private val orderings: ArrayList<String> = ArrayList()
+
+        private var limit: Int? = null
+        private var offset = 0
+
         fun addFilter(filter: Filter): Builder {
             filters.add(filter)
             Log.v(LOG_TAG, "Added filter: ${filter.sqlStatement}")
             return this
         }
 
-        private fun combineFilters(): Filter {
+        /**
+         * Orders the results by the [property]. Results are ordered by any properties added
+         * previously first.
+         */
+        @JvmOverloads
+        fun orderBy(property: String, ascending: Boolean = true): Builder {
+            orderings.add(if (ascending) "$property ASC" else "$property DESC")
+            return this
+        }
+
+        /**
+         * Limits the number of results to [limit], after skipping the first [offset] results.
+         */
+        @JvmOverloads
+        fun limit(limit: Int, offset: Int = 0): Builder {
+            if (limit < 0 || offset < 0) {
+                throw IllegalArgumentException("the limit and offset cannot be negative")
+            }
+            this.limit = limit
+            this.offset = offset
+            return this
+        }
+
+        private fun combineFilters(): Filter? {
             when (filters.size) {
-                0 -> throw IllegalStateException("you must add at least one filter to the " +
-                        "query builder")
+                0 -> return null
                 1 -> return filters[0]
                 2 -> return Filters.and(filters[0], filters[1])
                 else -> {
@@ -56,7 +113,13 @@ class Query(val filter: Filter) {
         }
 
         fun build(): Query {
-            return Query(combineFilters())
+            if (filters.isEmpty() && orderings.isEmpty() && limit == null) {
+                throw IllegalStateException("you must add at least one filter, ordering or " +
+                        "limit to the query builder")
+            }
+
+            val orderBy = if (orderings.isEmpty()) null else orderings.joinToString(COMMA_SEP)
+            return Query(combineFilters(), orderBy, limit, offset)
         }
 
     }
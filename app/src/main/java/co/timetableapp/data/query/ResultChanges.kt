@@ -0,0 +1,59 @@
+/*
+ * Copyright 2017 Farbod Salamat-Zadeh
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package co.timetableapp.data.query
+
+import co.timetableapp.model.BaseItem
+
+/**
+ * The difference between two sets of results of an [ObservableQuery].
+ *
+ * @property added      items which are in the new results but weren't in the old results
+ * @property removed    items which were in the old results but aren't in the new results
+ * @property changed    the new versions of items which are in both results, but have changed
+ */
+class ResultChanges<out T : BaseItem>(
+        val added: List<T>,
+        val removed: List<T>,
+        val changed: List<T>
+) {
+
+    /**
+     * Whether the old and new results are the same.
+     */
+    val isEmpty: Boolean
+        get() = added.isEmpty() && removed.isEmpty() && changed.isEmpty()
+
+    companion object {
+
+        /**
+         * Compares the [oldResults] and [newResults] using the ids and equality of their items.
+         */
+        @JvmStatic
+        fun <T : BaseItem> between(oldResults: Map<Int, T>,
+                                   newResults: Map<Int, T>): ResultChanges<T> {
+            val added = newResults.filterKeys { it !in oldResults }.values.toList()
+            val removed = oldResults.filterKeys { it !in newResults }.values.toList()
+            val changed = newResults.filter { (id, item) ->
+                val oldItem = oldResults[id]
+                oldItem != null && oldItem != item
+            }.values.toList()
+
+            return ResultChanges(added, removed, changed)
+        }
+    }
+
+}
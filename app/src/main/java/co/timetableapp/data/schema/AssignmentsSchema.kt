@@ -32,9 +32,7 @@ object AssignmentsSchema : BaseColumns {
     const val COL_CLASS_ID = "class_id"
     const val COL_TITLE = "title"
     const val COL_DETAIL = "detail"
-    const val COL_DUE_DATE_DAY_OF_MONTH = "due_date_day_of_month"
-    const val COL_DUE_DATE_MONTH = "due_date_month"
-    const val COL_DUE_DATE_YEAR = "due_date_year"
+    const val COL_DUE_DATE = "due_date"
     const val COL_COMPLETION_PROGRESS = "completion_progress"
 
     /**
@@ -44,14 +42,43 @@ object AssignmentsSchema : BaseColumns {
      */
     internal const val SQL_CREATE = "CREATE TABLE " + TABLE_NAME + "( " +
             BaseColumns._ID + INTEGER_TYPE + PRIMARY_KEY_AUTOINCREMENT + COMMA_SEP +
-            COL_TIMETABLE_ID + INTEGER_TYPE + COMMA_SEP +
-            COL_CLASS_ID + INTEGER_TYPE + COMMA_SEP +
+            COL_TIMETABLE_ID + INTEGER_TYPE +
+                    REFERENCES + TimetablesSchema.TABLE_NAME + ON_DELETE_CASCADE + COMMA_SEP +
+            COL_CLASS_ID + INTEGER_TYPE +
+                    REFERENCES + ClassesSchema.TABLE_NAME + ON_DELETE_CASCADE + COMMA_SEP +
             COL_TITLE + TEXT_TYPE + COMMA_SEP +
             COL_DETAIL + TEXT_TYPE + COMMA_SEP +
-            COL_DUE_DATE_DAY_OF_MONTH + INTEGER_TYPE + COMMA_SEP +
-            COL_DUE_DATE_MONTH + INTEGER_TYPE + COMMA_SEP +
-            COL_DUE_DATE_YEAR + INTEGER_TYPE + COMMA_SEP +
+            COL_DUE_DATE + INTEGER_TYPE + COMMA_SEP +
             COL_COMPLETION_PROGRESS + INTEGER_TYPE +
             " )"
 
+    /**
+     * An SQLite statement which creates an index for looking up rows belonging to a timetable, such
+     * as assignments due on a particular date or range of dates.
+     *
+     * @see co.timetableapp.data.TimetableDbHelper
+     */
+    internal const val SQL_CREATE_INDEX_TIMETABLE_DUE_DATE = "CREATE INDEX IF NOT EXISTS " +
+            TABLE_NAME + "_timetable_due_date_idx ON " + TABLE_NAME + "( " +
+            COL_TIMETABLE_ID + COMMA_SEP +
+            COL_DUE_DATE +
+            " )"
+
+    /**
+     * An SQLite statement which creates an index for looking up rows by their class id.
+     *
+     * @see co.timetableapp.data.TimetableDbHelper
+     */
+    internal const val SQL_CREATE_INDEX_CLASS_ID = "CREATE INDEX IF NOT EXISTS " +
+            TABLE_NAME + "_class_id_idx ON " + TABLE_NAME + "( " +
+            COL_CLASS_ID +
+            " )"
+
+    // The columns below were used before version 9 of the database, when dates and times were
+    // stored across multiple columns. They are only used when upgrading the database.
+
+    internal const val COL_DUE_DATE_DAY_OF_MONTH = "due_date_day_of_month"
+    internal const val COL_DUE_DATE_MONTH = "due_date_month"
+    internal const val COL_DUE_DATE_YEAR = "due_date_year"
+
 }
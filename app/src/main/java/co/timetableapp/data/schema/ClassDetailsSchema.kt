@@ -40,10 +40,36 @@ object ClassDetailsSchema : BaseColumns {
      */
     internal const val SQL_CREATE = "CREATE TABLE " + TABLE_NAME + "( " +
             BaseColumns._ID + INTEGER_TYPE + PRIMARY_KEY_AUTOINCREMENT + COMMA_SEP +
-            COL_CLASS_ID + INTEGER_TYPE + COMMA_SEP +
+            COL_CLASS_ID + INTEGER_TYPE +
+                    REFERENCES + ClassesSchema.TABLE_NAME + ON_DELETE_CASCADE + COMMA_SEP +
             COL_ROOM + TEXT_TYPE + COMMA_SEP +
             COL_BUILDING + TEXT_TYPE + COMMA_SEP +
             COL_TEACHER + TEXT_TYPE +
             " )"
 
+    /**
+     * An SQLite statement which creates an index for looking up rows by their class id.
+     *
+     * @see co.timetableapp.data.TimetableDbHelper
+     */
+    internal const val SQL_CREATE_INDEX_CLASS_ID = "CREATE INDEX IF NOT EXISTS " +
+            TABLE_NAME + "_class_id_idx ON " + TABLE_NAME + "( " +
+            COL_CLASS_ID +
+            " )"
+
+    /**
+     * An SQLite statement which creates a trigger for deleting the class times of a class detail
+     * when it is deleted, including when it is deleted because its class has been deleted.
+     *
+     * A trigger is used instead of a foreign key in the 'class_times' table because class times
+     * are written before the class detail they belong to when a new class is being created.
+     *
+     * @see co.timetableapp.data.TimetableDbHelper
+     */
+    internal const val SQL_CREATE_TRIGGER_DELETE_CLASS_TIMES = "CREATE TRIGGER IF NOT EXISTS " +
+            TABLE_NAME + "_delete_class_times AFTER DELETE ON " + TABLE_NAME + " BEGIN " +
+            "DELETE FROM " + ClassTimesSchema.TABLE_NAME + " WHERE " +
+            ClassTimesSchema.COL_CLASS_DETAIL_ID + " = OLD." + _ID + "; " +
+            "END"
+
 }
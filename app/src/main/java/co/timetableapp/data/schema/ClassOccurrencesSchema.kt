@@ -0,0 +1,191 @@
+/*
+ * Copyright 2017 Farbod Salamat-Zadeh
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package co.timetableapp.data.schema
+
+import android.provider.BaseColumns
+
+/**
+ * The schema for the 'class_occurrences' table, containing constants for the column names and
+ * SQLite statements for creating and maintaining it.
+ *
+ * Each row is a date that a class time takes place on, within a term of its timetable, so that
+ * the classes taking place over a range of dates can be read with an indexed scan instead of being
+ * worked out from the class times, rotation and terms.
+ *
+ * Rows are written by [co.timetableapp.data.handler.ClassOccurrences]. Triggers record which
+ * class times and timetables need their rows to be updated in the 'class_occurrence_updates'
+ * table, so that only their rows are written again, even if the app is closed before they have
+ * been updated.
+ *
+ * @see co.timetableapp.data.handler.ClassOccurrences
+ */
+object ClassOccurrencesSchema : BaseColumns {
+
+    const val TABLE_NAME = "class_occurrences"
+    const val _ID = BaseColumns._ID
+    const val COL_TIMETABLE_ID = "timetable_id"
+    const val COL_CLASS_TIME_ID = "class_time_id"
+
+    /**
+     * The epoch day of the date the class time takes place on.
+     */
+    const val COL_DATE = "date"
+    const val COL_START_TIME = "start_time"
+    const val COL_END_TIME = "end_time"
+
+    const val UPDATES_TABLE_NAME = "class_occurrence_updates"
+    const val COL_UPDATE_TIMETABLE_ID = "timetable_id"
+
+    /**
+     * The id of the class time whose rows need to be updated, or [ALL_CLASS_TIMES].
+     */
+    const val COL_UPDATE_CLASS_TIME_ID = "class_time_id"
+
+    /**
+     * Used in place of a class time id in the updates table when the rows of every class time of
+     * the timetable need to be updated, such as when its terms or week rotation have changed.
+     */
+    const val ALL_CLASS_TIMES = -1
+
+    /**
+     * An SQLite statement which creates the 'class_occurrences' table upon execution.
+     *
+     * @see co.timetableapp.data.TimetableDbHelper
+     */
+    internal const val SQL_CREATE = "CREATE TABLE " + TABLE_NAME + "( " +
+            BaseColumns._ID + INTEGER_TYPE + " PRIMARY KEY" + COMMA_SEP +
+            COL_TIMETABLE_ID + INTEGER_TYPE + COMMA_SEP +
+            COL_CLASS_TIME_ID + INTEGER_TYPE + COMMA_SEP +
+            COL_DATE + INTEGER_TYPE + COMMA_SEP +
+            COL_START_TIME + INTEGER_TYPE + COMMA_SEP +
+            COL_END_TIME + INTEGER_TYPE +
+            " )"
+
+    /**
+     * An SQLite statement which creates the 'class_occurrence_updates' table upon execution.
+     *
+     * @see co.timetableapp.data.TimetableDbHelper
+     */
+    internal const val SQL_CREATE_UPDATES = "CREATE TABLE " + UPDATES_TABLE_NAME + "( " +
+            BaseColumns._ID + INTEGER_TYPE + " PRIMARY KEY" + COMMA_SEP +
+            COL_UPDATE_TIMETABLE_ID + INTEGER_TYPE + COMMA_SEP +
+            COL_UPDATE_CLASS_TIME_ID + INTEGER_TYPE +
+            " )"
+
+    /**
+     * An SQLite statement which creates an index for reading the class times taking place over a
+     * range of dates in a timetable, in the order they start.
+     *
+     * @see co.timetableapp.data.TimetableDbHelper
+     */
+    internal const val SQL_CREATE_INDEX_TIMETABLE_DATE = "CREATE INDEX IF NOT EXISTS " +
+            TABLE_NAME + "_timetable_date_idx ON " + TABLE_NAME + "( " +
+            COL_TIMETABLE_ID + COMMA_SEP +
+            COL_DATE + COMMA_SEP +
+            COL_START_TIME +
+            " )"
+
+    /**
+     * An SQLite statement which creates an index for updating the rows of a class time.
+     *
+     * @see co.timetableapp.data.TimetableDbHelper
+     */
+    internal const val SQL_CREATE_INDEX_CLASS_TIME_DATE = "CREATE INDEX IF NOT EXISTS " +
+            TABLE_NAME + "_class_time_date_idx ON " + TABLE_NAME + "( " +
+            COL_CLASS_TIME_ID + COMMA_SEP +
+            COL_DATE +
+            " )"
+
+    /**
+     * An SQLite statement which records that the rows of every class time in each timetable need
+     * to be written, used when the table is first created.
+     *
+     * @see co.timetableapp.data.migration.Migrations
+     */
+    internal const val SQL_INSERT_ALL_UPDATES = "INSERT INTO " + UPDATES_TABLE_NAME + "( " +
+            COL_UPDATE_TIMETABLE_ID + COMMA_SEP +
+            COL_UPDATE_CLASS_TIME_ID +
+            " ) SELECT " + TimetablesSchema._ID + COMMA_SEP + "$ALL_CLASS_TIMES" +
+            " FROM " + TimetablesSchema.TABLE_NAME
+
+    /**
+     * The start of an SQLite statement which records an update, followed by the values for the
+     * timetable id and class time id and a closing bracket.
+     */
+    private const val INSERT_UPDATE = "INSERT INTO " + UPDATES_TABLE_NAME + "( " +
+            COL_UPDATE_TIMETABLE_ID + COMMA_SEP +
+            COL_UPDATE_CLASS_TIME_ID +
+            " ) VALUES ( "
+
+    // The triggers below record the updates needed when the rows that occurrences are worked out
+    // from are written. Rows of the class schedule table are written whenever a class time, or
+    // the class detail or class it belongs to, is written.
+
+    internal const val SQL_CREATE_TRIGGER_INSERT_SCHEDULE = "CREATE TRIGGER IF NOT EXISTS " +
+            ClassScheduleSchema.TABLE_NAME + "_insert_occurrences AFTER INSERT ON " +
+            ClassScheduleSchema.TABLE_NAME + " BEGIN " +
+            INSERT_UPDATE + "NEW." + ClassScheduleSchema.COL_TIMETABLE_ID + COMMA_SEP +
+            "NEW." + ClassScheduleSchema._ID + " ); END"
+
+    internal const val SQL_CREATE_TRIGGER_DELETE_SCHEDULE = "CREATE TRIGGER IF NOT EXISTS " +
+            ClassScheduleSchema.TABLE_NAME + "_delete_occurrences AFTER DELETE ON " +
+            ClassScheduleSchema.TABLE_NAME + " BEGIN " +
+            INSERT_UPDATE + "OLD." + ClassScheduleSchema.COL_TIMETABLE_ID + COMMA_SEP +
+            "OLD." + ClassScheduleSchema._ID + " ); END"
+
+    internal const val SQL_CREATE_TRIGGER_INSERT_TERM = "CREATE TRIGGER IF NOT EXISTS " +
+            TermsSchema.TABLE_NAME + "_insert_occurrences AFTER INSERT ON " +
+            TermsSchema.TABLE_NAME + " BEGIN " +
+            INSERT_UPDATE + "NEW." + TermsSchema.COL_TIMETABLE_ID + COMMA_SEP +
+            "$ALL_CLASS_TIMES ); END"
+
+    internal const val SQL_CREATE_TRIGGER_UPDATE_TERM = "CREATE TRIGGER IF NOT EXISTS " +
+            TermsSchema.TABLE_NAME + "_update_occurrences AFTER UPDATE OF " +
+            TermsSchema.COL_TIMETABLE_ID + COMMA_SEP +
+            TermsSchema.COL_START_DATE + COMMA_SEP +
+            TermsSchema.COL_END_DATE +
+            " ON " + TermsSchema.TABLE_NAME + " BEGIN " +
+            INSERT_UPDATE + "OLD." + TermsSchema.COL_TIMETABLE_ID + COMMA_SEP +
+            "$ALL_CLASS_TIMES ); " +
+            INSERT_UPDATE + "NEW." + TermsSchema.COL_TIMETABLE_ID + COMMA_SEP +
+            "$ALL_CLASS_TIMES ); END"
+
+    internal const val SQL_CREATE_TRIGGER_DELETE_TERM = "CREATE TRIGGER IF NOT EXISTS " +
+            TermsSchema.TABLE_NAME + "_delete_occurrences AFTER DELETE ON " +
+            TermsSchema.TABLE_NAME + " BEGIN " +
+            INSERT_UPDATE + "OLD." + TermsSchema.COL_TIMETABLE_ID + COMMA_SEP +
+            "$ALL_CLASS_TIMES ); END"
+
+    internal const val SQL_CREATE_TRIGGER_UPDATE_TIMETABLE = "CREATE TRIGGER IF NOT EXISTS " +
+            TimetablesSchema.TABLE_NAME + "_update_occurrences AFTER UPDATE OF " +
+            TimetablesSchema.COL_START_DATE + COMMA_SEP +
+            TimetablesSchema.COL_END_DATE + COMMA_SEP +
+            TimetablesSchema.COL_WEEK_ROTATIONS +
+            " ON " + TimetablesSchema.TABLE_NAME + " BEGIN " +
+            INSERT_UPDATE + "NEW." + TimetablesSchema._ID + COMMA_SEP +
+            "$ALL_CLASS_TIMES ); END"
+
+    internal const val SQL_CREATE_TRIGGER_DELETE_TIMETABLE = "CREATE TRIGGER IF NOT EXISTS " +
+            TimetablesSchema.TABLE_NAME + "_delete_occurrences AFTER DELETE ON " +
+            TimetablesSchema.TABLE_NAME + " BEGIN " +
+            "DELETE FROM " + TABLE_NAME + " WHERE " + COL_TIMETABLE_ID + " = OLD." +
+            TimetablesSchema._ID + "; " +
+            "DELETE FROM " + UPDATES_TABLE_NAME + " WHERE " + COL_UPDATE_TIMETABLE_ID + " = OLD." +
+            TimetablesSchema._ID +
+            "; END"
+
+}
@@ -0,0 +1,316 @@
+/*
+ * Copyright 2017 Farbod Salamat-Zadeh
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package co.timetableapp.data.schema
+
+import android.provider.BaseColumns
+
+/**
+ * The schema for the 'class_schedule' table, containing constants for the column names and SQLite
+ * statements for creating and maintaining it.
+ *
+ * Each row combines a class time with the class detail, class and subject it belongs to, so that
+ * everything needed to display a class time can be read from a single row instead of querying
+ * four tables. Rows are written by triggers on those tables, and never by the app itself.
+ *
+ * Class times whose class detail, class or subject doesn't exist yet have no row. Their row is
+ * added once the missing row has been inserted.
+ *
+ * @see co.timetableapp.model.ScheduleEntry
+ */
+object ClassScheduleSchema : BaseColumns {
+
+    const val TABLE_NAME = "class_schedule"
+
+    /**
+     * The id of the class time, which is also the id of the row.
+     */
+    const val _ID = BaseColumns._ID
+    const val COL_TIMETABLE_ID = "timetable_id"
+    const val COL_CLASS_DETAIL_ID = "class_detail_id"
+    const val COL_CLASS_ID = "class_id"
+    const val COL_SUBJECT_ID = "subject_id"
+    const val COL_DAY = "day"
+    const val COL_WEEK_NUMBER = "week_number"
+    const val COL_START_TIME = "start_time"
+    const val COL_END_TIME = "end_time"
+    const val COL_ROOM = "room"
+    const val COL_BUILDING = "building"
+    const val COL_TEACHER = "teacher"
+    const val COL_MODULE_NAME = "module_name"
+    const val COL_CLASS_START_DATE = "class_start_date"
+    const val COL_CLASS_END_DATE = "class_end_date"
+    const val COL_SUBJECT_NAME = "subject_name"
+    const val COL_SUBJECT_ABBREVIATION = "subject_abbreviation"
+    const val COL_COLOR_ID = "color_id"
+
+    /**
+     * An SQLite statement which creates the 'class_schedule' table upon execution.
+     *
+     * @see co.timetableapp.data.TimetableDbHelper
+     */
+    internal const val SQL_CREATE = "CREATE TABLE " + TABLE_NAME + "( " +
+            BaseColumns._ID + INTEGER_TYPE + " PRIMARY KEY" + COMMA_SEP +
+            COL_TIMETABLE_ID + INTEGER_TYPE + COMMA_SEP +
+            COL_CLASS_DETAIL_ID + INTEGER_TYPE + COMMA_SEP +
+            COL_CLASS_ID + INTEGER_TYPE + COMMA_SEP +
+            COL_SUBJECT_ID + INTEGER_TYPE + COMMA_SEP +
+            COL_DAY + INTEGER_TYPE + COMMA_SEP +
+            COL_WEEK_NUMBER + INTEGER_TYPE + COMMA_SEP +
+            COL_START_TIME + INTEGER_TYPE + COMMA_SEP +
+            COL_END_TIME + INTEGER_TYPE + COMMA_SEP +
+            COL_ROOM + TEXT_TYPE + COMMA_SEP +
+            COL_BUILDING + TEXT_TYPE + COMMA_SEP +
+            COL_TEACHER + TEXT_TYPE + COMMA_SEP +
+            COL_MODULE_NAME + TEXT_TYPE + COMMA_SEP +
+            COL_CLASS_START_DATE + INTEGER_TYPE + COMMA_SEP +
+            COL_CLASS_END_DATE + INTEGER_TYPE + COMMA_SEP +
+            COL_SUBJECT_NAME + TEXT_TYPE + COMMA_SEP +
+            COL_SUBJECT_ABBREVIATION + TEXT_TYPE + COMMA_SEP +
+            COL_COLOR_ID + INTEGER_TYPE +
+            " )"
+
+    /**
+     * An SQLite statement which creates an index for looking up the class times of a particular
+     * day and week of a timetable, in the order they start.
+     *
+     * @see co.timetableapp.data.TimetableDbHelper
+     */
+    internal const val SQL_CREATE_INDEX_TIMETABLE_DAY_WEEK = "CREATE INDEX IF NOT EXISTS " +
+            TABLE_NAME + "_timetable_day_week_idx ON " + TABLE_NAME + "( " +
+            COL_TIMETABLE_ID + COMMA_SEP +
+            COL_DAY + COMMA_SEP +
+            COL_WEEK_NUMBER + COMMA_SEP +
+            COL_START_TIME +
+            " )"
+
+    /**
+     * An SQLite statement which creates an index for updating the rows of a class detail.
+     *
+     * @see co.timetableapp.data.TimetableDbHelper
+     */
+    internal const val SQL_CREATE_INDEX_CLASS_DETAIL_ID = "CREATE INDEX IF NOT EXISTS " +
+            TABLE_NAME + "_class_detail_id_idx ON " + TABLE_NAME + "( " +
+            COL_CLASS_DETAIL_ID +
+            " )"
+
+    /**
+     * An SQLite statement which creates an index for updating the rows of a class.
+     *
+     * @see co.timetableapp.data.TimetableDbHelper
+     */
+    internal const val SQL_CREATE_INDEX_CLASS_ID = "CREATE INDEX IF NOT EXISTS " +
+            TABLE_NAME + "_class_id_idx ON " + TABLE_NAME + "( " +
+            COL_CLASS_ID +
+            " )"
+
+    /**
+     * An SQLite statement which creates an index for updating the rows of a subject.
+     *
+     * @see co.timetableapp.data.TimetableDbHelper
+     */
+    internal const val SQL_CREATE_INDEX_SUBJECT_ID = "CREATE INDEX IF NOT EXISTS " +
+            TABLE_NAME + "_subject_id_idx ON " + TABLE_NAME + "( " +
+            COL_SUBJECT_ID +
+            " )"
+
+    /**
+     * The FROM clause joining each class time to its class detail, class and subject, aliasing the
+     * tables as 'ct', 'cd', 'c' and 's' respectively.
+     */
+    private const val FROM_SOURCE_ROWS = " FROM " + ClassTimesSchema.TABLE_NAME + " ct" +
+            " INNER JOIN " + ClassDetailsSchema.TABLE_NAME + " cd" +
+            " ON cd." + ClassDetailsSchema._ID + " = ct." + ClassTimesSchema.COL_CLASS_DETAIL_ID +
+            " INNER JOIN " + ClassesSchema.TABLE_NAME + " c" +
+            " ON c." + ClassesSchema._ID + " = cd." + ClassDetailsSchema.COL_CLASS_ID +
+            " INNER JOIN " + SubjectsSchema.TABLE_NAME + " s" +
+            " ON s." + SubjectsSchema._ID + " = c." + ClassesSchema.COL_SUBJECT_ID
+
+    /**
+     * The start of an SQLite statement which writes the rows for the class times selected by a
+     * WHERE clause appended to it. The class times, class details, classes and subjects tables are
+     * aliased as 'ct', 'cd', 'c' and 's' respectively.
+     */
+    private const val INSERT_ROWS = "INSERT OR REPLACE INTO " + TABLE_NAME + "( " +
+            _ID + COMMA_SEP +
+            COL_TIMETABLE_ID + COMMA_SEP +
+            COL_CLASS_DETAIL_ID + COMMA_SEP +
+            COL_CLASS_ID + COMMA_SEP +
+            COL_SUBJECT_ID + COMMA_SEP +
+            COL_DAY + COMMA_SEP +
+            COL_WEEK_NUMBER + COMMA_SEP +
+            COL_START_TIME + COMMA_SEP +
+            COL_END_TIME + COMMA_SEP +
+            COL_ROOM + COMMA_SEP +
+            COL_BUILDING + COMMA_SEP +
+            COL_TEACHER + COMMA_SEP +
+            COL_MODULE_NAME + COMMA_SEP +
+            COL_CLASS_START_DATE + COMMA_SEP +
+            COL_CLASS_END_DATE + COMMA_SEP +
+            COL_SUBJECT_NAME + COMMA_SEP +
+            COL_SUBJECT_ABBREVIATION + COMMA_SEP +
+            COL_COLOR_ID +
+            " ) SELECT " +
+            "ct." + ClassTimesSchema._ID + COMMA_SEP +
+            "ct." + ClassTimesSchema.COL_TIMETABLE_ID + COMMA_SEP +
+            "ct." + ClassTimesSchema.COL_CLASS_DETAIL_ID + COMMA_SEP +
+            "cd." + ClassDetailsSchema.COL_CLASS_ID + COMMA_SEP +
+            "c." + ClassesSchema.COL_SUBJECT_ID + COMMA_SEP +
+            "ct." + ClassTimesSchema.COL_DAY + COMMA_SEP +
+            "ct." + ClassTimesSchema.COL_WEEK_NUMBER + COMMA_SEP +
+            "ct." + ClassTimesSchema.COL_START_TIME + COMMA_SEP +
+            "ct." + ClassTimesSchema.COL_END_TIME + COMMA_SEP +
+            "cd." + ClassDetailsSchema.COL_ROOM + COMMA_SEP +
+            "cd." + ClassDetailsSchema.COL_BUILDING + COMMA_SEP +
+            "cd." + ClassDetailsSchema.COL_TEACHER + COMMA_SEP +
+            "c." + ClassesSchema.COL_MODULE_NAME + COMMA_SEP +
+            "c." + ClassesSchema.COL_START_DATE + COMMA_SEP +
+            "c." + ClassesSchema.COL_END_DATE + COMMA_SEP +
+            "s." + SubjectsSchema.COL_NAME + COMMA_SEP +
+            "s." + SubjectsSchema.COL_ABBREVIATION + COMMA_SEP +
+            "s." + SubjectsSchema.COL_COLOR_ID +
+            FROM_SOURCE_ROWS
+
+    /**
+     * An SQLite statement which writes the rows for all class times, used when the table is first
+     * created.
+     *
+     * @see co.timetableapp.data.migration.Migrations
+     */
+    internal const val SQL_INSERT_ALL = INSERT_ROWS
+
+    /**
+     * An SQLite statement selecting the ids of class times which should have a row in the table
+     * but don't.
+     *
+     * @see co.timetableapp.data.IntegrityScanner
+     */
+    internal const val SQL_SELECT_MISSING_IDS = "SELECT ct." + ClassTimesSchema._ID +
+            FROM_SOURCE_ROWS +
+            " LEFT JOIN " + TABLE_NAME + " cs ON cs." + _ID + " = ct." + ClassTimesSchema._ID +
+            " WHERE cs." + _ID + " IS NULL"
+
+    /**
+     * An SQLite statement which writes the rows missing for the class times selected by
+     * [SQL_SELECT_MISSING_IDS].
+     *
+     * @see co.timetableapp.data.IntegrityScanner
+     */
+    internal const val SQL_INSERT_MISSING = INSERT_ROWS +
+            " WHERE ct." + ClassTimesSchema._ID + " IN (" + SQL_SELECT_MISSING_IDS + ")"
+
+    // The triggers below keep the table up to date. Rows are written again from the source tables
+    // when a row they were read from is inserted or updated, and deleted with the rows they were
+    // read from.
+    //
+    // Existing rows are deleted before they are written again, instead of being replaced by
+    // INSERT OR REPLACE, since replaced rows don't fire the delete triggers of this table (see
+    // ClassOccurrencesSchema) and their old values would otherwise be lost.
+
+    internal const val SQL_CREATE_TRIGGER_INSERT_CLASS_TIME = "CREATE TRIGGER IF NOT EXISTS " +
+            ClassTimesSchema.TABLE_NAME + "_insert_schedule AFTER INSERT ON " +
+            ClassTimesSchema.TABLE_NAME + " BEGIN " +
+            "DELETE FROM " + TABLE_NAME + " WHERE " + _ID + " = NEW." + ClassTimesSchema._ID +
+            "; " +
+            INSERT_ROWS + " WHERE ct." + ClassTimesSchema._ID + " = NEW." + ClassTimesSchema._ID +
+            "; END"
+
+    internal const val SQL_CREATE_TRIGGER_UPDATE_CLASS_TIME = "CREATE TRIGGER IF NOT EXISTS " +
+            ClassTimesSchema.TABLE_NAME + "_update_schedule AFTER UPDATE ON " +
+            ClassTimesSchema.TABLE_NAME + " BEGIN " +
+            "DELETE FROM " + TABLE_NAME + " WHERE " + _ID + " = OLD." + ClassTimesSchema._ID +
+            "; " +
+            INSERT_ROWS + " WHERE ct." + ClassTimesSchema._ID + " = NEW." + ClassTimesSchema._ID +
+            "; END"
+
+    internal const val SQL_CREATE_TRIGGER_DELETE_CLASS_TIME = "CREATE TRIGGER IF NOT EXISTS " +
+            ClassTimesSchema.TABLE_NAME + "_delete_schedule AFTER DELETE ON " +
+            ClassTimesSchema.TABLE_NAME + " BEGIN " +
+            "DELETE FROM " + TABLE_NAME + " WHERE " + _ID + " = OLD." + ClassTimesSchema._ID +
+            "; END"
+
+    internal const val SQL_CREATE_TRIGGER_INSERT_CLASS_DETAIL = "CREATE TRIGGER IF NOT EXISTS " +
+            ClassDetailsSchema.TABLE_NAME + "_insert_schedule AFTER INSERT ON " +
+            ClassDetailsSchema.TABLE_NAME + " BEGIN " +
+            "DELETE FROM " + TABLE_NAME + " WHERE " + COL_CLASS_DETAIL_ID + " = NEW." +
+            ClassDetailsSchema._ID + "; " +
+            INSERT_ROWS + " WHERE cd." + ClassDetailsSchema._ID + " = NEW." +
+            ClassDetailsSchema._ID +
+            "; END"
+
+    internal const val SQL_CREATE_TRIGGER_UPDATE_CLASS_DETAIL = "CREATE TRIGGER IF NOT EXISTS " +
+            ClassDetailsSchema.TABLE_NAME + "_update_schedule AFTER UPDATE ON " +
+            ClassDetailsSchema.TABLE_NAME + " BEGIN " +
+            "DELETE FROM " + TABLE_NAME + " WHERE " + COL_CLASS_DETAIL_ID + " = OLD." +
+            ClassDetailsSchema._ID + "; " +
+            INSERT_ROWS + " WHERE cd." + ClassDetailsSchema._ID + " = NEW." +
+            ClassDetailsSchema._ID +
+            "; END"
+
+    internal const val SQL_CREATE_TRIGGER_DELETE_CLASS_DETAIL = "CREATE TRIGGER IF NOT EXISTS " +
+            ClassDetailsSchema.TABLE_NAME + "_delete_schedule AFTER DELETE ON " +
+            ClassDetailsSchema.TABLE_NAME + " BEGIN " +
+            "DELETE FROM " + TABLE_NAME + " WHERE " + COL_CLASS_DETAIL_ID + " = OLD." +
+            ClassDetailsSchema._ID +
+            "; END"
+
+    internal const val SQL_CREATE_TRIGGER_INSERT_CLASS = "CREATE TRIGGER IF NOT EXISTS " +
+            ClassesSchema.TABLE_NAME + "_insert_schedule AFTER INSERT ON " +
+            ClassesSchema.TABLE_NAME + " BEGIN " +
+            "DELETE FROM " + TABLE_NAME + " WHERE " + COL_CLASS_ID + " = NEW." +
+            ClassesSchema._ID + "; " +
+            INSERT_ROWS + " WHERE c." + ClassesSchema._ID + " = NEW." + ClassesSchema._ID +
+            "; END"
+
+    internal const val SQL_CREATE_TRIGGER_UPDATE_CLASS = "CREATE TRIGGER IF NOT EXISTS " +
+            ClassesSchema.TABLE_NAME + "_update_schedule AFTER UPDATE ON " +
+            ClassesSchema.TABLE_NAME + " BEGIN " +
+            "DELETE FROM " + TABLE_NAME + " WHERE " + COL_CLASS_ID + " = OLD." +
+            ClassesSchema._ID + "; " +
+            INSERT_ROWS + " WHERE c." + ClassesSchema._ID + " = NEW." + ClassesSchema._ID +
+            "; END"
+
+    internal const val SQL_CREATE_TRIGGER_DELETE_CLASS = "CREATE TRIGGER IF NOT EXISTS " +
+            ClassesSchema.TABLE_NAME + "_delete_schedule AFTER DELETE ON " +
+            ClassesSchema.TABLE_NAME + " BEGIN " +
+            "DELETE FROM " + TABLE_NAME + " WHERE " + COL_CLASS_ID + " = OLD." +
+            ClassesSchema._ID +
+            "; END"
+
+    internal const val SQL_CREATE_TRIGGER_INSERT_SUBJECT = "CREATE TRIGGER IF NOT EXISTS " +
+            SubjectsSchema.TABLE_NAME + "_insert_schedule AFTER INSERT ON " +
+            SubjectsSchema.TABLE_NAME + " BEGIN " +
+            "DELETE FROM " + TABLE_NAME + " WHERE " + COL_SUBJECT_ID + " = NEW." +
+            SubjectsSchema._ID + "; " +
+            INSERT_ROWS + " WHERE s." + SubjectsSchema._ID + " = NEW." + SubjectsSchema._ID +
+            "; END"
+
+    internal const val SQL_CREATE_TRIGGER_UPDATE_SUBJECT = "CREATE TRIGGER IF NOT EXISTS " +
+            SubjectsSchema.TABLE_NAME + "_update_schedule AFTER UPDATE ON " +
+            SubjectsSchema.TABLE_NAME + " BEGIN " +
+            "DELETE FROM " + TABLE_NAME + " WHERE " + COL_SUBJECT_ID + " = OLD." +
+            SubjectsSchema._ID + "; " +
+            INSERT_ROWS + " WHERE s." + SubjectsSchema._ID + " = NEW." + SubjectsSchema._ID +
+            "; END"
+
+    internal const val SQL_CREATE_TRIGGER_DELETE_SUBJECT = "CREATE TRIGGER IF NOT EXISTS " +
+            SubjectsSchema.TABLE_NAME + "_delete_schedule AFTER DELETE ON " +
+            SubjectsSchema.TABLE_NAME + " BEGIN " +
+            "DELETE FROM " + TABLE_NAME + " WHERE " + COL_SUBJECT_ID + " = OLD." +
+            SubjectsSchema._ID +
+            "; END"
+
+}
@@ -32,10 +32,8 @@ object ClassTimesSchema : BaseColumns {
     const val COL_CLASS_DETAIL_ID = "class_detail_id"
     const val COL_DAY = "day"
     const val COL_WEEK_NUMBER = "week_number"
-    const val COL_START_TIME_HRS = "start_time_hrs"
-    const val COL_START_TIME_MINS = "start_time_mins"
-    const val COL_END_TIME_HRS = "end_time_hrs"
-    const val COL_END_TIME_MINS = "end_time_mins"
+    const val COL_START_TIME = "start_time"
+    const val COL_END_TIME = "end_time"
 
     /**
      * An SQLite statement which creates the 'class_times' table upon execution.
@@ -44,14 +42,44 @@ object ClassTimesSchema : BaseColumns {
      */
     internal const val SQL_CREATE = "CREATE TABLE " + TABLE_NAME + "( " +
             BaseColumns._ID + INTEGER_TYPE + PRIMARY_KEY_AUTOINCREMENT + COMMA_SEP +
-            COL_TIMETABLE_ID + INTEGER_TYPE + COMMA_SEP +
+            COL_TIMETABLE_ID + INTEGER_TYPE +
+                    REFERENCES + TimetablesSchema.TABLE_NAME + ON_DELETE_CASCADE + COMMA_SEP +
             COL_CLASS_DETAIL_ID + INTEGER_TYPE + COMMA_SEP +
             COL_DAY + INTEGER_TYPE + COMMA_SEP +
             COL_WEEK_NUMBER + INTEGER_TYPE + COMMA_SEP +
-            COL_START_TIME_HRS + INTEGER_TYPE + COMMA_SEP +
-            COL_START_TIME_MINS + INTEGER_TYPE + COMMA_SEP +
-            COL_END_TIME_HRS + INTEGER_TYPE + COMMA_SEP +
-            COL_END_TIME_MINS + INTEGER_TYPE +
+            COL_START_TIME + INTEGER_TYPE + COMMA_SEP +
+            COL_END_TIME + INTEGER_TYPE +
             " )"
 
+    /**
+     * An SQLite statement which creates an index for looking up class times for a particular day
+     * and week of a timetable.
+     *
+     * @see co.timetableapp.data.TimetableDbHelper
+     */
+    internal const val SQL_CREATE_INDEX_TIMETABLE_DAY_WEEK = "CREATE INDEX IF NOT EXISTS " +
+            TABLE_NAME + "_timetable_day_week_idx ON " + TABLE_NAME + "( " +
+            COL_TIMETABLE_ID + COMMA_SEP +
+            COL_DAY + COMMA_SEP +
+            COL_WEEK_NUMBER +
+            " )"
+
+    /**
+     * An SQLite statement which creates an index for looking up rows by their class detail id.
+     *
+     * @see co.timetableapp.data.TimetableDbHelper
+     */
+    internal const val SQL_CREATE_INDEX_CLASS_DETAIL_ID = "CREATE INDEX IF NOT EXISTS " +
+            TABLE_NAME + "_class_detail_id_idx ON " + TABLE_NAME + "( " +
+            COL_CLASS_DETAIL_ID +
+            " )"
+
+    // The columns below were used before version 9 of the database, when dates and times were
+    // stored across multiple columns. They are only used when upgrading the database.
+
+    internal const val COL_START_TIME_HRS = "start_time_hrs"
+    internal const val COL_START_TIME_MINS = "start_time_mins"
+    internal const val COL_END_TIME_HRS = "end_time_hrs"
+    internal const val COL_END_TIME_MINS = "end_time_mins"
+
 }
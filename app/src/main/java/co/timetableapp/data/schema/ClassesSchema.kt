@@ -31,12 +31,8 @@ object ClassesSchema : BaseColumns {
     const val COL_TIMETABLE_ID = "timetable_id"
     const val COL_SUBJECT_ID = "subject_id"
     const val COL_MODULE_NAME = "module_name"
-    const val COL_START_DATE_DAY_OF_MONTH = "start_date_day_of_month"
-    const val COL_START_DATE_MONTH = "start_date_month"
-    const val COL_START_DATE_YEAR = "start_date_year"
-    const val COL_END_DATE_DAY_OF_MONTH = "end_date_day_of_month"
-    const val COL_END_DATE_MONTH = "end_date_month"
-    const val COL_END_DATE_YEAR = "end_date_year"
+    const val COL_START_DATE = "start_date"
+    const val COL_END_DATE = "end_date"
 
     /**
      * An SQLite statement which creates the 'classes' table upon execution.
@@ -45,15 +41,43 @@ object ClassesSchema : BaseColumns {
      */
     internal const val SQL_CREATE = "CREATE TABLE " + TABLE_NAME + "( " +
             BaseColumns._ID + INTEGER_TYPE + PRIMARY_KEY_AUTOINCREMENT + COMMA_SEP +
-            COL_TIMETABLE_ID + INTEGER_TYPE + COMMA_SEP +
-            COL_SUBJECT_ID + INTEGER_TYPE + COMMA_SEP +
+            COL_TIMETABLE_ID + INTEGER_TYPE +
+                    REFERENCES + TimetablesSchema.TABLE_NAME + ON_DELETE_CASCADE + COMMA_SEP +
+            COL_SUBJECT_ID + INTEGER_TYPE +
+                    REFERENCES + SubjectsSchema.TABLE_NAME + ON_DELETE_CASCADE + COMMA_SEP +
             COL_MODULE_NAME + TEXT_TYPE + COMMA_SEP +
-            COL_START_DATE_DAY_OF_MONTH + INTEGER_TYPE + COMMA_SEP +
-            COL_START_DATE_MONTH + INTEGER_TYPE + COMMA_SEP +
-            COL_START_DATE_YEAR + INTEGER_TYPE + COMMA_SEP +
-            COL_END_DATE_DAY_OF_MONTH + INTEGER_TYPE + COMMA_SEP +
-            COL_END_DATE_MONTH + INTEGER_TYPE + COMMA_SEP +
-            COL_END_DATE_YEAR + INTEGER_TYPE +
+            COL_START_DATE + INTEGER_TYPE + COMMA_SEP +
+            COL_END_DATE + INTEGER_TYPE +
             " )"
 
+    /**
+     * An SQLite statement which creates an index for looking up rows belonging to a timetable.
+     *
+     * @see co.timetableapp.data.TimetableDbHelper
+     */
+    internal const val SQL_CREATE_INDEX_TIMETABLE_ID = "CREATE INDEX IF NOT EXISTS " +
+            TABLE_NAME + "_timetable_id_idx ON " + TABLE_NAME + "( " +
+            COL_TIMETABLE_ID +
+            " )"
+
+    /**
+     * An SQLite statement which creates an index for looking up rows by their subject id.
+     *
+     * @see co.timetableapp.data.TimetableDbHelper
+     */
+    internal const val SQL_CREATE_INDEX_SUBJECT_ID = "CREATE INDEX IF NOT EXISTS " +
+            TABLE_NAME + "_subject_id_idx ON " + TABLE_NAME + "( " +
+            COL_SUBJECT_ID +
+            " )"
+
+    // The columns below were used before version 9 of the database, when dates and times were
+    // stored across multiple columns. They are only used when upgrading the database.
+
+    internal const val COL_START_DATE_DAY_OF_MONTH = "start_date_day_of_month"
+    internal const val COL_START_DATE_MONTH = "start_date_month"
+    internal const val COL_START_DATE_YEAR = "start_date_year"
+    internal const val COL_END_DATE_DAY_OF_MONTH = "end_date_day_of_month"
+    internal const val COL_END_DATE_MONTH = "end_date_month"
+    internal const val COL_END_DATE_YEAR = "end_date_year"
+
 }
@@ -31,16 +31,10 @@ object EventsSchema : BaseColumns {
     const val COL_TIMETABLE_ID = "timetable_id"
     const val COL_TITLE = "title"
     const val COL_DETAIL = "detail"
-    const val COL_START_DATE_DAY_OF_MONTH = "start_date_day_of_month"
-    const val COL_START_DATE_MONTH = "start_date_month"
-    const val COL_START_DATE_YEAR = "start_date_year"
-    const val COL_START_TIME_HRS = "start_time_hrs"
-    const val COL_START_TIME_MINS = "start_time_mins"
-    const val COL_END_DATE_DAY_OF_MONTH = "end_date_day_of_month"
-    const val COL_END_DATE_MONTH = "end_date_month"
-    const val COL_END_DATE_YEAR = "end_date_year"
-    const val COL_END_TIME_HRS = "end_time_hrs"
-    const val COL_END_TIME_MINS = "end_time_mins"
+    const val COL_START_DATE = "start_date"
+    const val COL_START_TIME = "start_time"
+    const val COL_END_DATE = "end_date"
+    const val COL_END_TIME = "end_time"
     const val COL_LOCATION = "location"
     const val COL_RELATED_SUBJECT_ID = "related_subject_id"
 
@@ -51,21 +45,42 @@ object EventsSchema : BaseColumns {
      */
     internal const val SQL_CREATE = "CREATE TABLE " + TABLE_NAME + "( " +
             BaseColumns._ID + INTEGER_TYPE + PRIMARY_KEY_AUTOINCREMENT + COMMA_SEP +
-            COL_TIMETABLE_ID + INTEGER_TYPE + COMMA_SEP +
+            COL_TIMETABLE_ID + INTEGER_TYPE +
+                    REFERENCES + TimetablesSchema.TABLE_NAME + ON_DELETE_CASCADE + COMMA_SEP +
             COL_TITLE + TEXT_TYPE + COMMA_SEP +
             COL_DETAIL + TEXT_TYPE + COMMA_SEP +
-            COL_START_DATE_DAY_OF_MONTH + INTEGER_TYPE + COMMA_SEP +
-            COL_START_DATE_MONTH + INTEGER_TYPE + COMMA_SEP +
-            COL_START_DATE_YEAR + INTEGER_TYPE + COMMA_SEP +
-            COL_START_TIME_HRS + INTEGER_TYPE + COMMA_SEP +
-            COL_START_TIME_MINS + INTEGER_TYPE + COMMA_SEP +
-            COL_END_DATE_DAY_OF_MONTH + INTEGER_TYPE + COMMA_SEP +
-            COL_END_DATE_MONTH + INTEGER_TYPE + COMMA_SEP +
-            COL_END_DATE_YEAR + INTEGER_TYPE + COMMA_SEP +
-            COL_END_TIME_HRS + INTEGER_TYPE + COMMA_SEP +
-            COL_END_TIME_MINS + INTEGER_TYPE + COMMA_SEP +
+            COL_START_DATE + INTEGER_TYPE + COMMA_SEP +
+            COL_START_TIME + INTEGER_TYPE + COMMA_SEP +
+            COL_END_DATE + INTEGER_TYPE + COMMA_SEP +
+            COL_END_TIME + INTEGER_TYPE + COMMA_SEP +
             COL_LOCATION + TEXT_TYPE + COMMA_SEP +
             COL_RELATED_SUBJECT_ID + INTEGER_TYPE +
             " )"
 
+    /**
+     * An SQLite statement which creates an index for looking up rows belonging to a timetable, such
+     * as events starting on a particular date or range of dates.
+     *
+     * @see co.timetableapp.data.TimetableDbHelper
+     */
+    internal const val SQL_CREATE_INDEX_TIMETABLE_START_DATE = "CREATE INDEX IF NOT EXISTS " +
+            TABLE_NAME + "_timetable_start_date_idx ON " + TABLE_NAME + "( " +
+            COL_TIMETABLE_ID + COMMA_SEP +
+            COL_START_DATE +
+            " )"
+
+    // The columns below were used before version 9 of the database, when dates and times were
+    // stored across multiple columns. They are only used when upgrading the database.
+
+    internal const val COL_START_DATE_DAY_OF_MONTH = "start_date_day_of_month"
+    internal const val COL_START_DATE_MONTH = "start_date_month"
+    internal const val COL_START_DATE_YEAR = "start_date_year"
+    internal const val COL_START_TIME_HRS = "start_time_hrs"
+    internal const val COL_START_TIME_MINS = "start_time_mins"
+    internal const val COL_END_DATE_DAY_OF_MONTH = "end_date_day_of_month"
+    internal const val COL_END_DATE_MONTH = "end_date_month"
+    internal const val COL_END_DATE_YEAR = "end_date_year"
+    internal const val COL_END_TIME_HRS = "end_time_hrs"
+    internal const val COL_END_TIME_MINS = "end_time_mins"
+
 }
@@ -31,11 +31,8 @@ object ExamsSchema : BaseColumns {
     const val COL_TIMETABLE_ID = "timetable_id"
     const val COL_SUBJECT_ID = "subject_id"
     const val COL_MODULE = "module"
-    const val COL_DATE_DAY_OF_MONTH = "date_day_of_month"
-    const val COL_DATE_MONTH = "date_month"
-    const val COL_DATE_YEAR = "date_year"
-    const val COL_START_TIME_HRS = "start_time_hrs"
-    const val COL_START_TIME_MINS = "start_time_mins"
+    const val COL_DATE = "date"
+    const val COL_START_TIME = "start_time"
     const val COL_DURATION = "duration"
     const val COL_SEAT = "seat"
     const val COL_ROOM = "room"
@@ -49,14 +46,13 @@ object ExamsSchema : BaseColumns {
      */
     internal const val SQL_CREATE = "CREATE TABLE " + TABLE_NAME + "( " +
             BaseColumns._ID + INTEGER_TYPE + PRIMARY_KEY_AUTOINCREMENT + COMMA_SEP +
-            COL_TIMETABLE_ID + INTEGER_TYPE + COMMA_SEP +
-            COL_SUBJECT_ID + INTEGER_TYPE + COMMA_SEP +
+            COL_TIMETABLE_ID + INTEGER_TYPE +
+                    REFERENCES + TimetablesSchema.TABLE_NAME + ON_DELETE_CASCADE + COMMA_SEP +
+            COL_SUBJECT_ID + INTEGER_TYPE +
+                    REFERENCES + SubjectsSchema.TABLE_NAME + ON_DELETE_CASCADE + COMMA_SEP +
             COL_MODULE + TEXT_TYPE + COMMA_SEP +
-            COL_DATE_DAY_OF_MONTH + INTEGER_TYPE + COMMA_SEP +
-            COL_DATE_MONTH + INTEGER_TYPE + COMMA_SEP +
-            COL_DATE_YEAR + INTEGER_TYPE + COMMA_SEP +
-            COL_START_TIME_HRS + INTEGER_TYPE + COMMA_SEP +
-            COL_START_TIME_MINS + INTEGER_TYPE + COMMA_SEP +
+            COL_DATE + INTEGER_TYPE + COMMA_SEP +
+            COL_START_TIME + INTEGER_TYPE + COMMA_SEP +
             COL_DURATION + INTEGER_TYPE + COMMA_SEP +
             COL_SEAT + TEXT_TYPE + COMMA_SEP +
             COL_ROOM + TEXT_TYPE + COMMA_SEP +
@@ -64,4 +60,35 @@ object ExamsSchema : BaseColumns {
             COL_NOTES + TEXT_TYPE +
             " )"
 
+    /**
+     * An SQLite statement which creates an index for looking up rows belonging to a timetable, such
+     * as exams on a particular date or range of dates.
+     *
+     * @see co.timetableapp.data.TimetableDbHelper
+     */
+    internal const val SQL_CREATE_INDEX_TIMETABLE_DATE = "CREATE INDEX IF NOT EXISTS " +
+            TABLE_NAME + "_timetable_date_idx ON " + TABLE_NAME + "( " +
+            COL_TIMETABLE_ID + COMMA_SEP +
+            COL_DATE +
+            " )"
+
+    /**
+     * An SQLite statement which creates an index for looking up rows by their subject id.
+     *
+     * @see co.timetableapp.data.TimetableDbHelper
+     */
+    internal const val SQL_CREATE_INDEX_SUBJECT_ID = "CREATE INDEX IF NOT EXISTS " +
+            TABLE_NAME + "_subject_id_idx ON " + TABLE_NAME + "( " +
+            COL_SUBJECT_ID +
+            " )"
+
+    // The columns below were used before version 9 of the database, when dates and times were
+    // stored across multiple columns. They are only used when upgrading the database.
+
+    internal const val COL_DATE_DAY_OF_MONTH = "date_day_of_month"
+    internal const val COL_DATE_MONTH = "date_month"
+    internal const val COL_DATE_YEAR = "date_year"
+    internal const val COL_START_TIME_HRS = "start_time_hrs"
+    internal const val COL_START_TIME_MINS = "start_time_mins"
+
 }
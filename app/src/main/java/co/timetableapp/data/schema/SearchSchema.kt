@@ -0,0 +1,221 @@
+/*
+ * Copyright 2017 Farbod Salamat-Zadeh
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package co.timetableapp.data.schema
+
+/**
+ * The schema for the 'search_index' table, containing constants for the column names and SQLite
+ * statements for creating and maintaining it.
+ *
+ * This is a full-text search (FTS4) table with a row for each assignment, exam, event, subject and
+ * class detail, containing the text that can be searched for. Rows are written by triggers on those
+ * tables, and never by the app itself.
+ *
+ * The docid of each row identifies the item it belongs to, calculated from the item's type and id
+ * (see [docIdOf]). The table only contains text, so that the words being searched for can't match
+ * anything else, such as ids. The timetable of a row is read from its item instead (see
+ * [sqlTimetableIdOf]).
+ *
+ * @see co.timetableapp.data.handler.SearchIndex
+ */
+object SearchSchema {
+
+    const val TABLE_NAME = "search_index"
+
+    /**
+     * The id of each row of an FTS table. This is an alias of the 'rowid'.
+     */
+    const val COL_DOC_ID = "docid"
+
+    /**
+     * The name or title of the item. Matches in this column rank higher than those in
+     * [COL_CONTENT].
+     */
+    const val COL_TITLE = "title"
+
+    /**
+     * Any other text of the item, such as notes and locations.
+     */
+    const val COL_CONTENT = "content"
+
+    const val TYPE_ASSIGNMENT = 0
+    const val TYPE_EXAM = 1
+    const val TYPE_EVENT = 2
+    const val TYPE_SUBJECT = 3
+    const val TYPE_CLASS_DETAIL = 4
+
+    /**
+     * The number that item ids are multiplied by in docids. This is larger than the number of item
+     * types, leaving room for more types to be indexed without changing the docids of other items.
+     */
+    private const val DOC_ID_MULTIPLIER = 8
+
+    /**
+     * An SQLite statement which creates the 'search_index' table upon execution.
+     *
+     * @see co.timetableapp.data.TimetableDbHelper
+     */
+    internal const val SQL_CREATE = "CREATE VIRTUAL TABLE " + TABLE_NAME + " USING fts4(" +
+            COL_TITLE + COMMA_SEP +
+            COL_CONTENT +
+            ")"
+
+    /**
+     * The tables being indexed, and how their rows are written to the 'search_index' table.
+     */
+    private val SOURCES = listOf(
+            Source(TYPE_ASSIGNMENT,
+                    AssignmentsSchema.TABLE_NAME,
+                    AssignmentsSchema.COL_TIMETABLE_ID,
+                    AssignmentsSchema.COL_TITLE,
+                    AssignmentsSchema.COL_DETAIL),
+            Source(TYPE_EXAM,
+                    ExamsSchema.TABLE_NAME,
+                    ExamsSchema.COL_TIMETABLE_ID,
+                    ExamsSchema.COL_MODULE,
+                    ExamsSchema.COL_NOTES),
+            Source(TYPE_EVENT,
+                    EventsSchema.TABLE_NAME,
+                    EventsSchema.COL_TIMETABLE_ID,
+                    EventsSchema.COL_TITLE,
+                    EventsSchema.COL_DETAIL, EventsSchema.COL_LOCATION),
+            Source(TYPE_SUBJECT,
+                    SubjectsSchema.TABLE_NAME,
+                    SubjectsSchema.COL_TIMETABLE_ID,
+                    SubjectsSchema.COL_NAME),
+            Source(TYPE_CLASS_DETAIL,
+                    ClassDetailsSchema.TABLE_NAME,
+                    null,
+                    null,
+                    ClassDetailsSchema.COL_TEACHER,
+                    ClassDetailsSchema.COL_ROOM,
+                    ClassDetailsSchema.COL_BUILDING))
+
+    /**
+     * SQLite statements which add rows for all existing items to the 'search_index' table, used
+     * when the table is first created.
+     *
+     * @see co.timetableapp.data.migration.Migrations
+     */
+    @JvmField
+    val SQL_INSERT_ALL = SOURCES.map { it.sqlInsertAll }
+
+    /**
+     * SQLite statements which create the triggers keeping the 'search_index' table up to date with
+     * the items being indexed.
+     *
+     * @see co.timetableapp.data.TimetableDbHelper
+     */
+    @JvmField
+    val SQL_CREATE_TRIGGERS = SOURCES.flatMap { it.sqlCreateTriggers }
+
+    /**
+     * @return  an SQLite expression for the id of the timetable that the item of the row with the
+     *          docid [docIdSql] belongs to, looked up from the item's table by its primary key
+     */
+    @JvmStatic
+    fun sqlTimetableIdOf(docIdSql: String) = "CASE $docIdSql % $DOC_ID_MULTIPLIER " +
+            SOURCES.joinToString(" ") { it.sqlTimetableIdWhen(docIdSql) } + " END"
+
+    /**
+     * @return the docid of the row for the item of the [type] and with the [itemId]
+     */
+    @JvmStatic
+    fun docIdOf(type: Int, itemId: Int) = itemId.toLong() * DOC_ID_MULTIPLIER + type
+
+    /**
+     * @return the type of item which the row with the [docId] belongs to
+     */
+    @JvmStatic
+    fun typeOf(docId: Long) = (docId % DOC_ID_MULTIPLIER).toInt()
+
+    /**
+     * @return the id of the item which the row with the [docId] belongs to
+     */
+    @JvmStatic
+    fun itemIdOf(docId: Long) = (docId / DOC_ID_MULTIPLIER).toInt()
+
+    /**
+     * A table whose rows are indexed.
+     *
+     * @property timetableIdCol the column for the timetable id of each row, or null if the table
+     *                          has no timetable id, in which case it is read from the class
+     * @property titleCol       the column written to [COL_TITLE], or null if there is none
+     * @property contentCols    the columns combined and written to [COL_CONTENT]
+     */
+    private class Source(
+            private val type: Int,
+            private val tableName: String,
+            private val timetableIdCol: String?,
+            private val titleCol: String?,
+            private vararg val contentCols: String
+    ) {
+
+        private val columns = "$COL_DOC_ID, $COL_TITLE, $COL_CONTENT"
+
+        val sqlInsertAll = "INSERT INTO $TABLE_NAME($columns) " +
+                "SELECT ${valuesSql(tableName)} FROM $tableName"
+
+        val sqlCreateTriggers = listOf(
+                "CREATE TRIGGER IF NOT EXISTS ${tableName}_insert_search AFTER INSERT ON " +
+                        "$tableName BEGIN $insertNewSql; END",
+                "CREATE TRIGGER IF NOT EXISTS ${tableName}_update_search AFTER UPDATE ON " +
+                        "$tableName BEGIN $deleteOldSql; $insertNewSql; END",
+                "CREATE TRIGGER IF NOT EXISTS ${tableName}_delete_search AFTER DELETE ON " +
+                        "$tableName BEGIN $deleteOldSql; END")
+
+        private val insertNewSql: String
+            get() = "INSERT INTO $TABLE_NAME($columns) VALUES (${valuesSql("NEW")})"
+
+        private val deleteOldSql: String
+            get() = "DELETE FROM $TABLE_NAME WHERE $COL_DOC_ID = " +
+                    "OLD._id * $DOC_ID_MULTIPLIER + $type"
+
+        /**
+         * @return  a 'WHEN' clause of [sqlTimetableIdOf], selecting the timetable id of the item of
+         *          this type with the docid [docIdSql]
+         */
+        fun sqlTimetableIdWhen(docIdSql: String): String {
+            val itemIdSql = "$docIdSql / $DOC_ID_MULTIPLIER"
+
+            val selectSql = if (timetableIdCol == null) {
+                "SELECT ${ClassesSchema.COL_TIMETABLE_ID} FROM ${ClassesSchema.TABLE_NAME} " +
+                        "WHERE ${ClassesSchema._ID} = (" +
+                        "SELECT ${ClassDetailsSchema.COL_CLASS_ID} FROM $tableName " +
+                        "WHERE ${ClassDetailsSchema._ID} = $itemIdSql)"
+            } else {
+                "SELECT $timetableIdCol FROM $tableName WHERE _id = $itemIdSql"
+            }
+
+            return "WHEN $type THEN ($selectSql)"
+        }
+
+        /**
+         * @return  the values of a row in the 'search_index' table, using the columns of the row
+         *          named [row] from the indexed table
+         */
+        private fun valuesSql(row: String): String {
+            val titleSql = if (titleCol == null) "NULL" else "$row.$titleCol"
+
+            // Null columns are replaced so that they don't make the whole content null
+            val contentSql = contentCols.joinToString(" || ' ' || ") { "IFNULL($row.$it, '')" }
+
+            return "$row._id * $DOC_ID_MULTIPLIER + $type, $titleSql, " +
+                    if (contentSql.isEmpty()) "NULL" else contentSql
+        }
+    }
+
+}
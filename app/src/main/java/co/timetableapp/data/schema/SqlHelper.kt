@@ -20,3 +20,38 @@ const val PRIMARY_KEY_AUTOINCREMENT = " PRIMARY KEY AUTOINCREMENT"
 const val INTEGER_TYPE = " INTEGER"
 const val TEXT_TYPE = " TEXT"
 const val COMMA_SEP = ","
+
+/**
+ * Used after a column definition, followed by the name of the parent table, to declare the column
+ * as a foreign key referencing the primary key of that table.
+ */
+const val REFERENCES = " REFERENCES "
+
+/**
+ * Used after a foreign key declaration so that rows are deleted when the row they reference in
+ * the parent table is deleted.
+ */
+const val ON_DELETE_CASCADE = " ON DELETE CASCADE"
+
+/**
+ * Returns an SQLite expression which evaluates to the epoch day (as in
+ * [org.threeten.bp.LocalDate.toEpochDay]) of the date stored across the three given columns.
+ *
+ * This uses integer arithmetic only, so that it can be used with any version of SQLite when
+ * upgrading the database.
+ */
+fun epochDaySql(yearCol: String, monthCol: String, dayOfMonthCol: String): String {
+    // Years are counted from March so that the leap day is at the end of each year
+    val year = "($yearCol - ($monthCol <= 2))"
+    val era = "((CASE WHEN $year >= 0 THEN $year ELSE $year - 399 END) / 400)"
+    val yearOfEra = "($year - $era * 400)"
+    val dayOfYear = "((153 * (($monthCol + 9) % 12) + 2) / 5 + $dayOfMonthCol - 1)"
+    val dayOfEra = "($yearOfEra * 365 + $yearOfEra / 4 - $yearOfEra / 100 + $dayOfYear)"
+    return "($era * 146097 + $dayOfEra - 719468)"
+}
+
+/**
+ * Returns an SQLite expression which evaluates to the minute of the day of the time stored across
+ * the two given columns.
+ */
+fun minuteOfDaySql(hoursCol: String, minutesCol: String) = "($hoursCol * 60 + $minutesCol)"
@@ -40,10 +40,21 @@ object SubjectsSchema : BaseColumns {
      */
     internal const val SQL_CREATE = "CREATE TABLE " + TABLE_NAME + "( " +
             BaseColumns._ID + INTEGER_TYPE + PRIMARY_KEY_AUTOINCREMENT + COMMA_SEP +
-            COL_TIMETABLE_ID + INTEGER_TYPE + COMMA_SEP +
+            COL_TIMETABLE_ID + INTEGER_TYPE +
+                    REFERENCES + TimetablesSchema.TABLE_NAME + ON_DELETE_CASCADE + COMMA_SEP +
             COL_NAME + TEXT_TYPE + COMMA_SEP +
             COL_ABBREVIATION + TEXT_TYPE + COMMA_SEP +
             COL_COLOR_ID + INTEGER_TYPE +
             " )"
 
+    /**
+     * An SQLite statement which creates an index for looking up rows belonging to a timetable.
+     *
+     * @see co.timetableapp.data.TimetableDbHelper
+     */
+    internal const val SQL_CREATE_INDEX_TIMETABLE_ID = "CREATE INDEX IF NOT EXISTS " +
+            TABLE_NAME + "_timetable_id_idx ON " + TABLE_NAME + "( " +
+            COL_TIMETABLE_ID +
+            " )"
+
 }
@@ -30,12 +30,8 @@ object TermsSchema : BaseColumns {
     const val _ID = BaseColumns._ID
     const val COL_TIMETABLE_ID = "timetable_id"
     const val COL_NAME = "name"
-    const val COL_START_DATE_DAY_OF_MONTH = "start_date_day_of_month"
-    const val COL_START_DATE_MONTH = "start_date_month"
-    const val COL_START_DATE_YEAR = "start_date_year"
-    const val COL_END_DATE_DAY_OF_MONTH = "end_date_day_of_month"
-    const val COL_END_DATE_MONTH = "end_date_month"
-    const val COL_END_DATE_YEAR = "end_date_year"
+    const val COL_START_DATE = "start_date"
+    const val COL_END_DATE = "end_date"
 
     /**
      * An SQLite statement which creates the 'terms' table upon execution.
@@ -46,12 +42,28 @@ object TermsSchema : BaseColumns {
             BaseColumns._ID + INTEGER_TYPE + PRIMARY_KEY_AUTOINCREMENT + COMMA_SEP +
             COL_TIMETABLE_ID + INTEGER_TYPE + COMMA_SEP +
             COL_NAME + TEXT_TYPE + COMMA_SEP +
-            COL_START_DATE_DAY_OF_MONTH + INTEGER_TYPE + COMMA_SEP +
-            COL_START_DATE_MONTH + INTEGER_TYPE + COMMA_SEP +
-            COL_START_DATE_YEAR + INTEGER_TYPE + COMMA_SEP +
-            COL_END_DATE_DAY_OF_MONTH + INTEGER_TYPE + COMMA_SEP +
-            COL_END_DATE_MONTH + INTEGER_TYPE + COMMA_SEP +
-            COL_END_DATE_YEAR + INTEGER_TYPE +
+            COL_START_DATE + INTEGER_TYPE + COMMA_SEP +
+            COL_END_DATE + INTEGER_TYPE +
             " )"
 
+    /**
+     * An SQLite statement which creates an index for looking up rows belonging to a timetable.
+     *
+     * @see co.timetableapp.data.TimetableDbHelper
+     */
+    internal const val SQL_CREATE_INDEX_TIMETABLE_ID = "CREATE INDEX IF NOT EXISTS " +
+            TABLE_NAME + "_timetable_id_idx ON " + TABLE_NAME + "( " +
+            COL_TIMETABLE_ID +
+            " )"
+
+    // The columns below were used before version 9 of the database, when dates and times were
+    // stored across multiple columns. They are only used when upgrading the database.
+
+    internal const val COL_START_DATE_DAY_OF_MONTH = "start_date_day_of_month"
+    internal const val COL_START_DATE_MONTH = "start_date_month"
+    internal const val COL_START_DATE_YEAR = "start_date_year"
+    internal const val COL_END_DATE_DAY_OF_MONTH = "end_date_day_of_month"
+    internal const val COL_END_DATE_MONTH = "end_date_month"
+    internal const val COL_END_DATE_YEAR = "end_date_year"
+
 }
@@ -29,12 +29,8 @@ object TimetablesSchema : BaseColumns {
     const val TABLE_NAME = "timetables"
     const val _ID = BaseColumns._ID
     const val COL_NAME = "name"
-    const val COL_START_DATE_DAY_OF_MONTH = "start_date_day_of_month"
-    const val COL_START_DATE_MONTH = "start_date_month"
-    const val COL_START_DATE_YEAR = "start_date_year"
-    const val COL_END_DATE_DAY_OF_MONTH = "end_date_day_of_month"
-    const val COL_END_DATE_MONTH = "end_date_month"
-    const val COL_END_DATE_YEAR = "end_date_year"
+    const val COL_START_DATE = "start_date"
+    const val COL_END_DATE = "end_date"
     const val COL_WEEK_ROTATIONS = "week_rotations"
 
     /**
@@ -45,13 +41,34 @@ object TimetablesSchema : BaseColumns {
     internal const val SQL_CREATE = "CREATE TABLE " + TABLE_NAME + "( " +
             BaseColumns._ID + INTEGER_TYPE + PRIMARY_KEY_AUTOINCREMENT + COMMA_SEP +
             COL_NAME + TEXT_TYPE + COMMA_SEP +
-            COL_START_DATE_DAY_OF_MONTH + INTEGER_TYPE + COMMA_SEP +
-            COL_START_DATE_MONTH + INTEGER_TYPE + COMMA_SEP +
-            COL_START_DATE_YEAR + INTEGER_TYPE + COMMA_SEP +
-            COL_END_DATE_DAY_OF_MONTH + INTEGER_TYPE + COMMA_SEP +
-            COL_END_DATE_MONTH + INTEGER_TYPE + COMMA_SEP +
-            COL_END_DATE_YEAR + INTEGER_TYPE + COMMA_SEP +
+            COL_START_DATE + INTEGER_TYPE + COMMA_SEP +
+            COL_END_DATE + INTEGER_TYPE + COMMA_SEP +
             COL_WEEK_ROTATIONS + INTEGER_TYPE +
             " )"
 
+    /**
+     * An SQLite statement which creates a trigger for deleting the terms of a timetable when it is
+     * deleted.
+     *
+     * A trigger is used instead of a foreign key in the 'terms' table because terms are written
+     * before the timetable they belong to when a new timetable is being created.
+     *
+     * @see co.timetableapp.data.TimetableDbHelper
+     */
+    internal const val SQL_CREATE_TRIGGER_DELETE_TERMS = "CREATE TRIGGER IF NOT EXISTS " +
+            TABLE_NAME + "_delete_terms AFTER DELETE ON " + TABLE_NAME + " BEGIN " +
+            "DELETE FROM " + TermsSchema.TABLE_NAME + " WHERE " +
+            TermsSchema.COL_TIMETABLE_ID + " = OLD." + _ID + "; " +
+            "END"
+
+    // The columns below were used before version 9 of the database, when dates and times were
+    // stored across multiple columns. They are only used when upgrading the database.
+
+    internal const val COL_START_DATE_DAY_OF_MONTH = "start_date_day_of_month"
+    internal const val COL_START_DATE_MONTH = "start_date_month"
+    internal const val COL_START_DATE_YEAR = "start_date_year"
+    internal const val COL_END_DATE_DAY_OF_MONTH = "end_date_day_of_month"
+    internal const val COL_END_DATE_MONTH = "end_date_month"
+    internal const val COL_END_DATE_YEAR = "end_date_year"
+
 }
@@ -24,6 +24,7 @@ import android.os.Parcelable
 import co.timetableapp.R
 import co.timetableapp.data.TimetableDbHelper
 import co.timetableapp.data.handler.DataNotFoundException
+import co.timetableapp.data.handler.RowMapper
 import co.timetableapp.data.schema.AssignmentsSchema
 import co.timetableapp.model.agenda.AgendaItem
 import co.timetableapp.model.home.HomeItem
@@ -49,7 +50,7 @@ data class Assignment(
         val title: String,
         val detail: String,
         val dueDate: LocalDate,
-        var completionProgress: Int
+        val completionProgress: Int
 ) : TimetableItem, AgendaItem, HomeItem {
 
     init {
@@ -61,27 +62,21 @@ data class Assignment(
     companion object {
 
         /**
-         * Constructs an [Assignment] using column values from the cursor provided
+         * Constructs an [Assignment] using column values from the current row of the cursor.
+         * When constructing items from multiple rows, [rowMapper] should be used instead.
          *
          * @param cursor a query of the assignments table
          * @see [AssignmentsSchema]
          */
         @JvmStatic
-        fun from(cursor: Cursor): Assignment {
-            val dueDate = LocalDate.of(
-                    cursor.getInt(cursor.getColumnIndex(AssignmentsSchema.COL_DUE_DATE_YEAR)),
-                    cursor.getInt(cursor.getColumnIndex(AssignmentsSchema.COL_DUE_DATE_MONTH)),
-                    cursor.getInt(cursor.getColumnIndex(AssignmentsSchema.COL_DUE_DATE_DAY_OF_MONTH)))
+        fun from(cursor: Cursor) = rowMapper(cursor).mapRow()
 
-            return Assignment(
-                    cursor.getInt(cursor.getColumnIndex(AssignmentsSchema._ID)),
-                    cursor.getInt(cursor.getColumnIndex(AssignmentsSchema.COL_TIMETABLE_ID)),
-                    cursor.getInt(cursor.getColumnIndex(AssignmentsSchema.COL_CLASS_ID)),
-                    cursor.getString(cursor.getColumnIndex(AssignmentsSchema.COL_TITLE)),
-                    cursor.getString(cursor.getColumnIndex(AssignmentsSchema.COL_DETAIL)),
-                    dueDate,
-                    cursor.getInt(cursor.getColumnIndex(AssignmentsSchema.COL_COMPLETION_PROGRESS)))
-        }
+        /**
+         * @param cursor a query of the assignments table
+         * @return a [RowMapper] for constructing [Assignment]s from the rows of the [cursor]
+         */
+        @JvmStatic
+        fun rowMapper(cursor: Cursor): RowMapper<Assignment> = Mapper(cursor)
 
         /**
          * Creates an [Assignment] from the [assignmentId] and corresponding data in the database.
@@ -119,6 +114,34 @@ data class Assignment(
         }
     }
 
+    /**
+     * Constructs [Assignment]s from rows of a cursor, finding the index of each column only once.
+     */
+    private class Mapper(cursor: Cursor) : RowMapper<Assignment>(cursor) {
+
+        private val idIndex = indexOf(AssignmentsSchema._ID)
+        private val timetableIdIndex = indexOf(AssignmentsSchema.COL_TIMETABLE_ID)
+        private val classIdIndex = indexOf(AssignmentsSchema.COL_CLASS_ID)
+        private val titleIndex = indexOf(AssignmentsSchema.COL_TITLE)
+        private val detailIndex = optionalIndexOf(AssignmentsSchema.COL_DETAIL)
+        private val dueDateIndex = indexOf(AssignmentsSchema.COL_DUE_DATE)
+        private val completionProgressIndex = indexOf(AssignmentsSchema.COL_COMPLETION_PROGRESS)
+
+        override fun mapRow(): Assignment {
+            val dueDate = LocalDate.ofEpochDay(cursor.getLong(dueDateIndex))
+
+            return Assignment(
+                    cursor.getInt(idIndex),
+                    cursor.getInt(timetableIdIndex),
+                    cursor.getInt(classIdIndex),
+                    cursor.getString(titleIndex),
+                    getStringOrEmpty(detailIndex),
+                    dueDate,
+                    cursor.getInt(completionProgressIndex))
+        }
+
+    }
+
     private constructor(source: Parcel) : this(
             source.readInt(),
             source.readInt(),
@@ -22,6 +22,8 @@ import android.os.Parcel
 import android.os.Parcelable
 import co.timetableapp.data.TimetableDbHelper
 import co.timetableapp.data.handler.DataNotFoundException
+import co.timetableapp.data.handler.ItemCache
+import co.timetableapp.data.handler.RowMapper
 import co.timetableapp.data.schema.ClassesSchema
 import org.threeten.bp.LocalDate
 
@@ -55,39 +57,35 @@ data class Class(
     companion object {
 
         /**
-         * Constructs a [Class] using column values from the cursor provided
+         * Constructs a [Class] using column values from the current row of the cursor.
+         * When constructing items from multiple rows, [rowMapper] should be used instead.
          *
          * @param cursor a query of the classes table
          * @see [ClassesSchema]
          */
         @JvmStatic
-        fun from(cursor: Cursor): Class {
-            val startDate = LocalDate.of(
-                    cursor.getInt(cursor.getColumnIndex(ClassesSchema.COL_START_DATE_YEAR)),
-                    cursor.getInt(cursor.getColumnIndex(ClassesSchema.COL_START_DATE_MONTH)),
-                    cursor.getInt(cursor.getColumnIndex(ClassesSchema.COL_START_DATE_DAY_OF_MONTH)))
-            val endDate = LocalDate.of(
-                    cursor.getInt(cursor.getColumnIndex(ClassesSchema.COL_END_DATE_YEAR)),
-                    cursor.getInt(cursor.getColumnIndex(ClassesSchema.COL_END_DATE_MONTH)),
-                    cursor.getInt(cursor.getColumnIndex(ClassesSchema.COL_END_DATE_DAY_OF_MONTH)))
-
-            return Class(cursor.getInt(cursor.getColumnIndex(ClassesSchema._ID)),
-                    cursor.getInt(cursor.getColumnIndex(ClassesSchema.COL_TIMETABLE_ID)),
-                    cursor.getInt(cursor.getColumnIndex(ClassesSchema.COL_SUBJECT_ID)),
-                    cursor.getString(cursor.getColumnIndex(ClassesSchema.COL_MODULE_NAME)),
-                    startDate,
-                    endDate)
-        }
+        fun from(cursor: Cursor) = rowMapper(cursor).mapRow()
+
+        /**
+         * @param cursor a query of the classes table
+         * @return a [RowMapper] for constructing [Class]s from the rows of the [cursor]
+         */
+        @JvmStatic
+        fun rowMapper(cursor: Cursor): RowMapper<Class> = Mapper(cursor)
 
         /**
          * Creates a [Class] from the [classId] and corresponding data in the database.
          *
          * @throws DataNotFoundException if the database query returns no results
          * @see from
+         * @see ItemCache
          */
         @JvmStatic
         @Throws(DataNotFoundException::class)
-        fun create(context: Context, classId: Int): Class {
+        fun create(context: Context, classId: Int): Class =
+                ItemCache.get(ClassesSchema.TABLE_NAME, classId) { load(context, classId) }
+
+        private fun load(context: Context, classId: Int): Class {
             val dbHelper = TimetableDbHelper.getInstance(context)
             val cursor = dbHelper.readableDatabase.query(
                     ClassesSchema.TABLE_NAME,
@@ -120,6 +118,32 @@ data class Class(
         }
     }
 
+    /**
+     * Constructs [Class]s from rows of a cursor, finding the index of each column only once.
+     */
+    private class Mapper(cursor: Cursor) : RowMapper<Class>(cursor) {
+
+        private val idIndex = indexOf(ClassesSchema._ID)
+        private val timetableIdIndex = indexOf(ClassesSchema.COL_TIMETABLE_ID)
+        private val subjectIdIndex = indexOf(ClassesSchema.COL_SUBJECT_ID)
+        private val moduleNameIndex = indexOf(ClassesSchema.COL_MODULE_NAME)
+        private val startDateIndex = indexOf(ClassesSchema.COL_START_DATE)
+        private val endDateIndex = indexOf(ClassesSchema.COL_END_DATE)
+
+        override fun mapRow(): Class {
+            val startDate = LocalDate.ofEpochDay(cursor.getLong(startDateIndex))
+            val endDate = LocalDate.ofEpochDay(cursor.getLong(endDateIndex))
+
+            return Class(cursor.getInt(idIndex),
+                    cursor.getInt(timetableIdIndex),
+                    cursor.getInt(subjectIdIndex),
+                    cursor.getString(moduleNameIndex),
+                    startDate,
+                    endDate)
+        }
+
+    }
+
     private constructor(source: Parcel) : this(
             source.readInt(),
             source.readInt(),
@@ -22,6 +22,8 @@ import android.os.Parcel
 import android.os.Parcelable
 import co.timetableapp.data.TimetableDbHelper
 import co.timetableapp.data.handler.DataNotFoundException
+import co.timetableapp.data.handler.ItemCache
+import co.timetableapp.data.handler.RowMapper
 import co.timetableapp.data.schema.ClassDetailsSchema
 
 /**
@@ -49,30 +51,37 @@ data class ClassDetail(
     companion object {
 
         /**
-         * Constructs a [ClassDetail] using column values from the cursor provided
+         * Constructs a [ClassDetail] using column values from the current row of the cursor.
+         * When constructing items from multiple rows, [rowMapper] should be used instead.
          *
          * @param cursor a query of the class details table
          * @see [ClassDetailsSchema]
          */
         @JvmStatic
-        fun from(cursor: Cursor): ClassDetail {
-            return ClassDetail(
-                    cursor.getInt(cursor.getColumnIndex(ClassDetailsSchema._ID)),
-                    cursor.getInt(cursor.getColumnIndex(ClassDetailsSchema.COL_CLASS_ID)),
-                    cursor.getString(cursor.getColumnIndex(ClassDetailsSchema.COL_ROOM)),
-                    cursor.getString(cursor.getColumnIndex(ClassDetailsSchema.COL_BUILDING)),
-                    cursor.getString(cursor.getColumnIndex(ClassDetailsSchema.COL_TEACHER)))
-        }
+        fun from(cursor: Cursor) = rowMapper(cursor).mapRow()
+
+        /**
+         * @param cursor a query of the class details table
+         * @return a [RowMapper] for constructing [ClassDetail]s from the rows of the [cursor]
+         */
+        @JvmStatic
+        fun rowMapper(cursor: Cursor): RowMapper<ClassDetail> = Mapper(cursor)
 
         /**
          * Creates a [ClassDetail] from the [classDetailId] and corresponding data in the database.
          *
          * @throws DataNotFoundException if the database query returns no results
          * @see from
+         * @see ItemCache
          */
         @JvmStatic
         @Throws(DataNotFoundException::class)
-        fun create(context: Context, classDetailId: Int): ClassDetail {
+        fun create(context: Context, classDetailId: Int): ClassDetail =
+                ItemCache.get(ClassDetailsSchema.TABLE_NAME, classDetailId) {
+                    load(context, classDetailId)
+                }
+
+        private fun load(context: Context, classDetailId: Int): ClassDetail {
             val db = TimetableDbHelper.getInstance(context).readableDatabase
             val cursor = db.query(
                     ClassDetailsSchema.TABLE_NAME,
@@ -100,6 +109,28 @@ data class ClassDetail(
         }
     }
 
+    /**
+     * Constructs [ClassDetail]s from rows of a cursor, finding the index of each column only once.
+     */
+    private class Mapper(cursor: Cursor) : RowMapper<ClassDetail>(cursor) {
+
+        private val idIndex = indexOf(ClassDetailsSchema._ID)
+        private val classIdIndex = indexOf(ClassDetailsSchema.COL_CLASS_ID)
+        private val roomIndex = indexOf(ClassDetailsSchema.COL_ROOM)
+        private val buildingIndex = indexOf(ClassDetailsSchema.COL_BUILDING)
+        private val teacherIndex = indexOf(ClassDetailsSchema.COL_TEACHER)
+
+        override fun mapRow(): ClassDetail {
+            return ClassDetail(
+                    cursor.getInt(idIndex),
+                    cursor.getInt(classIdIndex),
+                    cursor.getString(roomIndex),
+                    cursor.getString(buildingIndex),
+                    cursor.getString(teacherIndex))
+        }
+
+    }
+
     private constructor(source: Parcel) : this(
             source.readInt(),
             source.readInt(),
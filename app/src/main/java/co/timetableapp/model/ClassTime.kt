@@ -25,10 +25,10 @@ import co.timetableapp.R
 import co.timetableapp.TimetableApplication
 import co.timetableapp.data.TimetableDbHelper
 import co.timetableapp.data.handler.DataNotFoundException
+import co.timetableapp.data.handler.ItemCache
+import co.timetableapp.data.handler.RowMapper
 import co.timetableapp.data.schema.ClassTimesSchema
-import co.timetableapp.model.home.HomeItem
-import co.timetableapp.model.home.HomeItemProperties
-import co.timetableapp.ui.home.HomeDataHelper
+import co.timetableapp.util.DateUtils
 import co.timetableapp.util.PrefUtils
 import org.threeten.bp.DayOfWeek
 import org.threeten.bp.LocalTime
@@ -61,7 +61,7 @@ data class ClassTime(
         val weekNumber: Int,
         val startTime: LocalTime,
         val endTime: LocalTime
-) : TimetableItem, HomeItem, Comparable<ClassTime> {
+) : TimetableItem, Comparable<ClassTime> {
 
     init {
         if (startTime.isAfter(endTime)) {
@@ -72,43 +72,37 @@ data class ClassTime(
     companion object {
 
         /**
-         * Constructs a [ClassTime] using column values from the cursor provided
+         * Constructs a [ClassTime] using column values from the current row of the cursor.
+         * When constructing items from multiple rows, [rowMapper] should be used instead.
          *
          * @param cursor a query of the class times table
          * @see [ClassTimesSchema]
          */
         @JvmStatic
-        fun from(cursor: Cursor): ClassTime {
-            val dayOfWeek =
-                    DayOfWeek.of(cursor.getInt(cursor.getColumnIndex(ClassTimesSchema.COL_DAY)))
+        fun from(cursor: Cursor) = rowMapper(cursor).mapRow()
 
-            val startTime = LocalTime.of(
-                    cursor.getInt(cursor.getColumnIndex(ClassTimesSchema.COL_START_TIME_HRS)),
-                    cursor.getInt(cursor.getColumnIndex(ClassTimesSchema.COL_START_TIME_MINS)))
-
-            val endTime = LocalTime.of(
-                    cursor.getInt(cursor.getColumnIndex(ClassTimesSchema.COL_END_TIME_HRS)),
-                    cursor.getInt(cursor.getColumnIndex(ClassTimesSchema.COL_END_TIME_MINS)))
-
-            return ClassTime(
-                    cursor.getInt(cursor.getColumnIndex(ClassTimesSchema._ID)),
-                    cursor.getInt(cursor.getColumnIndex(ClassTimesSchema.COL_TIMETABLE_ID)),
-                    cursor.getInt(cursor.getColumnIndex(ClassTimesSchema.COL_CLASS_DETAIL_ID)),
-                    dayOfWeek,
-                    cursor.getInt(cursor.getColumnIndex(ClassTimesSchema.COL_WEEK_NUMBER)),
-                    startTime,
-                    endTime)
-        }
+        /**
+         * @param cursor a query of the class times table
+         * @return a [RowMapper] for constructing [ClassTime]s from the rows of the [cursor]
+         */
+        @JvmStatic
+        fun rowMapper(cursor: Cursor): RowMapper<ClassTime> = Mapper(cursor)
 
         /**
          * Creates a [ClassTime] from the [classTimeId] and corresponding data in the database.
          *
          * @throws DataNotFoundException if the database query returns no results
          * @see from
+         * @see ItemCache
          */
         @JvmStatic
         @Throws(DataNotFoundException::class)
-        fun create(context: Context, classTimeId: Int): ClassTime {
+        fun create(context: Context, classTimeId: Int): ClassTime =
+                ItemCache.get(ClassTimesSchema.TABLE_NAME, classTimeId) {
+                    load(context, classTimeId)
+                }
+
+        private fun load(context: Context, classTimeId: Int): ClassTime {
             val db = TimetableDbHelper.getInstance(context).readableDatabase
             val cursor = db.query(
                     ClassTimesSchema.TABLE_NAME,
@@ -161,6 +155,37 @@ data class ClassTime(
         }
     }
 
+    /**
+     * Constructs [ClassTime]s from rows of a cursor, finding the index of each column only once.
+     */
+    private class Mapper(cursor: Cursor) : RowMapper<ClassTime>(cursor) {
+
+        private val idIndex = indexOf(ClassTimesSchema._ID)
+        private val timetableIdIndex = indexOf(ClassTimesSchema.COL_TIMETABLE_ID)
+        private val classDetailIdIndex = indexOf(ClassTimesSchema.COL_CLASS_DETAIL_ID)
+        private val dayIndex = indexOf(ClassTimesSchema.COL_DAY)
+        private val weekNumberIndex = indexOf(ClassTimesSchema.COL_WEEK_NUMBER)
+        private val startTimeIndex = indexOf(ClassTimesSchema.COL_START_TIME)
+        private val endTimeIndex = indexOf(ClassTimesSchema.COL_END_TIME)
+
+        override fun mapRow(): ClassTime {
+            val dayOfWeek = DayOfWeek.of(cursor.getInt(dayIndex))
+
+            val startTime = DateUtils.timeFromMinuteOfDay(cursor.getInt(startTimeIndex))
+            val endTime = DateUtils.timeFromMinuteOfDay(cursor.getInt(endTimeIndex))
+
+            return ClassTime(
+                    cursor.getInt(idIndex),
+                    cursor.getInt(timetableIdIndex),
+                    cursor.getInt(classDetailIdIndex),
+                    dayOfWeek,
+                    cursor.getInt(weekNumberIndex),
+                    startTime,
+                    endTime)
+        }
+
+    }
+
     /**
      * @return the string to be displayed indicating the week rotation (e.g. Week 1, Week C).
      *
@@ -168,8 +193,6 @@ data class ClassTime(
      */
     fun getWeekText(activity: Activity) = Companion.getWeekText(activity, weekNumber)
 
-    override fun getHomeItemProperties(activity: Activity) = HomeClassProperties(activity, this)
-
     override fun compareTo(other: ClassTime): Int {
         // Sort by day, then by time
         val dayComparison = day.compareTo(other.day)
@@ -228,64 +251,4 @@ data class ClassTime(
         }
     }
 
-    class HomeClassProperties(
-            private val activity: Activity,
-            private val classTime: ClassTime
-    ) : HomeItemProperties {
-
-        private val mClassDetail = ClassDetail.create(activity, classTime.classDetailId)
-        private val mClass: Class
-        private val mSubject: Subject
-
-        private val mDataHelper by lazy { HomeDataHelper(activity) }
-
-        init {
-            mClass = Class.create(activity, mClassDetail.classId)
-            mSubject = Subject.create(activity, mClass.subjectId)
-        }
-
-        override val title by lazy { mClass.makeName(mSubject) }
-
-        override val subtitle by lazy {
-            val classDetailBuilder = StringBuilder()
-            mClassDetail.formatLocationName()?.let {
-                classDetailBuilder.append(it)
-            }
-            if (mClassDetail.hasTeacher()) {
-                classDetailBuilder.append(" \u2022 ").append(mClassDetail.teacher)
-            }
-
-            if (classDetailBuilder.isEmpty()) {
-                null
-            } else {
-                classDetailBuilder.toString()
-            }
-        }
-
-        override val time = with(classTime) { "$startTime\n$endTime" }
-
-        override val extraText: String?
-            get() {
-                val classDetail = ClassDetail.create(activity, classTime.classDetailId)
-                val cls = Class.create(activity, classDetail.classId)
-
-                val classAssignments =
-                        mDataHelper.getAssignmentsToday().filter { it.classId == cls.id }
-
-                val numberDue = classAssignments.size
-
-                if (numberDue == 0) {
-                    return null
-                }
-
-                return activity.resources.getQuantityString(
-                        R.plurals.class_card_assignment_text,
-                        numberDue,
-                        numberDue)
-            }
-
-        override val color = Color(mSubject.colorId)
-
-    }
-
 }
@@ -24,10 +24,13 @@ import android.os.Parcelable
 import co.timetableapp.R
 import co.timetableapp.data.TimetableDbHelper
 import co.timetableapp.data.handler.DataNotFoundException
+import co.timetableapp.data.handler.ItemCache
+import co.timetableapp.data.handler.RowMapper
 import co.timetableapp.data.schema.EventsSchema
 import co.timetableapp.model.agenda.AgendaItem
 import co.timetableapp.model.home.HomeItem
 import co.timetableapp.model.home.HomeItemProperties
+import co.timetableapp.util.DateUtils
 import org.threeten.bp.LocalDate
 import org.threeten.bp.LocalDateTime
 import org.threeten.bp.LocalTime
@@ -61,55 +64,35 @@ data class Event(
     companion object {
 
         /**
-         * The default color to use when displaying events in lists.
-         * Note that the UI could be affected by the [relatedSubjectId].
-         */
-        @JvmField val DEFAULT_COLOR = Color(19) // blue-grey
-
-        /**
-         * Constructs an Event using column values from the cursor provided
+         * Constructs an [Event] using column values from the current row of the cursor.
+         * When constructing items from multiple rows, [rowMapper] should be used instead.
          *
          * @param cursor a query of the events table
          * @see [EventsSchema]
          */
         @JvmStatic
-        fun from(cursor: Cursor): Event {
-            val startDate = LocalDate.of(
-                    cursor.getInt(cursor.getColumnIndex(EventsSchema.COL_START_DATE_YEAR)),
-                    cursor.getInt(cursor.getColumnIndex(EventsSchema.COL_START_DATE_MONTH)),
-                    cursor.getInt(cursor.getColumnIndex(EventsSchema.COL_START_DATE_DAY_OF_MONTH)))
-            val startTime = LocalTime.of(
-                    cursor.getInt(cursor.getColumnIndex(EventsSchema.COL_START_TIME_HRS)),
-                    cursor.getInt(cursor.getColumnIndex(EventsSchema.COL_START_TIME_MINS)))
-
-            val endDate = LocalDate.of(
-                    cursor.getInt(cursor.getColumnIndex(EventsSchema.COL_END_DATE_YEAR)),
-                    cursor.getInt(cursor.getColumnIndex(EventsSchema.COL_END_DATE_MONTH)),
-                    cursor.getInt(cursor.getColumnIndex(EventsSchema.COL_END_DATE_DAY_OF_MONTH)))
-            val endTime = LocalTime.of(
-                    cursor.getInt(cursor.getColumnIndex(EventsSchema.COL_END_TIME_HRS)),
-                    cursor.getInt(cursor.getColumnIndex(EventsSchema.COL_END_TIME_MINS)))
+        fun from(cursor: Cursor) = rowMapper(cursor).mapRow()
 
-            return Event(
-                    cursor.getInt(cursor.getColumnIndex(EventsSchema._ID)),
-                    cursor.getInt(cursor.getColumnIndex(EventsSchema.COL_TIMETABLE_ID)),
-                    cursor.getString(cursor.getColumnIndex(EventsSchema.COL_TITLE)),
-                    cursor.getString(cursor.getColumnIndex(EventsSchema.COL_DETAIL)),
-                    LocalDateTime.of(startDate, startTime),
-                    LocalDateTime.of(endDate, endTime),
-                    cursor.getString(cursor.getColumnIndex(EventsSchema.COL_LOCATION)),
-                    cursor.getInt(cursor.getColumnIndex(EventsSchema.COL_RELATED_SUBJECT_ID)))
-        }
+        /**
+         * @param cursor a query of the events table
+         * @return a [RowMapper] for constructing [Event]s from the rows of the [cursor]
+         */
+        @JvmStatic
+        fun rowMapper(cursor: Cursor): RowMapper<Event> = Mapper(cursor)
 
         /**
          * Creates an [Event] from the [eventId] and corresponding data in the database.
          *
          * @throws DataNotFoundException if the database query returns no results
          * @see from
+         * @see ItemCache
          */
         @JvmStatic
         @Throws(DataNotFoundException::class)
-        fun create(context: Context, eventId: Int): Event {
+        fun create(context: Context, eventId: Int): Event =
+                ItemCache.get(EventsSchema.TABLE_NAME, eventId) { load(context, eventId) }
+
+        private fun load(context: Context, eventId: Int): Event {
             val db = TimetableDbHelper.getInstance(context).readableDatabase
             val cursor = db.query(
                     EventsSchema.TABLE_NAME,
@@ -137,6 +120,42 @@ data class Event(
         }
     }
 
+    /**
+     * Constructs [Event]s from rows of a cursor, finding the index of each column only once.
+     */
+    private class Mapper(cursor: Cursor) : RowMapper<Event>(cursor) {
+
+        private val idIndex = indexOf(EventsSchema._ID)
+        private val timetableIdIndex = indexOf(EventsSchema.COL_TIMETABLE_ID)
+        private val titleIndex = indexOf(EventsSchema.COL_TITLE)
+        private val detailIndex = optionalIndexOf(EventsSchema.COL_DETAIL)
+        private val startDateIndex = indexOf(EventsSchema.COL_START_DATE)
+        private val startTimeIndex = indexOf(EventsSchema.COL_START_TIME)
+        private val endDateIndex = indexOf(EventsSchema.COL_END_DATE)
+        private val endTimeIndex = indexOf(EventsSchema.COL_END_TIME)
+        private val locationIndex = indexOf(EventsSchema.COL_LOCATION)
+        private val relatedSubjectIdIndex = indexOf(EventsSchema.COL_RELATED_SUBJECT_ID)
+
+        override fun mapRow(): Event {
+            val startDate = LocalDate.ofEpochDay(cursor.getLong(startDateIndex))
+            val startTime = DateUtils.timeFromMinuteOfDay(cursor.getInt(startTimeIndex))
+
+            val endDate = LocalDate.ofEpochDay(cursor.getLong(endDateIndex))
+            val endTime = DateUtils.timeFromMinuteOfDay(cursor.getInt(endTimeIndex))
+
+            return Event(
+                    cursor.getInt(idIndex),
+                    cursor.getInt(timetableIdIndex),
+                    cursor.getString(titleIndex),
+                    getStringOrEmpty(detailIndex),
+                    LocalDateTime.of(startDate, startTime),
+                    LocalDateTime.of(endDate, endTime),
+                    cursor.getString(locationIndex),
+                    cursor.getInt(relatedSubjectIdIndex))
+        }
+
+    }
+
     private constructor(source: Parcel) : this(
             source.readInt(),
             source.readInt(),
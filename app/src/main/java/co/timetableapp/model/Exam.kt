@@ -24,10 +24,13 @@ import android.os.Parcelable
 import co.timetableapp.R
 import co.timetableapp.data.TimetableDbHelper
 import co.timetableapp.data.handler.DataNotFoundException
+import co.timetableapp.data.handler.ItemCache
+import co.timetableapp.data.handler.RowMapper
 import co.timetableapp.data.schema.ExamsSchema
 import co.timetableapp.model.agenda.AgendaItem
 import co.timetableapp.model.home.HomeItem
 import co.timetableapp.model.home.HomeItemProperties
+import co.timetableapp.util.DateUtils
 import org.threeten.bp.LocalDate
 import org.threeten.bp.LocalDateTime
 import org.threeten.bp.LocalTime
@@ -62,45 +65,35 @@ data class Exam(
     companion object {
 
         /**
-         * Constructs an [Exam] using column values from the cursor provided
+         * Constructs an [Exam] using column values from the current row of the cursor.
+         * When constructing items from multiple rows, [rowMapper] should be used instead.
          *
          * @param cursor a query of the exams table
          * @see [ExamsSchema]
          */
         @JvmStatic
-        fun from(cursor: Cursor): Exam {
-            val date = LocalDate.of(
-                    cursor.getInt(cursor.getColumnIndex(ExamsSchema.COL_DATE_YEAR)),
-                    cursor.getInt(cursor.getColumnIndex(ExamsSchema.COL_DATE_MONTH)),
-                    cursor.getInt(cursor.getColumnIndex(ExamsSchema.COL_DATE_DAY_OF_MONTH)))
-            val time = LocalTime.of(
-                    cursor.getInt(cursor.getColumnIndex(ExamsSchema.COL_START_TIME_HRS)),
-                    cursor.getInt(cursor.getColumnIndex(ExamsSchema.COL_START_TIME_MINS)))
-
-            val isResit = cursor.getInt(cursor.getColumnIndex(ExamsSchema.COL_IS_RESIT)) == 1
-
-            return Exam(cursor.getInt(cursor.getColumnIndex(ExamsSchema._ID)),
-                    cursor.getInt(cursor.getColumnIndex(ExamsSchema.COL_TIMETABLE_ID)),
-                    cursor.getInt(cursor.getColumnIndex(ExamsSchema.COL_SUBJECT_ID)),
-                    cursor.getString(cursor.getColumnIndex(ExamsSchema.COL_MODULE)),
-                    date,
-                    time,
-                    cursor.getInt(cursor.getColumnIndex(ExamsSchema.COL_DURATION)),
-                    cursor.getString(cursor.getColumnIndex(ExamsSchema.COL_SEAT)),
-                    cursor.getString(cursor.getColumnIndex(ExamsSchema.COL_ROOM)),
-                    isResit,
-                    cursor.getString(cursor.getColumnIndex(ExamsSchema.COL_NOTES)))
-        }
+        fun from(cursor: Cursor) = rowMapper(cursor).mapRow()
+
+        /**
+         * @param cursor a query of the exams table
+         * @return a [RowMapper] for constructing [Exam]s from the rows of the [cursor]
+         */
+        @JvmStatic
+        fun rowMapper(cursor: Cursor): RowMapper<Exam> = Mapper(cursor)
 
         /**
          * Creates an [Exam] from the [examId] and corresponding data in the database.
          *
          * @throws DataNotFoundException if the database query returns no results
          * @see from
+         * @see ItemCache
          */
         @JvmStatic
         @Throws(DataNotFoundException::class)
-        fun create(context: Context, examId: Int): Exam {
+        fun create(context: Context, examId: Int): Exam =
+                ItemCache.get(ExamsSchema.TABLE_NAME, examId) { load(context, examId) }
+
+        private fun load(context: Context, examId: Int): Exam {
             val db = TimetableDbHelper.getInstance(context).readableDatabase
             val cursor = db.query(
                     ExamsSchema.TABLE_NAME,
@@ -128,6 +121,44 @@ data class Exam(
         }
     }
 
+    /**
+     * Constructs [Exam]s from rows of a cursor, finding the index of each column only once.
+     */
+    private class Mapper(cursor: Cursor) : RowMapper<Exam>(cursor) {
+
+        private val idIndex = indexOf(ExamsSchema._ID)
+        private val timetableIdIndex = indexOf(ExamsSchema.COL_TIMETABLE_ID)
+        private val subjectIdIndex = indexOf(ExamsSchema.COL_SUBJECT_ID)
+        private val moduleIndex = indexOf(ExamsSchema.COL_MODULE)
+        private val dateIndex = indexOf(ExamsSchema.COL_DATE)
+        private val startTimeIndex = indexOf(ExamsSchema.COL_START_TIME)
+        private val durationIndex = indexOf(ExamsSchema.COL_DURATION)
+        private val seatIndex = indexOf(ExamsSchema.COL_SEAT)
+        private val roomIndex = indexOf(ExamsSchema.COL_ROOM)
+        private val isResitIndex = indexOf(ExamsSchema.COL_IS_RESIT)
+        private val notesIndex = optionalIndexOf(ExamsSchema.COL_NOTES)
+
+        override fun mapRow(): Exam {
+            val date = LocalDate.ofEpochDay(cursor.getLong(dateIndex))
+            val time = DateUtils.timeFromMinuteOfDay(cursor.getInt(startTimeIndex))
+
+            val isResit = cursor.getInt(isResitIndex) == 1
+
+            return Exam(cursor.getInt(idIndex),
+                    cursor.getInt(timetableIdIndex),
+                    cursor.getInt(subjectIdIndex),
+                    cursor.getString(moduleIndex),
+                    date,
+                    time,
+                    cursor.getInt(durationIndex),
+                    cursor.getString(seatIndex),
+                    cursor.getString(roomIndex),
+                    isResit,
+                    getStringOrEmpty(notesIndex))
+        }
+
+    }
+
     private constructor(source: Parcel) : this(
             source.readInt(),
             source.readInt(),
@@ -0,0 +1,256 @@
+/*
+ * Copyright 2017 Farbod Salamat-Zadeh
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package co.timetableapp.model
+
+import android.app.Activity
+import android.content.Context
+import android.database.Cursor
+import co.timetableapp.R
+import co.timetableapp.data.TimetableDbHelper
+import co.timetableapp.data.handler.DataNotFoundException
+import co.timetableapp.data.handler.RowMapper
+import co.timetableapp.data.query.Query
+import co.timetableapp.data.schema.ClassScheduleSchema
+import co.timetableapp.model.home.HomeItem
+import co.timetableapp.model.home.HomeItemProperties
+import co.timetableapp.ui.home.HomeDataHelper
+import co.timetableapp.util.DateUtils
+import org.threeten.bp.DayOfWeek
+import org.threeten.bp.LocalDate
+
+/**
+ * A [ClassTime] together with the [ClassDetail], [Class] and [Subject] it belongs to.
+ *
+ * These are read from a single row of the class schedule table, so displaying a class time only
+ * needs one query instead of one for each of the four items.
+ *
+ * @property classTime      the class time being displayed
+ * @property classDetail    the class detail of the [classTime]
+ * @property cls            the class of the [classDetail]
+ * @property subject        the subject of the [cls]
+ *
+ * @see ClassScheduleSchema
+ */
+data class ScheduleEntry(
+        val classTime: ClassTime,
+        val classDetail: ClassDetail,
+        val cls: Class,
+        val subject: Subject
+) : HomeItem {
+
+    companion object {
+
+        /**
+         * @param cursor a query of the class schedule table
+         * @return a [RowMapper] for constructing [ScheduleEntry]s from the rows of the [cursor]
+         */
+        @JvmStatic
+        fun rowMapper(cursor: Cursor): RowMapper<ScheduleEntry> = Mapper(cursor)
+
+        /**
+         * Creates a [ScheduleEntry] for the class time with the given [classTimeId].
+         *
+         * @throws DataNotFoundException if the class time, or any of the items it belongs to,
+         *                               could not be found
+         */
+        @JvmStatic
+        @Throws(DataNotFoundException::class)
+        fun create(context: Context, classTimeId: Int): ScheduleEntry {
+            val db = TimetableDbHelper.getInstance(context).readableDatabase
+            val cursor = db.query(
+                    ClassScheduleSchema.TABLE_NAME,
+                    null,
+                    "${ClassScheduleSchema._ID}=?",
+                    arrayOf(classTimeId.toString()),
+                    null, null, null)
+
+            if (cursor.count == 0) {
+                cursor.close()
+                throw DataNotFoundException(ClassTime::class.java, classTimeId)
+            }
+
+            cursor.moveToFirst()
+            val entry = rowMapper(cursor).mapRow()
+            cursor.close()
+            return entry
+        }
+
+        /**
+         * @return the entries for the rows of the class schedule table selected by the [query]
+         * @see co.timetableapp.util.ScheduleUtils
+         */
+        @JvmStatic
+        fun getEntries(context: Context, query: Query): List<ScheduleEntry> {
+            val db = TimetableDbHelper.getInstance(context).readableDatabase
+            val cursor = db.query(
+                    ClassScheduleSchema.TABLE_NAME,
+                    null,
+                    query.selection,
+                    query.selectionArgs,
+                    null, null,
+                    query.orderBy,
+                    query.limitClause)
+
+            val entries = ArrayList<ScheduleEntry>(cursor.count)
+            val rowMapper = rowMapper(cursor)
+            while (cursor.moveToNext()) {
+                entries.add(rowMapper.mapRow())
+            }
+            cursor.close()
+            return entries
+        }
+
+    }
+
+    /**
+     * Constructs [ScheduleEntry]s from rows of a cursor, finding the index of each column only
+     * once.
+     */
+    private class Mapper(cursor: Cursor) : RowMapper<ScheduleEntry>(cursor) {
+
+        private val idIndex = indexOf(ClassScheduleSchema._ID)
+        private val timetableIdIndex = indexOf(ClassScheduleSchema.COL_TIMETABLE_ID)
+        private val classDetailIdIndex = indexOf(ClassScheduleSchema.COL_CLASS_DETAIL_ID)
+        private val classIdIndex = indexOf(ClassScheduleSchema.COL_CLASS_ID)
+        private val subjectIdIndex = indexOf(ClassScheduleSchema.COL_SUBJECT_ID)
+        private val dayIndex = indexOf(ClassScheduleSchema.COL_DAY)
+        private val weekNumberIndex = indexOf(ClassScheduleSchema.COL_WEEK_NUMBER)
+        private val startTimeIndex = indexOf(ClassScheduleSchema.COL_START_TIME)
+        private val endTimeIndex = indexOf(ClassScheduleSchema.COL_END_TIME)
+        private val roomIndex = indexOf(ClassScheduleSchema.COL_ROOM)
+        private val buildingIndex = indexOf(ClassScheduleSchema.COL_BUILDING)
+        private val teacherIndex = indexOf(ClassScheduleSchema.COL_TEACHER)
+        private val moduleNameIndex = indexOf(ClassScheduleSchema.COL_MODULE_NAME)
+        private val classStartDateIndex = indexOf(ClassScheduleSchema.COL_CLASS_START_DATE)
+        private val classEndDateIndex = indexOf(ClassScheduleSchema.COL_CLASS_END_DATE)
+        private val subjectNameIndex = indexOf(ClassScheduleSchema.COL_SUBJECT_NAME)
+        private val subjectAbbreviationIndex =
+                indexOf(ClassScheduleSchema.COL_SUBJECT_ABBREVIATION)
+        private val colorIdIndex = indexOf(ClassScheduleSchema.COL_COLOR_ID)
+
+        override fun mapRow(): ScheduleEntry {
+            val timetableId = cursor.getInt(timetableIdIndex)
+            val classDetailId = cursor.getInt(classDetailIdIndex)
+            val classId = cursor.getInt(classIdIndex)
+            val subjectId = cursor.getInt(subjectIdIndex)
+
+            val classTime = ClassTime(
+                    cursor.getInt(idIndex),
+                    timetableId,
+                    classDetailId,
+                    DayOfWeek.of(cursor.getInt(dayIndex)),
+                    cursor.getInt(weekNumberIndex),
+                    DateUtils.timeFromMinuteOfDay(cursor.getInt(startTimeIndex)),
+                    DateUtils.timeFromMinuteOfDay(cursor.getInt(endTimeIndex)))
+
+            val classDetail = ClassDetail(
+                    classDetailId,
+                    classId,
+                    cursor.getString(roomIndex),
+                    cursor.getString(buildingIndex),
+                    cursor.getString(teacherIndex))
+
+            val cls = Class(
+                    classId,
+                    timetableId,
+                    subjectId,
+                    cursor.getString(moduleNameIndex),
+                    LocalDate.ofEpochDay(cursor.getLong(classStartDateIndex)),
+                    LocalDate.ofEpochDay(cursor.getLong(classEndDateIndex)))
+
+            val subject = Subject(
+                    subjectId,
+                    timetableId,
+                    cursor.getString(subjectNameIndex),
+                    cursor.getString(subjectAbbreviationIndex),
+                    cursor.getInt(colorIdIndex))
+
+            return ScheduleEntry(classTime, classDetail, cls, subject)
+        }
+
+    }
+
+    /**
+     * @return the name of the class, including the subject name
+     * @see Class.makeName
+     */
+    fun makeName() = cls.makeName(subject)
+
+    /**
+     * @return whether the class takes place on the given [date], according to its start and end
+     *         dates
+     * @see Class.isCurrent
+     */
+    fun isCurrent(date: LocalDate = LocalDate.now()) = cls.isCurrent(date)
+
+    /**
+     * The color of the subject, used when displaying the class.
+     */
+    val color: Color
+        get() = Color(subject.colorId)
+
+    override fun getHomeItemProperties(activity: Activity) = HomeClassProperties(activity, this)
+
+    class HomeClassProperties(
+            private val activity: Activity,
+            private val entry: ScheduleEntry
+    ) : HomeItemProperties {
+
+        private val mDataHelper by lazy { HomeDataHelper(activity) }
+
+        override val title by lazy { entry.makeName() }
+
+        override val subtitle by lazy {
+            val classDetail = entry.classDetail
+
+            val classDetailBuilder = StringBuilder()
+            classDetail.formatLocationName()?.let {
+                classDetailBuilder.append(it)
+            }
+            if (classDetail.hasTeacher()) {
+                classDetailBuilder.append(" \u2022 ").append(classDetail.teacher)
+            }
+
+            if (classDetailBuilder.isEmpty()) {
+                null
+            } else {
+                classDetailBuilder.toString()
+            }
+        }
+
+        override val time = with(entry.classTime) { "$startTime\n$endTime" }
+
+        override val extraText: String?
+            get() {
+                val numberDue =
+                        mDataHelper.countAssignmentsTodayByClass()[entry.cls.id.toLong()] ?: 0
+
+                if (numberDue == 0) {
+                    return null
+                }
+
+                return activity.resources.getQuantityString(
+                        R.plurals.class_card_assignment_text,
+                        numberDue,
+                        numberDue)
+            }
+
+        override val color = entry.color
+
+    }
+
+}
@@ -0,0 +1,37 @@
+/*
+ * Copyright 2017 Farbod Salamat-Zadeh
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package co.timetableapp.model
+
+import android.support.annotation.StringRes
+
+/**
+ * An item found when searching, with the details used to display it in a list of results.
+ *
+ * @property item           the item that was found. This is an [Assignment], [Exam], [Event],
+ *                          [Class] or [Subject].
+ * @property title          the name or title of the item
+ * @property typeNameRes    the string resource for the name of the type of item
+ * @property color          the color of the item's subject
+ *
+ * @see co.timetableapp.data.handler.SearchIndex
+ */
+data class SearchResult(
+        val item: TimetableItem,
+        val title: String,
+        @StringRes val typeNameRes: Int,
+        val color: Color
+)
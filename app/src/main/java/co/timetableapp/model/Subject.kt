@@ -22,6 +22,8 @@ import android.os.Parcel
 import android.os.Parcelable
 import co.timetableapp.data.TimetableDbHelper
 import co.timetableapp.data.handler.DataNotFoundException
+import co.timetableapp.data.handler.ItemCache
+import co.timetableapp.data.handler.RowMapper
 import co.timetableapp.data.schema.SubjectsSchema
 
 /**
@@ -34,37 +36,43 @@ import co.timetableapp.data.schema.SubjectsSchema
 data class Subject(
         override val id: Int,
         override val timetableId: Int,
-        var name: String,
-        var abbreviation: String,
-        var colorId: Int
+        val name: String,
+        val abbreviation: String,
+        val colorId: Int
 ) : TimetableItem, Comparable<Subject> {
 
     companion object {
 
         /**
-         * Constructs a [Subject] using column values from the cursor provided
+         * Constructs a [Subject] using column values from the current row of the cursor.
+         * When constructing items from multiple rows, [rowMapper] should be used instead.
          *
          * @param cursor a query of the subjects table
          * @see [SubjectsSchema]
          */
         @JvmStatic
-        fun from(cursor: Cursor): Subject {
-            return Subject(cursor.getInt(cursor.getColumnIndex(SubjectsSchema._ID)),
-                    cursor.getInt(cursor.getColumnIndex(SubjectsSchema.COL_TIMETABLE_ID)),
-                    cursor.getString(cursor.getColumnIndex(SubjectsSchema.COL_NAME)),
-                    cursor.getString(cursor.getColumnIndex(SubjectsSchema.COL_ABBREVIATION)),
-                    cursor.getInt(cursor.getColumnIndex(SubjectsSchema.COL_COLOR_ID)))
-        }
+        fun from(cursor: Cursor) = rowMapper(cursor).mapRow()
+
+        /**
+         * @param cursor a query of the subjects table
+         * @return a [RowMapper] for constructing [Subject]s from the rows of the [cursor]
+         */
+        @JvmStatic
+        fun rowMapper(cursor: Cursor): RowMapper<Subject> = Mapper(cursor)
 
         /**
          * Creates a [Subject] from the [subjectId] and corresponding data in the database.
          *
          * @throws DataNotFoundException if the database query returns no results
          * @see from
+         * @see ItemCache
          */
         @JvmStatic
         @Throws(DataNotFoundException::class)
-        fun create(context: Context, subjectId: Int): Subject {
+        fun create(context: Context, subjectId: Int): Subject =
+                ItemCache.get(SubjectsSchema.TABLE_NAME, subjectId) { load(context, subjectId) }
+
+        private fun load(context: Context, subjectId: Int): Subject {
             val db = TimetableDbHelper.getInstance(context).readableDatabase
             val cursor = db.query(
                     SubjectsSchema.TABLE_NAME,
@@ -92,6 +100,27 @@ data class Subject(
         }
     }
 
+    /**
+     * Constructs [Subject]s from rows of a cursor, finding the index of each column only once.
+     */
+    private class Mapper(cursor: Cursor) : RowMapper<Subject>(cursor) {
+
+        private val idIndex = indexOf(SubjectsSchema._ID)
+        private val timetableIdIndex = indexOf(SubjectsSchema.COL_TIMETABLE_ID)
+        private val nameIndex = indexOf(SubjectsSchema.COL_NAME)
+        private val abbreviationIndex = indexOf(SubjectsSchema.COL_ABBREVIATION)
+        private val colorIdIndex = indexOf(SubjectsSchema.COL_COLOR_ID)
+
+        override fun mapRow(): Subject {
+            return Subject(cursor.getInt(idIndex),
+                    cursor.getInt(timetableIdIndex),
+                    cursor.getString(nameIndex),
+                    cursor.getString(abbreviationIndex),
+                    cursor.getInt(colorIdIndex))
+        }
+
+    }
+
     private constructor(source: Parcel) : this(
             source.readInt(),
             source.readInt(),
@@ -22,6 +22,7 @@ import android.os.Parcel
 import android.os.Parcelable
 import co.timetableapp.data.TimetableDbHelper
 import co.timetableapp.data.handler.DataNotFoundException
+import co.timetableapp.data.handler.RowMapper
 import co.timetableapp.data.schema.TermsSchema
 import org.threeten.bp.LocalDate
 
@@ -54,29 +55,21 @@ data class Term(
     companion object {
 
         /**
-         * Constructs a [Term] using column values from the cursor provided
+         * Constructs a [Term] using column values from the current row of the cursor.
+         * When constructing items from multiple rows, [rowMapper] should be used instead.
          *
          * @param cursor a query of the terms table
          * @see [TermsSchema]
          */
         @JvmStatic
-        fun from(cursor: Cursor): Term {
-            val startDate = LocalDate.of(
-                    cursor.getInt(cursor.getColumnIndex(TermsSchema.COL_START_DATE_YEAR)),
-                    cursor.getInt(cursor.getColumnIndex(TermsSchema.COL_START_DATE_MONTH)),
-                    cursor.getInt(cursor.getColumnIndex(TermsSchema.COL_START_DATE_DAY_OF_MONTH)))
-            val endDate = LocalDate.of(
-                    cursor.getInt(cursor.getColumnIndex(TermsSchema.COL_END_DATE_YEAR)),
-                    cursor.getInt(cursor.getColumnIndex(TermsSchema.COL_END_DATE_MONTH)),
-                    cursor.getInt(cursor.getColumnIndex(TermsSchema.COL_END_DATE_DAY_OF_MONTH)))
+        fun from(cursor: Cursor) = rowMapper(cursor).mapRow()
 
-            return Term(
-                    cursor.getInt(cursor.getColumnIndex(TermsSchema._ID)),
-                    cursor.getInt(cursor.getColumnIndex(TermsSchema.COL_TIMETABLE_ID)),
-                    cursor.getString(cursor.getColumnIndex(TermsSchema.COL_NAME)),
-                    startDate,
-                    endDate)
-        }
+        /**
+         * @param cursor a query of the terms table
+         * @return a [RowMapper] for constructing [Term]s from the rows of the [cursor]
+         */
+        @JvmStatic
+        fun rowMapper(cursor: Cursor): RowMapper<Term> = Mapper(cursor)
 
         /**
          * Creates a [Term] from the [termId] and corresponding data in the database.
@@ -114,6 +107,31 @@ data class Term(
         }
     }
 
+    /**
+     * Constructs [Term]s from rows of a cursor, finding the index of each column only once.
+     */
+    private class Mapper(cursor: Cursor) : RowMapper<Term>(cursor) {
+
+        private val idIndex = indexOf(TermsSchema._ID)
+        private val timetableIdIndex = indexOf(TermsSchema.COL_TIMETABLE_ID)
+        private val nameIndex = indexOf(TermsSchema.COL_NAME)
+        private val startDateIndex = indexOf(TermsSchema.COL_START_DATE)
+        private val endDateIndex = indexOf(TermsSchema.COL_END_DATE)
+
+        override fun mapRow(): Term {
+            val startDate = LocalDate.ofEpochDay(cursor.getLong(startDateIndex))
+            val endDate = LocalDate.ofEpochDay(cursor.getLong(endDateIndex))
+
+            return Term(
+                    cursor.getInt(idIndex),
+                    cursor.getInt(timetableIdIndex),
+                    cursor.getString(nameIndex),
+                    startDate,
+                    endDate)
+        }
+
+    }
+
     private constructor(source: Parcel) : this(
             source.readInt(),
             source.readInt(),
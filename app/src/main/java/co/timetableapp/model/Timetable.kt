@@ -22,6 +22,7 @@ import android.os.Parcel
 import android.os.Parcelable
 import co.timetableapp.data.TimetableDbHelper
 import co.timetableapp.data.handler.DataNotFoundException
+import co.timetableapp.data.handler.RowMapper
 import co.timetableapp.data.schema.TimetablesSchema
 import co.timetableapp.util.DateUtils
 import org.threeten.bp.LocalDate
@@ -71,29 +72,21 @@ data class Timetable(
     companion object {
 
         /**
-         * Constructs a [Timetable] using column values from the cursor provided
+         * Constructs a [Timetable] using column values from the current row of the cursor.
+         * When constructing items from multiple rows, [rowMapper] should be used instead.
          *
          * @param cursor a query of the timetables table
          * @see [TimetablesSchema]
          */
         @JvmStatic
-        fun from(cursor: Cursor): Timetable {
-            val startDate = LocalDate.of(
-                    cursor.getInt(cursor.getColumnIndex(TimetablesSchema.COL_START_DATE_YEAR)),
-                    cursor.getInt(cursor.getColumnIndex(TimetablesSchema.COL_START_DATE_MONTH)),
-                    cursor.getInt(cursor.getColumnIndex(TimetablesSchema.COL_START_DATE_DAY_OF_MONTH)))
-            val endDate = LocalDate.of(
-                    cursor.getInt(cursor.getColumnIndex(TimetablesSchema.COL_END_DATE_YEAR)),
-                    cursor.getInt(cursor.getColumnIndex(TimetablesSchema.COL_END_DATE_MONTH)),
-                    cursor.getInt(cursor.getColumnIndex(TimetablesSchema.COL_END_DATE_DAY_OF_MONTH)))
+        fun from(cursor: Cursor) = rowMapper(cursor).mapRow()
 
-            return Timetable(
-                    cursor.getInt(cursor.getColumnIndex(TimetablesSchema._ID)),
-                    cursor.getString(cursor.getColumnIndex(TimetablesSchema.COL_NAME)),
-                    startDate,
-                    endDate,
-                    cursor.getInt(cursor.getColumnIndex(TimetablesSchema.COL_WEEK_ROTATIONS)))
-        }
+        /**
+         * @param cursor a query of the timetables table
+         * @return a [RowMapper] for constructing [Timetable]s from the rows of the [cursor]
+         */
+        @JvmStatic
+        fun rowMapper(cursor: Cursor): RowMapper<Timetable> = Mapper(cursor)
 
         /**
          * Creates a [Timetable] from the [timetableId] and corresponding data in the database.
@@ -131,6 +124,31 @@ data class Timetable(
         }
     }
 
+    /**
+     * Constructs [Timetable]s from rows of a cursor, finding the index of each column only once.
+     */
+    private class Mapper(cursor: Cursor) : RowMapper<Timetable>(cursor) {
+
+        private val idIndex = indexOf(TimetablesSchema._ID)
+        private val nameIndex = indexOf(TimetablesSchema.COL_NAME)
+        private val startDateIndex = indexOf(TimetablesSchema.COL_START_DATE)
+        private val endDateIndex = indexOf(TimetablesSchema.COL_END_DATE)
+        private val weekRotationsIndex = indexOf(TimetablesSchema.COL_WEEK_ROTATIONS)
+
+        override fun mapRow(): Timetable {
+            val startDate = LocalDate.ofEpochDay(cursor.getLong(startDateIndex))
+            val endDate = LocalDate.ofEpochDay(cursor.getLong(endDateIndex))
+
+            return Timetable(
+                    cursor.getInt(idIndex),
+                    cursor.getString(nameIndex),
+                    startDate,
+                    endDate,
+                    cursor.getInt(weekRotationsIndex))
+        }
+
+    }
+
     private constructor(source: Parcel) : this(
             source.readInt(),
             source.readString(),
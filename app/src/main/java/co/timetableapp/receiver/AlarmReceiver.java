@@ -17,6 +17,7 @@
 package co.timetableapp.receiver;
 
 import android.app.AlarmManager;
+import android.app.Application;
 import android.app.NotificationManager;
 import android.app.PendingIntent;
 import android.content.ComponentName;
@@ -33,26 +34,27 @@ import android.support.v4.content.WakefulBroadcastReceiver;
 import android.util.Log;
 
 import org.threeten.bp.LocalDate;
+import org.threeten.bp.LocalDateTime;
 
 import java.lang.annotation.Retention;
 import java.lang.annotation.RetentionPolicy;
-import java.util.ArrayList;
 import java.util.Calendar;
 
 import co.timetableapp.R;
 import co.timetableapp.TimetableApplication;
 import co.timetableapp.data.handler.AssignmentHandler;
 import co.timetableapp.data.handler.DataNotFoundException;
-import co.timetableapp.model.Assignment;
-import co.timetableapp.model.Class;
 import co.timetableapp.model.ClassDetail;
 import co.timetableapp.model.ClassTime;
 import co.timetableapp.model.Color;
 import co.timetableapp.model.Event;
 import co.timetableapp.model.Exam;
+import co.timetableapp.model.ScheduleEntry;
 import co.timetableapp.model.Subject;
 import co.timetableapp.ui.agenda.AgendaActivity;
 import co.timetableapp.ui.home.MainActivity;
+import co.timetableapp.util.PrefUtils;
+import co.timetableapp.util.ScheduleUtils;
 
 /**
  * Invoked when receiving an alarm - i.e. when a notification needs to be displayed.
@@ -131,29 +133,25 @@ public class AlarmReceiver extends WakefulBroadcastReceiver {
 
         switch (notificationType) {
             case Type.CLASS:
-                ClassTime classTime = null;
-                ClassDetail classDetail = null;
-                Class cls = null;
-                Subject classSubject = null;
-                try {
-                    classTime = ClassTime.create(context, id);
-                    classDetail = ClassDetail.create(context, classTime.getClassDetailId());
-                    cls = Class.create(context, classDetail.getClassId());
-                    classSubject = Subject.create(context, cls.getSubjectId());
-                } catch (DataNotFoundException e) {
-                    e.printStackTrace();
+                // The alarm repeats every week rotation, but the class may not take place on the
+                // date of this occurrence (e.g. if its end date has passed, or during a holiday)
+                LocalDate classDate = LocalDateTime.now()
+                        .plusMinutes(PrefUtils.getClassNotificationTime(context))
+                        .toLocalDate();
+                ScheduleEntry entry = ScheduleUtils.findScheduledEntry(
+                        context, (Application) context.getApplicationContext(), id, classDate);
+
+                if (entry == null) {
+                    return;
                 }
 
-                assert classTime != null;
-                assert classDetail != null;
-                assert cls != null;
-                assert classSubject != null;
+                Subject classSubject = entry.getSubject();
 
-                color = new Color(classSubject.getColorId());
+                color = entry.getColor();
                 intent = new Intent(context, MainActivity.class);
 
                 contentTitle = classSubject.getName();
-                contentText = makeClassText(classDetail, classTime);
+                contentText = makeClassText(entry.getClassDetail(), entry.getClassTime());
                 tickerText = classSubject.getName() + " class starting in 5 minutes";
                 drawableRes = R.drawable.ic_class_notification;
                 break;
@@ -162,24 +160,14 @@ public class AlarmReceiver extends WakefulBroadcastReceiver {
             case Type.ASSIGNMENT_OVERDUE:
                 boolean checkingOverdue = notificationType == Type.ASSIGNMENT_OVERDUE;
 
-                ArrayList<Assignment> assignments = new AssignmentHandler(context)
-                        .getItems((TimetableApplication) context.getApplicationContext());
+                AssignmentHandler assignmentHandler = new AssignmentHandler(context);
+                TimetableApplication application =
+                        (TimetableApplication) context.getApplicationContext();
 
-                int count = 0;
-
-                for (Assignment assignment : assignments) {
-                    boolean addToCount;
-                    if (checkingOverdue) {
-                        addToCount = assignment.isOverdue();
-                    } else {
-                        addToCount = !assignment.isComplete() &&
-                                assignment.getDueDate().minusDays(1).equals(LocalDate.now());
-                    }
-
-                    if (addToCount) {
-                        count++;
-                    }
-                }
+                int count = checkingOverdue
+                        ? assignmentHandler.countOverdue(application)
+                        : assignmentHandler.countIncompleteDueOn(
+                                application, LocalDate.now().plusDays(1));
 
                 if (count == 0) {
                     return;
@@ -42,6 +42,7 @@ import co.timetableapp.ui.assignments.AssignmentDetailActivity
 import co.timetableapp.ui.base.NavigationDrawerActivity
 import co.timetableapp.ui.events.EventDetailActivity
 import co.timetableapp.ui.exams.ExamDetailActivity
+import co.timetableapp.ui.search.SearchActivity
 import co.timetableapp.util.PrefUtils
 import java.util.*
 
@@ -132,6 +133,9 @@ class AgendaActivity : NavigationDrawerActivity() {
 
     override fun onOptionsItemSelected(item: MenuItem?): Boolean {
         when (item!!.itemId) {
+            R.id.action_search -> {
+                startActivity(Intent(this, SearchActivity::class.java))
+            }
             R.id.action_filter -> {
                 showFilterDialog()
             }
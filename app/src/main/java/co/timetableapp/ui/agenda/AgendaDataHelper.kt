@@ -17,82 +17,185 @@
 package co.timetableapp.ui.agenda
 
 import android.app.Activity
-import co.timetableapp.data.handler.AssignmentHandler
-import co.timetableapp.data.handler.EventHandler
-import co.timetableapp.data.handler.ExamHandler
-import co.timetableapp.model.Assignment
+import co.timetableapp.data.handler.AgendaTimeline
+import co.timetableapp.data.handler.DataTasks
+import co.timetableapp.data.query.Filter
+import co.timetableapp.data.query.Filters
+import co.timetableapp.data.query.Page
+import co.timetableapp.data.query.PageKey
+import co.timetableapp.data.schema.AssignmentsSchema
+import co.timetableapp.data.schema.EventsSchema
+import co.timetableapp.data.schema.ExamsSchema
 import co.timetableapp.model.agenda.*
+import co.timetableapp.util.DateUtils
+import org.threeten.bp.LocalDate
+import org.threeten.bp.LocalDateTime
+import java.util.*
 
 /**
  * A helper class for formatting and filtering data to show on the agenda pages.
  */
 class AgendaDataHelper(val activity: Activity, val filterParams: AgendaFilterParams) {
 
+    companion object {
+
+        /**
+         * The maximum number of items to fetch from the database at a time.
+         */
+        private const val PAGE_SIZE = 50
+    }
+
     /**
-     * Populates the list with items from the database and sorts them with headers added.
+     * The key of the last item added to the list, used to fetch the next page of items. This is
+     * null if no items have been added or there are no more items to add.
      */
-    fun createList(items: ArrayList<AgendaListItem>) {
-        items.clear()
-        items.addAll(fetchAgendaListItems())
+    private var mNextKey: PageKey? = null
 
-        sortWithHeaders(items)
-    }
+    private var mHasMoreItems = true
 
     /**
-     * @return an unsorted list of all agenda items (excluding headers)
+     * Loads the first page of items from the database in the background, then replaces the items
+     * in the list with them, sorted and with headers added.
+     *
+     * @param onLoaded invoked on the main thread once the list has been populated
+     * @return the task loading the items, which should be cancelled if the list is destroyed
      *
-     * @see getAssignments
-     * @see getExams
-     * @see getEvents
+     * @see loadNextPage
+     */
+    fun createList(items: ArrayList<AgendaListItem>, onLoaded: () -> Unit): DataTasks.Task {
+        mNextKey = null
+        mHasMoreItems = true
+
+        return loadPage { page ->
+            items.clear()
+            addPage(page, items)
+            onLoaded()
+        }
+    }
+
+    /**
+     * @return true if there may be items which have not yet been added to the list
      */
-    private fun fetchAgendaListItems(): List<AgendaListItem> {
-        val arrayList = ArrayList<AgendaListItem>()
+    fun hasMoreItems() = mHasMoreItems
 
-        val showCompleted = filterParams.showCompleted
-        val showPast = filterParams.showPast
+    /**
+     * Loads the next page of items from the database in the background, then adds them to the
+     * list, with headers added where needed.
+     *
+     * @param onLoaded invoked on the main thread once the items have been added
+     * @return the task loading the items, which should be cancelled if the list is destroyed
+     *
+     * @see createList
+     */
+    fun loadNextPage(items: ArrayList<AgendaListItem>, onLoaded: () -> Unit) =
+            loadPage { page ->
+                addPage(page, items)
+                onLoaded()
+            }
 
-        val typesShowing = filterParams.typesToShow
+    /**
+     * Fetches the next page of items of all types being shown in the background, using a single
+     * query of the [AgendaTimeline].
+     *
+     * The filter parameters and page key are read before the task is started, since they can be
+     * changed on the main thread while it runs.
+     */
+    private fun loadPage(onLoaded: (Page<AgendaItem>) -> Unit): DataTasks.Task {
+        val application = activity.application
+        val filters = makeFilters(filterParams.showPast, filterParams.showCompleted)
+        val after = mNextKey
+        val ascending = !filterParams.showPast
 
-        if (typesShowing.contains(AgendaType.ASSIGNMENT)) {
-            arrayList.addAll(getAssignments(showPast, showCompleted))
+        val fetchPage = {
+            AgendaTimeline(application).getPage(application, filters, PAGE_SIZE, after, ascending)
         }
-        if (typesShowing.contains(AgendaType.EXAM)) arrayList.addAll(getExams(showPast))
-        if (typesShowing.contains(AgendaType.EVENT)) arrayList.addAll(getEvents(showPast))
 
-        return arrayList
+        return DataTasks.read(fetchPage, onLoaded)
     }
 
     /**
-     * @return a list of assignments filtered depending on the boolean parameters.
+     * Adds the items from the [page] to the list, then sorts it.
      */
-    private fun getAssignments(showPast: Boolean, showCompleted: Boolean): List<Assignment> {
-        return AssignmentHandler(activity).getItems(activity.application)
-                .filter {
-                    if (showPast) {
-                        it.isPastAndDone()
-                    } else {
-                        if (showCompleted) {
-                            // If showing completed items, then show them with incomplete items
-                            it.isUpcoming() || it.isOverdue()
-                        } else {
-                            // Incomplete items only
-                            !it.isComplete()
-                        }
-                    }
-                }
+    private fun addPage(page: Page<AgendaItem>, items: ArrayList<AgendaListItem>) {
+        mNextKey = page.nextKey
+        mHasMoreItems = page.hasNext
+
+        // Items may already be in the list if they were created after the list was populated
+        val newItems = page.items.filterNot { items.contains(it) }
+
+        newItems.forEach { addListHeader(it, items) }
+        items.addAll(newItems)
+
+        sortItems(items)
     }
 
     /**
-     * @return a list of exams filtered depending on the value of [showPast]
+     * @return  the filters for each type of item being shown, depending on the filter parameters
      */
-    private fun getExams(showPast: Boolean) =
-            ExamHandler(activity).getItems(activity.application).filter { it.isInPast() == showPast }
+    private fun makeFilters(showPast: Boolean, showCompleted: Boolean): Map<AgendaType, Filter> {
+        val filters = EnumMap<AgendaType, Filter>(AgendaType::class.java)
+        for (type in filterParams.typesToShow) {
+            filters.put(type, when (type) {
+                AgendaType.ASSIGNMENT -> makeAssignmentFilter(showPast, showCompleted)
+                AgendaType.EXAM ->
+                    makePastFilter(ExamsSchema.COL_DATE, ExamsSchema.COL_START_TIME, showPast)
+                AgendaType.EVENT -> makePastFilter(
+                        EventsSchema.COL_START_DATE, EventsSchema.COL_START_TIME, showPast)
+            })
+        }
+        return filters
+    }
 
     /**
-     * @return a list of events filtered depending on the value of [showPast]
+     * @return a filter for assignments depending on the boolean parameters
      */
-    private fun getEvents(showPast: Boolean) =
-            EventHandler(activity).getItems(activity.application).filter { it.isInPast() == showPast }
+    private fun makeAssignmentFilter(showPast: Boolean, showCompleted: Boolean): Filter {
+        val today = LocalDate.now().toEpochDay()
+        val dueDateCol = AssignmentsSchema.COL_DUE_DATE
+        val progressCol = AssignmentsSchema.COL_COMPLETION_PROGRESS
+
+        return if (showPast) {
+            // Past and complete items only
+            Filters.and(
+                    Filters.lessThan(dueDateCol, today.toString()),
+                    Filters.equal(progressCol, "100"))
+        } else {
+            if (showCompleted) {
+                // If showing completed items, then show them with incomplete items (i.e. items
+                // due from today onwards, or overdue)
+                Filters.or(
+                        Filters.greaterThan(dueDateCol, (today - 1).toString()),
+                        Filters.lessThan(progressCol, "100"))
+            } else {
+                // Incomplete items only
+                Filters.lessThan(progressCol, "100")
+            }
+        }
+    }
+
+    /**
+     * @return  a filter for rows with a date and time before now if [showPast] is true, otherwise
+     *          for rows with a date and time from now onwards
+     */
+    private fun makePastFilter(dateCol: String, timeCol: String, showPast: Boolean): Filter {
+        val now = LocalDateTime.now()
+        val today = now.toLocalDate().toEpochDay().toString()
+        val minuteOfDay = DateUtils.asMinuteOfDay(now.toLocalTime())
+
+        return if (showPast) {
+            Filters.or(
+                    Filters.lessThan(dateCol, today),
+                    Filters.and(
+                            Filters.equal(dateCol, today),
+                            Filters.lessThan(timeCol, minuteOfDay.toString())))
+        } else {
+            Filters.or(
+                    Filters.greaterThan(dateCol, today),
+                    Filters.and(
+                            Filters.equal(dateCol, today),
+                            Filters.greaterThan(timeCol, (minuteOfDay - 1).toString())))
+        }
+    }
 
     /**
      * Sorts a list depending on whether we are showing past items.
@@ -107,26 +210,6 @@ class AgendaDataHelper(val activity: Activity, val filterParams: AgendaFilterPar
         }
     }
 
-    /**
-     * Sorts a list of agenda list items with the required headers added and redundant ones removed.
-     *
-     * This function should not be invoked after single items have been updated/removed in the list,
-     * so it is recommended this is used when the whole list needs to be refreshed.
-     *
-     * @param items the list of items to sort and add headers to
-     *
-     * @return the sorted list with headers where needed
-     */
-    private fun sortWithHeaders(items: ArrayList<AgendaListItem>) {
-        val headersToAdd = ArrayList<AgendaListItem>()
-        items.forEach {
-            addListHeader(it as AgendaItem, headersToAdd)
-        }
-        items.addAll(headersToAdd)
-
-        sortItems(items)
-    }
-
     /**
      * Adds an [agendaItem] to the list, appropriately so that a new datetime header is also
      * added if necessary, and sorted.
@@ -36,6 +36,7 @@ import android.view.ViewGroup
 import android.widget.FrameLayout
 import co.timetableapp.R
 import co.timetableapp.data.handler.AssignmentHandler
+import co.timetableapp.data.handler.DataTasks
 import co.timetableapp.model.Assignment
 import co.timetableapp.model.Event
 import co.timetableapp.model.Exam
@@ -67,6 +68,12 @@ class AgendaFragment : Fragment(), AgendaActivity.OnFilterChangeListener {
          */
         private const val REQUEST_CODE_ITEM_DETAIL = 2
 
+        /**
+         * The number of list items from the end of the list at which the next page of items is
+         * loaded when scrolling.
+         */
+        private const val LOAD_MORE_THRESHOLD = 10
+
         /**
          * The argument key for passing an argument to this fragment deciding which agenda item
          * types should initially be shown.
@@ -83,6 +90,16 @@ class AgendaFragment : Fragment(), AgendaActivity.OnFilterChangeListener {
 
     private val mItems = ArrayList<AgendaListItem>()
 
+    /**
+     * The task loading items in the background, or null if items aren't being loaded.
+     */
+    private var mLoadTask: DataTasks.Task? = null
+
+    /**
+     * Whether the first page of items has been loaded. The placeholder isn't shown until then.
+     */
+    private var mIsLoaded = false
+
     /**
      * Stores the list position of the item being updated/deleted in a different activity.
      *
@@ -124,13 +141,20 @@ class AgendaFragment : Fragment(), AgendaActivity.OnFilterChangeListener {
                               savedInstanceState: Bundle?): View? {
         mRootView = inflater!!.inflate(R.layout.fragment_content_list, container, false)
 
-        setupLayout()
-
+        // The filters must be set before the items start loading
         mDataHelper.filterParams.showCompleted = PrefUtils.showCompletedAgendaItems(activity)
 
+        setupLayout()
+
         return mRootView
     }
 
+    override fun onDestroyView() {
+        super.onDestroyView()
+        mLoadTask?.cancel()
+        mLoadTask = null
+    }
+
     private fun setupLayout() {
         setupList()
 
@@ -139,18 +163,19 @@ class AgendaFragment : Fragment(), AgendaActivity.OnFilterChangeListener {
     }
 
     private fun setupList() {
-        mDataHelper.createList(mItems)
-
         setupAdapter()
         mRecyclerView = mRootView.findViewById(R.id.recyclerView) as RecyclerView
         with(mRecyclerView) {
             layoutManager = LinearLayoutManager(activity)
             setHasFixedSize(true)
             adapter = mAdapter
+            addOnScrollListener(LoadMoreScrollListener())
         }
 
         val itemTouchHelper = ItemTouchHelper(AgendaItemTouchHelperCallback())
         itemTouchHelper.attachToRecyclerView(mRecyclerView)
+
+        refreshUi()
     }
 
     private fun setupAdapter() {
@@ -184,7 +209,11 @@ class AgendaFragment : Fragment(), AgendaActivity.OnFilterChangeListener {
     }
 
     private fun refreshPlaceholderStatus() {
-        if (mItems.isEmpty()) {
+        if (!mIsLoaded) {
+            mRecyclerView.visibility = View.GONE
+            mPlaceholderLayout.visibility = View.GONE
+
+        } else if (mItems.isEmpty()) {
             mRecyclerView.visibility = View.GONE
             mPlaceholderLayout.visibility = View.VISIBLE
 
@@ -296,18 +325,47 @@ class AgendaFragment : Fragment(), AgendaActivity.OnFilterChangeListener {
      * This should not be invoked after single items get updated or deleted since it is a costly
      * operation. Good usage examples include when the user has changed the filter options, so
      * different data needs to be retrieved and displayed.
+     *
+     * The items are loaded in the background and displayed once they have loaded. Any page that was
+     * being loaded is discarded, since it may be for different filters.
      */
     private fun refreshUi() {
-        mDataHelper.createList(mItems)
-        mAdapter.notifyDataSetChanged()
+        mLoadTask?.cancel()
+        mLoadTask = mDataHelper.createList(mItems) {
+            mLoadTask = null
+            mIsLoaded = true
 
-        refreshPlaceholderStatus()
+            mAdapter.notifyDataSetChanged()
+            refreshPlaceholderStatus()
+        }
+    }
+
+    /**
+     * Loads the next page of items when the user scrolls near the end of the list.
+     */
+    inner class LoadMoreScrollListener : RecyclerView.OnScrollListener() {
+
+        override fun onScrolled(recyclerView: RecyclerView?, dx: Int, dy: Int) {
+            if (dy <= 0 || mLoadTask != null || !mDataHelper.hasMoreItems()) {
+                return
+            }
+
+            val layoutManager = mRecyclerView.layoutManager as LinearLayoutManager
+            if (layoutManager.findLastVisibleItemPosition() >= mItems.size - LOAD_MORE_THRESHOLD) {
+                Log.v(LOG_TAG, "Loading the next page of items")
+
+                // The adapter is notified after the scroll callback, once the page has loaded
+                mLoadTask = mDataHelper.loadNextPage(mItems) {
+                    mLoadTask = null
+                    mAdapter.notifyDataSetChanged()
+                }
+            }
+        }
     }
 
     inner class AgendaItemTouchHelperCallback : ItemTouchHelper.Callback() {
 
         private lateinit var mCachedAssignment: Assignment
-        private var mCachedCompletionProgress: Int = -1
 
         override fun getMovementFlags(recyclerView: RecyclerView?,
                                       viewHolder: RecyclerView.ViewHolder?): Int {
@@ -336,15 +394,14 @@ class AgendaFragment : Fragment(), AgendaActivity.OnFilterChangeListener {
             val position = viewHolder!!.adapterPosition
             val assignment = mItems[position] as Assignment
 
-            // Keep a copy of this assignment in cache so we can undo any actions
+            // Keep the unchanged assignment in cache so we can undo any actions
             mCachedAssignment = assignment
-            mCachedCompletionProgress = assignment.completionProgress
 
-            writeAssignmentCompletion(assignment)
+            val completedAssignment = writeAssignmentCompletion(assignment)
 
             // Don't remove an upcoming assignment from the list if we're showing completed items
             if (mDataHelper.filterParams.showCompleted && assignment.isUpcoming()) {
-                updateCompletedAssignment(position, assignment)
+                updateCompletedAssignment(position, completedAssignment)
                 return
             }
 
@@ -356,10 +413,22 @@ class AgendaFragment : Fragment(), AgendaActivity.OnFilterChangeListener {
 
         /**
          * Updates the database with the new completed progress level of the assignment (100).
+         *
+         * @return a copy of the assignment with its new completion progress
+         */
+        private fun writeAssignmentCompletion(assignment: Assignment): Assignment {
+            writeCompletionProgress(assignment.id, 100)
+            return assignment.copy(completionProgress = 100)
+        }
+
+        /**
+         * Writes the [completionProgress] of an assignment to the database in the background.
          */
-        private fun writeAssignmentCompletion(assignment: Assignment) {
-            assignment.completionProgress = 100
-            AssignmentHandler(activity).replaceItem(assignment.id, assignment)
+        private fun writeCompletionProgress(assignmentId: Int, completionProgress: Int) {
+            val assignmentHandler = AssignmentHandler(activity)
+            DataTasks.write({
+                assignmentHandler.updateCompletionProgress(assignmentId, completionProgress)
+            })
         }
 
         /**
@@ -382,11 +451,12 @@ class AgendaFragment : Fragment(), AgendaActivity.OnFilterChangeListener {
             // Add Snackbar UI for undo action
             val undoListener = View.OnClickListener {
                 // Update database
-                assignment.completionProgress = mCachedCompletionProgress
-                AssignmentHandler(activity).replaceItem(assignment.id, assignment)
+                val restoredAssignment = mCachedAssignment
+                writeCompletionProgress(
+                        restoredAssignment.id, restoredAssignment.completionProgress)
 
                 // Update list
-                mItems[position] = assignment
+                mItems[position] = restoredAssignment
                 mAdapter.notifyItemChanged(position)
             }
 
@@ -438,12 +508,11 @@ class AgendaFragment : Fragment(), AgendaActivity.OnFilterChangeListener {
 
                 // Add back the assignment to the UI and database
                 val removedAssignment = mCachedAssignment
-                removedAssignment.completionProgress = mCachedCompletionProgress
 
                 mItems.add(pos, removedAssignment)
                 mAdapter.notifyItemInserted(pos)
 
-                AssignmentHandler(activity).replaceItem(removedAssignment.id, removedAssignment)
+                writeCompletionProgress(removedAssignment.id, removedAssignment.completionProgress)
 
                 refreshPlaceholderStatus()
             }
@@ -24,6 +24,7 @@ import android.widget.SeekBar
 import android.widget.TextView
 import co.timetableapp.R
 import co.timetableapp.data.handler.AssignmentHandler
+import co.timetableapp.data.handler.DataTasks
 import co.timetableapp.model.Assignment
 import co.timetableapp.model.Class
 import co.timetableapp.model.Color
@@ -66,7 +67,7 @@ class AssignmentDetailActivity : ItemDetailActivity<Assignment>() {
 
             setOnSeekBarChangeListener(object : SeekBar.OnSeekBarChangeListener {
                 override fun onProgressChanged(seekBar: SeekBar, progress: Int, fromUser: Boolean) {
-                    mItem.completionProgress = progress * 5
+                    mItem = mItem.copy(completionProgress = progress * 5)
                     progressText.text =
                             getString(R.string.property_progress, mItem.completionProgress)
                 }
@@ -113,8 +114,10 @@ class AssignmentDetailActivity : ItemDetailActivity<Assignment>() {
     }
 
     override fun saveEditsAndClose() {
-        // Overwrite db values as completionProgress may have changed
-        mDataHandler.replaceItem(mItem.id, mItem)
+        // Overwrite db values as completionProgress may have changed. The activity doesn't wait
+        // for this since the updated item is passed back with the result.
+        val assignment = mItem
+        DataTasks.write({ mDataHandler.replaceItem(assignment.id, assignment) })
 
         val intent = Intent().putExtra(EXTRA_ITEM, mItem)
 
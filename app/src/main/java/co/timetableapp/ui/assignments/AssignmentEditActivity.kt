@@ -35,10 +35,13 @@ import co.timetableapp.R
 import co.timetableapp.TimetableApplication
 import co.timetableapp.data.handler.AssignmentHandler
 import co.timetableapp.data.handler.ClassHandler
+import co.timetableapp.data.handler.DataHandler
+import co.timetableapp.data.handler.DataTasks
 import co.timetableapp.model.Assignment
 import co.timetableapp.model.Class
 import co.timetableapp.model.Color
 import co.timetableapp.model.Subject
+import co.timetableapp.ui.base.ItemEditActivity
 import co.timetableapp.ui.classes.ClassesAdapter
 import co.timetableapp.ui.components.DateSelectorHelper
 import co.timetableapp.util.UiUtils
@@ -65,6 +68,12 @@ class AssignmentEditActivity : AppCompatActivity() {
 
     private val mAssignmentHandler = AssignmentHandler(this)
 
+    /**
+     * Whether the assignment is being written to the database, after which the activity will
+     * finish.
+     */
+    private var mIsWriting = false
+
     private lateinit var mToolbar: Toolbar
 
     private lateinit var mTitleEditText: EditText
@@ -98,7 +107,7 @@ class AssignmentEditActivity : AppCompatActivity() {
         supportActionBar!!.title = (resources.getString(titleResId))
 
         mToolbar.navigationIcon = UiUtils.tintDrawable(this, R.drawable.ic_close_black_24dp)
-        mToolbar.setNavigationOnClickListener { handleCloseAction() }
+        mToolbar.setNavigationOnClickListener { onBackPressed() }
 
         setupLayout()
     }
@@ -198,6 +207,11 @@ class AssignmentEditActivity : AppCompatActivity() {
     }
 
     override fun onOptionsItemSelected(item: MenuItem?): Boolean {
+        if (mIsWriting) {
+            // Don't let changes be saved or deleted again while they are being written
+            return true
+        }
+
         when (item!!.itemId) {
             R.id.action_done -> handleDoneAction()
             R.id.action_delete -> handleDeleteAction()
@@ -206,7 +220,8 @@ class AssignmentEditActivity : AppCompatActivity() {
     }
 
     override fun onBackPressed() {
-        handleCloseAction()
+        // The activity finishes with the result of the write once it has been written
+        if (!mIsWriting) handleCloseAction()
     }
 
     private fun handleCloseAction() {
@@ -236,17 +251,13 @@ class AssignmentEditActivity : AppCompatActivity() {
             return
         }
 
-        val assignmentId = if (mIsNew) {
-            mAssignmentHandler.getHighestItemId() + 1
-        } else {
-            mAssignment!!.id
-        }
+        val assignmentId = if (mIsNew) DataHandler.NO_ID else mAssignment!!.id
 
         val completionProgress = if (mIsNew) 0 else mAssignment!!.completionProgress
 
         val timetableId = (application as TimetableApplication).currentTimetable!!.id
 
-        mAssignment = Assignment(
+        val assignment = Assignment(
                 assignmentId,
                 timetableId,
                 mClass!!.id,
@@ -255,16 +266,24 @@ class AssignmentEditActivity : AppCompatActivity() {
                 mDueDate,
                 completionProgress
         )
+        val isNew = mIsNew
+
+        mIsWriting = true
+        DataTasks.write({
+            if (isNew) {
+                mAssignmentHandler.insertItem(assignment)
+            } else {
+                mAssignmentHandler.replaceItem(assignment.id, assignment)
+                assignment
+            }
+        }) {
+            mAssignment = it
 
-        if (mIsNew) {
-            mAssignmentHandler.addItem(mAssignment!!)
-        } else {
-            mAssignmentHandler.replaceItem(mAssignment!!.id, mAssignment!!)
+            val intent = Intent()
+            intent.putExtra(ItemEditActivity.EXTRA_ITEM, mAssignment)
+            setResult(Activity.RESULT_OK, intent)
+            finish()
         }
-
-        val intent = Intent()
-        setResult(Activity.RESULT_OK, intent)
-        finish()
     }
 
     private fun handleDeleteAction() {
@@ -272,9 +291,13 @@ class AssignmentEditActivity : AppCompatActivity() {
                 .setTitle(R.string.delete_assignment)
                 .setMessage(R.string.delete_confirmation)
                 .setPositiveButton(R.string.action_delete) { _, _ ->
-                    mAssignmentHandler.deleteItem(mAssignment!!.id)
-                    setResult(Activity.RESULT_OK)
-                    finish()
+                    val assignmentId = mAssignment!!.id
+
+                    mIsWriting = true
+                    DataTasks.write({ mAssignmentHandler.deleteItem(assignmentId) }) {
+                        setResult(Activity.RESULT_OK)
+                        finish()
+                    }
                 }
                 .setNegativeButton(R.string.action_cancel, null)
                 .show()
@@ -25,7 +25,9 @@ import android.util.Log
 import android.view.Menu
 import android.view.MenuItem
 import co.timetableapp.R
+import co.timetableapp.data.handler.DataHandler
 import co.timetableapp.data.handler.DataNotFoundException
+import co.timetableapp.data.handler.DataTasks
 import co.timetableapp.data.handler.TimetableItemHandler
 import co.timetableapp.model.TimetableItem
 import co.timetableapp.ui.base.ItemDetailActivity.Companion.EXTRA_ITEM
@@ -81,6 +83,8 @@ abstract class ItemDetailActivity<T : TimetableItem> : AppCompatActivity() {
 
     protected val mDataHandler: TimetableItemHandler<T> by lazy { initializeDataHandler() }
 
+    private var mLoadTask: DataTasks.Task? = null
+
     /**
      * The layout resource for the activity layout.
      *
@@ -116,7 +120,45 @@ abstract class ItemDetailActivity<T : TimetableItem> : AppCompatActivity() {
 
         mItem = extras.getParcelable(EXTRA_ITEM)
 
-        setupLayout()
+        if (mDataHandler.summaryColumns == null) {
+            setupLayout()
+            return
+        }
+
+        // The item may have come from a list without its long text fields, so reload it
+        loadItem(mItem.id) {
+            if (it == null) {
+                Log.d(LOG_TAG, "Item cannot be found - using the item from the intent extras")
+            } else {
+                mItem = it
+            }
+            setupLayout()
+        }
+    }
+
+    override fun onDestroy() {
+        super.onDestroy()
+        mLoadTask?.cancel()
+    }
+
+    /**
+     * Reads the item with the [itemId] in the background, then invokes [onLoaded] on the main
+     * thread with the item, or with null if it cannot be found.
+     */
+    private fun loadItem(itemId: Int, onLoaded: (T?) -> Unit) {
+        val dataHandler = mDataHandler
+
+        mLoadTask?.cancel()
+        mLoadTask = DataTasks.read({
+            try {
+                dataHandler.createFromId(itemId)
+            } catch (e: DataNotFoundException) {
+                null
+            }
+        }) {
+            mLoadTask = null
+            onLoaded(it)
+        }
     }
 
     /**
@@ -136,24 +178,27 @@ abstract class ItemDetailActivity<T : TimetableItem> : AppCompatActivity() {
 
         if (requestCode == REQUEST_CODE_ITEM_EDIT) {
             if (resultCode == Activity.RESULT_OK) {
-                // Get the edited item (if new, it would have the highest id)
+                // Get the edited item (if new, its id is only known from the result)
                 val editedItemId = if (mIsNew) {
-                    mDataHandler.getHighestItemId()
+                    data?.getParcelableExtra<T>(ItemEditActivity.EXTRA_ITEM)?.id
+                            ?: DataHandler.NO_ID
                 } else {
                     mItem.id
                 }
 
-                try {
-                    mItem = mDataHandler.createFromId(editedItemId)
-                } catch (e: DataNotFoundException) {
-                    Log.d(LOG_TAG, "Item cannot be found - assume it must have been deleted")
-                    saveDeleteAndClose()
-                }
-
-                if (mIsNew) {
-                    saveEditsAndClose()
-                } else {
-                    setupLayout()
+                loadItem(editedItemId) {
+                    if (it == null) {
+                        Log.d(LOG_TAG, "Item cannot be found - assume it must have been deleted")
+                        saveDeleteAndClose()
+                        return@loadItem
+                    }
+
+                    mItem = it
+                    if (mIsNew) {
+                        saveEditsAndClose()
+                    } else {
+                        setupLayout()
+                    }
                 }
 
             } else if (resultCode == Activity.RESULT_CANCELED) {
@@ -172,7 +217,8 @@ abstract class ItemDetailActivity<T : TimetableItem> : AppCompatActivity() {
 
     override fun onOptionsItemSelected(item: MenuItem?): Boolean {
         when (item!!.itemId) {
-            R.id.action_edit -> onMenuEditClick()
+            // The item may be incomplete or out of date while it's being loaded
+            R.id.action_edit -> if (mLoadTask == null) onMenuEditClick()
         }
         return super.onOptionsItemSelected(item)
     }
@@ -186,7 +232,15 @@ abstract class ItemDetailActivity<T : TimetableItem> : AppCompatActivity() {
      */
     protected abstract fun onMenuEditClick()
 
-    override fun onBackPressed() = saveEditsAndClose()
+    override fun onBackPressed() {
+        if (mLoadTask == null) {
+            saveEditsAndClose()
+        } else {
+            // Nothing can have been changed yet, and the item may be incomplete or out of date, so
+            // it mustn't be written back
+            cancelAndClose()
+        }
+    }
 
     /**
      * Exits this activity without saving changes.
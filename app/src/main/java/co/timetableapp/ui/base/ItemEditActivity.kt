@@ -25,6 +25,7 @@ import android.support.v7.widget.Toolbar
 import android.view.Menu
 import android.view.MenuItem
 import co.timetableapp.R
+import co.timetableapp.data.handler.DataTasks
 import co.timetableapp.model.BaseItem
 import co.timetableapp.ui.base.ItemEditActivity.Companion.EXTRA_ITEM
 import co.timetableapp.util.UiUtils
@@ -62,6 +63,13 @@ abstract class ItemEditActivity<T : BaseItem> : AppCompatActivity() {
 
     @JvmField protected var mToolbar: Toolbar? = null
 
+    /**
+     * Whether changes are being written to the database, after which the activity will finish.
+     *
+     * @see writeInBackground
+     */
+    private var mIsWriting = false
+
     /**
      * The layout resource for the activity layout.
      *
@@ -110,7 +118,7 @@ abstract class ItemEditActivity<T : BaseItem> : AppCompatActivity() {
         supportActionBar!!.setTitle(getTitleRes(mIsNew))
 
         toolbar.navigationIcon = UiUtils.tintDrawable(this, R.drawable.ic_close_black_24dp)
-        toolbar.setNavigationOnClickListener { handleCloseAction() }
+        toolbar.setNavigationOnClickListener { onBackPressed() }
 
         return toolbar
     }
@@ -133,6 +141,11 @@ abstract class ItemEditActivity<T : BaseItem> : AppCompatActivity() {
     }
 
     override fun onOptionsItemSelected(item: MenuItem?): Boolean {
+        if (mIsWriting) {
+            // Don't let changes be saved or deleted again while they are being written
+            return true
+        }
+
         when (item!!.itemId) {
             R.id.action_done -> handleDoneAction()
             R.id.action_delete -> handleDeleteAction()
@@ -141,7 +154,8 @@ abstract class ItemEditActivity<T : BaseItem> : AppCompatActivity() {
     }
 
     override fun onBackPressed() {
-        handleCloseAction()
+        // The activity finishes with the result of the write once it has been written
+        if (!mIsWriting) handleCloseAction()
     }
 
     protected open fun handleCloseAction() {
@@ -153,4 +167,16 @@ abstract class ItemEditActivity<T : BaseItem> : AppCompatActivity() {
 
     protected abstract fun handleDeleteAction()
 
+    /**
+     * Writes changes to the database in the background, so that the UI isn't blocked while they are
+     * saved, then invokes [onWritten] on the main thread with the result of the [write].
+     *
+     * The [write] runs on the writer thread of [DataTasks], so it must not access the UI. Done and
+     * delete actions are ignored from when it is submitted.
+     */
+    protected fun <R> writeInBackground(write: () -> R, onWritten: (R) -> Unit) {
+        mIsWriting = true
+        DataTasks.write(write, onWritten)
+    }
+
 }
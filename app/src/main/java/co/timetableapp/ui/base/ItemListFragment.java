@@ -29,9 +29,15 @@ import android.widget.FrameLayout;
 import org.jetbrains.annotations.NotNull;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
 
 import co.timetableapp.R;
 import co.timetableapp.data.handler.TimetableItemHandler;
+import co.timetableapp.data.query.ObservableQuery;
+import co.timetableapp.data.query.ResultChanges;
 import co.timetableapp.model.TimetableItem;
 
 /**
@@ -61,6 +67,14 @@ public abstract class ItemListFragment<T extends TimetableItem> extends Fragment
      */
     @Nullable protected ArrayList<T> mItems;
 
+    /**
+     * The query for the items being displayed, which is observed to update the list when the items
+     * change.
+     *
+     * @see #createItemsQuery()
+     */
+    @Nullable private ObservableQuery<T> mItemsQuery;
+
     /**
      * The RecyclerView adapter used when displaying items to the list.
      */
@@ -93,6 +107,14 @@ public abstract class ItemListFragment<T extends TimetableItem> extends Fragment
         return mRootView;
     }
 
+    @Override
+    public void onDestroyView() {
+        super.onDestroyView();
+        if (mItemsQuery != null) {
+            mItemsQuery.close();
+        }
+    }
+
     @Override
     public void setupLayout() {
         setupList();
@@ -103,10 +125,7 @@ public abstract class ItemListFragment<T extends TimetableItem> extends Fragment
 
     @Override
     public void setupList() {
-        assert mDataHandler != null;
-        mItems = fetchItems();
-        sortList();
-
+        mItems = new ArrayList<>();
         mAdapter = setupAdapter();
 
         mRecyclerView = (RecyclerView) mRootView.findViewById(R.id.recyclerView);
@@ -116,36 +135,112 @@ public abstract class ItemListFragment<T extends TimetableItem> extends Fragment
         mRecyclerView.setLayoutManager(new LinearLayoutManager(getActivity()));
         mRecyclerView.setHasFixedSize(true);
         mRecyclerView.setAdapter(mAdapter);
+
+        // The items are loaded in the background and displayed once they are ready
+        mItemsQuery = createItemsQuery();
+        mItemsQuery.observe(new ObservableQuery.Observer<T>() {
+            @Override
+            public void onResultsChanged(@NotNull List<? extends T> results,
+                                         @NotNull ResultChanges<? extends T> changes) {
+                applyChanges(changes);
+            }
+        });
     }
 
     @NotNull
     @Override
-    public ArrayList<T> fetchItems() {
+    public ObservableQuery<T> createItemsQuery() {
         if (mDataHandler == null) {
             throw new NullPointerException("data handler is null");
         }
-        return mDataHandler.getItems(getActivity().getApplication());
+        return mDataHandler.observeItems(
+                getActivity().getApplication(), Collections.<String>emptyList());
     }
 
     @Override
     public void updateList() {
+        assert mItemsQuery != null;
+        mItemsQuery.reload();
+    }
+
+    /**
+     * Updates the list with changes to the results of the items query, notifying the adapter of
+     * only the items that have changed where possible.
+     */
+    private void applyChanges(ResultChanges<? extends T> changes) {
         assert mItems != null;
-        mItems.clear();
-        mItems.addAll(fetchItems());
+        assert mAdapter != null;
+
+        for (T item : changes.getRemoved()) {
+            int position = indexOfItem(item.getId());
+            mItems.remove(position);
+            mAdapter.notifyItemRemoved(position);
+        }
+
+        List<Integer> oldOrder = new ArrayList<>();
+        for (T item : mItems) {
+            oldOrder.add(item.getId());
+        }
+
+        Set<Integer> changedIds = new HashSet<>();
+        for (T item : changes.getChanged()) {
+            mItems.set(indexOfItem(item.getId()), item);
+            changedIds.add(item.getId());
+        }
+        mItems.addAll(changes.getAdded());
         sortList();
 
-        assert mAdapter != null;
-        mAdapter.notifyDataSetChanged();
+        // Items can only be inserted or changed individually if the items that were already in the
+        // list are in the same order after sorting
+        Set<Integer> oldIds = new HashSet<>(oldOrder);
+        List<Integer> newOrder = new ArrayList<>();
+        for (T item : mItems) {
+            if (oldIds.contains(item.getId())) {
+                newOrder.add(item.getId());
+            }
+        }
+
+        if (oldOrder.isEmpty()) {
+            // Nothing was displayed before, such as when the items have first been loaded
+            mAdapter.notifyDataSetChanged();
+
+        } else if (newOrder.equals(oldOrder)) {
+            for (int i = 0; i < mItems.size(); i++) {
+                int id = mItems.get(i).getId();
+                if (!oldIds.contains(id)) {
+                    mAdapter.notifyItemInserted(i);
+                } else if (changedIds.contains(id)) {
+                    mAdapter.notifyItemChanged(i);
+                }
+            }
+        } else {
+            mAdapter.notifyDataSetChanged();
+        }
 
         refreshPlaceholderStatus();
     }
 
+    private int indexOfItem(int itemId) {
+        assert mItems != null;
+        for (int i = 0; i < mItems.size(); i++) {
+            if (mItems.get(i).getId() == itemId) {
+                return i;
+            }
+        }
+        throw new IllegalArgumentException("no item in the list with id " + itemId);
+    }
+
     @Override
     public void refreshPlaceholderStatus() {
         assert mItems != null;
         assert mRecyclerView != null;
 
-        if (mItems.isEmpty()) {
+        if (mItemsQuery == null || !mItemsQuery.isLoaded()) {
+            // Neither the list nor the placeholder are shown until the items have been loaded
+            mRecyclerView.setVisibility(View.GONE);
+            mPlaceholderLayout.setVisibility(View.GONE);
+
+        } else if (mItems.isEmpty()) {
             mRecyclerView.setVisibility(View.GONE);
             mPlaceholderLayout.setVisibility(View.VISIBLE);
 
@@ -19,6 +19,7 @@ package co.timetableapp.ui.base
 import android.support.v7.widget.RecyclerView
 import android.view.View
 import co.timetableapp.data.handler.TimetableItemHandler
+import co.timetableapp.data.query.ObservableQuery
 import co.timetableapp.model.TimetableItem
 
 /**
@@ -40,10 +41,10 @@ internal interface ItemListImpl<T : TimetableItem> {
      * Populates the items list with data from the database table for the current timetable, before
      * sorting this and displaying it.
      *
-     * This includes fetching the items, sorting the list, and setting up the adapter and
-     * [RecyclerView].
+     * This includes setting up the adapter and [RecyclerView], and observing the query for the
+     * items. The items are loaded in the background, then sorted and displayed once they are ready.
      *
-     * @see fetchItems
+     * @see createItemsQuery
      * @see sortList
      * @see setupAdapter
      */
@@ -52,9 +53,10 @@ internal interface ItemListImpl<T : TimetableItem> {
     /**
      * Subclasses should use this to specify items to display in the UI.
      *
-     * @return a list of items to use when populating the user interface.
+     * @return  a query for the items to use when populating the user interface. It is observed so
+     *          that the list is updated when the items change.
      */
-    fun fetchItems(): ArrayList<T>
+    fun createItemsQuery(): ObservableQuery<T>
 
     /**
      * Instantiates, sets up, and returns the relevant RecyclerView adapter.
@@ -71,7 +73,10 @@ internal interface ItemListImpl<T : TimetableItem> {
      * Updates the list with any modified or removed data. If there is none to display, the
      * placeholder layout is shown instead.
      *
-     * @see fetchItems
+     * This only needs to be invoked when the items the query selects are changed by something
+     * other than the database, since the list is updated when the items in the database change.
+     *
+     * @see createItemsQuery
      * @see sortList
      * @see refreshPlaceholderStatus
      */
@@ -41,6 +41,7 @@ import co.timetableapp.TimetableApplication
 import co.timetableapp.data.handler.ClassDetailHandler
 import co.timetableapp.data.handler.ClassHandler
 import co.timetableapp.data.handler.ClassTimeHandler
+import co.timetableapp.data.handler.DataHandler
 import co.timetableapp.model.*
 import co.timetableapp.ui.base.ItemEditActivity
 import co.timetableapp.ui.components.DateSelectorHelper
@@ -67,8 +68,6 @@ class ClassEditActivity : ItemEditActivity<Class>() {
         private const val REQUEST_CODE_CLASS_TIME_DETAIL = 3
     }
 
-    private var mNewDetailIdCount = 1
-
     private val mClassHandler = ClassHandler(this)
     private val mClassDetailHandler = ClassDetailHandler(this)
 
@@ -262,8 +261,8 @@ class ClassEditActivity : ItemEditActivity<Class>() {
 
         val pagerCount = mPagerAdapter.count // doesn't change as adapter count updates
 
-        val classDetailId =
-                classDetail?.id ?: mClassDetailHandler.getHighestItemId() + mNewDetailIdCount
+        // New details need their ids now since their class times are written before them
+        val classDetailId = classDetail?.id ?: mClassDetailHandler.reserveItemId()
         mClassDetailIds.add(classDetailId)
 
         val page = layoutInflater.inflate(R.layout.fragment_class_edit, null)
@@ -358,10 +357,6 @@ class ClassEditActivity : ItemEditActivity<Class>() {
         }
 
         mPagerAdapter.addViewWithTitle(page, title="Detail ${pagerCount + 1}")
-
-        if (isNewDetail) {
-            mNewDetailIdCount++
-        }
     }
 
     private fun sortAndGroupTimes(classTimes: ArrayList<ClassTime>): ArrayList<ClassTimeGroup> {
@@ -519,21 +514,9 @@ class ClassEditActivity : ItemEditActivity<Class>() {
             return
         }
 
-        // Now write the data (replace class detail values)
-
-        val highestClassId = mClassHandler.getHighestItemId()
-        val classId = if (mIsNew) highestClassId + 1 else mItem!!.id
+        // Now write the data
 
-        for (i in rooms.indices) {
-            val classDetailId = classDetailIds[i]
-            val room = rooms[i]
-            val building = buildings[i]
-            val teacher = teachers[i]
-
-            val classDetail = ClassDetail(classDetailId, classId, room, building, teacher)
-
-            mClassDetailHandler.replaceItem(classDetailId, classDetail)
-        }
+        val classId = if (mIsNew) DataHandler.NO_ID else mItem!!.id
 
         val currentTimetable = (application as TimetableApplication).currentTimetable!!
 
@@ -546,21 +529,40 @@ class ClassEditActivity : ItemEditActivity<Class>() {
             dbEndDate = Class.NO_DATE
         }
 
-        mItem = Class(classId,
+        val cls = Class(classId,
                 currentTimetable.id,
                 mSubject!!.id,
                 moduleName,
                 dbStartDate!!,
                 dbEndDate!!)
+        val isNew = mIsNew
 
-        if (mIsNew) {
-            mClassHandler.addItem(mItem!!)
-        } else {
-            mClassHandler.replaceItem(mItem!!.id, mItem!!)
-        }
+        writeInBackground({
+            mClassHandler.runInTransaction {
+                val savedClass = if (isNew) {
+                    mClassHandler.insertItem(cls)
+                } else {
+                    mClassHandler.replaceItem(cls.id, cls)
+                    cls
+                }
+
+                // The class details are written after the class since they reference it
+                val classDetails = rooms.indices.map {
+                    ClassDetail(classDetailIds[it], savedClass.id, rooms[it], buildings[it],
+                            teachers[it])
+                }
+                mClassDetailHandler.replaceItems(classDetails)
+
+                savedClass
+            }
+        }) {
+            mItem = it
 
-        setResult(Activity.RESULT_OK)
-        supportFinishAfterTransition()
+            val intent = Intent()
+            intent.putExtra(ItemEditActivity.EXTRA_ITEM, mItem)
+            setResult(Activity.RESULT_OK, intent)
+            supportFinishAfterTransition()
+        }
     }
 
     override fun handleDeleteAction() {
@@ -568,9 +570,11 @@ class ClassEditActivity : ItemEditActivity<Class>() {
                 .setTitle(R.string.delete_class)
                 .setMessage(R.string.delete_confirmation_class)
                 .setPositiveButton(R.string.action_delete) { _, _ ->
-                    mClassHandler.deleteItemWithReferences(mItem!!.id)
-                    setResult(Activity.RESULT_OK)
-                    finish()
+                    val classId = mItem!!.id
+                    writeInBackground({ mClassHandler.deleteItemWithReferences(classId) }) {
+                        setResult(Activity.RESULT_OK)
+                        finish()
+                    }
                 }
                 .setNegativeButton(R.string.action_cancel, null)
                 .show()
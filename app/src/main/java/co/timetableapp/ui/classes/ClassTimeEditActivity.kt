@@ -32,6 +32,7 @@ import android.widget.TextView
 import co.timetableapp.R
 import co.timetableapp.TimetableApplication
 import co.timetableapp.data.handler.ClassTimeHandler
+import co.timetableapp.data.handler.DataTasks
 import co.timetableapp.model.ClassDetail
 import co.timetableapp.model.ClassTime
 import co.timetableapp.ui.components.TimeSelectorHelper
@@ -94,6 +95,12 @@ class ClassTimeEditActivity : AppCompatActivity() {
 
     private val mClassTimeHandler = ClassTimeHandler(this)
 
+    /**
+     * Whether the class times are being written to the database, after which the activity will
+     * finish.
+     */
+    private var mIsWriting = false
+
     private lateinit var mStartTime: LocalTime
     private lateinit var mStartTimeHelper: TimeSelectorHelper
 
@@ -174,7 +181,7 @@ class ClassTimeEditActivity : AppCompatActivity() {
         supportActionBar!!.title = getString(titleResId)
 
         toolbar.setNavigationIcon(R.drawable.ic_close_black_24dp)
-        toolbar.setNavigationOnClickListener { handleCloseAction() }
+        toolbar.setNavigationOnClickListener { onBackPressed() }
     }
 
     private fun setupDayText() {
@@ -349,6 +356,11 @@ class ClassTimeEditActivity : AppCompatActivity() {
     }
 
     override fun onOptionsItemSelected(item: MenuItem): Boolean {
+        if (mIsWriting) {
+            // Don't let changes be saved or deleted again while they are being written
+            return true
+        }
+
         when (item.itemId) {
             R.id.action_done -> handleDoneAction()
             R.id.action_delete -> handleDeleteAction()
@@ -356,7 +368,10 @@ class ClassTimeEditActivity : AppCompatActivity() {
         return super.onOptionsItemSelected(item)
     }
 
-    override fun onBackPressed() = handleCloseAction()
+    override fun onBackPressed() {
+        // The activity finishes with the result of the write once it has been written
+        if (!mIsWriting) handleCloseAction()
+    }
 
     private fun handleCloseAction() {
         setResult(Activity.RESULT_CANCELED)
@@ -400,11 +415,10 @@ class ClassTimeEditActivity : AppCompatActivity() {
 
         val timetable = (application as TimetableApplication).currentTimetable!!
 
-        if (!mIsNewTime) {
-            for ((id) in mClassTimes!!) {
-                mClassTimeHandler.deleteItemWithReferences(id)
-            }
-        }
+        // Everything will be added fresh regardless of whether or not it is new.
+        // This is because there may be more or less ClassTimes than before so ids cannot
+        // be replaced exactly (delete 1, add 1).
+        val classTimes = ArrayList<ClassTime>()
 
         for (i in 0..timetable.weekRotations - 1) {
             if (mWeekNumbers[i] == null) {
@@ -415,25 +429,32 @@ class ClassTimeEditActivity : AppCompatActivity() {
             for (j in 0..6) {
                 val dayOfWeek = mDaysOfWeek[j] ?: continue
 
-                val id = mClassTimeHandler.getHighestItemId() + 1
-
-                val classTime = ClassTime(
-                        id,
+                classTimes.add(ClassTime(
+                        mClassTimeHandler.reserveItemId(),
                         timetable.id,
                         mClassDetailId,
                         dayOfWeek,
                         weekNumber,
                         mStartTime,
                         mEndTime
-                )
-
-                // Everything will be added fresh regardless of whether or not it is new.
-                // This is because there may be more or less ClassTimes than before so ids cannot
-                // be replaced exactly (delete 1, add 1).
-                mClassTimeHandler.addItem(classTime)
-                ClassTimeHandler.addAlarmsForClassTime(this, classTime)
+                ))
             }
+        }
+
+        val oldClassTimeIds = mClassTimes?.map { it.id } ?: emptyList()
 
+        // The write can outlive this activity, so it uses the application context
+        val context = applicationContext
+        val classTimeHandler = ClassTimeHandler(context)
+
+        mIsWriting = true
+        DataTasks.write({
+            classTimeHandler.runInTransaction {
+                classTimeHandler.deleteItems(oldClassTimeIds)
+                classTimeHandler.addItems(classTimes)
+            }
+            classTimes.forEach { ClassTimeHandler.addAlarmsForClassTime(context, it) }
+        }) {
             val intent = Intent().putExtra(EXTRA_TAB_POSITION, mTabPos)
             setResult(Activity.RESULT_OK, intent)
             supportFinishAfterTransition()
@@ -441,13 +462,15 @@ class ClassTimeEditActivity : AppCompatActivity() {
     }
 
     private fun handleDeleteAction() {
-        for ((id) in mClassTimes!!) {
-            mClassTimeHandler.deleteItemWithReferences(id)
-        }
+        val classTimeIds = mClassTimes!!.map { it.id }
+        val classTimeHandler = ClassTimeHandler(applicationContext)
 
-        val intent = Intent().putExtra(EXTRA_TAB_POSITION, mTabPos)
-        setResult(Activity.RESULT_OK, intent)
-        finish()
+        mIsWriting = true
+        DataTasks.write({ classTimeHandler.deleteItems(classTimeIds) }) {
+            val intent = Intent().putExtra(EXTRA_TAB_POSITION, mTabPos)
+            setResult(Activity.RESULT_OK, intent)
+            finish()
+        }
     }
 
 }
@@ -16,7 +16,6 @@
 
 package co.timetableapp.ui.classes
 
-import android.app.Activity
 import android.content.DialogInterface
 import android.content.Intent
 import android.os.Bundle
@@ -28,6 +27,9 @@ import android.view.MenuInflater
 import android.view.MenuItem
 import co.timetableapp.R
 import co.timetableapp.data.handler.ClassHandler
+import co.timetableapp.data.query.ObservableQuery
+import co.timetableapp.data.schema.ClassesSchema
+import co.timetableapp.data.schema.SubjectsSchema
 import co.timetableapp.model.Class
 import co.timetableapp.ui.base.ItemDetailActivity
 import co.timetableapp.ui.base.ItemListFragment
@@ -84,8 +86,18 @@ class ClassesFragment : ItemListFragment<Class>() {
         return adapter
     }
 
-    override fun fetchItems() =
-            (mDataHandler as ClassHandler).getCurrentClasses(activity.application, mShowAll)
+    override fun createItemsQuery(): ObservableQuery<Class> {
+        // The loader runs in the background, so it mustn't use the activity
+        val classHandler = mDataHandler as ClassHandler
+        val application = activity.application
+
+        val loader = object : ObservableQuery.Loader<Class>() {
+            override fun loadAll() = classHandler.getCurrentClasses(application, mShowAll)
+        }
+
+        // Classes are displayed and sorted using the names of their subjects
+        return ObservableQuery(ClassesSchema.TABLE_NAME, listOf(SubjectsSchema.TABLE_NAME), loader)
+    }
 
     override fun sortList() = mItems!!.sortWith(Class.NaturalSortComparator(activity))
 
@@ -98,16 +110,6 @@ class ClassesFragment : ItemListFragment<Class>() {
             R.color.mdu_white,
             true)
 
-    override fun onActivityResult(requestCode: Int, resultCode: Int, data: Intent?) {
-        super.onActivityResult(requestCode, resultCode, data)
-
-        if (requestCode == REQUEST_CODE_CLASS_DETAIL) {
-            if (resultCode == Activity.RESULT_OK) {
-                updateList()
-            }
-        }
-    }
-
     override fun onCreateOptionsMenu(menu: Menu?, inflater: MenuInflater?) {
         super.onCreateOptionsMenu(menu, inflater)
         inflater!!.inflate(R.menu.menu_classes, menu)
@@ -24,6 +24,7 @@ import android.support.v7.app.AlertDialog
 import android.widget.EditText
 import co.timetableapp.R
 import co.timetableapp.TimetableApplication
+import co.timetableapp.data.handler.DataHandler
 import co.timetableapp.data.handler.EventHandler
 import co.timetableapp.model.Color
 import co.timetableapp.model.Event
@@ -185,7 +186,7 @@ class EventEditActivity : ItemEditActivity<Event>() {
             return
         }
 
-        val id = if (mIsNew) mDataHandler.getHighestItemId() + 1 else mItem!!.id
+        val id = if (mIsNew) DataHandler.NO_ID else mItem!!.id
 
         val timetableId = (application as TimetableApplication).currentTimetable!!.id
 
@@ -200,15 +201,23 @@ class EventEditActivity : ItemEditActivity<Event>() {
                 if (mSubject == null) 0 else mSubject!!.id
         )
 
-        if (mIsNew) {
-            mDataHandler.addItem(mItem!!)
-        } else {
-            mDataHandler.replaceItem(mItem!!.id, mItem!!)
-        }
+        val item = mItem!!
+        val isNew = mIsNew
+        writeInBackground({
+            if (isNew) {
+                mDataHandler.insertItem(item)
+            } else {
+                mDataHandler.replaceItem(item.id, item)
+                item
+            }
+        }) {
+            mItem = it
 
-        val intent = Intent()
-        setResult(Activity.RESULT_OK, intent)
-        supportFinishAfterTransition()
+            val intent = Intent()
+            intent.putExtra(ItemEditActivity.EXTRA_ITEM, mItem)
+            setResult(Activity.RESULT_OK, intent)
+            supportFinishAfterTransition()
+        }
     }
 
     override fun handleDeleteAction() {
@@ -216,9 +225,11 @@ class EventEditActivity : ItemEditActivity<Event>() {
                 .setTitle(R.string.delete_exam)
                 .setMessage(R.string.delete_confirmation)
                 .setPositiveButton(R.string.action_delete) { _, _ ->
-                    mDataHandler.deleteItem(mItem!!.id)
-                    setResult(Activity.RESULT_OK)
-                    finish()
+                    val itemId = mItem!!.id
+                    writeInBackground({ mDataHandler.deleteItem(itemId) }) {
+                        setResult(Activity.RESULT_OK)
+                        finish()
+                    }
                 }
                 .setNegativeButton(R.string.action_cancel, null)
                 .show()
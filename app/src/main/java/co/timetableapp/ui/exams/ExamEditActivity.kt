@@ -28,6 +28,7 @@ import android.widget.NumberPicker
 import android.widget.TextView
 import co.timetableapp.R
 import co.timetableapp.TimetableApplication
+import co.timetableapp.data.handler.DataHandler
 import co.timetableapp.data.handler.ExamHandler
 import co.timetableapp.model.Color
 import co.timetableapp.model.Exam
@@ -239,7 +240,7 @@ class ExamEditActivity : ItemEditActivity<Exam>() {
             return
         }
 
-        val id = if (mIsNew) mDataHandler.getHighestItemId() + 1 else mItem!!.id
+        val id = if (mIsNew) DataHandler.NO_ID else mItem!!.id
 
         val timetableId = (application as TimetableApplication).currentTimetable!!.id
 
@@ -257,15 +258,23 @@ class ExamEditActivity : ItemEditActivity<Exam>() {
                 mEditTextNotes.text.toString().trim()
         )
 
-        if (mIsNew) {
-            mDataHandler.addItem(mItem!!)
-        } else {
-            mDataHandler.replaceItem(mItem!!.id, mItem!!)
-        }
+        val item = mItem!!
+        val isNew = mIsNew
+        writeInBackground({
+            if (isNew) {
+                mDataHandler.insertItem(item)
+            } else {
+                mDataHandler.replaceItem(item.id, item)
+                item
+            }
+        }) {
+            mItem = it
 
-        val intent = Intent()
-        setResult(Activity.RESULT_OK, intent)
-        supportFinishAfterTransition()
+            val intent = Intent()
+            intent.putExtra(ItemEditActivity.EXTRA_ITEM, mItem)
+            setResult(Activity.RESULT_OK, intent)
+            supportFinishAfterTransition()
+        }
     }
 
     override fun handleDeleteAction() {
@@ -273,9 +282,11 @@ class ExamEditActivity : ItemEditActivity<Exam>() {
                 .setTitle(R.string.delete_exam)
                 .setMessage(R.string.delete_confirmation)
                 .setPositiveButton(R.string.action_delete) { _, _ ->
-                    mDataHandler.deleteItem(mItem!!.id)
-                    setResult(Activity.RESULT_OK)
-                    finish()
+                    val itemId = mItem!!.id
+                    writeInBackground({ mDataHandler.deleteItem(itemId) }) {
+                        setResult(Activity.RESULT_OK)
+                        finish()
+                    }
                 }
                 .setNegativeButton(R.string.action_cancel, null)
                 .show()
@@ -20,6 +20,10 @@ import android.app.Activity
 import co.timetableapp.data.handler.AssignmentHandler
 import co.timetableapp.data.handler.EventHandler
 import co.timetableapp.data.handler.ExamHandler
+import co.timetableapp.data.query.Filters
+import co.timetableapp.data.schema.AssignmentsSchema
+import co.timetableapp.data.schema.EventsSchema
+import co.timetableapp.data.schema.ExamsSchema
 import co.timetableapp.model.Assignment
 import co.timetableapp.model.Event
 import co.timetableapp.model.Exam
@@ -33,53 +37,69 @@ class HomeDataHelper(private val activity: Activity) {
     private val application = activity.application
     private val today = LocalDate.now()
 
+    private val todayEpochDay = today.toEpochDay().toString()
+
     /**
      * @return a list of all [assignments][Assignment] due today
      */
-    fun getAssignmentsToday() = AssignmentHandler(activity).getItems(application).filter {
-        it.occursOnDate(today)
-    }
+    fun getAssignmentsToday() = AssignmentHandler(activity).getItemSummaries(application,
+            Filters.equal(AssignmentsSchema.COL_DUE_DATE, todayEpochDay))
+
+    /**
+     * @return  a map of class ids to the number of [assignments][Assignment] for that class due
+     *          today. Classes without assignments due today are not included.
+     */
+    fun countAssignmentsTodayByClass() = AssignmentHandler(activity).countItemsGrouped(
+            application,
+            AssignmentsSchema.COL_CLASS_ID,
+            Filters.equal(AssignmentsSchema.COL_DUE_DATE, todayEpochDay))
 
     /**
      * @return a list of overdue [assignments][Assignment]
      */
-    fun getOverdueAssignments() =
-            AssignmentHandler(activity).getItems(application).filter { it.isOverdue() }
+    fun getOverdueAssignments() = AssignmentHandler(activity).getItemSummaries(application,
+            Filters.lessThan(AssignmentsSchema.COL_DUE_DATE, todayEpochDay),
+            Filters.lessThan(AssignmentsSchema.COL_COMPLETION_PROGRESS, "100"))
 
     /**
      * @return  a list of [assignments][Assignment] occurring in the next [numOfDays] days, not
      *          including today
      */
-    fun getUpcomingAssignments(numOfDays: Long) =
-            AssignmentHandler(activity).getItems(application).filter {
-                it.dueDate.isAfter(today) && it.dueDate.isBefore(today.plusDays(numOfDays))
-            }
+    fun getUpcomingAssignments(numOfDays: Long) = AssignmentHandler(activity).getItemSummaries(
+            application,
+            upcomingFilter(AssignmentsSchema.COL_DUE_DATE, numOfDays))
 
     /**
      * @return a list of [exams][Exam] occurring today
      */
-    fun getExamsToday() =
-            ExamHandler(activity).getItems(application).filter { it.occursOnDate(today) }
+    fun getExamsToday() = ExamHandler(activity).getItemSummaries(application,
+            Filters.equal(ExamsSchema.COL_DATE, todayEpochDay))
 
     /**
      * @return a list of [exams][Exam] occurring in the next [numOfDays] days, not including today
      */
-    fun getUpcomingExams(numOfDays: Long) = ExamHandler(activity).getItems(application).filter {
-        it.date.isAfter(today) && it.date.isBefore(today.plusDays(numOfDays))
-    }
+    fun getUpcomingExams(numOfDays: Long) = ExamHandler(activity).getItemSummaries(application,
+            upcomingFilter(ExamsSchema.COL_DATE, numOfDays))
 
     /**
      * @return a list of [events][Event] occurring today
      */
-    fun getEventsToday() =
-            EventHandler(activity).getItems(application).filter { it.occursOnDate(today) }
+    fun getEventsToday() = EventHandler(activity).getItemSummaries(application,
+            Filters.equal(EventsSchema.COL_START_DATE, todayEpochDay))
 
     /**
      * @return a list of [events][Event] occurring in the next [numOfDays] days, not including today
      */
-    fun getUpcomingEvents(numOfDays: Long) = EventHandler(activity).getItems(application).filter {
-        it.startDateTime.toLocalDate().isAfter(today) &&
-                it.startDateTime.toLocalDate().isBefore(today.plusDays(numOfDays))
-    }
+    fun getUpcomingEvents(numOfDays: Long) = EventHandler(activity).getItemSummaries(application,
+            upcomingFilter(EventsSchema.COL_START_DATE, numOfDays))
+
+    /**
+     * @return  a filter for rows with a date in the [dateCol] column after today, but before
+     *          [numOfDays] days from today
+     */
+    private fun upcomingFilter(dateCol: String, numOfDays: Long) = Filters.between(
+            dateCol,
+            today.plusDays(1).toEpochDay().toString(),
+            today.plusDays(numOfDays - 1).toEpochDay().toString())
 
 }
@@ -28,6 +28,15 @@ import android.view.LayoutInflater
 import android.view.View
 import android.view.ViewGroup
 import co.timetableapp.R
+import co.timetableapp.data.handler.TableObserver
+import co.timetableapp.data.schema.AssignmentsSchema
+import co.timetableapp.data.schema.ClassDetailsSchema
+import co.timetableapp.data.schema.ClassTimesSchema
+import co.timetableapp.data.schema.ClassesSchema
+import co.timetableapp.data.schema.EventsSchema
+import co.timetableapp.data.schema.ExamsSchema
+import co.timetableapp.data.schema.SubjectsSchema
+import co.timetableapp.data.schema.TermsSchema
 import co.timetableapp.model.*
 import co.timetableapp.model.home.HomeHeader
 import co.timetableapp.model.home.HomeItem
@@ -57,13 +66,33 @@ class TodayFragment : Fragment() {
 
     private val mItems = ArrayList<HomeListItem>()
 
+    /**
+     * Observes the tables of the items being displayed, so that the list is refreshed when they
+     * change.
+     */
+    private val mTableObserver = TableObserver(listOf(
+            ClassTimesSchema.TABLE_NAME,
+            ClassDetailsSchema.TABLE_NAME,
+            ClassesSchema.TABLE_NAME,
+            SubjectsSchema.TABLE_NAME,
+            TermsSchema.TABLE_NAME,
+            AssignmentsSchema.TABLE_NAME,
+            ExamsSchema.TABLE_NAME,
+            EventsSchema.TABLE_NAME)) { refreshList() }
+
     override fun onCreateView(inflater: LayoutInflater?, container: ViewGroup?,
                               savedInstanceState: Bundle?): View? {
         val rootView = inflater!!.inflate(R.layout.fragment_home_main, container, false)
         setupLayout(rootView)
+        mTableObserver.start()
         return rootView
     }
 
+    override fun onDestroyView() {
+        super.onDestroyView()
+        mTableObserver.stop()
+    }
+
     private fun setupLayout(rootView: View) {
         populateList()
 
@@ -77,13 +106,9 @@ class TodayFragment : Fragment() {
         mAdapter.onItemClick { _, position ->
             val item = mItems[position] as HomeItem
             val intent = when (item) {
-                is ClassTime -> {
-                    val cls = Class.create(
-                            activity,
-                            ClassDetail.create(activity, item.classDetailId).classId
-                    )
+                is ScheduleEntry -> {
                     Intent(activity, ClassDetailActivity::class.java)
-                            .putExtra(ItemDetailActivity.EXTRA_ITEM, cls)
+                            .putExtra(ItemDetailActivity.EXTRA_ITEM, item.cls)
                 }
                 is Exam -> {
                     Intent(activity, ExamDetailActivity::class.java)
@@ -128,17 +153,11 @@ class TodayFragment : Fragment() {
         }
     }
 
-    override fun onActivityResult(requestCode: Int, resultCode: Int, data: Intent?) {
-        super.onActivityResult(requestCode, resultCode, data)
-
-        if (requestCode == MainActivity.REQUEST_CODE_ITEM_DETAIL) {
-            if (resultCode == Activity.RESULT_OK) {
-                Log.d(LOG_TAG, "TodayFragment: received activity result - refreshing lists")
-                mItems.clear()
-                populateList()
-                mAdapter.notifyDataSetChanged()
-            }
-        }
+    private fun refreshList() {
+        Log.d(LOG_TAG, "TodayFragment: displayed tables have changed - refreshing lists")
+        mItems.clear()
+        populateList()
+        mAdapter.notifyDataSetChanged()
     }
 
     /**
@@ -155,23 +174,21 @@ class TodayFragment : Fragment() {
          *
          * @see removeClassAssignments
          */
-        private val mAssignmentsToday by lazy { mDataHelper.getAssignmentsToday() }
+        private val mAssignmentsToday by lazy { ArrayList(mDataHelper.getAssignmentsToday()) }
 
         fun getClassListItems() = getDisplayedItems(
-                ScheduleUtils.getClassTimesForDate(activity, activity.application, LocalDate.now()),
+                ScheduleUtils.getScheduleForDate(activity, activity.application, LocalDate.now()),
                 R.string.title_activity_classes,
-                { removeClassAssignments(it as ClassTime) }
+                { removeClassAssignments(it as ScheduleEntry) }
         )
 
         /**
-         * Removes the assignments due for a particular [classTime] from [mAssignmentsToday].
+         * Removes the assignments due for the class of a schedule [entry] from
+         * [mAssignmentsToday].
          */
-        private fun removeClassAssignments(classTime: ClassTime) {
-            val classDetail = ClassDetail.create(activity, classTime.classDetailId)
-            val cls = Class.create(activity, classDetail.classId)
-
-            (mAssignmentsToday as ArrayList).removeAll(
-                    mDataHelper.getAssignmentsToday().filter { it.classId == cls.id }
+        private fun removeClassAssignments(entry: ScheduleEntry) {
+            mAssignmentsToday.removeAll(
+                    mDataHelper.getAssignmentsToday().filter { it.classId == entry.cls.id }
             )
         }
 
@@ -28,6 +28,12 @@ import android.view.LayoutInflater
 import android.view.View
 import android.view.ViewGroup
 import co.timetableapp.R
+import co.timetableapp.data.handler.TableObserver
+import co.timetableapp.data.schema.AssignmentsSchema
+import co.timetableapp.data.schema.ClassesSchema
+import co.timetableapp.data.schema.EventsSchema
+import co.timetableapp.data.schema.ExamsSchema
+import co.timetableapp.data.schema.SubjectsSchema
 import co.timetableapp.model.Assignment
 import co.timetableapp.model.Event
 import co.timetableapp.model.Exam
@@ -64,13 +70,30 @@ class UpcomingFragment : Fragment() {
 
     private val mItems = ArrayList<HomeListItem>()
 
+    /**
+     * Observes the tables of the items being displayed, so that the list is refreshed when they
+     * change.
+     */
+    private val mTableObserver = TableObserver(listOf(
+            AssignmentsSchema.TABLE_NAME,
+            ClassesSchema.TABLE_NAME,
+            SubjectsSchema.TABLE_NAME,
+            ExamsSchema.TABLE_NAME,
+            EventsSchema.TABLE_NAME)) { refreshList() }
+
     override fun onCreateView(inflater: LayoutInflater?, container: ViewGroup?,
                               savedInstanceState: Bundle?): View? {
         val rootView = inflater!!.inflate(R.layout.fragment_home_main, container, false)
         setupLayout(rootView)
+        mTableObserver.start()
         return rootView
     }
 
+    override fun onDestroyView() {
+        super.onDestroyView()
+        mTableObserver.stop()
+    }
+
     private fun setupLayout(rootView: View) {
         populateList()
 
@@ -120,17 +143,11 @@ class UpcomingFragment : Fragment() {
         }
     }
 
-    override fun onActivityResult(requestCode: Int, resultCode: Int, data: Intent?) {
-        super.onActivityResult(requestCode, resultCode, data)
-
-        if (requestCode == MainActivity.REQUEST_CODE_ITEM_DETAIL) {
-            if (resultCode == Activity.RESULT_OK) {
-                Log.d(LOG_TAG, "UpcomingFragment: received activity result - refreshing lists")
-                mItems.clear()
-                populateList()
-                mAdapter.notifyDataSetChanged()
-            }
-        }
+    private fun refreshList() {
+        Log.d(LOG_TAG, "UpcomingFragment: displayed tables have changed - refreshing lists")
+        mItems.clear()
+        populateList()
+        mAdapter.notifyDataSetChanged()
     }
 
     /**
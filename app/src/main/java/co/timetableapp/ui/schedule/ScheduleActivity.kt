@@ -34,9 +34,9 @@ import android.view.Menu
 import android.view.MenuItem
 import co.timetableapp.R
 import co.timetableapp.TimetableApplication
-import co.timetableapp.model.Class
-import co.timetableapp.model.ClassDetail
+import co.timetableapp.data.handler.DataTasks
 import co.timetableapp.model.ClassTime
+import co.timetableapp.model.ScheduleEntry
 import co.timetableapp.model.Timetable
 import co.timetableapp.ui.base.ItemDetailActivity
 import co.timetableapp.ui.base.NavigationDrawerActivity
@@ -65,6 +65,11 @@ class ScheduleActivity : NavigationDrawerActivity() {
     private lateinit var mPagerAdapter: DynamicPagerAdapter
     private val mViewPager by lazy { findViewById(R.id.viewPager) as ViewPager }
 
+    /**
+     * The task loading the class times in the background, or null if they aren't being loaded.
+     */
+    private var mLoadTask: DataTasks.Task? = null
+
     override fun onCreate(savedInstanceState: Bundle?) {
         super.onCreate(savedInstanceState)
         setContentView(R.layout.activity_schedule)
@@ -85,48 +90,81 @@ class ScheduleActivity : NavigationDrawerActivity() {
         mPagerAdapter = DynamicPagerAdapter()
         mViewPager.adapter = mPagerAdapter
 
-        setupTabContent()
-
         mViewPager.addOnPageChangeListener(TabLayout.TabLayoutOnPageChangeListener(tabLayout))
         tabLayout.setTabTextColors(
                 ContextCompat.getColor(this, R.color.mdu_text_white_secondary),
                 ContextCompat.getColor(this, R.color.mdu_text_white))
         tabLayout.setupWithViewPager(mViewPager)
 
-        goToNow()
+        setupTabContent { goToNow() }
     }
 
-    private fun setupTabContent() {
-        mPagerAdapter.removeAllViews(mViewPager)
+    override fun onDestroy() {
+        super.onDestroy()
+        mLoadTask?.cancel()
+    }
 
+    /**
+     * Loads the class times for each tab in the background, then replaces the tabs with them.
+     *
+     * @param onLoaded invoked once the tabs have been added
+     */
+    private fun setupTabContent(onLoaded: () -> Unit = {}) {
         val currentTimetable = (application as TimetableApplication).currentTimetable!!
 
         if (!currentTimetable.isValidToday()) {
+            mPagerAdapter.removeAllViews(mViewPager)
             showEmptySchedulePlaceholder()
             return
         }
 
         val today = LocalDate.now()
         val todayTabIndex = getTodayTabIndex()
+        val context = applicationContext
+
+        val loadClassTimes = {
+            val tabCount = currentTimetable.weekRotations * DayOfWeek.values().size
+            val firstTabDate = getTabDate(today, todayTabIndex, 0)
+            val lastTabDate = getTabDate(today, todayTabIndex, tabCount - 1)
+
+            // Read the schedule for every tab at once, then find the entries for each tab's date
+            val entriesByDate = ScheduleUtils.getScheduleByDate(
+                    context, currentTimetable, firstTabDate, lastTabDate)
+
+            val entriesByTab = ArrayList<List<ScheduleEntry>>(tabCount)
+            for (tabIndex in 0 until tabCount) {
+                val thisDay = getTabDate(today, todayTabIndex, tabIndex)
+                Log.v(LOG_TAG, "Finding lessons for " + thisDay.toString())
+
+                entriesByTab.add(entriesByDate[thisDay] ?: emptyList())
+            }
+
+            entriesByTab
+        }
 
+        mLoadTask?.cancel()
+        mLoadTask = DataTasks.read(loadClassTimes) {
+            mLoadTask = null
+            mPagerAdapter.removeAllViews(mViewPager)
+            addTabs(currentTimetable, it)
+            onLoaded()
+        }
+    }
+
+    /**
+     * Adds a tab for each day of each week rotation, displaying the [entriesByTab] for it.
+     */
+    private fun addTabs(currentTimetable: Timetable, entriesByTab: List<List<ScheduleEntry>>) {
         var daysCount = 0
 
         for (weekNumber in 1..currentTimetable.weekRotations) {
             for (dayOfWeek in DayOfWeek.values()) {
 
-                val thisDay = getTabDate(today, todayTabIndex, daysCount)
-                Log.v(LOG_TAG, "Finding lessons for " + thisDay.toString())
-
                 val tabTitle = makeTabName(dayOfWeek, currentTimetable, weekNumber)
 
-                val classTimes = ScheduleUtils.getClassTimesForDate(
-                        this,
-                        currentTimetable,
-                        thisDay,
-                        dayOfWeek,
-                        weekNumber) as ArrayList
+                val entries = entriesByTab[daysCount]
 
-                if (classTimes.isEmpty()) {
+                if (entries.isEmpty()) {
                     // Show a placeholder if there aren't any classes to display for this day
                     val placeholder = UiUtils.makePlaceholderView(
                             this,
@@ -137,19 +175,10 @@ class ScheduleActivity : NavigationDrawerActivity() {
                     continue
                 }
 
-                classTimes.sort()
-
-                val scheduleAdapter = ScheduleAdapter(this, classTimes)
+                val scheduleAdapter = ScheduleAdapter(this, entries)
                 scheduleAdapter.onItemClick { view, position ->
-                    val classTime = classTimes[position]
-
-                    // Not checking for DataNotFoundException since this would have been handled
-                    // when getting the list of items
-                    val classDetail = ClassDetail.create(baseContext, classTime.classDetailId)
-                    val cls = Class.create(this, classDetail.id)
-
                     val intent = Intent(this, ClassDetailActivity::class.java)
-                    intent.putExtra(ItemDetailActivity.EXTRA_ITEM, cls)
+                    intent.putExtra(ItemDetailActivity.EXTRA_ITEM, entries[position].cls)
 
                     var bundle: Bundle? = null
                     if (UiUtils.isApi21()) {
@@ -24,7 +24,8 @@ import android.view.View
 import android.view.ViewGroup
 import android.widget.TextView
 import co.timetableapp.R
-import co.timetableapp.model.*
+import co.timetableapp.model.ClassDetail
+import co.timetableapp.model.ScheduleEntry
 import co.timetableapp.ui.OnItemClick
 
 /**
@@ -32,7 +33,7 @@ import co.timetableapp.ui.OnItemClick
  */
 class ScheduleAdapter(
         private val context: Context,
-        private val classTimes: List<ClassTime>
+        private val entries: List<ScheduleEntry>
 ) : RecyclerView.Adapter<ScheduleAdapter.ScheduleViewHolder>() {
 
     private var onItemClick: OnItemClick? = null
@@ -48,19 +49,14 @@ class ScheduleAdapter(
     }
 
     override fun onBindViewHolder(holder: ScheduleViewHolder?, position: Int) {
-        val classTime = classTimes[position]
-
-        val classDetail = ClassDetail.create(context, classTime.classDetailId)
-        val cls = Class.create(context, classDetail.classId)
-        val subject = Subject.create(context, cls.subjectId)
-
-        val color = Color(subject.colorId)
+        val entry = entries[position]
+        val classTime = entry.classTime
 
         with(holder!!) {
             colorView.setBackgroundColor(
-                    ContextCompat.getColor(context, color.getPrimaryColorResId(context)))
-            subjectText.text = cls.makeName(subject)
-            detailText.text = makeDetailText(classDetail)
+                    ContextCompat.getColor(context, entry.color.getPrimaryColorResId(context)))
+            subjectText.text = entry.makeName()
+            detailText.text = makeDetailText(entry.classDetail)
             timesText.text = "${classTime.startTime} - ${classTime.endTime}"
         }
     }
@@ -85,7 +81,7 @@ class ScheduleAdapter(
         return builder.toString()
     }
 
-    override fun getItemCount() = classTimes.size
+    override fun getItemCount() = entries.size
 
     inner class ScheduleViewHolder(itemView: View) : RecyclerView.ViewHolder(itemView) {
 
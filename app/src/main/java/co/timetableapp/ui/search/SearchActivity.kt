@@ -0,0 +1,173 @@
+/*
+ * Copyright 2017 Farbod Salamat-Zadeh
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package co.timetableapp.ui.search
+
+import android.content.Intent
+import android.os.Bundle
+import android.support.v7.app.AppCompatActivity
+import android.support.v7.widget.LinearLayoutManager
+import android.support.v7.widget.RecyclerView
+import android.support.v7.widget.SearchView
+import android.support.v7.widget.Toolbar
+import android.view.View
+import android.widget.FrameLayout
+import co.timetableapp.R
+import co.timetableapp.data.handler.DataTasks
+import co.timetableapp.data.handler.SearchIndex
+import co.timetableapp.model.*
+import co.timetableapp.ui.assignments.AssignmentDetailActivity
+import co.timetableapp.ui.base.ItemDetailActivity
+import co.timetableapp.ui.base.ItemEditActivity
+import co.timetableapp.ui.classes.ClassDetailActivity
+import co.timetableapp.ui.events.EventDetailActivity
+import co.timetableapp.ui.exams.ExamDetailActivity
+import co.timetableapp.ui.subjects.SubjectEditActivity
+import co.timetableapp.util.UiUtils
+
+/**
+ * An activity for searching the user's assignments, exams, events, classes and subjects.
+ *
+ * Results are updated as the user types, with each search run in the background. A search that
+ * is still running when the text changes is cancelled, so that only the latest results are shown.
+ *
+ * @see SearchIndex
+ */
+class SearchActivity : AppCompatActivity() {
+
+    companion object {
+
+        /**
+         * The maximum number of results shown for a search.
+         */
+        private const val MAX_RESULTS = 50
+    }
+
+    private val mResults = ArrayList<SearchResult>()
+
+    private lateinit var mAdapter: SearchResultsAdapter
+
+    private lateinit var mRecyclerView: RecyclerView
+    private lateinit var mPlaceholderLayout: FrameLayout
+
+    private var mSearchTask: DataTasks.Task? = null
+
+    override fun onCreate(savedInstanceState: Bundle?) {
+        super.onCreate(savedInstanceState)
+        setContentView(R.layout.activity_search)
+
+        setupToolbar()
+        setupList()
+        setupSearchView()
+
+        refreshPlaceholderStatus()
+    }
+
+    override fun onDestroy() {
+        super.onDestroy()
+        mSearchTask?.cancel()
+    }
+
+    private fun setupToolbar() {
+        val toolbar = findViewById(R.id.toolbar) as Toolbar
+        setSupportActionBar(toolbar)
+        supportActionBar!!.setDisplayShowTitleEnabled(false)
+
+        toolbar.navigationIcon = UiUtils.tintDrawable(this, R.drawable.ic_arrow_back_black_24dp)
+        toolbar.setNavigationOnClickListener { onBackPressed() }
+    }
+
+    private fun setupList() {
+        mAdapter = SearchResultsAdapter(this, mResults)
+        mAdapter.onItemClick { _, position -> showResult(mResults[position]) }
+
+        mRecyclerView = findViewById(R.id.recyclerView) as RecyclerView
+        with(mRecyclerView) {
+            layoutManager = LinearLayoutManager(this@SearchActivity)
+            setHasFixedSize(true)
+            adapter = mAdapter
+        }
+
+        mPlaceholderLayout = findViewById(R.id.placeholder) as FrameLayout
+    }
+
+    private fun setupSearchView() {
+        val searchView = findViewById(R.id.searchView) as SearchView
+        searchView.setOnQueryTextListener(object : SearchView.OnQueryTextListener {
+            override fun onQueryTextSubmit(query: String?): Boolean {
+                searchView.clearFocus()
+                return true
+            }
+
+            override fun onQueryTextChange(newText: String?): Boolean {
+                search(newText ?: "")
+                return true
+            }
+        })
+    }
+
+    /**
+     * Searches for the [text] in the background, cancelling the previous search, and displays the
+     * results once they are ready.
+     */
+    private fun search(text: String) {
+        mSearchTask?.cancel()
+
+        val searchIndex = SearchIndex(this)
+        mSearchTask = DataTasks.read({ searchIndex.search(application, text, MAX_RESULTS) }) {
+            mResults.clear()
+            mResults.addAll(it)
+            mAdapter.notifyDataSetChanged()
+            refreshPlaceholderStatus()
+        }
+    }
+
+    private fun showResult(result: SearchResult) {
+        val item = result.item
+        val intent = when (item) {
+            is Assignment -> Intent(this, AssignmentDetailActivity::class.java)
+                    .putExtra(ItemDetailActivity.EXTRA_ITEM, item)
+            is Exam -> Intent(this, ExamDetailActivity::class.java)
+                    .putExtra(ItemDetailActivity.EXTRA_ITEM, item)
+            is Event -> Intent(this, EventDetailActivity::class.java)
+                    .putExtra(ItemDetailActivity.EXTRA_ITEM, item)
+            is Class -> Intent(this, ClassDetailActivity::class.java)
+                    .putExtra(ItemDetailActivity.EXTRA_ITEM, item)
+            is Subject -> Intent(this, SubjectEditActivity::class.java)
+                    .putExtra(ItemEditActivity.EXTRA_ITEM, item)
+            else -> throw IllegalArgumentException("invalid search result item: $item")
+        }
+        startActivity(intent)
+    }
+
+    private fun refreshPlaceholderStatus() {
+        if (mResults.isEmpty()) {
+            mRecyclerView.visibility = View.GONE
+            mPlaceholderLayout.visibility = View.VISIBLE
+
+            mPlaceholderLayout.removeAllViews()
+            mPlaceholderLayout.addView(UiUtils.makePlaceholderView(
+                    this,
+                    R.drawable.ic_view_agenda_black_24dp,
+                    R.string.placeholder_search,
+                    subtitleRes = R.string.placeholder_search_subtitle))
+        } else {
+            mRecyclerView.visibility = View.VISIBLE
+            mPlaceholderLayout.visibility = View.GONE
+        }
+    }
+
+}
@@ -0,0 +1,75 @@
+/*
+ * Copyright 2017 Farbod Salamat-Zadeh
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package co.timetableapp.ui.search
+
+import android.content.Context
+import android.support.v4.content.ContextCompat
+import android.support.v7.widget.RecyclerView
+import android.view.LayoutInflater
+import android.view.View
+import android.view.ViewGroup
+import android.widget.TextView
+import co.timetableapp.R
+import co.timetableapp.model.SearchResult
+import co.timetableapp.ui.OnItemClick
+
+/**
+ * A RecyclerView adapter for displaying the results of a search.
+ */
+class SearchResultsAdapter(
+        private val context: Context,
+        private val results: List<SearchResult>
+) : RecyclerView.Adapter<SearchResultsAdapter.ResultViewHolder>() {
+
+    private var onItemClick: OnItemClick? = null
+
+    fun onItemClick(action: OnItemClick) {
+        onItemClick = action
+    }
+
+    override fun onCreateViewHolder(parent: ViewGroup?, viewType: Int): ResultViewHolder {
+        val itemView = LayoutInflater.from(parent!!.context)
+                .inflate(R.layout.item_general, parent, false)
+        return ResultViewHolder(itemView)
+    }
+
+    override fun onBindViewHolder(holder: ResultViewHolder?, position: Int) {
+        val result = results[position]
+
+        with(holder!!) {
+            colorView.setBackgroundColor(
+                    ContextCompat.getColor(context, result.color.getPrimaryColorResId(context)))
+            titleText.text = result.title
+            typeText.text = context.getString(result.typeNameRes)
+        }
+    }
+
+    override fun getItemCount() = results.size
+
+    inner class ResultViewHolder(itemView: View) : RecyclerView.ViewHolder(itemView) {
+
+        val colorView = itemView.findViewById(R.id.color)!!
+        val titleText = itemView.findViewById(R.id.text1) as TextView
+        val typeText = itemView.findViewById(R.id.text2) as TextView
+
+        init {
+            itemView.setOnClickListener { onItemClick?.invoke(it, layoutPosition) }
+        }
+
+    }
+
+}
@@ -22,8 +22,12 @@ import android.net.Uri
 import android.os.Bundle
 import android.preference.Preference
 import android.preference.PreferenceFragment
+import android.widget.Toast
 import co.timetableapp.BuildConfig
 import co.timetableapp.R
+import co.timetableapp.data.IntegrityScanner
+import co.timetableapp.data.TimetableDbHelper
+import co.timetableapp.data.handler.DataTasks
 import co.timetableapp.licenses.LicensesActivity
 import co.timetableapp.util.NotificationUtils
 import co.timetableapp.util.PrefUtils
@@ -41,6 +45,7 @@ class SettingsFragment : PreferenceFragment() {
         addPreferencesFromResource(R.xml.preferences)
 
         setupDefaultLessonDurationPref()
+        setupRepairDataPref()
 
         setupNotificationSwitches()
         setupAssignmentNotificationPref()
@@ -70,6 +75,30 @@ class SettingsFragment : PreferenceFragment() {
         }
     }
 
+    private fun setupRepairDataPref() {
+        val repairDataPref = findPreference("pref_repair_data")
+        repairDataPref.onPreferenceClickListener = Preference.OnPreferenceClickListener {
+            val context = activity.applicationContext
+            repairDataPref.isEnabled = false
+
+            DataTasks.write({
+                IntegrityScanner.scanAndRepair(
+                        TimetableDbHelper.getInstance(context).writableDatabase)
+            }) { report ->
+                repairDataPref.isEnabled = true
+
+                val message = if (report.total == 0) {
+                    context.getString(R.string.pref_repairData_noProblems)
+                } else {
+                    context.resources.getQuantityString(
+                            R.plurals.pref_repairData_result, report.total, report.total)
+                }
+                Toast.makeText(context, message, Toast.LENGTH_SHORT).show()
+            }
+            true
+        }
+    }
+
     private fun setupAssignmentNotificationPref() {
         val assignmentNotificationPref =
                 findPreference(PrefUtils.PREF_ASSIGNMENT_NOTIFICATION_TIME)
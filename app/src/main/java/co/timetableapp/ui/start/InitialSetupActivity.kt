@@ -35,6 +35,7 @@ import android.view.ViewGroup
 import android.widget.*
 import co.timetableapp.R
 import co.timetableapp.TimetableApplication
+import co.timetableapp.data.handler.DataHandler
 import co.timetableapp.data.handler.SubjectHandler
 import co.timetableapp.data.handler.TimetableHandler
 import co.timetableapp.model.Subject
@@ -189,9 +190,7 @@ class InitialSetupActivity : AppCompatActivity() {
     private fun addTimetable(): Timetable {
         val dataHandler = TimetableHandler(this)
 
-        val timetable = sTimetableBuilder.build(dataHandler.getHighestItemId() + 1)
-
-        dataHandler.addItem(timetable)
+        val timetable = dataHandler.insertItem(sTimetableBuilder.build(DataHandler.NO_ID))
         (application as TimetableApplication).setCurrentTimetable(this, timetable)
 
         return timetable
@@ -204,6 +203,7 @@ class InitialSetupActivity : AppCompatActivity() {
     private fun addSubjects(timetableId: Int) {
         val dataHandler = SubjectHandler(this)
 
+        val subjects = ArrayList<Subject>()
         val subjectStrings = sSubjectText!!.split("\n")
         for (i in 1..subjectStrings.size) {
             val subjectStr = subjectStrings[i - 1]
@@ -215,14 +215,11 @@ class InitialSetupActivity : AppCompatActivity() {
             // The color of the subject will be the index i, but adjusted if i is over 19
             val defaultColorId = (i + 19) % 19
 
-            val subject = Subject(
-                    dataHandler.getHighestItemId() + 1,
-                    timetableId,
-                    subjectStr,
-                    "",
-                    defaultColorId)
-            dataHandler.addItem(subject)
+            subjects.add(Subject(
+                    dataHandler.reserveItemId(), timetableId, subjectStr, "", defaultColorId))
         }
+
+        dataHandler.addItems(subjects)
     }
 
     /**
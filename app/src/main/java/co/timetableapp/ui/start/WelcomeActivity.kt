@@ -16,27 +16,71 @@
 
 package co.timetableapp.ui.start
 
+import android.app.ProgressDialog
 import android.content.Intent
 import android.os.Bundle
 import android.support.v7.app.AppCompatActivity
 import co.timetableapp.R
 import co.timetableapp.TimetableApplication
+import co.timetableapp.data.DatabaseUpgrader
 import co.timetableapp.data.PortingFragment
+import co.timetableapp.data.handler.DataTasks
 import co.timetableapp.ui.home.MainActivity
 
 /**
  * This activity is the launcher activity. It redirects to [MainActivity] if the user already has
  * timetable data, otherwise displays a welcome screen.
  *
+ * If the app has been updated and the database needs upgrading, this is done in the background
+ * first, showing the progress in a dialog.
+ *
  * In the welcome screen, the user has options to import their data, or to go through a setup guide.
  *
  * @see InitialSetupActivity
  */
 class WelcomeActivity : AppCompatActivity() {
 
+    private var mUpgradeTask: DataTasks.Task? = null
+    private var mUpgradeDialog: ProgressDialog? = null
+
     override fun onCreate(savedInstanceState: Bundle?) {
         super.onCreate(savedInstanceState)
 
+        if (DatabaseUpgrader.isUpgradeNeeded(this)) {
+            upgradeDatabase()
+        } else {
+            start()
+        }
+    }
+
+    override fun onDestroy() {
+        super.onDestroy()
+        mUpgradeTask?.cancel()
+        mUpgradeDialog?.dismiss()
+    }
+
+    private fun upgradeDatabase() {
+        val dialog = ProgressDialog(this)
+        with(dialog) {
+            setMessage(getString(R.string.data_upgrading))
+            setProgressStyle(ProgressDialog.STYLE_HORIZONTAL)
+            setCancelable(false)
+            show()
+        }
+        mUpgradeDialog = dialog
+
+        mUpgradeTask = DatabaseUpgrader.upgrade(this, { completed, total ->
+            dialog.max = total
+            dialog.progress = completed
+        }) {
+            mUpgradeTask = null
+            dialog.dismiss()
+            mUpgradeDialog = null
+            start()
+        }
+    }
+
+    private fun start() {
         if (hasExistingData()) {
             startActivity(Intent(baseContext, MainActivity::class.java))
             finish()
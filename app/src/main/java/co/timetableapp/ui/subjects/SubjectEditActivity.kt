@@ -27,6 +27,7 @@ import android.widget.ImageView
 import android.widget.TextView
 import co.timetableapp.R
 import co.timetableapp.TimetableApplication
+import co.timetableapp.data.handler.DataHandler
 import co.timetableapp.data.handler.SubjectHandler
 import co.timetableapp.model.Color
 import co.timetableapp.model.Subject
@@ -125,28 +126,35 @@ class SubjectEditActivity : ItemEditActivity<Subject>() {
 
         val newAbbreviation = mAbbreviationEditText.text.toString()
 
-        if (mIsNew) {
+        val isNew = mIsNew
+        val subject = if (isNew) {
             val currentTimetable = (application as TimetableApplication).currentTimetable!!
 
-            mItem = Subject(mSubjectHandler.getHighestItemId() + 1,
+            Subject(DataHandler.NO_ID,
                     currentTimetable.id,
                     newName,
                     newAbbreviation,
                     mColor.id)
 
-            mSubjectHandler.addItem(mItem!!)
-
         } else {
-            mItem!!.name = newName
-            mItem!!.abbreviation = newAbbreviation
-            mItem!!.colorId = mColor.id
-            mSubjectHandler.replaceItem(mItem!!.id, mItem!!)
+            mItem!!.copy(name = newName, abbreviation = newAbbreviation, colorId = mColor.id)
         }
 
-        val intent = Intent()
-        intent.putExtra(ItemEditActivity.EXTRA_ITEM, mItem)
-        setResult(Activity.RESULT_OK, intent)
-        supportFinishAfterTransition()
+        writeInBackground({
+            if (isNew) {
+                mSubjectHandler.insertItem(subject)
+            } else {
+                mSubjectHandler.replaceItem(subject.id, subject)
+                subject
+            }
+        }) {
+            mItem = it
+
+            val intent = Intent()
+            intent.putExtra(ItemEditActivity.EXTRA_ITEM, mItem)
+            setResult(Activity.RESULT_OK, intent)
+            supportFinishAfterTransition()
+        }
     }
 
     override fun handleDeleteAction() {
@@ -154,9 +162,11 @@ class SubjectEditActivity : ItemEditActivity<Subject>() {
                 .setTitle(R.string.delete_subject)
                 .setMessage(R.string.delete_confirmation_subject)
                 .setPositiveButton(R.string.action_delete) { _, _ ->
-                    mSubjectHandler.deleteItemWithReferences(mItem!!.id)
-                    setResult(Activity.RESULT_OK)
-                    finish()
+                    val subjectId = mItem!!.id
+                    writeInBackground({ mSubjectHandler.deleteItemWithReferences(subjectId) }) {
+                        setResult(Activity.RESULT_OK)
+                        finish()
+                    }
                 }
                 .setNegativeButton(R.string.action_cancel, null)
                 .show()
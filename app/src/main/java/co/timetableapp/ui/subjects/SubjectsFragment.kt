@@ -16,7 +16,6 @@
 
 package co.timetableapp.ui.subjects
 
-import android.app.Activity
 import android.content.Intent
 import android.os.Bundle
 import android.support.v4.app.ActivityOptionsCompat
@@ -87,14 +86,4 @@ class SubjectsFragment : ItemListFragment<Subject>() {
             R.color.mdu_white,
             true)
 
-    override fun onActivityResult(requestCode: Int, resultCode: Int, data: Intent?) {
-        super.onActivityResult(requestCode, resultCode, data)
-
-        if (requestCode == REQUEST_CODE_SUBJECT_DETAIL) {
-            if (resultCode == Activity.RESULT_OK) {
-                updateList()
-            }
-        }
-    }
-
 }
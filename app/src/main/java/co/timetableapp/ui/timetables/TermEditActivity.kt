@@ -20,8 +20,8 @@ import android.app.Activity
 import android.support.design.widget.Snackbar
 import android.widget.EditText
 import co.timetableapp.R
+import co.timetableapp.data.handler.DataHandler
 import co.timetableapp.data.handler.TermHandler
-import co.timetableapp.data.handler.TimetableHandler
 import co.timetableapp.model.Term
 import co.timetableapp.model.Timetable
 import co.timetableapp.ui.base.ItemEditActivity
@@ -69,14 +69,9 @@ class TermEditActivity : ItemEditActivity<Term>() {
         intent.extras?.let { extras ->
             mItem = extras.getParcelable<Term>(ItemEditActivity.EXTRA_ITEM)
 
-            // TODO: find a better way of doing this
-            // If the timetable is new, then it may not be saved to the database. In this case the
-            // value passed for the id will be -1. If this is the case, we need to find what the id
-            // would be.
-            mTimetableId = extras.getInt(EXTRA_TIMETABLE_ID, -1)
-            if (mTimetableId == -1) {
-                mTimetableId = TimetableHandler(this).getHighestItemId() + 1
-            }
+            // If the timetable is new, it may not be saved to the database yet, but its id will
+            // have been reserved so it can still be passed here
+            mTimetableId = extras.getInt(EXTRA_TIMETABLE_ID)
         }
 
         mIsNew = mItem == null
@@ -135,28 +130,32 @@ class TermEditActivity : ItemEditActivity<Term>() {
             return
         }
 
-        val id = if (mIsNew) {
-            mDataHandler.getHighestItemId() + 1
-        } else {
-            mItem!!.id
-        }
+        val id = if (mIsNew) DataHandler.NO_ID else mItem!!.id
 
-        mItem = Term(id, mTimetableId, newName, mStartDate, mEndDate)
+        val term = Term(id, mTimetableId, newName, mStartDate, mEndDate)
+        val isNew = mIsNew
 
-        if (mIsNew) {
-            mDataHandler.addItem(mItem!!)
-        } else {
-            mDataHandler.replaceItem(mItem!!.id, mItem!!)
-        }
+        writeInBackground({
+            if (isNew) {
+                mDataHandler.insertItem(term)
+            } else {
+                mDataHandler.replaceItem(term.id, term)
+                term
+            }
+        }) {
+            mItem = it
 
-        setResult(Activity.RESULT_OK)
-        supportFinishAfterTransition()
+            setResult(Activity.RESULT_OK)
+            supportFinishAfterTransition()
+        }
     }
 
     override fun handleDeleteAction() {
-        mDataHandler.deleteItem(mItem!!.id)
-        setResult(Activity.RESULT_OK)
-        finish()
+        val termId = mItem!!.id
+        writeInBackground({ mDataHandler.deleteItem(termId) }) {
+            setResult(Activity.RESULT_OK)
+            finish()
+        }
     }
 
 }
@@ -147,7 +147,6 @@ class TimetableEditActivity : ItemEditActivity<Timetable>(), LabelledSpinner.OnI
 
     private fun setupTermsList() {
         mTerms = getTermsForTimetable(findTimetableId())
-        mTerms.sort()
 
         mAdapter = TermsAdapter(mTerms)
         mAdapter.onItemClick { view, position ->
@@ -227,18 +226,24 @@ class TimetableEditActivity : ItemEditActivity<Timetable>(), LabelledSpinner.OnI
     private fun refreshList() {
         mTerms.clear()
         mTerms.addAll(getTermsForTimetable(findTimetableId()))
-        mTerms.sort()
         mAdapter.notifyDataSetChanged()
     }
 
     private fun getTermsForTimetable(timetableId: Int): ArrayList<Term> {
         val query = Query.Builder()
                 .addFilter(Filters.equal(TermsSchema.COL_TIMETABLE_ID, timetableId.toString()))
+                .orderBy(TermsSchema.COL_START_DATE)
                 .build()
         return TermHandler(this).getAllItems(query)
     }
 
-    private fun findTimetableId() = mItem?.id ?: mTimetableHandler.getHighestItemId() + 1
+    /**
+     * The id for a new timetable, which is reserved when first needed since terms are written
+     * with the id before the timetable itself is saved.
+     */
+    private val mNewTimetableId by lazy { mTimetableHandler.reserveItemId() }
+
+    private fun findTimetableId() = mItem?.id ?: mNewTimetableId
 
     override fun onActivityResult(requestCode: Int, resultCode: Int, data: Intent?) {
         super.onActivityResult(requestCode, resultCode, data)
@@ -283,38 +288,48 @@ class TimetableEditActivity : ItemEditActivity<Timetable>(), LabelledSpinner.OnI
             return
         }
 
-        if (!mIsNew) {
-            // Delete class times with an invalid week number
-            if (mWeekRotations < mItem!!.weekRotations) {
-                val helper = TimetableDbHelper.getInstance(this)
-                val cursor = helper.readableDatabase.query(
-                        ClassTimesSchema.TABLE_NAME, null,
-                        ClassTimesSchema.COL_WEEK_NUMBER + ">?",
-                        arrayOf(mWeekRotations.toString()),
-                        null, null, null
-                )
-                cursor.moveToFirst()
-                while (!cursor.isAfterLast) {
-                    val classTime = ClassTime.from(cursor)
-                    ClassTimeHandler(this).deleteItemWithReferences(classTime.id)
-                    cursor.moveToNext()
+        val isNew = mIsNew
+        val oldWeekRotations = if (isNew) 0 else mItem!!.weekRotations
+        val weekRotations = mWeekRotations
+        val timetable = Timetable(findTimetableId(), name, mStartDate, mEndDate, weekRotations)
+
+        writeInBackground({
+            mTimetableHandler.runInTransaction {
+                // Delete class times with an invalid week number
+                if (!isNew && weekRotations < oldWeekRotations) {
+                    val helper = TimetableDbHelper.getInstance(this)
+                    val cursor = helper.readableDatabase.query(
+                            ClassTimesSchema.TABLE_NAME, null,
+                            ClassTimesSchema.COL_TIMETABLE_ID + "=? AND " +
+                                    ClassTimesSchema.COL_WEEK_NUMBER + ">?",
+                            arrayOf(timetable.id.toString(), weekRotations.toString()),
+                            null, null, null
+                    )
+                    val classTimeIds = ArrayList<Int>(cursor.count)
+                    val rowMapper = ClassTime.rowMapper(cursor)
+                    cursor.moveToFirst()
+                    while (!cursor.isAfterLast) {
+                        classTimeIds.add(rowMapper.mapRow().id)
+                        cursor.moveToNext()
+                    }
+                    cursor.close()
+
+                    ClassTimeHandler(this).deleteItems(classTimeIds)
                 }
-                cursor.close()
-            }
-        }
 
-        mItem = Timetable(findTimetableId(), name, mStartDate, mEndDate, mWeekRotations)
+                if (isNew) {
+                    mTimetableHandler.addItem(timetable)
+                } else {
+                    mTimetableHandler.replaceItem(timetable.id, timetable)
+                }
+            }
+        }) {
+            mItem = timetable
+            (application as TimetableApplication).setCurrentTimetable(this, timetable)
 
-        if (mIsNew) {
-            mTimetableHandler.addItem(mItem!!)
-        } else {
-            mTimetableHandler.replaceItem(mItem!!.id, mItem!!)
+            setResult(Activity.RESULT_OK)
+            supportFinishAfterTransition()
         }
-
-        (application as TimetableApplication).setCurrentTimetable(this, mItem!!)
-
-        setResult(Activity.RESULT_OK)
-        supportFinishAfterTransition()
     }
 
     override fun handleDeleteAction() {
@@ -332,16 +347,18 @@ class TimetableEditActivity : ItemEditActivity<Timetable>(), LabelledSpinner.OnI
                 .setTitle(R.string.delete_timetable)
                 .setMessage(R.string.delete_confirmation_timetable)
                 .setPositiveButton(R.string.action_delete) { _, _ ->
-                    mTimetableHandler.deleteItemWithReferences(mItem!!.id)
-
-                    // After the timetable has been deleted, change the current timetable
-                    val newCurrentTimetable = mTimetableHandler.getAllItems()[0]
-
-                    val timetableApp = application as TimetableApplication
-                    timetableApp.setCurrentTimetable(baseContext, newCurrentTimetable)
-
-                    setResult(Activity.RESULT_OK)
-                    finish()
+                    val timetableId = mItem!!.id
+                    writeInBackground({
+                        mTimetableHandler.deleteItemWithReferences(timetableId)
+                        mTimetableHandler.getAllItems()[0]
+                    }) { newCurrentTimetable ->
+                        // After the timetable has been deleted, change the current timetable
+                        val timetableApp = application as TimetableApplication
+                        timetableApp.setCurrentTimetable(baseContext, newCurrentTimetable)
+
+                        setResult(Activity.RESULT_OK)
+                        finish()
+                    }
                 }
                 .setNegativeButton(R.string.action_cancel, null)
                 .show()
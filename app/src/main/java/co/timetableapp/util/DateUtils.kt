@@ -18,9 +18,10 @@ package co.timetableapp.util
 
 import android.app.Application
 import co.timetableapp.TimetableApplication
+import co.timetableapp.model.Timetable
 import org.threeten.bp.LocalDate
 import org.threeten.bp.LocalDateTime
-import org.threeten.bp.Period
+import org.threeten.bp.LocalTime
 import org.threeten.bp.format.DateTimeFormatter
 import java.util.*
 
@@ -51,17 +52,38 @@ object DateUtils {
      */
     @JvmField val FORMATTER_SHORT_MONTH_YEAR = DateTimeFormatter.ofPattern("MMM uuuu")!!
 
+    /**
+     * @return the week number of the [localDate] in the rotation of the current timetable
+     * @see RotationCalendar
+     */
     @JvmOverloads
     @JvmStatic
     fun findWeekNumber(application: Application, localDate: LocalDate = LocalDate.now()): Int {
         val timetable = (application as TimetableApplication).currentTimetable!!
+        return findWeekNumber(timetable, localDate)
+    }
 
-        val days = Period.between(timetable.startDate, localDate).days
-        val nthWeek = days / 7
+    /**
+     * @return the week number of the [localDate] in the rotation of the [timetable]
+     * @see RotationCalendar
+     */
+    @JvmStatic
+    fun findWeekNumber(timetable: Timetable, localDate: LocalDate) =
+            RotationCalendar.of(timetable).weekNumberOf(localDate)
 
-        val weekNo = (nthWeek % timetable.weekRotations) + 1
-        return weekNo
-    }
+    /**
+     * @return the number of minutes from midnight until the [time], as stored in the database
+     * @see timeFromMinuteOfDay
+     */
+    @JvmStatic
+    fun asMinuteOfDay(time: LocalTime) = time.hour * 60 + time.minute
+
+    /**
+     * @return the [LocalTime] at a number of minutes from midnight, as stored in the database
+     * @see asMinuteOfDay
+     */
+    @JvmStatic
+    fun timeFromMinuteOfDay(minuteOfDay: Int) = LocalTime.of(minuteOfDay / 60, minuteOfDay % 60)!!
 
     @JvmStatic
     fun asCalendar(localDateTime: LocalDateTime) = GregorianCalendar(
@@ -76,8 +76,8 @@ object NotificationUtils {
     @JvmStatic
     fun cancelClassAlarms(context: Context) {
         Log.i(LOG_TAG, "Cancelling all class time alarms")
-        ClassTimeHandler(context).getAllItems().forEach {
-            AlarmReceiver().cancelAlarm(context, AlarmReceiver.Type.CLASS, it.id)
+        ClassTimeHandler(context).getItemSequence().use { items ->
+            items.forEach { AlarmReceiver().cancelAlarm(context, AlarmReceiver.Type.CLASS, it.id) }
         }
     }
 
@@ -89,8 +89,8 @@ object NotificationUtils {
     @JvmStatic
     fun addCurrentClassAlarms(context: Context, application: Application) {
         Log.i(LOG_TAG, "Adding class time alarms for the current timetable")
-        ClassTimeHandler(context).getItems(application).forEach {
-            ClassTimeHandler.addAlarmsForClassTime(context, application, it)
+        ClassTimeHandler(context).getItemSequence(application).use { classTimes ->
+            classTimes.forEach { ClassTimeHandler.addAlarmsForClassTime(context, application, it) }
         }
     }
 
@@ -116,8 +116,8 @@ object NotificationUtils {
     @JvmStatic
     fun cancelExamAlarms(context: Context) {
         Log.i(LOG_TAG, "Cancelling all exam alarms")
-        ExamHandler(context).getAllItems().forEach {
-            AlarmReceiver().cancelAlarm(context, AlarmReceiver.Type.EXAM, it.id)
+        ExamHandler(context).getItemSequence().use { items ->
+            items.forEach { AlarmReceiver().cancelAlarm(context, AlarmReceiver.Type.EXAM, it.id) }
         }
     }
 
@@ -129,11 +129,13 @@ object NotificationUtils {
     @JvmStatic
     fun addCurrentExamAlarms(context: Context, application: Application) {
         Log.i(LOG_TAG, "Adding exam alarms for the current timetable")
-        ExamHandler(context).getItems(application).forEach { exam ->
-            val examInPastToday = exam.date.isEqual(LocalDate.now()) && exam.isInPast()
+        ExamHandler(context).getItemSequence(application).use { exams ->
+            exams.forEach { exam ->
+                val examInPastToday = exam.date.isEqual(LocalDate.now()) && exam.isInPast()
 
-            if (exam.isUpcoming() || examInPastToday) {
-                ExamHandler.addAlarmForExam(context, exam)
+                if (exam.isUpcoming() || examInPastToday) {
+                    ExamHandler.addAlarmForExam(context, exam)
+                }
             }
         }
     }
@@ -218,8 +220,8 @@ object NotificationUtils {
     @JvmStatic
     fun cancelEventAlarms(context: Context) {
         Log.i(LOG_TAG, "Cancelling all event alarms")
-        EventHandler(context).getAllItems().forEach {
-            AlarmReceiver().cancelAlarm(context, AlarmReceiver.Type.EVENT, it.id)
+        EventHandler(context).getItemSequence().use { items ->
+            items.forEach { AlarmReceiver().cancelAlarm(context, AlarmReceiver.Type.EVENT, it.id) }
         }
     }
 
@@ -231,12 +233,14 @@ object NotificationUtils {
     @JvmStatic
     fun addCurrentEventAlarms(context: Context, application: Application) {
         Log.i(LOG_TAG, "Adding event alarms for the current timetable")
-        EventHandler(context).getItems(application).forEach { event ->
-            val examInPastToday =
-                    event.startDateTime.toLocalDate().isEqual(LocalDate.now()) && event.isInPast()
-
-            if (event.isUpcoming() || examInPastToday) {
-                EventHandler.addAlarmForEvent(context, event)
+        EventHandler(context).getItemSequence(application).use { events ->
+            events.forEach { event ->
+                val examInPastToday = event.startDateTime.toLocalDate().isEqual(LocalDate.now())
+                        && event.isInPast()
+
+                if (event.isUpcoming() || examInPastToday) {
+                    EventHandler.addAlarmForEvent(context, event)
+                }
             }
         }
     }
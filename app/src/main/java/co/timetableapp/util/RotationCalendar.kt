@@ -0,0 +1,155 @@
+/*
+ * Copyright 2017 Farbod Salamat-Zadeh
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package co.timetableapp.util
+
+import co.timetableapp.model.Timetable
+import org.threeten.bp.DayOfWeek
+import org.threeten.bp.LocalDate
+
+/**
+ * Finds the week numbers of dates in a timetable's week rotation, using days since the epoch
+ * (as in [LocalDate.toEpochDay]) so that no date objects need to be created for each day.
+ *
+ * Weeks run from Monday to Sunday, and the week containing the start date of the timetable is
+ * week 1. The rotation is repeated in both directions, so dates before the start date also have
+ * week numbers.
+ *
+ * @property weekRotations the number of weeks in the rotation, as in [Timetable.weekRotations]
+ * @see DateUtils.findWeekNumber
+ */
+class RotationCalendar(startDate: LocalDate, val weekRotations: Int) {
+
+    init {
+        if (weekRotations < 1) {
+            throw IllegalArgumentException("invalid number of week rotations: $weekRotations")
+        }
+    }
+
+    companion object {
+
+        // Used by the inline forEachBetween, so it can't be private
+        @PublishedApi
+        internal const val DAYS_PER_WEEK = 7
+
+        /**
+         * The day of the week of epoch day 0 (1 January 1970), with Monday as 0.
+         */
+        private const val EPOCH_DAY_OF_WEEK = 3
+
+        @JvmStatic
+        fun of(timetable: Timetable) =
+                RotationCalendar(timetable.startDate, timetable.weekRotations)
+
+        /**
+         * @return the day of the week of an [epochDay], from 1 (Monday) to 7 (Sunday) as in
+         *         [DayOfWeek.getValue]
+         */
+        @JvmStatic
+        fun dayOfWeekValue(epochDay: Long) =
+                floorMod(epochDay + EPOCH_DAY_OF_WEEK, DAYS_PER_WEEK.toLong()).toInt() + 1
+
+        private fun floorDiv(x: Long, y: Long): Long {
+            val quotient = x / y
+            return if ((x % y != 0L) && ((x xor y) < 0)) quotient - 1 else quotient
+        }
+
+        private fun floorMod(x: Long, y: Long) = x - floorDiv(x, y) * y
+    }
+
+    /**
+     * The epoch day of the Monday of week 1.
+     */
+    private val firstMonday = startDate.toEpochDay() - (startDate.dayOfWeek.value - 1)
+
+    /**
+     * The number of days before the rotation repeats.
+     */
+    private val cycleLength = weekRotations.toLong() * DAYS_PER_WEEK
+
+    /**
+     * @return the week number of the [epochDay], from 1 to [weekRotations]
+     */
+    fun weekNumberOf(epochDay: Long) =
+            (floorMod(floorDiv(epochDay - firstMonday, DAYS_PER_WEEK.toLong()),
+                    weekRotations.toLong()) + 1).toInt()
+
+    /**
+     * @return the week number of the [date], from 1 to [weekRotations]
+     */
+    fun weekNumberOf(date: LocalDate) = weekNumberOf(date.toEpochDay())
+
+    /**
+     * @return  the first epoch day on or after [fromEpochDay] which falls on the [dayOfWeek] of a
+     *          week with the [weekNumber]
+     */
+    fun firstOnOrAfter(fromEpochDay: Long, weekNumber: Int, dayOfWeek: DayOfWeek): Long {
+        if (weekNumber < 1 || weekNumber > weekRotations) {
+            throw IllegalArgumentException("invalid week number: $weekNumber")
+        }
+
+        // The first matching day of the rotation beginning on the Monday of week 1
+        val base = firstMonday + (weekNumber - 1) * DAYS_PER_WEEK + (dayOfWeek.value - 1)
+
+        // The number of whole rotations needed to reach the day (rounded up)
+        val cycles = -floorDiv(base - fromEpochDay, cycleLength)
+        return base + cycles * cycleLength
+    }
+
+    /**
+     * @return  the number of days from [startEpochDay] to [endEpochDay] (inclusive) falling on the
+     *          [dayOfWeek] of a week with the [weekNumber]
+     */
+    fun countBetween(startEpochDay: Long,
+                     endEpochDay: Long,
+                     weekNumber: Int,
+                     dayOfWeek: DayOfWeek): Int {
+        val first = firstOnOrAfter(startEpochDay, weekNumber, dayOfWeek)
+        return if (first > endEpochDay) 0 else ((endEpochDay - first) / cycleLength + 1).toInt()
+    }
+
+    /**
+     * Invokes the [action] with each epoch day from [startEpochDay] to [endEpochDay] (inclusive)
+     * which falls on the [dayOfWeek] of a week with the [weekNumber], in ascending order.
+     */
+    inline fun forEachBetween(startEpochDay: Long,
+                              endEpochDay: Long,
+                              weekNumber: Int,
+                              dayOfWeek: DayOfWeek,
+                              action: (epochDay: Long) -> Unit) {
+        val step = weekRotations.toLong() * DAYS_PER_WEEK
+        var epochDay = firstOnOrAfter(startEpochDay, weekNumber, dayOfWeek)
+        while (epochDay <= endEpochDay) {
+            action(epochDay)
+            epochDay += step
+        }
+    }
+
+    /**
+     * @return  the epoch days from [startEpochDay] to [endEpochDay] (inclusive) falling on the
+     *          [dayOfWeek] of a week with the [weekNumber], in ascending order
+     */
+    fun datesBetween(startEpochDay: Long,
+                     endEpochDay: Long,
+                     weekNumber: Int,
+                     dayOfWeek: DayOfWeek): LongArray {
+        val dates = LongArray(countBetween(startEpochDay, endEpochDay, weekNumber, dayOfWeek))
+        var i = 0
+        forEachBetween(startEpochDay, endEpochDay, weekNumber, dayOfWeek) { dates[i++] = it }
+        return dates
+    }
+
+}
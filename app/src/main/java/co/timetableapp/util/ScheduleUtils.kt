@@ -19,97 +19,210 @@ package co.timetableapp.util
 import android.app.Application
 import android.content.Context
 import co.timetableapp.TimetableApplication
-import co.timetableapp.data.handler.ClassTimeHandler
-import co.timetableapp.data.handler.DataNotFoundException
+import co.timetableapp.data.handler.ClassOccurrences
+import co.timetableapp.data.handler.OccurrenceEngine
+import co.timetableapp.data.handler.ScheduleIndex
+import co.timetableapp.data.query.Filter
 import co.timetableapp.data.query.Filters
 import co.timetableapp.data.query.Query
-import co.timetableapp.data.schema.ClassTimesSchema
+import co.timetableapp.data.schema.ClassScheduleSchema
 import co.timetableapp.model.Class
-import co.timetableapp.model.ClassDetail
-import co.timetableapp.model.ClassTime
+import co.timetableapp.model.ScheduleEntry
 import co.timetableapp.model.Timetable
 import org.threeten.bp.DayOfWeek
 import org.threeten.bp.LocalDate
+import org.threeten.bp.LocalDateTime
 
 /**
  * A utility class containing helper methods related to the user's schedule.
+ *
+ * Schedules are read from the class schedule table, so each class time is read together with its
+ * class detail, class and subject using a single query.
+ *
+ * @see ScheduleEntry
  */
 object ScheduleUtils {
 
     /**
-     * @return  the [ClassTime]s occurring on a particular [date] for the currently selected
-     *          timetable. Note that if the specified [date] is not within the start and end dates
-     *          of the current timetable, the returned list will be empty (the timetable would not
-     *          have started or would have ended).
+     * @return  the [ScheduleEntry]s occurring on a particular [date] for the currently selected
+     *          timetable. Note that if the specified [date] is not within a term of the current
+     *          timetable, the returned list will be empty (such as during holidays, or when the
+     *          timetable has not started or has ended).
      */
     @JvmStatic
-    fun getClassTimesForDate(context: Context,
-                             application: Application,
-                             date: LocalDate): List<ClassTime> {
+    fun getScheduleForDate(context: Context,
+                           application: Application,
+                           date: LocalDate): List<ScheduleEntry> {
         val timetable = (application as TimetableApplication).currentTimetable!!
         if (!timetable.isValidToday(date)) {
             // Return empty list if timetable hasn't started or has ended
             return emptyList()
         }
 
-        val weekNumber = DateUtils.findWeekNumber(application, date)
+        val weekNumber = DateUtils.findWeekNumber(timetable, date)
 
-        return getClassTimesForDate(context, timetable, date, date.dayOfWeek, weekNumber)
+        return getScheduleForDate(context, timetable, date, date.dayOfWeek, weekNumber)
     }
 
     /**
-     * Returns the class times occurring on the specified [date].
+     * Returns the schedule entries for the class times occurring on the specified [date], ordered
+     * by their start times.
      *
-     * Note that if the specified [date] is not within the start and end dates of the
-     * [currentTimetable], then an empty list will be returned as the timetable would either not
-     * have started or would have ended during that date.
+     * Note that if the specified [date] is not within a term of the [currentTimetable], then an
+     * empty list will be returned as no classes take place on that date.
      *
      * @param context           the activity context
      * @param currentTimetable  the current timetable as in [TimetableApplication.currentTimetable]
-     * @param date              the date to find [ClassTime]s for
+     * @param date              the date to find [ScheduleEntry]s for
      * @param dayOfWeek         the day of the week of the [date] (e.g. Monday, Tuesday, etc.)
      * @param weekNumber        the week number of the [date] according to the scheduling pattern
      *                          set by [Timetable.weekRotations]. For example, '2' if it the date
      *                          occurs on a 'Week 2' or 'Week B'.
      *
-     * @return the list of [ClassTime]s which occur on the specified [date]
+     * @return the list of [ScheduleEntry]s which occur on the specified [date]
      */
     @JvmStatic
-    fun getClassTimesForDate(context: Context,
-                             currentTimetable: Timetable,
-                             date: LocalDate,
-                             dayOfWeek: DayOfWeek,
-                             weekNumber: Int): List<ClassTime> {
-        if (!currentTimetable.isValidToday(date)) {
+    fun getScheduleForDate(context: Context,
+                           currentTimetable: Timetable,
+                           date: LocalDate,
+                           dayOfWeek: DayOfWeek,
+                           weekNumber: Int): List<ScheduleEntry> {
+        if (OccurrenceEngine.get(context, currentTimetable).countOn(date) == 0) {
+            // Avoid querying the database for days without classes
             return emptyList()
         }
 
-        val timetableId = currentTimetable.id
+        val query = Query.Builder()
+                .addFilter(makeDayFilter(currentTimetable, dayOfWeek, weekNumber))
+                .addFilter(makeClassDatesFilter(date, date))
+                .orderBy(ClassScheduleSchema.COL_START_TIME)
+                .build()
+
+        return ScheduleEntry.getEntries(context, query)
+    }
+
+    /**
+     * Returns the schedule entries of the [currentTimetable] for each date from the [startDate]
+     * to the [endDate] that classes take place on, ordered by their start times.
+     *
+     * This reads the dates from the class occurrences table, so it only needs a scan of the dates
+     * in the range and a single query for the entries, however many days there are.
+     *
+     * @see ClassOccurrences
+     */
+    @JvmStatic
+    fun getScheduleByDate(context: Context,
+                          currentTimetable: Timetable,
+                          startDate: LocalDate,
+                          endDate: LocalDate): Map<LocalDate, List<ScheduleEntry>> {
+        val occurrences =
+                ClassOccurrences.getBetween(context, currentTimetable, startDate, endDate)
+        if (occurrences.isEmpty()) {
+            return emptyMap()
+        }
 
         val query = Query.Builder()
-                .addFilter(Filters.equal(ClassTimesSchema.COL_TIMETABLE_ID, timetableId.toString()))
-                .addFilter(Filters.equal(ClassTimesSchema.COL_DAY, dayOfWeek.value.toString()))
-                .addFilter(Filters.equal(ClassTimesSchema.COL_WEEK_NUMBER, weekNumber.toString()))
+                .addFilter(Filters.equal(
+                        ClassScheduleSchema.COL_TIMETABLE_ID, currentTimetable.id.toString()))
                 .build()
+        val entries = ScheduleEntry.getEntries(context, query).associateBy { it.classTime.id }
+
+        val schedule = LinkedHashMap<LocalDate, ArrayList<ScheduleEntry>>()
+        for (occurrence in occurrences) {
+            val entry = entries[occurrence.classTimeId] ?: continue
+            schedule.getOrPut(occurrence.date) { ArrayList() }.add(entry)
+        }
+        return schedule
+    }
 
-        val classTimes = ArrayList<ClassTime>()
-
-        for (classTime in ClassTimeHandler(context).getAllItems(query)) {
-            try {
-                val classDetail = ClassDetail.create(context, classTime.classDetailId)
-                val cls = Class.create(context, classDetail.classId)
-
-                if (cls.isCurrent(date)) {
-                    classTimes.add(classTime)
-                }
-            } catch (e: DataNotFoundException) {
-                // Don't display to the user if the item can't be found but print the stack trace
-                e.printStackTrace()
-                continue
-            }
+    /**
+     * @return  the schedule entry for the class time with the [classTimeId], if it takes place on
+     *          the [date] in the current timetable, otherwise null
+     */
+    @JvmStatic
+    fun findScheduledEntry(context: Context,
+                           application: Application,
+                           classTimeId: Int,
+                           date: LocalDate): ScheduleEntry? {
+        val timetable = (application as TimetableApplication).currentTimetable!!
+        if (!OccurrenceEngine.get(context, timetable).occursOn(classTimeId, date)) {
+            return null
         }
 
-        return classTimes
+        val weekNumber = DateUtils.findWeekNumber(timetable, date)
+
+        val query = Query.Builder()
+                .addFilter(Filters.equal(ClassScheduleSchema._ID, classTimeId.toString()))
+                .addFilter(makeDayFilter(timetable, date.dayOfWeek, weekNumber))
+                .addFilter(makeClassDatesFilter(date, date))
+                .build()
+
+        return ScheduleEntry.getEntries(context, query).firstOrNull()
+    }
+
+    /**
+     * @return  the id of the class time taking place at the [dateTime] in the current timetable,
+     *          or [ScheduleIndex.NO_CLASS_TIME] if there isn't one
+     * @see OccurrenceEngine.findCurrent
+     */
+    @JvmStatic
+    fun findCurrentClassTimeId(context: Context,
+                               application: Application,
+                               dateTime: LocalDateTime): Int {
+        val timetable = (application as TimetableApplication).currentTimetable!!
+        return OccurrenceEngine.get(context, timetable).findCurrent(dateTime)
+    }
+
+    /**
+     * @return  the id of the next class time starting at or after the [dateTime] on the same day
+     *          in the current timetable, or [ScheduleIndex.NO_CLASS_TIME] if there isn't one
+     * @see OccurrenceEngine.findNext
+     */
+    @JvmStatic
+    fun findNextClassTimeId(context: Context,
+                            application: Application,
+                            dateTime: LocalDateTime): Int {
+        val timetable = (application as TimetableApplication).currentTimetable!!
+        return OccurrenceEngine.get(context, timetable).findNext(dateTime)
+    }
+
+    /**
+     * @return  the date of the next time the class time with the [classTimeId] starts in the
+     *          current timetable, at or after the [dateTime], or null if it doesn't take place
+     *          again
+     * @see OccurrenceEngine.findNextOccurrence
+     */
+    @JvmStatic
+    fun findNextOccurrence(context: Context,
+                           application: Application,
+                           classTimeId: Int,
+                           dateTime: LocalDateTime): LocalDate? {
+        val timetable = (application as TimetableApplication).currentTimetable!!
+        return OccurrenceEngine.get(context, timetable).findNextOccurrence(classTimeId, dateTime)
+    }
+
+    private fun makeDayFilter(timetable: Timetable, dayOfWeek: DayOfWeek, weekNumber: Int) =
+            Filters.and(
+                    Filters.equal(ClassScheduleSchema.COL_TIMETABLE_ID, timetable.id.toString()),
+                    Filters.equal(ClassScheduleSchema.COL_DAY, dayOfWeek.value.toString()),
+                    Filters.equal(ClassScheduleSchema.COL_WEEK_NUMBER, weekNumber.toString()))
+
+    /**
+     * @return  a filter for rows whose classes take place on at least one day from the
+     *          [startDate] to the [endDate], as in [Class.isCurrent]. Classes without start and end
+     *          dates take place on every day.
+     */
+    private fun makeClassDatesFilter(startDate: LocalDate, endDate: LocalDate): Filter {
+        val noDate = Class.NO_DATE.toEpochDay().toString()
+        val classStartCol = ClassScheduleSchema.COL_CLASS_START_DATE
+        val classEndCol = ClassScheduleSchema.COL_CLASS_END_DATE
+
+        return Filters.or(
+                Filters.equal(classStartCol, noDate),
+                Filters.equal(classEndCol, noDate),
+                Filters.and(
+                        Filters.lessThan(classStartCol, (endDate.toEpochDay() + 1).toString()),
+                        Filters.greaterThan(classEndCol, (startDate.toEpochDay() - 1).toString())))
     }
 
 }
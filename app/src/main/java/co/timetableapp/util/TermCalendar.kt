@@ -0,0 +1,145 @@
+/*
+ * Copyright 2017 Farbod Salamat-Zadeh
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package co.timetableapp.util
+
+import co.timetableapp.model.Term
+import co.timetableapp.model.Timetable
+
+/**
+ * The days of a timetable that are within its terms, held as a sorted set of date ranges using
+ * days since the epoch (as in [org.threeten.bp.LocalDate.toEpochDay]).
+ *
+ * Overlapping and adjacent terms are merged into a single range, and terms are limited to the
+ * start and end dates of the timetable. If the timetable has no terms, every day from its start
+ * date to its end date is a term day. Days outside the ranges, such as holidays between terms, are
+ * not.
+ *
+ * Lookups are a binary search over the ranges.
+ *
+ * @see RotationCalendar
+ */
+class TermCalendar private constructor(
+        private val rangeStarts: LongArray,
+        private val rangeEnds: LongArray
+) {
+
+    companion object {
+
+        /**
+         * Returned by lookups when no day was found.
+         */
+        const val NO_DAY = Long.MIN_VALUE
+
+        /**
+         * @param timetable the timetable the terms belong to
+         * @param terms     the terms of the [timetable]
+         */
+        @JvmStatic
+        fun of(timetable: Timetable, terms: List<Term>) = of(
+                timetable.startDate.toEpochDay(),
+                timetable.endDate.toEpochDay(),
+                LongArray(terms.size) { terms[it].startDate.toEpochDay() },
+                LongArray(terms.size) { terms[it].endDate.toEpochDay() })
+
+        /**
+         * @param startDay      the epoch day of the start date of the timetable
+         * @param endDay        the epoch day of the end date of the timetable
+         * @param termStarts    the epoch days of the start dates of the terms
+         * @param termEnds      the epoch days of the end dates of the terms, in the same order as
+         *                      [termStarts]
+         */
+        @JvmStatic
+        fun of(startDay: Long, endDay: Long, termStarts: LongArray, termEnds: LongArray):
+                TermCalendar {
+            if (termStarts.isEmpty()) {
+                return TermCalendar(longArrayOf(startDay), longArrayOf(endDay))
+            }
+
+            val order = termStarts.indices.sortedBy { termStarts[it] }
+
+            val rangeStarts = LongArray(order.size)
+            val rangeEnds = LongArray(order.size)
+            var count = 0
+
+            for (i in order) {
+                val start = Math.max(termStarts[i], startDay)
+                val end = Math.min(termEnds[i], endDay)
+                if (start > end) {
+                    // The term is outside the timetable
+                    continue
+                }
+
+                if (count > 0 && start <= rangeEnds[count - 1] + 1) {
+                    rangeEnds[count - 1] = Math.max(rangeEnds[count - 1], end)
+                } else {
+                    rangeStarts[count] = start
+                    rangeEnds[count] = end
+                    count++
+                }
+            }
+
+            return TermCalendar(rangeStarts.copyOf(count), rangeEnds.copyOf(count))
+        }
+    }
+
+    /**
+     * @return whether the [epochDay] is within a term
+     */
+    operator fun contains(epochDay: Long): Boolean {
+        val i = lastRangeStartingBy(epochDay)
+        return i >= 0 && rangeEnds[i] >= epochDay
+    }
+
+    /**
+     * @return the first epoch day on or after the [epochDay] within a term, or [NO_DAY]
+     */
+    fun firstOnOrAfter(epochDay: Long): Long {
+        val i = lastRangeStartingBy(epochDay)
+        return if (i >= 0 && rangeEnds[i] >= epochDay) {
+            epochDay
+        } else if (i + 1 < rangeStarts.size) {
+            rangeStarts[i + 1]
+        } else {
+            NO_DAY
+        }
+    }
+
+    /**
+     * Invokes the [action] with the first and last epoch days of each range of term days, in
+     * ascending order.
+     */
+    fun forEachRange(action: (startDay: Long, endDay: Long) -> Unit) {
+        for (i in rangeStarts.indices) {
+            action(rangeStarts[i], rangeEnds[i])
+        }
+    }
+
+    /**
+     * @return  the position of the last range starting on or before the [epochDay], or -1 if
+     *          there isn't one
+     */
+    private fun lastRangeStartingBy(epochDay: Long): Int {
+        var low = 0
+        var high = rangeStarts.size
+        while (low < high) {
+            val mid = (low + high).ushr(1)
+            if (rangeStarts[mid] <= epochDay) low = mid + 1 else high = mid
+        }
+        return low - 1
+    }
+
+}
@@ -0,0 +1,206 @@
+/*
+ * Copyright 2017 Farbod Salamat-Zadeh
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package co.timetableapp.util
+
+import org.junit.Assert.assertArrayEquals
+import org.junit.Assert.assertEquals
+import org.junit.Test
+import org.threeten.bp.DayOfWeek
+import org.threeten.bp.LocalDate
+
+/**
+ * Checks [RotationCalendar] against a reference that steps through the calendar a week or a day
+ * at a time, as the week number and alarm code did before it.
+ */
+class RotationCalendarTest {
+
+    companion object {
+
+        /**
+         * Timetable start dates falling on different days of the week, around year boundaries
+         * and leap days, and before the epoch (negative epoch days).
+         */
+        private val START_DATES = listOf(
+                LocalDate.of(2017, 9, 4), // a Monday
+                LocalDate.of(2017, 9, 10), // a Sunday
+                LocalDate.of(2017, 12, 31),
+                LocalDate.of(2016, 2, 29),
+                LocalDate.of(1969, 12, 30))
+
+        private const val MAX_WEEK_ROTATIONS = 4
+
+        /**
+         * The number of days before and after the start date to check.
+         */
+        private const val DAYS_CHECKED = 400L
+    }
+
+    /**
+     * @return the week number of the [date], found by moving a week at a time from the Monday of
+     *         the week containing the [startDate]
+     */
+    private fun referenceWeekNumber(startDate: LocalDate,
+                                    weekRotations: Int,
+                                    date: LocalDate): Int {
+        var monday = startDate.minusDays(startDate.dayOfWeek.value - 1L)
+        var weeks = 0
+
+        while (date.isBefore(monday)) {
+            monday = monday.minusWeeks(1)
+            weeks--
+        }
+        while (!date.isBefore(monday.plusWeeks(1))) {
+            monday = monday.plusWeeks(1)
+            weeks++
+        }
+
+        return (weeks % weekRotations + weekRotations) % weekRotations + 1
+    }
+
+    /**
+     * @return the first date on or after [fromDate] on the [dayOfWeek] of a week with the
+     *         [weekNumber], found by checking one week at a time
+     */
+    private fun referenceFirstOnOrAfter(startDate: LocalDate,
+                                        weekRotations: Int,
+                                        fromDate: LocalDate,
+                                        weekNumber: Int,
+                                        dayOfWeek: DayOfWeek): LocalDate {
+        var date = fromDate
+        while (date.dayOfWeek != dayOfWeek) {
+            date = date.plusDays(1)
+        }
+        while (referenceWeekNumber(startDate, weekRotations, date) != weekNumber) {
+            date = date.plusWeeks(1)
+        }
+        return date
+    }
+
+    /**
+     * @return the epoch days from [start] to [end] (inclusive) on the [dayOfWeek] of a week with
+     *         the [weekNumber], found by checking one week at a time
+     */
+    private fun referenceDatesBetween(startDate: LocalDate,
+                                      weekRotations: Int,
+                                      start: LocalDate,
+                                      end: LocalDate,
+                                      weekNumber: Int,
+                                      dayOfWeek: DayOfWeek): List<Long> {
+        val dates = ArrayList<Long>()
+        var date = start
+        while (date.dayOfWeek != dayOfWeek) {
+            date = date.plusDays(1)
+        }
+        while (!date.isAfter(end)) {
+            if (referenceWeekNumber(startDate, weekRotations, date) == weekNumber) {
+                dates.add(date.toEpochDay())
+            }
+            date = date.plusWeeks(1)
+        }
+        return dates
+    }
+
+    /**
+     * Invokes the [check] for each start date and number of week rotations being tested.
+     */
+    private fun forEachCalendar(check: (LocalDate, Int, RotationCalendar) -> Unit) {
+        for (startDate in START_DATES) {
+            for (weekRotations in 1..MAX_WEEK_ROTATIONS) {
+                check(startDate, weekRotations, RotationCalendar(startDate, weekRotations))
+            }
+        }
+    }
+
+    @Test
+    fun weekNumberOfMatchesReference() = forEachCalendar { startDate, weekRotations, calendar ->
+        var date = startDate.minusDays(DAYS_CHECKED)
+        while (!date.isAfter(startDate.plusDays(DAYS_CHECKED))) {
+            assertEquals("$date with $weekRotations weeks starting $startDate",
+                    referenceWeekNumber(startDate, weekRotations, date),
+                    calendar.weekNumberOf(date))
+            date = date.plusDays(1)
+        }
+    }
+
+    @Test
+    fun startDateIsInWeekOne() = forEachCalendar { startDate, _, calendar ->
+        assertEquals(1, calendar.weekNumberOf(startDate))
+    }
+
+    @Test
+    fun firstOnOrAfterMatchesReference() = forEachCalendar { startDate, weekRotations, calendar ->
+        var fromDate = startDate.minusDays(DAYS_CHECKED)
+        while (!fromDate.isAfter(startDate.plusDays(DAYS_CHECKED))) {
+            for (weekNumber in 1..weekRotations) {
+                for (dayOfWeek in DayOfWeek.values()) {
+                    val expected = referenceFirstOnOrAfter(
+                            startDate, weekRotations, fromDate, weekNumber, dayOfWeek)
+                    assertEquals("week $weekNumber $dayOfWeek from $fromDate",
+                            expected.toEpochDay(),
+                            calendar.firstOnOrAfter(fromDate.toEpochDay(), weekNumber, dayOfWeek))
+                }
+            }
+            fromDate = fromDate.plusDays(13)
+        }
+    }
+
+    @Test(expected = IllegalArgumentException::class)
+    fun firstOnOrAfterRejectsInvalidWeekNumber() {
+        RotationCalendar(START_DATES[0], 2).firstOnOrAfter(0, 3, DayOfWeek.MONDAY)
+    }
+
+    @Test
+    fun betweenMatchesReference() = forEachCalendar { startDate, weekRotations, calendar ->
+        var start = startDate.minusDays(DAYS_CHECKED)
+        while (!start.isAfter(startDate.plusDays(DAYS_CHECKED))) {
+            // Include empty ranges, ranges shorter than a rotation, and ones crossing year ends
+            for (length in longArrayOf(-1, 0, 6, 20, 90, 200)) {
+                val end = start.plusDays(length)
+
+                for (weekNumber in 1..weekRotations) {
+                    for (dayOfWeek in DayOfWeek.values()) {
+                        val expected = referenceDatesBetween(
+                                startDate, weekRotations, start, end, weekNumber, dayOfWeek)
+                        val message = "week $weekNumber $dayOfWeek from $start to $end"
+
+                        assertEquals(message, expected.size, calendar.countBetween(
+                                start.toEpochDay(), end.toEpochDay(), weekNumber, dayOfWeek))
+
+                        val visited = ArrayList<Long>()
+                        calendar.forEachBetween(start.toEpochDay(), end.toEpochDay(), weekNumber,
+                                dayOfWeek) { visited.add(it) }
+                        assertEquals(message, expected, visited)
+
+                        assertArrayEquals(message, expected.toLongArray(), calendar.datesBetween(
+                                start.toEpochDay(), end.toEpochDay(), weekNumber, dayOfWeek))
+                    }
+                }
+            }
+            start = start.plusDays(47)
+        }
+    }
+
+    @Test
+    fun dayOfWeekValueMatchesLocalDate() {
+        var date = LocalDate.of(1969, 12, 1)
+        while (date.isBefore(LocalDate.of(1970, 2, 1))) {
+            assertEquals(date.dayOfWeek.value, RotationCalendar.dayOfWeekValue(date.toEpochDay()))
+            date = date.plusDays(1)
+        }
+    }
+
+}